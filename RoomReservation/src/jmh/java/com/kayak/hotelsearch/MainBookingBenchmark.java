@@ -0,0 +1,91 @@
+package com.kayak.hotelsearch;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kayak.hotelsearch.benchmark.BenchmarkRooms;
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.metrics.BookingMetrics;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+
+/**
+ * End-to-end booking through {@link Main#bookRoom}. Each operation books a random
+ * room and releases it again on success, so the room set stays in steady state.
+ * With metrics on, every attempt also pays for the outcome counters and the
+ * service-time histogram, which should not show up as a throughput difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainBookingBenchmark {
+    @Param({"7", "1000", "100000"})
+    private int roomCount;
+
+    @Param({"false", "true"})
+    private boolean metricsEnabled;
+
+    private RoomDatabaseAccessService service;
+    private BookingRequest[] requests;
+    private BookingMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new RoomDatabaseAccessService(BenchmarkRooms.create(roomCount));
+        if (metricsEnabled) {
+            metrics = new BookingMetrics();
+            service.addBookingAttemptListener(metrics);
+        }
+        requests = new BookingRequest[roomCount];
+        for (int i = 0; i < roomCount; i++) {
+            requests[i] = new BookingRequest(BenchmarkRooms.FIRST_ROOM_NUMBER + i, "Guest " + i);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean bookRoom1Thread() {
+        return bookAndRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean bookRoom4Threads() {
+        return bookAndRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean bookRoom16Threads() {
+        return bookAndRelease();
+    }
+
+    private boolean bookAndRelease() {
+        BookingRequest request = requests[ThreadLocalRandom.current().nextInt(roomCount)];
+        long start = metricsEnabled ? System.nanoTime() : 0;
+        boolean booked = Main.bookRoom(service, request);
+        if (booked) {
+            service.tryUnbook(request.getRoomNumber());
+        }
+        if (metricsEnabled) {
+            metrics.recordServiceTime(System.nanoTime() - start);
+        }
+        return booked;
+    }
+}
@@ -0,0 +1,138 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * "Any room of the type" allocation from 1 to 256 threads against a mostly booked hotel.
+ * Each thread books a STANDARD room and releases it again, either by scanning every room
+ * for a free one, by asking the price index for the cheapest free one, or through
+ * {@code bookAnyOfType}'s free list. The first two make every thread find the same room
+ * and race for it, so the lost races per booking are reported alongside throughput.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.AnyRoomAllocationBenchmark</pre>
+ */
+public class AnyRoomAllocationBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 10_000);
+    private static final double OCCUPANCY = Double.parseDouble(System.getProperty("benchmark.occupancy", "0.9"));
+    private static final int[] THREAD_COUNTS = {1, 16, 256};
+    private static final long WARMUP_MILLIS = Long.getLong("benchmark.warmupMillis", 500);
+    private static final long MEASURE_MILLIS = Long.getLong("benchmark.measureMillis", 2000);
+    private static final RoomQuery CHEAPEST_STANDARD = RoomQuery.builder().roomType(RoomType.STANDARD).limit(1).build();
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d STANDARD rooms, %.0f%% booked%n", ROOMS, OCCUPANCY * 100);
+        System.out.printf("%8s %-10s %15s %15s%n", "threads", "allocator", "bookings/s", "lost/booking");
+        for (int threads : THREAD_COUNTS) {
+            report(threads, "scan", AnyRoomAllocationBenchmark::scan);
+            report(threads, "query", AnyRoomAllocationBenchmark::query);
+            report(threads, "free-list", (service, guest, lost) -> service.bookAnyOfType(RoomType.STANDARD, guest));
+        }
+    }
+
+    private static void report(int threads, String name, Allocator allocator) throws InterruptedException {
+        RoomDatabaseAccessService service = hotel();
+        run(service, threads, allocator, WARMUP_MILLIS);
+        long[] result = run(service, threads, allocator, MEASURE_MILLIS);
+        service.close();
+        System.out.printf("%8d %-10s %15.0f %15.2f%n", threads, name,
+                result[0] * 1000.0 / MEASURE_MILLIS, result[0] == 0 ? 0.0 : (double) result[1] / result[0]);
+    }
+
+    // Bookings and lost races
+    private static long[] run(RoomDatabaseAccessService service, int threads, Allocator allocator, long durationMillis)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder bookings = new LongAdder();
+        LongAdder lost = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        for (int t = 0; t < threads; t++) {
+            String guest = "Guest " + t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        Room room = allocator.allocate(service, guest, lost);
+                        if (room != null) {
+                            bookings.increment();
+                            service.tryUnbook(room.getRoomNumber());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+        return new long[] {bookings.sum(), lost.sum()};
+    }
+
+    private static Room scan(RoomDatabaseAccessService service, String guest, LongAdder lost) {
+        while (true) {
+            Room free = service.getAllRooms().stream()
+                    .filter(room -> room.getRoomType() == RoomType.STANDARD && service.isRoomAvailable(room.getRoomNumber()))
+                    .findFirst()
+                    .orElse(null);
+            if (free == null) {
+                return null;
+            }
+            if (service.tryBook(free.getRoomNumber(), guest)) {
+                return free;
+            }
+            lost.increment();
+        }
+    }
+
+    private static Room query(RoomDatabaseAccessService service, String guest, LongAdder lost) {
+        while (true) {
+            List<Room> cheapest = service.findAvailableRooms(CHEAPEST_STANDARD);
+            if (cheapest.isEmpty()) {
+                return null;
+            }
+            if (service.tryBook(cheapest.get(0).getRoomNumber(), guest)) {
+                return cheapest.get(0);
+            }
+            lost.increment();
+        }
+    }
+
+    private static RoomDatabaseAccessService hotel() {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(RoomType.STANDARD)
+                    .price(100.0 + i % 50)
+                    .isAvailable(true)
+                    .build());
+        }
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(rooms);
+        // The lowest-numbered rooms are taken, so a scan passes all of them before reaching a free one
+        int booked = (int) (ROOMS * OCCUPANCY);
+        for (int i = 1; i <= booked; i++) {
+            service.tryBook(i, "Owner " + i);
+        }
+        return service;
+    }
+
+    @FunctionalInterface
+    private interface Allocator {
+        Room allocate(RoomDatabaseAccessService service, String guest, LongAdder lost);
+    }
+}
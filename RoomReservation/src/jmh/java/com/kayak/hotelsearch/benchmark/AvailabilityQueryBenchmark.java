@@ -0,0 +1,73 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.kayak.hotelsearch.room.NightInventory;
+
+/**
+ * Fills a 100k room x 365 night inventory with random stays and times single-room
+ * overlap checks and whole-inventory availability counts.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.AvailabilityQueryBenchmark</pre>
+ */
+public class AvailabilityQueryBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 100_000);
+    private static final int NIGHTS = 365;
+    private static final int STAYS_PER_ROOM = 40;
+    private static final int QUERIES = 1_000_000;
+    private static final int COUNT_QUERIES = 200;
+
+    public static void main(String[] args) {
+        LocalDate firstNight = LocalDate.now();
+        NightInventory inventory = new NightInventory(firstNight, NIGHTS, ROOMS);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        int reserved = 0;
+        for (int room = 1; room <= ROOMS; room++) {
+            inventory.addRoom(room);
+            for (int i = 0; i < STAYS_PER_ROOM; i++) {
+                LocalDate checkIn = firstNight.plusDays(random.nextInt(NIGHTS - 14));
+                if (inventory.tryReserve(room, "Guest " + room, checkIn, checkIn.plusDays(1 + random.nextInt(14)))) {
+                    reserved++;
+                }
+            }
+        }
+        System.out.printf("Loaded %d rooms with %d stays in %d ms%n",
+                ROOMS, reserved, (System.nanoTime() - start) / 1_000_000);
+
+        int[] rooms = new int[QUERIES];
+        LocalDate[] checkIns = new LocalDate[QUERIES];
+        LocalDate[] checkOuts = new LocalDate[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            rooms[i] = 1 + random.nextInt(ROOMS);
+            checkIns[i] = firstNight.plusDays(random.nextInt(NIGHTS - 14));
+            checkOuts[i] = checkIns[i].plusDays(1 + random.nextInt(14));
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            int available = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                if (inventory.isAvailable(rooms[i], checkIns[i], checkOuts[i])) {
+                    available++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Room overlap check: %.1f ns/query (%d of %d free)%n",
+                    (double) elapsed / QUERIES, available, QUERIES);
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            long total = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < COUNT_QUERIES; i++) {
+                total += inventory.countAvailable(checkIns[i], checkOuts[i]);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Availability count over %d rooms: %.1f us/query (avg %d free)%n",
+                    ROOMS, elapsed / 1_000.0 / COUNT_QUERIES, total / COUNT_QUERIES);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+public final class BenchmarkRooms {
+    public static final int FIRST_ROOM_NUMBER = 101;
+    private static final RoomType[] TYPES = RoomType.values();
+
+    private BenchmarkRooms() {
+    }
+
+    // Rooms numbered FIRST_ROOM_NUMBER.. with types and prices spread evenly
+    public static List<Room> create(int count) {
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RoomType type = TYPES[i % TYPES.length];
+            rooms.add(Room.builder()
+                    .roomNumber(FIRST_ROOM_NUMBER + i)
+                    .roomType(type)
+                    .price(100.0 + 50.0 * type.ordinal())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+}
@@ -0,0 +1,86 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+
+/**
+ * Hammers a handful of hot rooms with book/unbook cycles from 1 to 64 threads and
+ * reports throughput and the number of double bookings observed.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.BookingContentionBenchmark</pre>
+ */
+public class BookingContentionBenchmark {
+    private static final int[] HOT_ROOMS = {101, 102, 103};
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long WARMUP_MILLIS = Long.getLong("benchmark.warmupMillis", 500);
+    private static final long MEASURE_MILLIS = Long.getLong("benchmark.measureMillis", 2000);
+
+    public static void main(String[] args) throws InterruptedException {
+        RoomDatabaseAccessService service = RoomDatabaseAccessService.getInstance();
+        System.out.printf("%8s %15s %15s %15s%n", "threads", "attempts/s", "bookings/s", "double-booked");
+        for (int threads : THREAD_COUNTS) {
+            run(service, threads, WARMUP_MILLIS);
+            Result result = run(service, threads, MEASURE_MILLIS);
+            System.out.printf("%8d %15.0f %15.0f %15d%n",
+                    threads,
+                    result.attempts * 1000.0 / MEASURE_MILLIS,
+                    result.bookings * 1000.0 / MEASURE_MILLIS,
+                    result.doubleBookings);
+        }
+    }
+
+    private static Result run(RoomDatabaseAccessService service, int threads, long durationMillis)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder attempts = new LongAdder();
+        LongAdder bookings = new LongAdder();
+        LongAdder doubleBookings = new LongAdder();
+        // One holder flag per hot room: a booking that succeeds while the flag is
+        // already set means two threads both believe they own the room.
+        AtomicIntegerArray holders = new AtomicIntegerArray(HOT_ROOMS.length);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        for (int t = 0; t < threads; t++) {
+            String guest = "Guest " + t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int slot = random.nextInt(HOT_ROOMS.length);
+                        attempts.increment();
+                        if (service.tryBook(HOT_ROOMS[slot], guest)) {
+                            bookings.increment();
+                            if (!holders.compareAndSet(slot, 0, 1)) {
+                                doubleBookings.increment();
+                            }
+                            holders.set(slot, 0);
+                            service.tryUnbook(HOT_ROOMS[slot]);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+        return new Result(attempts.sum(), bookings.sum(), doubleBookings.sum());
+    }
+
+    private record Result(long attempts, long bookings, long doubleBookings) {
+    }
+}
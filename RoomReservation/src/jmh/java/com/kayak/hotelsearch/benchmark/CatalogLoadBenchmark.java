@@ -0,0 +1,101 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kayak.hotelsearch.persistence.RoomCatalog;
+import com.kayak.hotelsearch.persistence.RoomCatalogConverter;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Cold-start time to fill a room store at catalogue scale, parsing a JSON room list
+ * with Jackson versus memory-mapping the equivalent binary catalogue.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.CatalogLoadBenchmark</pre>
+ */
+public class CatalogLoadBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 5_000_000);
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 3);
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("catalogue");
+        Path json = directory.resolve("rooms.json");
+        Path catalogue = directory.resolve("rooms.rcat");
+        try {
+            writeJson(json);
+            long start = System.nanoTime();
+            RoomCatalogConverter.convert(json, catalogue, Room.DEFAULT_HOTEL);
+            System.out.printf("%d rooms, %d processors; JSON %.1f MB, catalogue %.1f MB, converted in %d ms%n",
+                    ROOMS, Runtime.getRuntime().availableProcessors(),
+                    Files.size(json) / 1e6, Files.size(catalogue) / 1e6, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("%-24s %12s%n", "source", "best ms");
+            report("json, concurrent", () -> loadJson(json));
+            report("catalogue, concurrent", () -> RoomCatalog.load(catalogue, "concurrent"));
+            report("catalogue, dense", () -> RoomCatalog.load(catalogue, "dense"));
+        } finally {
+            Files.deleteIfExists(json);
+            Files.deleteIfExists(catalogue);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private interface Load {
+        RoomStore run() throws IOException;
+    }
+
+    private static void report(String name, Load load) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            System.gc();
+            long start = System.nanoTime();
+            RoomStore store = load.run();
+            best = Math.min(best, System.nanoTime() - start);
+            if (store.size() != ROOMS) {
+                throw new IllegalStateException("Unexpected store size " + store.size());
+            }
+        }
+        System.out.printf("%-24s %12d%n", name, best / 1_000_000);
+    }
+
+    // The path a catalogue took before: Jackson parsing plus one validated builder per room
+    private static RoomStore loadJson(Path json) throws IOException {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (JsonNode entry : new ObjectMapper().readTree(json.toFile())) {
+            rooms.add(Room.builder()
+                    .roomNumber(entry.path("roomNumber").asInt())
+                    .roomType(RoomType.valueOf(entry.path("roomType").asText()))
+                    .price(entry.path("price").asDouble())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return RoomDatabaseAccessService.createRoomStore("concurrent", rooms);
+    }
+
+    private static void writeJson(Path json) throws IOException {
+        RoomType[] types = RoomType.values();
+        try (JsonGenerator out = new ObjectMapper().getFactory().createGenerator(json.toFile(),
+                JsonEncoding.UTF8)) {
+            out.writeStartArray();
+            for (int i = 1; i <= ROOMS; i++) {
+                RoomType type = types[i % types.length];
+                out.writeStartObject();
+                out.writeNumberField("roomNumber", i);
+                out.writeStringField("roomType", type.name());
+                out.writeNumberField("price", 100.0 + 50.0 * type.ordinal());
+                out.writeEndObject();
+            }
+            out.writeEndArray();
+        }
+    }
+}
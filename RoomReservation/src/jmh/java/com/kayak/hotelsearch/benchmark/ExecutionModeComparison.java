@@ -0,0 +1,96 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.kayak.hotelsearch.booking.BookingProcessor;
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.booking.FixedPoolBookingProcessor;
+import com.kayak.hotelsearch.booking.ShardedBookingProcessor;
+import com.kayak.hotelsearch.booking.VirtualThreadBookingProcessor;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+
+/**
+ * Pushes the same workload through the fixed worker pool, the virtual thread and the
+ * sharded processor while every booking pays a simulated backing-store round trip, and
+ * reports throughput and latency percentiles (submit to completion) for each. Run with
+ * -Dbenchmark.ioLatencyMillis=0 to compare the queueing overhead alone.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.ExecutionModeComparison</pre>
+ */
+public class ExecutionModeComparison {
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5_000);
+    private static final long IO_LATENCY_MILLIS = Long.getLong("benchmark.ioLatencyMillis", 5);
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.poolSize", 10);
+    private static final int MAX_CONCURRENCY = Integer.getInteger("benchmark.maxConcurrency", 1_000);
+    private static final int SHARDS = Integer.getInteger("benchmark.shards", Runtime.getRuntime().availableProcessors());
+    private static final int[] ROOMS = {101, 102, 103, 104, 105, 106, 107};
+
+    public static void main(String[] args) {
+        System.out.printf("%d requests, %d ms simulated store latency%n", REQUESTS, IO_LATENCY_MILLIS);
+        System.out.printf("%-24s %12s %10s %10s %10s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms");
+        run("fixed pool (" + POOL_SIZE + ")",
+                handler -> new FixedPoolBookingProcessor(POOL_SIZE, REQUESTS, handler));
+        run("virtual (" + MAX_CONCURRENCY + ")",
+                handler -> new VirtualThreadBookingProcessor(MAX_CONCURRENCY, handler));
+        run("sharded (" + SHARDS + ")",
+                handler -> new ShardedBookingProcessor(SHARDS, REQUESTS, handler));
+    }
+
+    private static void run(String name, Function<Consumer<BookingRequest>, BookingProcessor> factory) {
+        RoomDatabaseAccessService service = RoomDatabaseAccessService.getInstance();
+        long[] latencies = new long[REQUESTS];
+        BookingProcessor processor = factory.apply(request -> {
+            TimedRequest timed = (TimedRequest) request;
+            simulateStoreRoundTrip();
+            if (service.tryBook(timed.getRoomNumber(), timed.getGuestName())) {
+                service.tryUnbook(timed.getRoomNumber());
+            }
+            latencies[timed.sequence] = System.nanoTime() - timed.submittedAt;
+        });
+
+        processor.start();
+        long start = System.nanoTime();
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < REQUESTS; i++) {
+                processor.submit(new TimedRequest(ROOMS[random.nextInt(ROOMS.length)], "Guest " + i, i));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            processor.close();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-24s %12.0f %10.2f %10.2f %10.2f%n",
+                name,
+                REQUESTS * 1e9 / elapsed,
+                latencies[REQUESTS / 2] / 1e6,
+                latencies[(int) (REQUESTS * 0.99)] / 1e6,
+                latencies[REQUESTS - 1] / 1e6);
+    }
+
+    private static void simulateStoreRoundTrip() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(IO_LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class TimedRequest extends BookingRequest {
+        private final int sequence;
+        private final long submittedAt;
+
+        TimedRequest(int roomNumber, String guest, int sequence) {
+            super(roomNumber, guest);
+            this.sequence = sequence;
+            this.submittedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.kayak.hotelsearch.concurrent.TimerWheel;
+
+/**
+ * Schedules a checkout hold's expiry per simulated shopper, ten-minute timeouts with some
+ * jitter, then cancels most of them as the shoppers confirm or release, once on a
+ * {@link ScheduledThreadPoolExecutor} and once on the {@link TimerWheel} behind room holds.
+ * Reports the time per schedule and per cancel with all holds outstanding.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.HoldExpiryBenchmark</pre>
+ */
+public class HoldExpiryBenchmark {
+    private static final int HOLDS = Integer.getInteger("benchmark.holds", 1_000_000);
+    private static final double CANCEL_SHARE = 0.9;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    public static void main(String[] args) {
+        long[] delays = new long[HOLDS];
+        Random random = new Random(42);
+        for (int i = 0; i < HOLDS; i++) {
+            delays[i] = TTL_MILLIS + random.nextInt(60_000);
+        }
+        System.out.printf("%d holds, %.0f%% cancelled before expiry%n", HOLDS, CANCEL_SHARE * 100);
+        System.out.printf("%-12s %14s %14s%n", "scheduler", "ns/schedule", "ns/cancel");
+        // The first round of each warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            executor(delays, round == 1);
+            wheel(delays, round == 1);
+        }
+    }
+
+    private static void executor(long[] delays, boolean report) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        Runnable task = () -> { };
+        List<ScheduledFuture<?>> timeouts = new ArrayList<>(delays.length);
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            timeouts.add(executor.schedule(task, delay, TimeUnit.MILLISECONDS));
+        }
+        long scheduled = System.nanoTime();
+        int cancels = (int) (delays.length * CANCEL_SHARE);
+        for (int i = 0; i < cancels; i++) {
+            timeouts.get(i).cancel(false);
+        }
+        long cancelled = System.nanoTime();
+        executor.shutdownNow();
+        if (report) {
+            print("executor", scheduled - start, delays.length, cancelled - scheduled, cancels);
+        }
+    }
+
+    private static void wheel(long[] delays, boolean report) {
+        try (TimerWheel wheel = new TimerWheel(100, 512, "benchmark-wheel")) {
+            Runnable task = () -> { };
+            List<TimerWheel.Timeout> timeouts = new ArrayList<>(delays.length);
+            long start = System.nanoTime();
+            for (long delay : delays) {
+                timeouts.add(wheel.schedule(task, delay, TimeUnit.MILLISECONDS));
+            }
+            long scheduled = System.nanoTime();
+            int cancels = (int) (delays.length * CANCEL_SHARE);
+            for (int i = 0; i < cancels; i++) {
+                timeouts.get(i).cancel();
+            }
+            long cancelled = System.nanoTime();
+            if (report) {
+                print("timer wheel", scheduled - start, delays.length, cancelled - scheduled, cancels);
+            }
+        }
+    }
+
+    private static void print(String name, long scheduleNanos, int schedules, long cancelNanos, int cancels) {
+        System.out.printf("%-12s %14.1f %14.1f%n", name, (double) scheduleNanos / schedules, (double) cancelNanos / cancels);
+    }
+}
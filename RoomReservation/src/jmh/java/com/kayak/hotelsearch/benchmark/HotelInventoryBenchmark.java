@@ -0,0 +1,132 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.kayak.hotelsearch.hotel.HotelInventory;
+import com.kayak.hotelsearch.persistence.WriteAheadLog;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Books across a catalogue of many hotels where most traffic goes to a few hot ones,
+ * comparing loading every hotel up front, loading on first use, and loading on first
+ * use with persistence and a cap on resident hotels. Reports startup time, booking
+ * throughput, hotels in memory and retained heap.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.HotelInventoryBenchmark</pre>
+ */
+public class HotelInventoryBenchmark {
+    private static final int HOTELS = Integer.getInteger("benchmark.hotels", 10_000);
+    private static final int ROOMS_PER_HOTEL = Integer.getInteger("benchmark.roomsPerHotel", 50);
+    private static final int BOOKINGS = Integer.getInteger("benchmark.bookings", 1_000_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    // Share of bookings that go to the hottest 1% of hotels; the rest are spread over all of them
+    private static final double HOT_SHARE = Double.parseDouble(System.getProperty("benchmark.hotShare", "0.999"));
+    private static final int MAX_RESIDENT_HOTELS = Integer.getInteger("benchmark.maxResidentHotels", 1000);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d hotels x %d rooms, %d bookings (book + release), %d threads%n",
+                HOTELS, ROOMS_PER_HOTEL, BOOKINGS, THREADS);
+        System.out.printf("%-10s %12s %14s %10s %10s %10s%n", "loading", "startup ms", "bookings/s", "resident", "unloaded", "heap MB");
+        run("eager", false, false);
+        run("lazy", false, true);
+        run("bounded", true, true);
+    }
+
+    private static void run(String name, boolean persisted, boolean lazy) throws Exception {
+        Path directory = Files.createTempDirectory("hotels");
+        long baseline = usedHeap();
+        HotelInventory.Builder builder = HotelInventory.builder().loader(HotelInventoryBenchmark::createRooms);
+        if (persisted) {
+            builder.dataDirectory(directory)
+                    .syncMode(WriteAheadLog.SyncMode.BATCHED)
+                    .snapshotIntervalMillis(0)
+                    .maxResidentHotels(MAX_RESIDENT_HOTELS);
+        }
+        try (HotelInventory hotels = builder.build()) {
+            long start = System.nanoTime();
+            if (!lazy) {
+                for (int hotel = 0; hotel < HOTELS; hotel++) {
+                    hotels.withHotel(hotelId(hotel), service -> null);
+                }
+            }
+            long startup = System.nanoTime() - start;
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            int perThread = BOOKINGS / THREADS;
+            start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                executor.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int hotHotels = Math.max(1, HOTELS / 100);
+                    for (int i = 0; i < perThread; i++) {
+                        int hotel = random.nextDouble() < HOT_SHARE ? random.nextInt(hotHotels) : random.nextInt(HOTELS);
+                        int roomNumber = 1 + random.nextInt(ROOMS_PER_HOTEL);
+                        hotels.withHotel(hotelId(hotel), service -> {
+                            if (service.tryBook(roomNumber, "Guest")) {
+                                service.tryUnbook(roomNumber);
+                            }
+                            return null;
+                        });
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-10s %12.1f %14.0f %10d %10d %10.1f%n",
+                    name, startup / 1e6, perThread * THREADS * 1e9 / elapsed,
+                    hotels.getResidentHotelCount(), hotels.getEvictionCount(), (usedHeap() - baseline) / 1e6);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static String hotelId(int hotel) {
+        return "hotel-" + hotel;
+    }
+
+    private static List<Room> createRooms(String hotelId) {
+        RoomType[] types = RoomType.values();
+        List<Room> rooms = new ArrayList<>(ROOMS_PER_HOTEL);
+        for (int i = 1; i <= ROOMS_PER_HOTEL; i++) {
+            RoomType type = types[i % types.length];
+            rooms.add(Room.builder()
+                    .hotelId(hotelId)
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 + 50.0 * type.ordinal())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
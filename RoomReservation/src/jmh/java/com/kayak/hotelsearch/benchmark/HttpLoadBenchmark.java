@@ -0,0 +1,242 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kayak.hotelsearch.hotel.HotelInventory;
+import com.kayak.hotelsearch.http.BookingHttpServer;
+import com.kayak.hotelsearch.metrics.HistogramSnapshot;
+import com.kayak.hotelsearch.metrics.LatencyHistogram;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Loopback load test of {@link BookingHttpServer}. Each simulated client holds one
+ * kept-alive connection on its own virtual thread and sends requests back to back: room
+ * and availability lookups, bookings, cancellations and the odd stats call. Reports
+ * requests per second and latency percentiles at each connection count. Every connection
+ * uses a file descriptor at each end, so 10k connections need a limit above 20k.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.HttpLoadBenchmark</pre>
+ */
+public class HttpLoadBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 10_000);
+    private static final int[] CONNECTIONS = Arrays.stream(System.getProperty("benchmark.connections", "1000,5000,10000")
+            .split(",")).mapToInt(Integer::parseInt).toArray();
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 5);
+    private static final RoomType[] TYPES = RoomType.values();
+
+    public static void main(String[] args) throws Exception {
+        int maxConnections = Arrays.stream(CONNECTIONS).max().orElse(1);
+        // The JDK server closes connections beyond this many idle ones after each response instead of keeping them
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(maxConnections));
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(rooms());
+        try (HotelInventory hotels = HotelInventory.builder().build()) {
+            hotels.register(Room.DEFAULT_HOTEL, service);
+            try (BookingHttpServer server = BookingHttpServer.builder().port(0).backlog(maxConnections).hotels(hotels).build()) {
+                server.start();
+                System.out.printf("%d rooms, %d s per level%n", ROOMS, SECONDS);
+                System.out.printf("%-12s %12s %10s %10s %10s %10s %8s%n",
+                        "connections", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+                // Warms up the JIT and the server's buffer pool
+                run(server.getPort(), Math.min(100, CONNECTIONS[0]), Math.min(2, SECONDS), false);
+                for (int connections : CONNECTIONS) {
+                    run(server.getPort(), connections, SECONDS, true);
+                }
+            }
+        }
+    }
+
+    private static void run(int port, int connections, int seconds, boolean report) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] window = new long[2];
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                clients.execute(() -> {
+                    Connection connection = null;
+                    try {
+                        connection = new Connection(port);
+                    } catch (IOException e) {
+                        errors.increment();
+                    } finally {
+                        connected.countDown();
+                    }
+                    try {
+                        start.await();
+                        while (System.nanoTime() < window[1]) {
+                            long sent = System.nanoTime();
+                            try {
+                                if (connection == null) {
+                                    connection = new Connection(port);
+                                }
+                                boolean keepAlive = connection.exchange(nextRequest());
+                                latency.record(System.nanoTime() - sent);
+                                requests.increment();
+                                if (!keepAlive) {
+                                    close(connection);
+                                    connection = null;
+                                }
+                            } catch (IOException e) {
+                                errors.increment();
+                                close(connection);
+                                connection = null;
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        close(connection);
+                    }
+                });
+            }
+            connected.await();
+            window[0] = System.nanoTime();
+            window[1] = window[0] + TimeUnit.SECONDS.toNanos(seconds);
+            start.countDown();
+        }
+        long elapsed = System.nanoTime() - window[0];
+        if (report) {
+            HistogramSnapshot snapshot = latency.snapshot();
+            System.out.printf("%-12d %12.0f %10.2f %10.2f %10.2f %10.2f %8d%n", connections, requests.sum() * 1e9 / elapsed,
+                    millis(snapshot.getValueAtPercentile(50)), millis(snapshot.getValueAtPercentile(99)),
+                    millis(snapshot.getValueAtPercentile(99.9)), millis(snapshot.getMax()), errors.sum());
+        }
+    }
+
+    // 35% availability, 20% room lookups, 20% bookings, 20% cancellations, 5% stats
+    private static byte[] nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roomNumber = 1 + random.nextInt(ROOMS);
+        int operation = random.nextInt(100);
+        String request;
+        if (operation < 35) {
+            request = get("/availability?type=" + TYPES[random.nextInt(TYPES.length)] + "&limit=10");
+        } else if (operation < 55) {
+            request = get("/rooms/" + roomNumber);
+        } else if (operation < 75) {
+            request = post("/rooms/" + roomNumber + "/book", "{\"guest\":\"Guest " + random.nextInt(1_000_000) + "\"}");
+        } else if (operation < 95) {
+            request = post("/rooms/" + roomNumber + "/unbook", "");
+        } else {
+            request = get("/stats");
+        }
+        return request.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String post(String path, String body) {
+        return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+    }
+
+    private static List<Room> rooms() {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = TYPES[i % TYPES.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 * (type.ordinal() + 1))
+                    .isAvailable(true)
+                    .build());
+        }
+        return rooms;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void close(Connection connection) {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    // A minimal HTTP/1.1 client connection: writes a request and reads the response by its Content-Length
+    private static final class Connection implements Closeable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final byte[] line = new byte[8192];
+
+        Connection(int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        // False when the server is closing the connection after this response
+        boolean exchange(byte[] request) throws IOException {
+            out.write(request);
+            out.flush();
+            String status = readLine();
+            if (!status.startsWith("HTTP/1.1 ")) {
+                throw new IOException("Unexpected status line: " + status);
+            }
+            int length = 0;
+            boolean keepAlive = true;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                int colon = header.indexOf(':');
+                String name = header.substring(0, colon).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Integer.parseInt(header.substring(colon + 1).trim());
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = !header.substring(colon + 1).trim().equalsIgnoreCase("close");
+                }
+            }
+            in.skipNBytes(length);
+            return keepAlive;
+        }
+
+        private String readLine() throws IOException {
+            int size = 0;
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) {
+                    throw new EOFException("Connection closed mid-response");
+                }
+                if (b != '\r' && size < line.length) {
+                    line[size++] = (byte) b;
+                }
+            }
+            return new String(line, 0, size, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.kayak.hotelsearch.booking.IdempotencyCache;
+import com.kayak.hotelsearch.room.BookingOutcome;
+
+/**
+ * Request ids streamed through an idempotency layer, with a share of them resent as
+ * retries of a recent request, the way a day of upstream traffic would arrive. Compares
+ * {@link IdempotencyCache} with an unbounded map of every id and a size-bounded LRU of
+ * id strings, reporting nanoseconds per request, heap retained once the stream has
+ * passed, and how many retries each recognised. The no-op row is the cost of building
+ * the id strings, which every other row includes.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.IdempotencyBenchmark</pre>
+ */
+public class IdempotencyBenchmark {
+    private static final int IDS = Integer.getInteger("benchmark.ids", 5_000_000);
+    private static final int CAPACITY = Integer.getInteger("benchmark.capacity", 1 << 20);
+    private static final double RETRY_SHARE = Double.parseDouble(System.getProperty("benchmark.retryShare", "0.01"));
+    // Retries resend one of this many most recent ids
+    private static final int RETRY_WINDOW = Integer.getInteger("benchmark.retryWindow", 10_000);
+
+    public static void main(String[] args) {
+        System.out.printf("%,d ids, %.1f%% retries of the last %,d, capacity %,d%n", IDS, RETRY_SHARE * 100,
+                RETRY_WINDOW, CAPACITY);
+        System.out.printf("%-14s %10s %14s %12s%n", "layer", "ns/request", "retained MB", "repeats");
+        // A short pass first so every layer runs compiled
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            run("none", report, () -> (id, action) -> action.get());
+            run("bounded cache", report, () -> {
+                IdempotencyCache cache = new IdempotencyCache(CAPACITY, Duration.ofMinutes(10));
+                return cache::execute;
+            });
+            run("lru map", report, LruLayer::new);
+            run("unbounded map", report, () -> {
+                Map<String, BookingOutcome> seen = new ConcurrentHashMap<>();
+                return (id, action) -> seen.computeIfAbsent(id, key -> action.get());
+            });
+        }
+    }
+
+    private static void run(String name, boolean report, Supplier<Layer> factory) {
+        int ids = report ? IDS : Math.min(IDS, 500_000);
+        long before = usedHeap();
+        Layer layer = factory.get();
+        int[] runs = new int[1];
+        Supplier<BookingOutcome> action = () -> {
+            runs[0]++;
+            return BookingOutcome.BOOKED;
+        };
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long requests = 0;
+        long start = System.nanoTime();
+        for (int next = 0; next < ids; requests++) {
+            int id;
+            if (next > RETRY_WINDOW && random.nextDouble() < RETRY_SHARE) {
+                id = next - 1 - random.nextInt(RETRY_WINDOW);
+            } else {
+                id = next++;
+            }
+            layer.execute("req-" + id, action);
+        }
+        long elapsed = System.nanoTime() - start;
+        long retained = usedHeap() - before;
+        if (report) {
+            System.out.printf("%-14s %10.1f %14.1f %12d%n", name, (double) elapsed / requests, retained / 1e6,
+                    requests - runs[0]);
+        }
+        // Keeps the layer reachable until its footprint has been measured
+        if (layer.hashCode() == 0) {
+            System.out.println(layer);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @FunctionalInterface
+    private interface Layer {
+        BookingOutcome execute(String requestId, Supplier<BookingOutcome> action);
+    }
+
+    // The textbook bounded alternative: id strings in an access-ordered map behind one lock
+    private static final class LruLayer implements Layer {
+        private final Map<String, BookingOutcome> recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookingOutcome> eldest) {
+                return size() > CAPACITY;
+            }
+        };
+
+        @Override
+        public synchronized BookingOutcome execute(String requestId, Supplier<BookingOutcome> action) {
+            return recent.computeIfAbsent(requestId, key -> action.get());
+        }
+    }
+}
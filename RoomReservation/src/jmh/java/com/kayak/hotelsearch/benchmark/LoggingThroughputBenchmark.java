@@ -0,0 +1,67 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import com.kayak.hotelsearch.logging.AsyncHandler;
+
+/**
+ * Logs one formatted line per simulated request from several threads, through a
+ * synchronous StreamHandler and through the async handler in front of the same
+ * handler, and reports the rate at which the logging threads get through their work.
+ * The async handler cannot write faster than the handler behind it, so when callers
+ * outrun it the excess shows up as dropped lines instead of blocked callers.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.LoggingThroughputBenchmark</pre>
+ */
+public class LoggingThroughputBenchmark {
+    private static final int LINES = Integer.getInteger("benchmark.lines", 1_000_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 10);
+    private static final int CAPACITY = Integer.getInteger("benchmark.capacity", 8192);
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d lines from %d threads%n", LINES, THREADS);
+        System.out.printf("%-8s %14s %10s%n", "handler", "lines/s", "dropped");
+        System.out.printf("%-8s %14.0f %10d%n", "sync", run("sync", sink()), 0);
+        AsyncHandler async = new AsyncHandler(sink(), CAPACITY);
+        double rate = run("async", async);
+        async.close();
+        System.out.printf("%-8s %14.0f %10d%n", "async", rate, async.getDroppedCount());
+    }
+
+    private static double run(String name, Handler handler) throws InterruptedException {
+        Logger logger = Logger.getLogger(LoggingThroughputBenchmark.class.getName() + "." + name);
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int perThread = LINES / THREADS;
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int roomNumber = 101 + i % 7;
+                    logger.logp(Level.INFO, LoggingThroughputBenchmark.class.getName(), "run",
+                            () -> "Successfully booked room " + roomNumber + " for Guest " + thread);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+        logger.removeHandler(handler);
+        return LINES * 1e9 / elapsed;
+    }
+
+    private static Handler sink() {
+        return new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+    }
+}
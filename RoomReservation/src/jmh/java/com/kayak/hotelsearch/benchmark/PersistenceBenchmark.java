@@ -0,0 +1,118 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.kayak.hotelsearch.persistence.RoomPersistence;
+import com.kayak.hotelsearch.persistence.WriteAheadLog;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Measures booking throughput with no persistence, with a batched write-ahead log and
+ * with group commit, then how long recovery takes to replay the resulting log.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.PersistenceBenchmark</pre>
+ */
+public class PersistenceBenchmark {
+    private static final int BOOKINGS = Integer.getInteger("benchmark.bookings", 10_000_000);
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 100_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("benchmark.flushIntervalMillis", 10);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d bookings (book + release) over %d rooms, %d threads%n", BOOKINGS, ROOMS, THREADS);
+        System.out.printf("%-14s %14s %14s %16s%n", "mode", "bookings/s", "recovery ms", "log MB");
+        run("in-memory", null);
+        run("batched", WriteAheadLog.SyncMode.BATCHED);
+        run("group commit", WriteAheadLog.SyncMode.GROUP_COMMIT);
+    }
+
+    private static void run(String name, WriteAheadLog.SyncMode syncMode) throws Exception {
+        Path directory = Files.createTempDirectory("room-wal");
+        try {
+            RoomStore store = RoomDatabaseAccessService.createRoomStore("concurrent", createRooms());
+            RoomPersistence persistence = null;
+            if (syncMode != null) {
+                persistence = new RoomPersistence(directory, syncMode, FLUSH_INTERVAL_MILLIS);
+                persistence.recover(store);
+            }
+            RoomDatabaseAccessService service = new RoomDatabaseAccessService(store);
+            if (persistence != null) {
+                // No periodic snapshot, so recovery below replays every record
+                persistence.start(service, 0);
+            }
+
+            long elapsed = book(service);
+            long logBytes = directorySize(directory);
+            // Simulates a crash: the log is flushed but no final snapshot is taken
+            String recovery = "-";
+            if (persistence != null) {
+                long start = System.nanoTime();
+                new RoomPersistence(directory, syncMode, FLUSH_INTERVAL_MILLIS)
+                        .recover(RoomDatabaseAccessService.createRoomStore("concurrent", createRooms()));
+                recovery = String.format("%.0f", (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("%-14s %14.0f %14s %16.1f%n", name, BOOKINGS * 1e9 / elapsed, recovery, logBytes / 1e6);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static long book(RoomDatabaseAccessService service) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int perThread = BOOKINGS / THREADS;
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                // Each thread owns a disjoint set of rooms so every attempt succeeds
+                for (int i = 0; i < perThread; i += 2) {
+                    int roomNumber = 1 + (thread + (i / 2) * THREADS) % ROOMS;
+                    if (service.tryBook(roomNumber, "Guest " + thread)) {
+                        service.tryUnbook(roomNumber);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return System.nanoTime() - start;
+    }
+
+    private static List<Room> createRooms() {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(RoomType.STANDARD)
+                    .price(150.0)
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import com.kayak.hotelsearch.pricing.PriceQuoter;
+import com.kayak.hotelsearch.pricing.PricingPolicy;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Quotes occupancy-adjusted prices at catalogue scale while bookings come in, once by
+ * counting occupancy with a stream over getAllRooms() per quote and once through
+ * {@link PriceQuoter}, and reports the time per quote.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.PriceQuoteBenchmark</pre>
+ */
+public class PriceQuoteBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 1_000_000);
+    private static final int QUOTES = Integer.getInteger("benchmark.quotes", 200);
+    // One booking lands between this many quotes, so cached multipliers keep being invalidated
+    private static final int QUOTES_PER_BOOKING = Integer.getInteger("benchmark.quotesPerBooking", 10);
+
+    public static void main(String[] args) {
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(createRooms());
+        PricingPolicy policy = PricingPolicy.builder()
+                .surge(0.8, 1.25)
+                .surge(RoomType.DELUXE, 0.8, 1.5)
+                .build();
+        PriceQuoter quoter = new PriceQuoter(service, policy);
+        Random random = new Random(42);
+        for (int i = 0; i < ROOMS * 8 / 10; i++) {
+            service.tryBook(1 + random.nextInt(ROOMS), "Guest " + i);
+        }
+
+        IntToDoubleFunction stream = roomNumber -> {
+            Room room = service.loadRoom(roomNumber);
+            long rooms = 0;
+            long occupied = 0;
+            for (Room other : service.getAllRooms()) {
+                if (other.getRoomType() == room.getRoomType()) {
+                    rooms++;
+                    occupied += other.isAvailable() ? 0 : 1;
+                }
+            }
+            return room.getPrice() * policy.multiplier(room.getRoomType(), (double) occupied / rooms);
+        };
+        IntToDoubleFunction cached = quoter::quote;
+
+        int probe = 1 + random.nextInt(ROOMS);
+        if (Math.abs(stream.applyAsDouble(probe) - cached.applyAsDouble(probe)) > 1e-9) {
+            throw new IllegalStateException("Cached quote disagrees with the stream baseline");
+        }
+        System.out.printf("%d rooms, DELUXE occupancy %.1f%%, one booking per %d quotes%n",
+                ROOMS, service.getOccupancy(RoomType.DELUXE) * 100, QUOTES_PER_BOOKING);
+        System.out.printf("%-10s %14s%n", "quote", "ns/quote");
+        System.out.printf("%-10s %14.1f%n", "stream", time(service, stream, QUOTES));
+        System.out.printf("%-10s %14.1f%n", "cached", time(service, cached, QUOTES * 10_000));
+    }
+
+    private static double time(RoomDatabaseAccessService service, IntToDoubleFunction quote, int quotes) {
+        Random random = new Random(7);
+        double sink = 0;
+        for (int i = 0; i < quotes / 10; i++) {
+            sink += quote.applyAsDouble(1 + random.nextInt(ROOMS));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < quotes; i++) {
+            if (i % QUOTES_PER_BOOKING == 0) {
+                int roomNumber = 1 + random.nextInt(ROOMS);
+                if (!service.tryBook(roomNumber, "Walk-in")) {
+                    service.tryUnbook(roomNumber);
+                }
+            }
+            sink += quote.applyAsDouble(1 + random.nextInt(ROOMS));
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / quotes;
+    }
+
+    private static List<Room> createRooms() {
+        RoomType[] types = RoomType.values();
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = types[i % types.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 + 100.0 * type.ordinal())
+                    .isAvailable(true)
+                    .build());
+        }
+        return rooms;
+    }
+}
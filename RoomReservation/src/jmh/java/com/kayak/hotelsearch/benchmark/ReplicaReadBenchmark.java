@@ -0,0 +1,170 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kayak.hotelsearch.replication.ChangeFeed;
+import com.kayak.hotelsearch.replication.ChangeFeedServer;
+import com.kayak.hotelsearch.replication.RemoteReplica;
+import com.kayak.hotelsearch.replication.ReplicaFollower;
+import com.kayak.hotelsearch.replication.ReplicaStatus;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomReplica;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Availability reads alongside a steady stream of bookings and releases, with the reads
+ * served by the booking service itself, by in-process replicas following its change
+ * feed, or by a replica following the feed over a loopback socket. Reports read and
+ * write throughput, so the feed's cost on the write path shows next to the primary-only
+ * run, and the worst replica lag sampled during the run.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.ReplicaReadBenchmark</pre>
+ */
+public class ReplicaReadBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 100_000);
+    private static final int WRITERS = Integer.getInteger("benchmark.writers", 1);
+    private static final int READERS = Integer.getInteger("benchmark.readers", 2);
+    private static final long WARMUP_MILLIS = Long.getLong("benchmark.warmupMillis", 1000);
+    private static final long MEASURE_MILLIS = Long.getLong("benchmark.measureMillis", 3000);
+    private static final RoomType[] TYPES = RoomType.values();
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%d rooms, %d writers, %d readers%n", ROOMS, WRITERS, READERS);
+        System.out.printf("%-12s %12s %12s %14s %14s%n", "reads from", "reads/s", "writes/s", "max lag", "max lag ms");
+        run("primary", 0, false);
+        run("1 replica", 1, false);
+        run("2 replicas", 2, false);
+        run("socket", 0, true);
+    }
+
+    private static void run(String name, int localReplicas, boolean remote) throws Exception {
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(rooms());
+        List<AutoCloseable> resources = new ArrayList<>();
+        List<Reader> readers = new ArrayList<>();
+        List<RoomReplica> replicas = new ArrayList<>();
+        ChangeFeed feed = null;
+        if (localReplicas > 0 || remote) {
+            feed = new ChangeFeed(65_536);
+            feed.start(service);
+        }
+        for (int i = 1; i <= localReplicas; i++) {
+            ReplicaFollower follower = new ReplicaFollower("local-" + i, feed, new RoomReplica());
+            follower.start();
+            resources.add(follower);
+            RoomReplica replica = follower.getReplica();
+            replicas.add(replica);
+            readers.add(query -> replica.findAvailableRooms(query).size() + replica.getAvailableRoomCount(query.getRoomType()));
+        }
+        if (remote) {
+            ChangeFeedServer server = ChangeFeedServer.builder().port(0).feed(feed).build();
+            server.start();
+            RemoteReplica replica = new RemoteReplica("socket", "127.0.0.1", server.getPort(), new RoomReplica());
+            replica.start();
+            resources.add(replica);
+            resources.add(server);
+            RoomReplica copy = replica.getReplica();
+            replicas.add(copy);
+            readers.add(query -> copy.findAvailableRooms(query).size() + copy.getAvailableRoomCount(query.getRoomType()));
+        }
+        if (readers.isEmpty()) {
+            readers.add(query -> service.findAvailableRooms(query).size() + service.getAvailableRoomCount(query.getRoomType()));
+        }
+        // Reads from a replica still loading would be answered from an empty copy
+        while (replicas.stream().anyMatch(replica -> replica.size() < ROOMS)) {
+            Thread.sleep(10);
+        }
+        measure(service, feed, readers, WARMUP_MILLIS);
+        long[] result = measure(service, feed, readers, MEASURE_MILLIS);
+        System.out.printf("%-12s %12.0f %12.0f %14s %14s%n", name, result[0] * 1000.0 / MEASURE_MILLIS,
+                result[1] * 1000.0 / MEASURE_MILLIS, feed == null ? "-" : String.valueOf(result[2]),
+                feed == null ? "-" : String.format("%.2f", result[3] / 1e6));
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+        service.close();
+    }
+
+    // Reads, writes, and the largest lag in changes and nanos seen by a sampler
+    private static long[] measure(RoomDatabaseAccessService service, ChangeFeed feed, List<Reader> readers,
+                                  long durationMillis) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch done = new CountDownLatch(WRITERS + READERS);
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        for (int w = 0; w < WRITERS; w++) {
+            String guest = "Guest " + w;
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int roomNumber = 1 + random.nextInt(ROOMS);
+                    if (!service.tryBook(roomNumber, guest)) {
+                        service.tryUnbook(roomNumber);
+                    }
+                    writes.increment();
+                }
+                done.countDown();
+            });
+        }
+        for (int r = 0; r < READERS; r++) {
+            Reader reader = readers.get(r % readers.size());
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long sink = 0;
+                while (System.nanoTime() < deadline) {
+                    RoomQuery query = RoomQuery.builder()
+                            .roomType(TYPES[random.nextInt(TYPES.length)])
+                            .maxPrice(100.0 + random.nextInt(400))
+                            .limit(10)
+                            .build();
+                    sink += reader.read(query);
+                    reads.increment();
+                }
+                if (sink == Long.MIN_VALUE) {
+                    System.out.println(sink);
+                }
+                done.countDown();
+            });
+        }
+        long maxLagChanges = 0;
+        long maxLagNanos = 0;
+        while (!done.await(100, TimeUnit.MILLISECONDS)) {
+            if (feed != null) {
+                for (ReplicaStatus status : feed.getReplicaStatuses()) {
+                    maxLagChanges = Math.max(maxLagChanges, status.lagChanges());
+                    maxLagNanos = Math.max(maxLagNanos, status.lagNanos());
+                }
+            }
+        }
+        executor.shutdown();
+        return new long[] {reads.sum(), writes.sum(), maxLagChanges, maxLagNanos};
+    }
+
+    private static List<Room> rooms() {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = TYPES[i % TYPES.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 + i % 400)
+                    .isAvailable(true)
+                    .build());
+        }
+        return rooms;
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        int read(RoomQuery query);
+    }
+}
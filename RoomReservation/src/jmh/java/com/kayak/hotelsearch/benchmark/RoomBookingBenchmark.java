@@ -0,0 +1,42 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kayak.hotelsearch.room.Room;
+
+// Run with -prof gc to see the builder allocation per booking
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBookingBenchmark {
+    private final Room availableRoom = BenchmarkRooms.create(1).get(0);
+    private final Room bookedRoom = availableRoom.bookRoom("Guest 1");
+
+    @Benchmark
+    public Room bookRoom() {
+        return availableRoom.bookRoom("Guest 2");
+    }
+
+    @Benchmark
+    public Room bookAlreadyBookedRoom() {
+        return bookedRoom.bookRoom("Guest 2");
+    }
+
+    @Benchmark
+    public Room unbookRoom() {
+        return bookedRoom.unbookRoom();
+    }
+}
@@ -0,0 +1,180 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import com.kayak.hotelsearch.cache.CacheStats;
+import com.kayak.hotelsearch.cache.CachingRoomStore;
+import com.kayak.hotelsearch.metrics.HistogramSnapshot;
+import com.kayak.hotelsearch.metrics.LatencyHistogram;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomRepository;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+import com.kayak.hotelsearch.room.SimulatedLatencyRoomRepository;
+
+/**
+ * Per-operation latency of room lookups and bookings against a simulated slow repository,
+ * going straight to the repository versus through a {@link CachingRoomStore} of a few sizes.
+ * Most traffic goes to a small set of hot rooms, as searches and bookings do in practice.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.RoomCacheBenchmark</pre>
+ */
+public class RoomCacheBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 1_000_000);
+    private static final int OPERATIONS = Integer.getInteger("benchmark.operations", 50_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+    // Share of operations that go to the hottest 1% of rooms; the rest are spread over all of them
+    private static final double HOT_SHARE = Double.parseDouble(System.getProperty("benchmark.hotShare", "0.9"));
+    // Share of operations that book and release a room; the rest only look it up
+    private static final double WRITE_SHARE = Double.parseDouble(System.getProperty("benchmark.writeShare", "0.2"));
+    private static final long READ_MICROS = Long.getLong("benchmark.readMicros", 500);
+    private static final long WRITE_MICROS = Long.getLong("benchmark.writeMicros", 2000);
+
+    public static void main(String[] args) throws Exception {
+        List<Room> rooms = createRooms();
+        System.out.printf("%d rooms, %d operations (%.0f%% book + release), %d threads, repository %d us read / %d us write%n",
+                ROOMS, OPERATIONS, WRITE_SHARE * 100, THREADS, READ_MICROS, WRITE_MICROS);
+        System.out.printf("%-16s %10s %10s %10s %10s %10s %12s %12s%n",
+                "store", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "hit rate", "repo reads", "repo writes");
+        run("repository", rooms, 0);
+        for (int cacheSize : new int[] {1_000, 10_000, 100_000}) {
+            run("cached " + cacheSize, rooms, cacheSize);
+        }
+    }
+
+    private static void run(String name, List<Room> rooms, int cacheSize) throws InterruptedException {
+        SimulatedLatencyRoomRepository repository = SimulatedLatencyRoomRepository.builder()
+                .rooms(rooms)
+                .readLatencyMicros(READ_MICROS)
+                .writeLatencyMicros(WRITE_MICROS)
+                .build();
+        RoomStore store = cacheSize == 0
+                ? new RepositoryRoomStore(repository)
+                : CachingRoomStore.builder().repository(repository).maximumSize(cacheSize).build();
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(store);
+        long readsBefore = repository.getReadCount();
+        LatencyHistogram latency = new LatencyHistogram();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int perThread = OPERATIONS / THREADS;
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int hotRooms = Math.max(1, ROOMS / 100);
+                for (int i = 0; i < perThread; i++) {
+                    int roomNumber = 1 + (random.nextDouble() < HOT_SHARE ? random.nextInt(hotRooms) : random.nextInt(ROOMS));
+                    long operationStart = System.nanoTime();
+                    if (random.nextDouble() < WRITE_SHARE) {
+                        if (service.tryBook(roomNumber, "Guest")) {
+                            service.tryUnbook(roomNumber);
+                        }
+                    } else {
+                        service.loadRoom(roomNumber);
+                    }
+                    latency.record(System.nanoTime() - operationStart);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+        // Closing writes back whatever the cache still holds, so the write count is complete
+        service.close();
+
+        HistogramSnapshot snapshot = latency.snapshot();
+        String hitRate = store instanceof CachingRoomStore cache
+                ? String.format("%.1f%%", cache.stats().hitRate() * 100) : "-";
+        System.out.printf("%-16s %10.0f %10.2f %10.2f %10.2f %10s %12d %12d%n",
+                name, snapshot.getCount() * 1e9 / elapsed,
+                snapshot.getValueAtPercentile(50) / 1e6,
+                snapshot.getValueAtPercentile(99) / 1e6,
+                snapshot.getValueAtPercentile(99.9) / 1e6,
+                hitRate, repository.getReadCount() - readsBefore, repository.getWriteCount());
+    }
+
+    private static List<Room> createRooms() {
+        RoomType[] types = RoomType.values();
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = types[i % types.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 + 50.0 * type.ordinal())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+
+    // No cache: every read goes to the repository and every change is written through
+    private static final class RepositoryRoomStore implements RoomStore {
+        private final RoomRepository repository;
+        private final Object[] locks = new Object[1024];
+
+        RepositoryRoomStore(RoomRepository repository) {
+            this.repository = repository;
+            for (int i = 0; i < locks.length; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        @Override
+        public Room get(int roomNumber) {
+            return repository.find(roomNumber);
+        }
+
+        @Override
+        public void put(Room room) {
+            repository.saveAll(List.of(room));
+        }
+
+        @Override
+        public Room computeIfPresent(int roomNumber, UnaryOperator<Room> update) {
+            synchronized (locks[roomNumber & (locks.length - 1)]) {
+                Room current = repository.find(roomNumber);
+                return current == null ? null : write(current, update.apply(current));
+            }
+        }
+
+        @Override
+        public Room compute(int roomNumber, UnaryOperator<Room> update) {
+            synchronized (locks[roomNumber & (locks.length - 1)]) {
+                Room current = repository.find(roomNumber);
+                return write(current, update.apply(current));
+            }
+        }
+
+        private Room write(Room current, Room updated) {
+            if (updated != current) {
+                repository.saveAll(List.of(updated));
+            }
+            return updated;
+        }
+
+        @Override
+        public Collection<Room> values() {
+            return repository.findAll();
+        }
+
+        @Override
+        public int size() {
+            return repository.count();
+        }
+
+        @Override
+        public int countAvailable() {
+            return (int) values().stream().filter(Room::isAvailable).count();
+        }
+    }
+}
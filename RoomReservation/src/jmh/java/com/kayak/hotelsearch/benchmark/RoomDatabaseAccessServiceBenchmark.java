@@ -0,0 +1,48 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomDatabaseAccessServiceBenchmark {
+    @Param({"7", "10000", "1000000"})
+    private int roomCount;
+
+    private RoomDatabaseAccessService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new RoomDatabaseAccessService(BenchmarkRooms.create(roomCount));
+    }
+
+    @Benchmark
+    public Room loadRoom() {
+        return service.loadRoom(BenchmarkRooms.FIRST_ROOM_NUMBER + ThreadLocalRandom.current().nextInt(roomCount));
+    }
+
+    @Benchmark
+    public int getAvailableRoomCount() {
+        return service.getAvailableRoomCount();
+    }
+}
@@ -0,0 +1,87 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Answers "cheapest available DELUXE under $250" at catalogue scale, once by streaming
+ * getAllRooms() and once through the query indexes, and reports the time per query.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.RoomQueryBenchmark</pre>
+ */
+public class RoomQueryBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 50);
+    private static final int LIMIT = Integer.getInteger("benchmark.limit", 10);
+    private static final double MAX_PRICE = 250.0;
+
+    public static void main(String[] args) {
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(createRooms());
+        // Book half the rooms so availability filtering matters
+        Random random = new Random(42);
+        for (int i = 0; i < ROOMS / 2; i++) {
+            service.tryBook(1 + random.nextInt(ROOMS), "Guest " + i);
+        }
+
+        RoomQuery query = RoomQuery.builder()
+                .roomType(RoomType.DELUXE)
+                .maxPrice(MAX_PRICE)
+                .limit(LIMIT)
+                .build();
+        Supplier<List<Room>> stream = () -> service.getAllRooms().stream()
+                .filter(query::matches)
+                .sorted(Comparator.comparingDouble(Room::getPrice).thenComparingInt(Room::getRoomNumber))
+                .limit(LIMIT)
+                .toList();
+        Supplier<List<Room>> indexed = () -> service.findAvailableRooms(query);
+
+        if (!stream.get().equals(indexed.get())) {
+            throw new IllegalStateException("Indexed query disagrees with the stream baseline");
+        }
+        System.out.printf("%d rooms, %d available DELUXE, top %d under $%.0f%n",
+                ROOMS, service.getAvailableRoomCount(RoomType.DELUXE), LIMIT, MAX_PRICE);
+        System.out.printf("%-10s %14s%n", "query", "us/query");
+        System.out.printf("%-10s %14.1f%n", "stream", time(stream));
+        System.out.printf("%-10s %14.1f%n", "indexed", time(indexed));
+    }
+
+    private static double time(Supplier<List<Room>> query) {
+        int sink = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            sink += query.get().size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            sink += query.get().size();
+        }
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / 1e3 / QUERIES;
+    }
+
+    private static List<Room> createRooms() {
+        RoomType[] types = RoomType.values();
+        Random random = new Random(7);
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = types[i % types.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(Math.round((100.0 + 50.0 * type.ordinal()) * (0.5 + random.nextDouble())))
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+}
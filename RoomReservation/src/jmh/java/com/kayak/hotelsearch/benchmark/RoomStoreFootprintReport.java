@@ -0,0 +1,67 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Builds each room store at catalogue scale and reports retained heap per room,
+ * before and after booking half of the rooms.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.RoomStoreFootprintReport</pre>
+ */
+public class RoomStoreFootprintReport {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 1_000_000);
+    private static final String[] STORES = {"concurrent", "dense"};
+
+    public static void main(String[] args) {
+        System.out.printf("%d rooms%n", ROOMS);
+        System.out.printf("%-12s %14s %14s %16s %16s%n", "store", "MB empty", "B/room empty", "MB half booked", "B/room booked");
+        for (String kind : STORES) {
+            long baseline = usedHeap();
+            RoomStore store = RoomDatabaseAccessService.createRoomStore(kind, createRooms());
+            long empty = usedHeap() - baseline;
+
+            for (int roomNumber = 1; roomNumber <= ROOMS; roomNumber += 2) {
+                store.computeIfPresent(roomNumber, room -> room.bookRoom("Guest"));
+            }
+            long booked = usedHeap() - baseline;
+
+            System.out.printf("%-12s %14.1f %14.1f %16.1f %16.1f%n",
+                    kind,
+                    empty / 1e6, (double) empty / ROOMS,
+                    booked / 1e6, (double) booked / ROOMS);
+            if (store.size() != ROOMS) {
+                throw new IllegalStateException("Unexpected store size " + store.size());
+            }
+        }
+    }
+
+    private static List<Room> createRooms() {
+        RoomType[] types = RoomType.values();
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 1; i <= ROOMS; i++) {
+            RoomType type = types[i % types.length];
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(type)
+                    .price(100.0 + 50.0 * type.ordinal())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
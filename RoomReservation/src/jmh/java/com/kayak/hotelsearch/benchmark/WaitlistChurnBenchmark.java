@@ -0,0 +1,150 @@
+package com.kayak.hotelsearch.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.kayak.hotelsearch.room.LoyaltyTier;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Cancellation churn against a fully booked hotel with a deep waitlist: each operation
+ * cancels a random booking, books the released room for the best guest waiting for it,
+ * if any, and queues a new guest so the waitlist keeps its depth. Half the guests wait for a
+ * specific room and half for any room. Compares the service's priority queues with a
+ * list that is scanned for the best guest on every release, at several depths.
+ *
+ * <pre>mvn -Pjmh compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.benchmark.WaitlistChurnBenchmark</pre>
+ */
+public class WaitlistChurnBenchmark {
+    private static final int ROOMS = Integer.getInteger("benchmark.rooms", 1_000);
+    private static final int OPERATIONS = Integer.getInteger("benchmark.operations", 20_000);
+    private static final int[] DEPTHS = {1_000, 10_000, 100_000};
+
+    public static void main(String[] args) {
+        // Read when the service class initialises, so it must be set before the first service is built
+        System.setProperty("booking.waitlistCapacity", String.valueOf(DEPTHS[DEPTHS.length - 1]));
+        System.out.printf("%d rooms, %d cancellations per run%n", ROOMS, OPERATIONS);
+        System.out.printf("%-10s %-10s %12s %12s %10s%n", "waiters", "waitlist", "ops/s", "ns/op", "matched");
+        // The first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (int depth : DEPTHS) {
+                long[] queues = priorityQueues(depth);
+                long[] scan = scannedList(depth);
+                if (round == 1) {
+                    print(depth, "priority", queues);
+                    print(depth, "scan", scan);
+                }
+            }
+        }
+    }
+
+    // Elapsed nanos and rooms booked from the waitlist
+    private static long[] priorityQueues(int depth) {
+        RoomDatabaseAccessService service = bookedHotel();
+        Random random = new Random(42);
+        for (int i = 0; i < depth; i++) {
+            join(service, random, i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            // The waitlist books the room again before tryUnbook returns
+            service.tryUnbook(101 + random.nextInt(ROOMS));
+            join(service, random, depth + i);
+        }
+        long elapsed = System.nanoTime() - start;
+        service.close();
+        return new long[] {elapsed, service.getWaitlistMatchCount()};
+    }
+
+    private static void join(RoomDatabaseAccessService service, Random random, int guest) {
+        LoyaltyTier tier = LoyaltyTier.values()[random.nextInt(LoyaltyTier.values().length)];
+        if (random.nextBoolean()) {
+            service.joinWaitlist(101 + random.nextInt(ROOMS), "Guest " + guest, tier);
+        } else {
+            service.joinWaitlist(RoomType.STANDARD, "Guest " + guest, tier);
+        }
+    }
+
+    private static long[] scannedList(int depth) {
+        RoomDatabaseAccessService service = bookedHotel();
+        Random random = new Random(42);
+        List<Waiter> waiters = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            waiters.add(waiter(random, i));
+        }
+        long matched = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int roomNumber = 101 + random.nextInt(ROOMS);
+            if (service.tryUnbook(roomNumber)) {
+                int best = -1;
+                for (int w = 0; w < waiters.size(); w++) {
+                    Waiter candidate = waiters.get(w);
+                    if ((candidate.roomNumber == 0 || candidate.roomNumber == roomNumber)
+                            && (best < 0 || candidate.before(waiters.get(best)))) {
+                        best = w;
+                    }
+                }
+                if (best >= 0 && service.tryBook(roomNumber, waiters.get(best).guest)) {
+                    // Order lives in the waiters, so the list need not be kept sorted
+                    waiters.set(best, waiters.get(waiters.size() - 1));
+                    waiters.remove(waiters.size() - 1);
+                    matched++;
+                }
+            }
+            waiters.add(waiter(random, depth + i));
+        }
+        long elapsed = System.nanoTime() - start;
+        service.close();
+        return new long[] {elapsed, matched};
+    }
+
+    private static Waiter waiter(Random random, int guest) {
+        int tier = random.nextInt(LoyaltyTier.values().length);
+        int roomNumber = random.nextBoolean() ? 101 + random.nextInt(ROOMS) : 0;
+        return new Waiter(roomNumber, tier, guest, "Guest " + guest);
+    }
+
+    private static RoomDatabaseAccessService bookedHotel() {
+        List<Room> rooms = new ArrayList<>(ROOMS);
+        for (int i = 0; i < ROOMS; i++) {
+            rooms.add(Room.builder()
+                    .roomNumber(101 + i)
+                    .roomType(RoomType.STANDARD)
+                    .price(100.0)
+                    .isAvailable(true)
+                    .build());
+        }
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(rooms);
+        for (int i = 0; i < ROOMS; i++) {
+            service.tryBook(101 + i, "Owner " + i);
+        }
+        return service;
+    }
+
+    private static void print(int depth, String name, long[] result) {
+        System.out.printf("%-10d %-10s %12.0f %12.1f %10d%n", depth, name,
+                OPERATIONS * 1e9 / result[0], (double) result[0] / OPERATIONS, result[1]);
+    }
+
+    private static final class Waiter {
+        private final int roomNumber;
+        private final int tier;
+        private final long arrival;
+        private final String guest;
+
+        Waiter(int roomNumber, int tier, long arrival, String guest) {
+            this.roomNumber = roomNumber;
+            this.tier = tier;
+            this.arrival = arrival;
+            this.guest = guest;
+        }
+
+        boolean before(Waiter other) {
+            return tier != other.tier ? tier > other.tier : arrival < other.arrival;
+        }
+    }
+}
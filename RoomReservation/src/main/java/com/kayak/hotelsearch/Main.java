@@ -1,27 +1,127 @@
 package com.kayak.hotelsearch;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.*;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.logging.Handler;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kayak.hotelsearch.booking.BatchingBookingProcessor;
+import com.kayak.hotelsearch.booking.BookingPipeline;
+import com.kayak.hotelsearch.booking.BookingProcessor;
 import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.booking.BookingRequestPublisher;
+import com.kayak.hotelsearch.booking.FixedPoolBookingProcessor;
+import com.kayak.hotelsearch.booking.IdempotencyCache;
+import com.kayak.hotelsearch.booking.ShardedBookingProcessor;
+import com.kayak.hotelsearch.booking.VirtualThreadBookingProcessor;
+import com.kayak.hotelsearch.hotel.DirectoryHotelLoader;
+import com.kayak.hotelsearch.hotel.HotelInventory;
+import com.kayak.hotelsearch.http.BookingHttpServer;
+import com.kayak.hotelsearch.load.LoadGenerator;
+import com.kayak.hotelsearch.load.LoadReport;
+import com.kayak.hotelsearch.logging.AsyncHandler;
+import com.kayak.hotelsearch.logging.LogSampler;
+import com.kayak.hotelsearch.metrics.BookingMetrics;
+import com.kayak.hotelsearch.metrics.MetricsReporter;
+import com.kayak.hotelsearch.persistence.RoomCatalog;
+import com.kayak.hotelsearch.persistence.RoomPersistence;
+import com.kayak.hotelsearch.persistence.WriteAheadLog;
+import com.kayak.hotelsearch.replication.ChangeFeed;
+import com.kayak.hotelsearch.replication.ChangeFeedServer;
+import com.kayak.hotelsearch.replication.ReplicaFollower;
+import com.kayak.hotelsearch.replication.ReplicaStatus;
+import com.kayak.hotelsearch.room.BookingOutcome;
 import com.kayak.hotelsearch.room.Room;
 import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomReplica;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.UpdateNotDurableException;
+import com.kayak.hotelsearch.room.WaitlistEntry;
 
 public class Main {
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
     private static final int THREAD_POOL_SIZE = 10;
-    private static final BlockingQueue<BookingRequest> requestQueue = new LinkedBlockingQueue<>();
-    private static final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-    private static final CountDownLatch completionLatch = new CountDownLatch(1);
-    private static volatile boolean isShuttingDown = false;
+    private static final String REQUESTS_FILE = System.getProperty("booking.requestsFile", "src/main/resources/booking_requests.json");
+    // Requests admitted from the file but not yet finished; the reader waits for completions beyond this
+    private static final int QUEUE_CAPACITY = Integer.getInteger("booking.queueCapacity", 10_000);
+    // Requests per second fed into the queue; 0 or less disables pacing
+    private static final double REQUESTS_PER_SECOND = Double.parseDouble(System.getProperty("booking.requestsPerSecond", "0.5"));
+    // "pool" for the fixed worker pool, "virtual" for one virtual thread per request,
+    // "batch" for pool workers that drain and book up to booking.batchSize requests at a time,
+    // "sharded" for one single-consumer ring buffer per shard with requests routed by room number
+    private static final String EXECUTION_MODE = System.getProperty("booking.mode", "pool");
+    private static final int MAX_CONCURRENCY = Integer.getInteger("booking.maxConcurrency", 256);
+    private static final int BATCH_SIZE = Integer.getInteger("booking.batchSize", 100);
+    private static final int SHARDS = Integer.getInteger("booking.shards", Runtime.getRuntime().availableProcessors());
+    // Directory for the room snapshot and write-ahead log; unset keeps rooms in memory only
+    private static final String DATA_DIR = System.getProperty("booking.dataDir");
+    // "group" acknowledges a booking once it is fsynced, "batched" fsyncs on an interval and may lose that window
+    private static final String WAL_SYNC = System.getProperty("booking.walSync", "group");
+    private static final long WAL_FLUSH_INTERVAL_MILLIS = Long.getLong("booking.walFlushIntervalMillis", 10);
+    private static final long SNAPSHOT_INTERVAL_MILLIS = Long.getLong("booking.snapshotIntervalMillis", 60_000);
+    // Binary room catalogue (see RoomCatalogConverter) for the default hotel; unset uses the built-in rooms
+    private static final String CATALOG_FILE = System.getProperty("booking.catalogFile");
+    private static final String ROOM_STORE = System.getProperty("booking.roomStore", "concurrent");
+    // Directory of <hotelId>.rcat or <hotelId>.json room lists for hotels other than the default one; unset knows only the default hotel
+    private static final String HOTELS_DIR = System.getProperty("booking.hotelsDir");
+    // Loaded hotels kept in memory when booking.dataDir is set; colder ones are snapshotted and unloaded
+    private static final int MAX_RESIDENT_HOTELS = Integer.getInteger("booking.maxResidentHotels", 1000);
+    // How often booking metrics are logged; 0 or less logs them only at the end
+    private static final long METRICS_INTERVAL_MILLIS = Long.getLong("booking.metricsIntervalMillis", 10_000);
+    private static final BookingMetrics metrics = new BookingMetrics();
+    // "sync" writes log records on the calling thread, "async" hands them to a background writer
+    private static final String LOGGING_MODE = System.getProperty("booking.logging", "sync");
+    private static final int ASYNC_LOG_CAPACITY = Integer.getInteger("booking.asyncLogCapacity", 8192);
+    // Per-request lines beyond this many per second are counted and summarised; 0 or less logs every request
+    private static final LogSampler requestLogSampler =
+            new LogSampler(LOGGER, "booking request", Long.getLong("booking.logLinesPerSecond", 100));
+    // Seconds of synthetic load to generate in place of replaying booking.requestsFile; 0 or less replays the file
+    private static final long LOAD_SECONDS = Long.getLong("booking.loadSeconds", 0);
+    private static final double LOAD_RATE = Double.parseDouble(System.getProperty("booking.loadRate", "1000"));
+    private static final double LOAD_ZIPF = Double.parseDouble(System.getProperty("booking.loadZipf", "0.99"));
+    private static final double LOAD_BOOK_SHARE = Double.parseDouble(System.getProperty("booking.loadBookShare", "0.6"));
+    private static final double LOAD_CANCEL_SHARE = Double.parseDouble(System.getProperty("booking.loadCancelShare", "0.3"));
+    // Queue requests for taken rooms and book the room for them when it is released; false fails them as before
+    private static final boolean WAITLIST = Boolean.parseBoolean(System.getProperty("booking.waitlist", "true"));
+    // "room" waits for the requested room, "type" for any room of the same type
+    private static final String WAITLIST_SCOPE = System.getProperty("booking.waitlistScope", "room");
+    // Port for the HTTP booking endpoint, kept serving after the requests file until shutdown; unset disables it
+    private static final Integer HTTP_PORT = Integer.getInteger("booking.httpPort");
+    private static final String HTTP_HOST = System.getProperty("booking.httpHost", "127.0.0.1");
+    // In-process read replicas of the default hotel, which answer the HTTP endpoint's availability queries
+    private static final int REPLICAS = Integer.getInteger("booking.replicas", 0);
+    // Loopback port serving the default hotel's change feed to replicas in other JVMs (see RemoteReplica); unset disables it
+    private static final Integer FEED_PORT = Integer.getInteger("booking.feedPort");
+    // Changes kept for replicas to catch up from; one further behind reloads every room
+    private static final int FEED_CAPACITY = Integer.getInteger("booking.feedCapacity", 65_536);
+    // Request ids remembered with their outcomes, so retries of the same request are answered without running again
+    private static final int IDEMPOTENCY_CAPACITY = Integer.getInteger("booking.idempotencyCapacity", 1 << 20);
+    // How long an unused request id is remembered
+    private static final long IDEMPOTENCY_TTL_MILLIS = Long.getLong("booking.idempotencyTtlMillis", 600_000);
+    private static final IdempotencyCache idempotency =
+            new IdempotencyCache(IDEMPOTENCY_CAPACITY, Duration.ofMillis(IDEMPOTENCY_TTL_MILLIS));
+    private static final BookingProcessor processor = createProcessor(EXECUTION_MODE);
+    private static MetricsReporter metricsReporter;
+    private static volatile HotelInventory hotels;
+    private static final BookingRequestPublisher requestPublisher =
+            new BookingRequestPublisher(Path.of(REQUESTS_FILE), REQUESTS_PER_SECOND);
+    private static volatile LoadGenerator loadGenerator;
+    private static volatile BookingHttpServer httpServer;
+    private static volatile ChangeFeed changeFeed;
+    private static volatile ChangeFeedServer feedServer;
+    private static final List<ReplicaFollower> replicaFollowers = new CopyOnWriteArrayList<>();
 
     public static void main(String[] args) {
+        if ("async".equals(LOGGING_MODE)) {
+            installAsyncLogging();
+        }
         try {
             // Output name to stderr
             System.err.println("Soumya Tejaswi Vadlamani");
@@ -32,24 +132,61 @@ public class Main {
 
             // Add shutdown hook
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                isShuttingDown = true;
+                requestPublisher.close();
+                LoadGenerator generator = loadGenerator;
+                if (generator != null) {
+                    generator.stop();
+                }
                 shutdownThreadPool();
             }));
 
+            if (DATA_DIR != null) {
+                initializePersistence(Path.of(DATA_DIR));
+            } else if (CATALOG_FILE != null) {
+                RoomDatabaseAccessService.setInstance(new RoomDatabaseAccessService(createRoomStore()));
+            }
+
+            RoomDatabaseAccessService.getInstance().addBookingAttemptListener(metrics);
+            hotels = createHotelInventory();
+            if (METRICS_INTERVAL_MILLIS > 0) {
+                metricsReporter = new MetricsReporter(metrics, METRICS_INTERVAL_MILLIS);
+            }
+
+            startReplication(RoomDatabaseAccessService.getInstance());
+            if (HTTP_PORT != null) {
+                List<RoomReplica> replicas = replicaFollowers.stream().map(ReplicaFollower::getReplica).toList();
+                httpServer = BookingHttpServer.builder().host(HTTP_HOST).port(HTTP_PORT).hotels(hotels)
+                        .availabilityReplicas(replicas).idempotency(idempotency).build();
+                httpServer.start();
+            }
+
             // Start request processor threads
-            startRequestProcessors();
+            processor.start();
 
-            // Read and process booking requests
-            readBookingRequests("src/main/resources/booking_requests.json");
+            // The pipeline asks the file for a request each time one completes, so the reader never runs ahead of booking
+            BookingPipeline pipeline = new BookingPipeline(processor, maxInFlight(EXECUTION_MODE));
+            if (LOAD_SECONDS > 0) {
+                runLoad(pipeline);
+            } else {
+                requestPublisher.subscribe(pipeline);
 
-            // Wait for all requests to be processed
-            if (!completionLatch.await(30, TimeUnit.SECONDS)) {
-                LOGGER.warning("Timeout waiting for requests to complete");
+                // Wait until every request read has been booked or has failed, not merely queued
+                try {
+                    pipeline.completion().join();
+                } catch (CompletionException e) {
+                    LOGGER.log(Level.SEVERE, "Error reading booking requests", e.getCause());
+                }
             }
 
             // Print statistics
             printStatistics();
 
+            BookingHttpServer server = httpServer;
+            if (server != null) {
+                // Keeps serving until the shutdown hook closes the server
+                server.awaitClose();
+            }
+
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error in main execution", e);
         } finally {
@@ -57,87 +194,415 @@ public class Main {
         }
     }
 
-    private static void startRequestProcessors() {
-        for (int i = 0; i < THREAD_POOL_SIZE; i++) {
-            executorService.submit(() -> {
-                try {
-                    while (!Thread.currentThread().isInterrupted() && !isShuttingDown) {
-                        BookingRequest request = requestQueue.poll(100, TimeUnit.MILLISECONDS);
-                        if (request == null) {
-                            continue;
-                        }
-                        
-                        processBookingRequest(request);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Error processing request", e);
-                }
-            });
+    // Publishes the default hotel's changes for read replicas here and, with booking.feedPort, in other JVMs
+    private static void startReplication(RoomDatabaseAccessService service) throws IOException {
+        if (REPLICAS <= 0 && FEED_PORT == null) {
+            return;
+        }
+        ChangeFeed feed = new ChangeFeed(FEED_CAPACITY);
+        feed.start(service);
+        changeFeed = feed;
+        for (int i = 1; i <= REPLICAS; i++) {
+            ReplicaFollower follower = new ReplicaFollower("local-" + i, feed, new RoomReplica());
+            follower.start();
+            replicaFollowers.add(follower);
+        }
+        if (FEED_PORT != null) {
+            feedServer = ChangeFeedServer.builder().port(FEED_PORT).feed(feed).build();
+            feedServer.start();
+        }
+    }
+
+    // Drives the default hotel through the same pipeline and handlers as file requests, then reports what it measured
+    private static void runLoad(BookingPipeline pipeline) {
+        loadGenerator = LoadGenerator.builder()
+                .ratePerSecond(LOAD_RATE)
+                .duration(Duration.ofSeconds(LOAD_SECONDS))
+                .zipfExponent(LOAD_ZIPF)
+                .bookShare(LOAD_BOOK_SHARE)
+                .cancelShare(LOAD_CANCEL_SHARE)
+                .build();
+        LoadReport report = loadGenerator.run(pipeline, RoomDatabaseAccessService.getInstance());
+        LOGGER.info("\nLoad Test (" + EXECUTION_MODE + " mode):" + report.format());
+    }
+
+    // Wraps every root handler so records are formatted and written off the booking threads
+    private static void installAsyncLogging() {
+        Logger root = Logger.getLogger("");
+        for (Handler handler : root.getHandlers()) {
+            root.removeHandler(handler);
+            root.addHandler(new AsyncHandler(handler, ASYNC_LOG_CAPACITY));
+        }
+    }
+
+    private static BookingProcessor createProcessor(String mode) {
+        switch (mode) {
+            case "pool":
+                return new FixedPoolBookingProcessor(THREAD_POOL_SIZE, QUEUE_CAPACITY, Main::processBookingRequest);
+            case "virtual":
+                return new VirtualThreadBookingProcessor(MAX_CONCURRENCY, Main::processBookingRequest);
+            case "batch":
+                return new BatchingBookingProcessor(THREAD_POOL_SIZE, QUEUE_CAPACITY, BATCH_SIZE, Main::processBookingBatch);
+            case "sharded":
+                return new ShardedBookingProcessor(SHARDS, QUEUE_CAPACITY, Main::processBookingRequest);
+            default:
+                throw new IllegalArgumentException("Unknown booking.mode: " + mode);
+        }
+    }
+
+    // As many requests as the processor accepts without blocking the pipeline's caller
+    private static int maxInFlight(String mode) {
+        return "virtual".equals(mode) ? MAX_CONCURRENCY : QUEUE_CAPACITY;
+    }
+
+    private static void initializePersistence(Path directory) throws IOException {
+        RoomPersistence persistence = new RoomPersistence(directory, parseSyncMode(WAL_SYNC), WAL_FLUSH_INTERVAL_MILLIS);
+        RoomStore store = createRoomStore();
+        long restored = persistence.recover(store);
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(store);
+        RoomDatabaseAccessService.setInstance(service);
+        persistence.start(service, SNAPSHOT_INTERVAL_MILLIS);
+        LOGGER.info("Recovered " + restored + " room records from " + directory);
+    }
+
+    // The default hotel is the singleton service; every other hotel is loaded from booking.hotelsDir on first use
+    private static HotelInventory createHotelInventory() {
+        HotelInventory.Builder builder = HotelInventory.builder()
+                .roomStore(ROOM_STORE)
+                .maxResidentHotels(MAX_RESIDENT_HOTELS)
+                .onLoad(service -> service.addBookingAttemptListener(metrics));
+        if (HOTELS_DIR != null) {
+            builder.loader(new DirectoryHotelLoader(Path.of(HOTELS_DIR)));
+        }
+        if (DATA_DIR != null) {
+            builder.dataDirectory(Path.of(DATA_DIR, "hotels"))
+                    .syncMode(parseSyncMode(WAL_SYNC))
+                    .flushIntervalMillis(WAL_FLUSH_INTERVAL_MILLIS)
+                    .snapshotIntervalMillis(SNAPSHOT_INTERVAL_MILLIS);
+        }
+        HotelInventory inventory = builder.build();
+        inventory.register(Room.DEFAULT_HOTEL, RoomDatabaseAccessService.getInstance());
+        return inventory;
+    }
+
+    private static RoomStore createRoomStore() throws IOException {
+        if (CATALOG_FILE == null) {
+            return RoomDatabaseAccessService.createDefaultRoomStore();
+        }
+        long start = System.nanoTime();
+        RoomStore store = RoomCatalog.load(Path.of(CATALOG_FILE), ROOM_STORE);
+        LOGGER.info("Loaded " + store.size() + " rooms from " + CATALOG_FILE + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return store;
+    }
+
+    private static WriteAheadLog.SyncMode parseSyncMode(String sync) {
+        switch (sync) {
+            case "group":
+                return WriteAheadLog.SyncMode.GROUP_COMMIT;
+            case "batched":
+                return WriteAheadLog.SyncMode.BATCHED;
+            default:
+                throw new IllegalArgumentException("Unknown booking.walSync: " + sync);
         }
     }
 
     private static void processBookingRequest(BookingRequest request) {
+        long start = System.nanoTime();
+        recordQueueWait(request, start);
+        BookingOutcome outcome = BookingOutcome.ERROR;
+        Exception error = null;
         try {
-            LOGGER.info("Processing request for room " + request.getRoomNumber() + " by " + request.getGuest());
-            boolean booked = bookRoom(request);
-            if (booked) {
-                LOGGER.info("Successfully booked room " + request.getRoomNumber() + " for " + request.getGuest());
-            } else {
-                LOGGER.info("Failed to book room " + request.getRoomNumber() + " for " + request.getGuest());
+            // Suppliers keep message building off the hot path unless the level is enabled,
+            // and logp names the source so no stack walk is needed to find the caller
+            LOGGER.logp(Level.FINE, Main.class.getName(), "processBookingRequest",
+                    () -> "Processing request for room " + target(request) + " by " + request.getGuest());
+            outcome = idempotency.execute(request.getRequestId(),
+                    () -> hotels.withHotel(request.getHotelId(), service -> execute(service, request)));
+            BookingOutcome result = outcome;
+            if (LOGGER.isLoggable(Level.INFO) && requestLogSampler.sample()) {
+                LOGGER.logp(Level.INFO, Main.class.getName(), "processBookingRequest",
+                        () -> describe(result) + target(request) + " for " + request.getGuest());
             }
         } catch (Exception e) {
+            error = e;
+            metrics.recordError();
             LOGGER.log(Level.SEVERE, "Error processing booking request", e);
+        } finally {
+            metrics.recordServiceTime(System.nanoTime() - start);
+            // Last, so whoever waits on the result also sees this request's metrics
+            if (error == null) {
+                request.complete(outcome);
+            } else {
+                request.fail(error);
+            }
         }
     }
 
-    private static boolean bookRoom(BookingRequest request) {
-        RoomDatabaseAccessService service = RoomDatabaseAccessService.getInstance();
-        Room room = service.loadRoom(request.getRoomNumber());
-        if (room != null && room.isAvailable()) {
-            Room bookedRoom = room.bookRoom(request.getGuestName());
-            if (bookedRoom != null) {
-                service.updateRoom(bookedRoom);
-                service.recordSuccessfulBooking();
-                return true;
-            }
+    private static BookingOutcome execute(RoomDatabaseAccessService service, BookingRequest request) {
+        if (request.getOperation() == BookingRequest.Operation.CANCEL) {
+            BookingOutcome outcome = cancel(service, request);
+            metrics.recordOutcome(outcome);
+            return outcome;
         }
-        return false;
+        return outcomeOf(service, request, bookRoom(service, request));
+    }
+
+    private static String target(BookingRequest request) {
+        return request.isAnyRoomOfType() ? "of type " + request.getRoomType() : String.valueOf(request.getRoomNumber());
     }
 
-    public static void readBookingRequests(String filename) {
-        ObjectMapper mapper = new ObjectMapper();
+    private static String describe(BookingOutcome outcome) {
+        switch (outcome) {
+            case BOOKED:
+                return "Successfully booked room ";
+            case RELEASED:
+                return "Released room ";
+            case NOT_BOOKED:
+                return "Nothing to release in room ";
+            case WAITLISTED:
+                return "Waitlisted for room ";
+            default:
+                return "Failed to book room ";
+        }
+    }
 
-        try {
-            List<BookingRequest> requests = mapper.readValue(new File(filename), new TypeReference<List<BookingRequest>>() {
-            });
+    private static void recordQueueWait(BookingRequest request, long dequeuedAt) {
+        if (request.getEnqueuedAtNanos() != 0) {
+            metrics.recordQueueWait(dequeuedAt - request.getEnqueuedAtNanos());
+        }
+    }
 
-            for (BookingRequest request : requests) {
-                if (isShuttingDown) {
-                    break;
+    private static void processBookingBatch(List<BookingRequest> batch) {
+        long start = System.nanoTime();
+        for (BookingRequest request : batch) {
+            recordQueueWait(request, start);
+        }
+        boolean[] results = new boolean[batch.size()];
+        BookingOutcome[] outcomes = new BookingOutcome[batch.size()];
+        RuntimeException[] errors = new RuntimeException[batch.size()];
+        // Retries of requests already handled, in this batch or elsewhere, take the original's outcome
+        List<CompletableFuture<BookingOutcome>> originals = new ArrayList<>(batch.size());
+        int repeated = 0;
+        // Each hotel books its share of the batch in one call
+        Map<String, List<Integer>> byHotel = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String requestId = batch.get(i).getRequestId();
+            CompletableFuture<BookingOutcome> original = requestId == null ? null : idempotency.begin(requestId);
+            originals.add(original);
+            if (original == null) {
+                byHotel.computeIfAbsent(batch.get(i).getHotelId(), hotel -> new ArrayList<>()).add(i);
+            } else {
+                repeated++;
+            }
+        }
+        try {
+            for (Map.Entry<String, List<Integer>> entry : byHotel.entrySet()) {
+                List<Integer> indexes = entry.getValue();
+                // Cancellations and any-room bookings run one by one; bookings of named rooms go to bookAll together
+                List<Integer> bookingIndexes = new ArrayList<>(indexes.size());
+                List<BookingRequest> hotelBatch = new ArrayList<>(indexes.size());
+                for (int index : indexes) {
+                    if (!runsAlone(batch.get(index))) {
+                        bookingIndexes.add(index);
+                        hotelBatch.add(batch.get(index));
+                    }
                 }
                 try {
-                    requestQueue.put(request);
-                    Thread.sleep(2000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+                    hotels.withHotel(entry.getKey(), service -> {
+                        for (int index : indexes) {
+                            BookingRequest request = batch.get(index);
+                            if (!runsAlone(request)) {
+                                continue;
+                            }
+                            try {
+                                outcomes[index] = execute(service, request);
+                            } catch (IllegalArgumentException e) {
+                                metrics.recordError();
+                                errors[index] = e;
+                            } catch (UpdateNotDurableException e) {
+                                // Applied, so retries must get its outcome, but the request itself fails
+                                outcomes[index] = e.getOutcome();
+                                errors[index] = e;
+                                throw e;
+                            }
+                        }
+                        boolean[] hotelResults = new boolean[hotelBatch.size()];
+                        try {
+                            service.bookAll(hotelBatch, hotelResults);
+                        } catch (RuntimeException e) {
+                            // Bookings made before the batch stopped stand, though none is confirmed durable
+                            for (int i = 0; i < hotelResults.length; i++) {
+                                if (hotelResults[i]) {
+                                    outcomes[bookingIndexes.get(i)] = BookingOutcome.BOOKED;
+                                    errors[bookingIndexes.get(i)] = e;
+                                }
+                            }
+                            throw e;
+                        }
+                        for (int i = 0; i < hotelResults.length; i++) {
+                            results[bookingIndexes.get(i)] = hotelResults[i];
+                            outcomes[bookingIndexes.get(i)] = outcomeOf(service, hotelBatch.get(i), hotelResults[i]);
+                        }
+                        return null;
+                    });
+                } catch (IllegalArgumentException e) {
+                    for (int index : indexes) {
+                        if (outcomes[index] == null && errors[index] == null) {
+                            metrics.recordError();
+                            errors[index] = e;
+                        }
+                    }
+                    LOGGER.warning("Rejected " + indexes.size() + " requests: " + e.getMessage());
+                }
+            }
+            // Service time per request is the batch's share, not the whole batch
+            long perRequest = (System.nanoTime() - start) / batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                metrics.recordServiceTime(perRequest);
+            }
+            int booked = 0;
+            for (boolean result : results) {
+                if (result) {
+                    booked++;
+                }
+            }
+            LOGGER.info("Processed batch of " + batch.size() + " requests: " + booked + " booked, "
+                    + (batch.size() - booked - repeated) + " failed, " + repeated + " repeated");
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (outcomes[i] == null && errors[i] == null) {
+                    errors[i] = e;
+                }
+            }
+            throw e;
+        } finally {
+            settleRequestIds(batch, originals, outcomes, errors);
+            for (int i = 0; i < batch.size(); i++) {
+                if (errors[i] == null) {
+                    batch.get(i).complete(outcomes[i]);
+                } else {
+                    batch.get(i).fail(errors[i]);
                 }
             }
+        }
+    }
 
-            // Signal that all requests have been queued
-            completionLatch.countDown();
+    // Records the outcomes of the batch's own request ids first, so retries of them in the same batch can take them.
+    // A request with an outcome and an error was applied but not confirmed durable, and its outcome is kept too.
+    private static void settleRequestIds(List<BookingRequest> batch, List<CompletableFuture<BookingOutcome>> originals,
+                                         BookingOutcome[] outcomes, RuntimeException[] errors) {
+        for (int i = 0; i < batch.size(); i++) {
+            String requestId = batch.get(i).getRequestId();
+            if (requestId == null || originals.get(i) != null) {
+                continue;
+            }
+            if (outcomes[i] != null) {
+                idempotency.complete(requestId, outcomes[i]);
+            } else {
+                idempotency.abandon(requestId, errors[i] != null ? errors[i] : new IllegalStateException("Not processed"));
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<BookingOutcome> original = originals.get(i);
+            if (original == null) {
+                continue;
+            }
+            try {
+                outcomes[i] = original.join();
+            } catch (CompletionException | CancellationException e) {
+                errors[i] = new IllegalStateException("The original of request " + batch.get(i).getRequestId()
+                        + " failed", e.getCause());
+            }
+        }
+    }
 
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error reading booking requests", e);
+    private static boolean runsAlone(BookingRequest request) {
+        return request.getOperation() == BookingRequest.Operation.CANCEL || request.isAnyRoomOfType();
+    }
+
+    static boolean bookRoom(RoomDatabaseAccessService service, BookingRequest request) {
+        if (request.isAnyRoomOfType()) {
+            return service.bookAnyOfType(request.getRoomType(), request.getGuestName()) != null;
+        }
+        if (request.hasStayDates()) {
+            return service.tryBook(request.getRoomNumber(), request.getGuestName(),
+                    request.getCheckIn(), request.getCheckOut());
+        }
+        return service.tryBook(request.getRoomNumber(), request.getGuestName());
+    }
+
+    // A request with stay dates cancels just those nights of the guest's stay; one without releases the room
+    private static BookingOutcome cancel(RoomDatabaseAccessService service, BookingRequest request) {
+        boolean released = request.hasStayDates()
+                ? service.cancelStay(request.getRoomNumber(), request.getGuestName(), request.getCheckIn(), request.getCheckOut())
+                : service.tryUnbook(request.getRoomNumber());
+        if (released) {
+            return BookingOutcome.RELEASED;
+        }
+        return service.loadRoom(request.getRoomNumber()) == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.NOT_BOOKED;
+    }
+
+    // The service only reports success; a failure is told apart by whether the request was valid and the room exists
+    private static BookingOutcome outcomeOf(RoomDatabaseAccessService service, BookingRequest request, boolean booked) {
+        if (booked) {
+            return BookingOutcome.BOOKED;
+        }
+        if (request.isAnyRoomOfType() && request.getGuest() != null && !request.getGuest().isBlank()) {
+            return WAITLIST ? waitlist(service, request) : BookingOutcome.ALREADY_TAKEN;
+        }
+        if (request.getRoomNumber() <= 0 || request.getGuest() == null || request.getGuest().isBlank()) {
+            return BookingOutcome.ERROR;
         }
+        if (service.loadRoom(request.getRoomNumber()) == null) {
+            return BookingOutcome.UNKNOWN_ROOM;
+        }
+        return WAITLIST && !request.hasStayDates() ? waitlist(service, request) : BookingOutcome.ALREADY_TAKEN;
+    }
+
+    // The request has already failed as taken; the guest gets the room, or one like it, when it is released
+    private static BookingOutcome waitlist(RoomDatabaseAccessService service, BookingRequest request) {
+        WaitlistEntry entry = request.isAnyRoomOfType()
+                ? service.joinWaitlist(request.getRoomType(), request.getGuest(), request.getLoyaltyTier())
+                : "type".equals(WAITLIST_SCOPE)
+                ? service.joinWaitlist(service.loadRoom(request.getRoomNumber()).getRoomType(), request.getGuest(),
+                        request.getLoyaltyTier())
+                : service.joinWaitlist(request.getRoomNumber(), request.getGuest(), request.getLoyaltyTier());
+        if (entry == null) {
+            return BookingOutcome.ALREADY_TAKEN;
+        }
+        metrics.recordWaitlisted();
+        entry.getAssignment().thenAccept(room -> {
+            if (LOGGER.isLoggable(Level.INFO) && requestLogSampler.sample()) {
+                LOGGER.logp(Level.INFO, Main.class.getName(), "waitlist",
+                        () -> "Booked room " + room.getRoomNumber() + " for waitlisted " + request.getGuest());
+            }
+        });
+        return BookingOutcome.WAITLISTED;
     }
 
     private static void printStatistics() {
         try {
             RoomDatabaseAccessService service = RoomDatabaseAccessService.getInstance();
             printBookingStatistics(service);
+            LOGGER.info("\nRepeated requests answered with their first outcome: " + idempotency.getRepeatCount());
+            if (hotels != null && hotels.getLoadCount() > 0) {
+                LOGGER.info(String.format("%nHotels: %d loaded, %d resident, %d unloaded",
+                        hotels.getLoadCount(), hotels.getResidentHotelCount(), hotels.getEvictionCount()));
+            }
+            ChangeFeed feed = changeFeed;
+            if (feed != null) {
+                LOGGER.info("\nReplication: " + feed.getLastSequence() + " changes published");
+                for (ReplicaStatus status : feed.getReplicaStatuses()) {
+                    LOGGER.info(String.format("Replica %s: at change %d, %d behind (%.1f ms), %d reloads",
+                            status.name(), status.appliedSequence(), status.lagChanges(), status.getLagMillis(),
+                            status.resyncCount()));
+                }
+            }
+            if (processor instanceof ShardedBookingProcessor sharded) {
+                LOGGER.info("\nShard Statistics:");
+                sharded.logShardStatistics();
+            }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error printing statistics", e);
         }
@@ -145,9 +610,14 @@ public class Main {
 
     private static void printBookingStatistics(RoomDatabaseAccessService service) {
         LOGGER.info("\nBooking Statistics:");
-        LOGGER.info("Total Booking Attempts: " + service.getSuccessfulBookings());
+        LOGGER.info("Total Booking Attempts: " + service.getTotalBookingAttempts());
         LOGGER.info("Successful Bookings: " + service.getSuccessfulBookings());
         LOGGER.info("Booking Success Rate: " + String.format("%.2f%%", service.getBookingSuccessRate() * 100));
+        if (WAITLIST) {
+            LOGGER.info("Waitlist: " + service.getWaitlistSize() + " waiting, "
+                    + service.getWaitlistMatchCount() + " booked from the waitlist");
+        }
+        LOGGER.info("Booking Metrics:" + metrics.snapshot().format(null));
         
         LOGGER.info("\nRoom Statistics:");
         for (Room room : service.getAllRooms()) {
@@ -160,15 +630,26 @@ public class Main {
         }
     }
 
-    private static void shutdownThreadPool() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
+    private static synchronized void shutdownThreadPool() {
+        BookingHttpServer server = httpServer;
+        if (server != null) {
+            server.close();
+        }
+        processor.close();
+        ChangeFeedServer replicationServer = feedServer;
+        if (replicationServer != null) {
+            replicationServer.close();
+        }
+        for (ReplicaFollower follower : replicaFollowers) {
+            follower.close();
+        }
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        if (hotels != null) {
+            hotels.close();
         }
+        // Flushes the write-ahead log and takes a final snapshot once no more bookings can arrive
+        RoomDatabaseAccessService.getInstance().close();
     }
 }
@@ -0,0 +1,93 @@
+package com.kayak.hotelsearch.booking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Worker pool that takes whatever is queued, up to a batch size, in one {@code drainTo}
+ * and hands it to the handler as a single batch.
+ */
+public class BatchingBookingProcessor implements BookingProcessor {
+    private static final Logger LOGGER = Logger.getLogger(BatchingBookingProcessor.class.getName());
+    private final int threadCount;
+    private final int batchSize;
+    private final BlockingQueue<BookingRequest> requestQueue;
+    private final ExecutorService executorService;
+    private final Consumer<List<BookingRequest>> handler;
+    private volatile boolean isClosing = false;
+
+    public BatchingBookingProcessor(int threadCount, int queueCapacity, int batchSize,
+                                    Consumer<List<BookingRequest>> handler) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.threadCount = threadCount;
+        this.batchSize = batchSize;
+        this.requestQueue = new LinkedBlockingQueue<>(queueCapacity);
+        this.executorService = Executors.newFixedThreadPool(threadCount);
+        this.handler = handler;
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                List<BookingRequest> batch = new ArrayList<>(batchSize);
+                try {
+                    while (!Thread.currentThread().isInterrupted() && !(isClosing && requestQueue.isEmpty())) {
+                        // Block for the first request only; the rest are whatever has queued up behind it
+                        BookingRequest first = requestQueue.poll(100, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                        requestQueue.drainTo(batch, batchSize - 1);
+
+                        handle(batch);
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void submit(BookingRequest request) throws InterruptedException {
+        requestQueue.put(request);
+    }
+
+    private void handle(List<BookingRequest> batch) {
+        try {
+            handler.accept(batch);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error processing batch of " + batch.size() + " requests", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        isClosing = true;
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
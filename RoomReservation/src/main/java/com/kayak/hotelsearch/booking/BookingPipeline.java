@@ -0,0 +1,139 @@
+package com.kayak.hotelsearch.booking;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking front end to a {@link BookingProcessor}. {@link #submitAsync} returns a future
+ * per request and fails fast once {@code maxInFlight} requests are outstanding. As a
+ * {@link Flow.Processor} it asks its upstream publisher for only as many requests as it has
+ * room for, one more each time a booking completes, and publishes a {@link BookingResult}
+ * for every request to its own subscribers. Handlers must call {@link BookingRequest#complete}
+ * or {@link BookingRequest#fail} for every request they are given.
+ */
+public class BookingPipeline extends SubmissionPublisher<BookingResult>
+        implements Flow.Processor<BookingRequest, BookingResult> {
+    private static final Logger LOGGER = Logger.getLogger(BookingPipeline.class.getName());
+    private final BookingProcessor processor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+
+    public BookingPipeline(BookingProcessor processor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight must be positive");
+        }
+        this.processor = processor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    // Never waits for capacity; when maxInFlight requests are outstanding the future fails with RejectedExecutionException
+    public CompletableFuture<BookingResult> submitAsync(BookingRequest request) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException(maxInFlight + " booking requests already in flight"));
+        }
+        return dispatch(request, false);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    // Completes once the upstream publisher has finished and every request it sent has a result
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(maxInFlight);
+    }
+
+    @Override
+    public void onNext(BookingRequest request) {
+        // Demand never exceeds free permits unless submitAsync is used alongside the subscription
+        if (!permits.tryAcquire()) {
+            CompletableFuture<BookingResult> rejected = request.track();
+            inFlight.incrementAndGet();
+            request.fail(new RejectedExecutionException(maxInFlight + " booking requests already in flight"));
+            publish(rejected.join(), true);
+            return;
+        }
+        dispatch(request, true);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        LOGGER.warning("Booking request publisher failed: " + error);
+        upstreamError = error;
+        onComplete();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        if (inFlight.get() == 0) {
+            finish();
+        }
+    }
+
+    private CompletableFuture<BookingResult> dispatch(BookingRequest request, boolean fromUpstream) {
+        inFlight.incrementAndGet();
+        CompletableFuture<BookingResult> result = request.track()
+                .whenComplete((value, error) -> {
+                    permits.release();
+                    publish(value, fromUpstream);
+                });
+        request.markEnqueued();
+        try {
+            processor.submit(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.fail(e);
+        } catch (RuntimeException e) {
+            request.fail(e);
+        }
+        return result;
+    }
+
+    // Runs on the thread that completed the request, once per request
+    private void publish(BookingResult result, boolean fromUpstream) {
+        if (hasSubscribers() && !isClosed()) {
+            // Blocks while a subscriber's buffer is full, so slow consumers slow the bookings down too
+            submit(result);
+        }
+        if (fromUpstream && !upstreamDone) {
+            subscription.request(1);
+        }
+        if (inFlight.decrementAndGet() == 0 && upstreamDone) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        Throwable error = upstreamError;
+        if (error == null) {
+            if (completion.complete(null)) {
+                close();
+            }
+        } else if (completion.completeExceptionally(error)) {
+            closeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.kayak.hotelsearch.booking;
+
+/**
+ * Execution strategy for booking requests. {@link #submit} may block to apply
+ * backpressure to the producer; {@link #close} finishes every request already
+ * accepted before returning.
+ */
+public interface BookingProcessor extends AutoCloseable {
+    void start();
+
+    void submit(BookingRequest request) throws InterruptedException;
+
+    @Override
+    void close();
+}
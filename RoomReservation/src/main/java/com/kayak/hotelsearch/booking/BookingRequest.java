@@ -1,24 +1,123 @@
 package com.kayak.hotelsearch.booking;
 
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.LoyaltyTier;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
 public class BookingRequest {
+    public enum Operation {
+        BOOK,
+        // Releases the room, or the stay's nights when dates are given
+        CANCEL
+    }
+
+    // Requests without a hotel go to the default hotel
+    private final String hotelId;
     private final int roomNumber;
+    // Set instead of a room number to book whichever room of the type is free
+    private final RoomType roomType;
     private final String guest;
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+    // Requests without an operation book, so existing request files keep working
+    private final Operation operation;
+    // Orders the guest on the waitlist if the room is taken; requests without one wait in the lowest tier
+    private final LoyaltyTier loyaltyTier;
+    // Chosen by the client and resent with every retry, so a retry gets the first attempt's outcome; null turns that off
+    private final String requestId;
+    // System.nanoTime() when handed to a processor, 0 if never queued
+    private long enqueuedAtNanos;
+    // Set by BookingPipeline before the request is queued, so the queue hand-off publishes it to the handler
+    private CompletableFuture<BookingResult> result;
 
     // Default constructor for Jackson deserialization
     public BookingRequest() {
+        this.hotelId = Room.DEFAULT_HOTEL;
         this.roomNumber = 0;
+        this.roomType = null;
         this.guest = "";
+        this.checkIn = null;
+        this.checkOut = null;
+        this.operation = Operation.BOOK;
+        this.loyaltyTier = LoyaltyTier.NONE;
+        this.requestId = null;
     }
 
     public BookingRequest(int roomNumber, String guest) {
+        this(roomNumber, guest, null, null);
+    }
+
+    public BookingRequest(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        this(Room.DEFAULT_HOTEL, roomNumber, guest, checkIn, checkOut);
+    }
+
+    public BookingRequest(String hotelId, int roomNumber, String guest) {
+        this(hotelId, roomNumber, guest, null, null);
+    }
+
+    public BookingRequest(String hotelId, int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        this(hotelId, roomNumber, guest, checkIn, checkOut, Operation.BOOK);
+    }
+
+    public BookingRequest(String hotelId, int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut,
+                          Operation operation) {
+        this(hotelId, roomNumber, guest, checkIn, checkOut, operation, LoyaltyTier.NONE);
+    }
+
+    public BookingRequest(String hotelId, int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut,
+                          Operation operation, LoyaltyTier loyaltyTier) {
+        this(hotelId, roomNumber, null, guest, checkIn, checkOut, operation, loyaltyTier, null);
+    }
+
+    public BookingRequest(String hotelId, RoomType roomType, String guest, LoyaltyTier loyaltyTier) {
+        this(hotelId, 0, roomType, guest, null, null, Operation.BOOK, loyaltyTier, null);
+    }
+
+    private BookingRequest(String hotelId, int roomNumber, RoomType roomType, String guest, LocalDate checkIn,
+                           LocalDate checkOut, Operation operation, LoyaltyTier loyaltyTier, String requestId) {
+        if ((checkIn == null) != (checkOut == null)) {
+            throw new IllegalArgumentException("A stay needs both check-in and check-out");
+        }
+        if (checkIn != null && !checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out must be after check-in");
+        }
+        this.hotelId = hotelId;
         this.roomNumber = roomNumber;
+        this.roomType = roomType;
         this.guest = guest;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+        this.operation = operation;
+        this.loyaltyTier = loyaltyTier;
+        this.requestId = requestId;
+    }
+
+    // A copy carrying the client's request id; call before submitting
+    public BookingRequest withRequestId(String requestId) {
+        if (requestId != null && requestId.isBlank()) {
+            throw new IllegalArgumentException("Request id cannot be blank");
+        }
+        return new BookingRequest(hotelId, roomNumber, roomType, guest, checkIn, checkOut, operation, loyaltyTier,
+                requestId);
+    }
+
+    public String getHotelId() {
+        return hotelId;
     }
 
     public int getRoomNumber() {
         return roomNumber;
     }
 
+    public RoomType getRoomType() {
+        return roomType;
+    }
+
     public String getGuest() {
         return guest;
     }
@@ -26,4 +125,66 @@ public class BookingRequest {
     public String getGuestName() {
         return guest;
     }
+
+    public LocalDate getCheckIn() {
+        return checkIn;
+    }
+
+    public LocalDate getCheckOut() {
+        return checkOut;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public LoyaltyTier getLoyaltyTier() {
+        return loyaltyTier == null ? LoyaltyTier.NONE : loyaltyTier;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void markEnqueued() {
+        enqueuedAtNanos = System.nanoTime();
+    }
+
+    @JsonIgnore
+    public long getEnqueuedAtNanos() {
+        return enqueuedAtNanos;
+    }
+
+    CompletableFuture<BookingResult> track() {
+        result = new CompletableFuture<>();
+        return result;
+    }
+
+    // Handlers report every request they finish; this is a no-op for requests nobody is waiting on
+    public void complete(BookingOutcome outcome) {
+        finish(outcome, null);
+    }
+
+    public void fail(Throwable error) {
+        finish(BookingOutcome.ERROR, error);
+    }
+
+    private void finish(BookingOutcome outcome, Throwable error) {
+        CompletableFuture<BookingResult> pending = result;
+        if (pending != null) {
+            long latency = enqueuedAtNanos == 0 ? 0 : System.nanoTime() - enqueuedAtNanos;
+            pending.complete(new BookingResult(this, outcome, error, latency));
+        }
+    }
+
+    // Undated bookings that name a type but no room take the first free room of the type
+    public boolean isAnyRoomOfType() {
+        return roomType != null && roomNumber <= 0 && operation != Operation.CANCEL && !hasStayDates();
+    }
+
+    // Requests without dates keep the original book-until-released behaviour; one with a single date is
+    // dated, so booking or cancelling it rejects the missing date instead of taking the whole room
+    public boolean hasStayDates() {
+        return checkIn != null || checkOut != null;
+    }
 }
@@ -0,0 +1,140 @@
+package com.kayak.hotelsearch.booking;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Publishes the booking requests in a JSON array file to a single subscriber. A request is
+ * parsed only once the subscriber has asked for it, so the file is read exactly as fast as
+ * the subscriber takes requests, and no faster than an optional rate limit.
+ */
+public class BookingRequestPublisher implements Flow.Publisher<BookingRequest>, AutoCloseable {
+    private final Path file;
+    private final long intervalNanos;
+    private final AtomicLong demand = new AtomicLong();
+    private volatile Thread reader;
+    private volatile boolean cancelled;
+    // Stops reading but still completes the subscriber, so work already admitted finishes normally
+    private volatile boolean closed;
+
+    // requestsPerSecond of 0 or less publishes as fast as the subscriber asks
+    public BookingRequestPublisher(Path file, double requestsPerSecond) {
+        this.file = file;
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (1_000_000_000L / requestsPerSecond) : 0;
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super BookingRequest> subscriber) {
+        if (reader != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        reader = new Thread(() -> publish(subscriber), "booking-request-reader");
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancelled = true;
+                    subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                } else {
+                    // Saturates at Long.MAX_VALUE, which the Flow spec treats as unbounded
+                    demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+                }
+                LockSupport.unpark(reader);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                LockSupport.unpark(reader);
+            }
+        });
+        reader.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread = reader;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Waits for the reader to finish, so callers know no further request will be published
+    public void join() throws InterruptedException {
+        Thread thread = reader;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private void publish(Flow.Subscriber<? super BookingRequest> subscriber) {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        // Requests are bound one at a time from the token stream, so memory stays flat regardless of file size
+        try (JsonParser parser = mapper.getFactory().createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of booking requests in " + file);
+            }
+            parser.nextToken();
+            long nextRelease = System.nanoTime();
+            try (MappingIterator<BookingRequest> requests = mapper.readerFor(BookingRequest.class).readValues(parser)) {
+                // The end of the file is looked for before waiting, so a subscriber that asked for exactly
+                // every request is completed; looking only reads the next token, not the next request
+                while (!stopped() && requests.hasNextValue() && awaitDemand()) {
+                    BookingRequest request = requests.nextValue();
+                    if (intervalNanos > 0) {
+                        for (long delay = nextRelease - System.nanoTime(); delay > 0 && !stopped();
+                                delay = nextRelease - System.nanoTime()) {
+                            LockSupport.parkNanos(delay);
+                        }
+                        nextRelease += intervalNanos;
+                    }
+                    if (stopped()) {
+                        break;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(request);
+                }
+            }
+            if (!cancelled) {
+                subscriber.onComplete();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!cancelled) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    private boolean awaitDemand() {
+        while (demand.get() == 0 && !stopped()) {
+            LockSupport.park(this);
+        }
+        return !stopped();
+    }
+
+    private boolean stopped() {
+        return cancelled || closed;
+    }
+}
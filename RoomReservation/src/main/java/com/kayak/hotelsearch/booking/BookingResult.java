@@ -0,0 +1,52 @@
+package com.kayak.hotelsearch.booking;
+
+import com.kayak.hotelsearch.room.BookingOutcome;
+
+/**
+ * What became of one {@link BookingRequest}. The error is set only for
+ * {@link BookingOutcome#ERROR}; latency runs from admission to completion.
+ */
+public final class BookingResult {
+    private final BookingRequest request;
+    private final BookingOutcome outcome;
+    private final Throwable error;
+    private final long latencyNanos;
+
+    BookingResult(BookingRequest request, BookingOutcome outcome, Throwable error, long latencyNanos) {
+        this.request = request;
+        this.outcome = outcome;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    public BookingOutcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isBooked() {
+        return outcome == BookingOutcome.BOOKED;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingResult{" +
+                "hotelId='" + request.getHotelId() + '\'' +
+                ", roomNumber=" + request.getRoomNumber() +
+                ", guest='" + request.getGuest() + '\'' +
+                ", outcome=" + outcome +
+                (error == null ? "" : ", error=" + error) +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.kayak.hotelsearch.booking;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class FixedPoolBookingProcessor implements BookingProcessor {
+    private static final Logger LOGGER = Logger.getLogger(FixedPoolBookingProcessor.class.getName());
+    private final int threadCount;
+    private final BlockingQueue<BookingRequest> requestQueue;
+    private final ExecutorService executorService;
+    private final Consumer<BookingRequest> handler;
+    private volatile boolean isClosing = false;
+
+    public FixedPoolBookingProcessor(int threadCount, int queueCapacity, Consumer<BookingRequest> handler) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threadCount = threadCount;
+        this.requestQueue = new LinkedBlockingQueue<>(queueCapacity);
+        this.executorService = Executors.newFixedThreadPool(threadCount);
+        this.handler = handler;
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    // Keep draining after close() so every accepted request is handled
+                    while (!Thread.currentThread().isInterrupted() && !(isClosing && requestQueue.isEmpty())) {
+                        BookingRequest request = requestQueue.poll(100, TimeUnit.MILLISECONDS);
+                        if (request == null) {
+                            continue;
+                        }
+
+                        handle(request);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void submit(BookingRequest request) throws InterruptedException {
+        requestQueue.put(request);
+    }
+
+    private void handle(BookingRequest request) {
+        try {
+            handler.accept(request);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error processing request", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        isClosing = true;
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
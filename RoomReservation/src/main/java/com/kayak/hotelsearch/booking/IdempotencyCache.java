@@ -0,0 +1,270 @@
+package com.kayak.hotelsearch.booking;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.UpdateNotDurableException;
+
+/**
+ * Remembers the outcome of recent requests by their client request id, so a retry gets
+ * the first attempt's outcome instead of booking or cancelling again. Ids are kept as
+ * 64-bit fingerprints next to their outcome and last use, 16 bytes each, in an 8-way
+ * set-associative table allocated up front, so a lookup reads one or two adjacent cache
+ * lines and allocates nothing. A full set evicts its least recently used outcome and
+ * outcomes unused for longer than the time to live are forgotten, so memory is fixed
+ * however many ids pass through. A request is claimed in the table before it runs, so a
+ * retry arriving while its original is still running waits for the original's outcome
+ * instead of running too. Claims are never evicted or expired; a request that finds its
+ * set full of running claims is claimed in a side set instead, which only ever holds
+ * requests that are running at the time.
+ *
+ * <p>Outcomes are only ever forgotten, not confused: two live ids share a fingerprint
+ * with a probability of about one in 2^61 per lookup.
+ */
+public final class IdempotencyCache {
+    private static final int WAYS = 8;
+    private static final int LOCK_STRIPES = 256;
+    // An entry is its fingerprint, then its last use in nanos with the outcome in the low byte
+    private static final int ENTRY_LONGS = 2;
+    private static final long OUTCOME_MASK = 0xFF;
+    private static final int RUNNING = 0xFF;
+    private static final BookingOutcome[] OUTCOMES = BookingOutcome.values();
+    private static final CompletableFuture<?>[] COMPLETED = new CompletableFuture<?>[OUTCOMES.length];
+
+    static {
+        for (BookingOutcome outcome : OUTCOMES) {
+            COMPLETED[outcome.ordinal()] = CompletableFuture.completedFuture(outcome);
+        }
+    }
+
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final int setMask;
+    private final long[] entries;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Retries waiting on a running original; only touched when there are any
+    private final Map<Long, CompletableFuture<BookingOutcome>> waiting = new ConcurrentHashMap<>();
+    // Claims that found every way of their set claimed; changed under the set's lock like the set itself
+    private final Set<Long> overflow = ConcurrentHashMap.newKeySet();
+    private final LongAdder repeats = new LongAdder();
+
+    public IdempotencyCache(int capacity, Duration ttl) {
+        this(capacity, ttl, System::nanoTime);
+    }
+
+    IdempotencyCache(int capacity, Duration ttl, LongSupplier nanoTime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1)) << 1;
+        this.setMask = sets - 1;
+        this.entries = new long[sets * WAYS * ENTRY_LONGS];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Runs action unless requestId has been seen before, in which case the earlier outcome
+     * is returned, after waiting for it if that request is still running. If the earlier
+     * request failed, this one runs in its place, unless it failed with
+     * {@link UpdateNotDurableException}: its update was applied, so its outcome is kept for
+     * retries and only the request itself fails. A null id always runs.
+     */
+    public BookingOutcome execute(String requestId, Supplier<BookingOutcome> action) {
+        if (requestId == null) {
+            return action.get();
+        }
+        CompletableFuture<BookingOutcome> original;
+        while ((original = begin(requestId)) != null) {
+            try {
+                return original.join();
+            } catch (CompletionException | CancellationException e) {
+                // The original was abandoned and its id freed; try to claim it
+            }
+        }
+        BookingOutcome outcome;
+        try {
+            outcome = action.get();
+        } catch (UpdateNotDurableException e) {
+            if (e.getOutcome() == null) {
+                abandon(requestId, e);
+            } else {
+                complete(requestId, e.getOutcome());
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            abandon(requestId, e);
+            throw e;
+        }
+        complete(requestId, outcome);
+        return outcome;
+    }
+
+    /**
+     * Claims requestId for the caller, returning null, or returns the outcome of the
+     * earlier request with the id, completed or still running. A caller that gets null
+     * must later call {@link #complete} or {@link #abandon}.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<BookingOutcome> begin(String requestId) {
+        long fingerprint = fingerprint(requestId);
+        long now = nanoTime.getAsLong() & ~OUTCOME_MASK;
+        int base = setOf(fingerprint);
+        synchronized (lockFor(base)) {
+            int slot = slotOf(base, fingerprint);
+            if (slot >= 0) {
+                long stamp = entries[slot + 1];
+                if (isLive(stamp, now)) {
+                    int outcome = (int) (stamp & OUTCOME_MASK);
+                    entries[slot + 1] = now | outcome;
+                    repeats.increment();
+                    if (outcome == RUNNING) {
+                        return waiting.computeIfAbsent(fingerprint, key -> new CompletableFuture<>());
+                    }
+                    return (CompletableFuture<BookingOutcome>) COMPLETED[outcome];
+                }
+                // Expired; cleared so the id is only ever in one way
+                entries[slot] = 0;
+            }
+            if (!overflow.isEmpty() && overflow.contains(fingerprint)) {
+                repeats.increment();
+                return waiting.computeIfAbsent(fingerprint, key -> new CompletableFuture<>());
+            }
+            int victim = victim(base, now);
+            if (victim < 0) {
+                overflow.add(fingerprint);
+            } else {
+                entries[victim] = fingerprint;
+                entries[victim + 1] = now | RUNNING;
+            }
+        }
+        return null;
+    }
+
+    // Records the outcome of a claimed id and hands it to any retries waiting on it
+    public void complete(String requestId, BookingOutcome outcome) {
+        long fingerprint = fingerprint(requestId);
+        int base = setOf(fingerprint);
+        synchronized (lockFor(base)) {
+            int slot = slotOf(base, fingerprint);
+            if (slot >= 0) {
+                entries[slot + 1] = (entries[slot + 1] & ~OUTCOME_MASK) | outcome.ordinal();
+            } else if (!overflow.isEmpty() && overflow.remove(fingerprint)) {
+                // With an outcome it may take the way of an older one; if every way is still running it is forgotten
+                long now = nanoTime.getAsLong() & ~OUTCOME_MASK;
+                int victim = victim(base, now);
+                if (victim >= 0) {
+                    entries[victim] = fingerprint;
+                    entries[victim + 1] = now | outcome.ordinal();
+                }
+            }
+            // Waiters register under this lock, so none can slip in after this check
+            if (!waiting.isEmpty()) {
+                CompletableFuture<BookingOutcome> waiter = waiting.remove(fingerprint);
+                if (waiter != null) {
+                    waiter.complete(outcome);
+                }
+            }
+        }
+    }
+
+    // Releases a claimed id without an outcome, so the next request with it runs again
+    public void abandon(String requestId, Throwable cause) {
+        long fingerprint = fingerprint(requestId);
+        int base = setOf(fingerprint);
+        synchronized (lockFor(base)) {
+            int slot = slotOf(base, fingerprint);
+            if (slot >= 0 && (entries[slot + 1] & OUTCOME_MASK) == RUNNING) {
+                entries[slot] = 0;
+            } else if (!overflow.isEmpty()) {
+                overflow.remove(fingerprint);
+            }
+            if (!waiting.isEmpty()) {
+                CompletableFuture<BookingOutcome> waiter = waiting.remove(fingerprint);
+                if (waiter != null) {
+                    waiter.completeExceptionally(cause);
+                }
+            }
+        }
+    }
+
+    // Requests answered, or waiting to be answered, with an earlier request's outcome
+    public long getRepeatCount() {
+        return repeats.sum();
+    }
+
+    public int capacity() {
+        return entries.length / ENTRY_LONGS;
+    }
+
+    // Bytes held by the table; fixed for the life of the cache
+    public long getFootprintBytes() {
+        return (long) entries.length * Long.BYTES;
+    }
+
+    // A claim lasts until completed or abandoned however long its request runs; an outcome lasts the time to live
+    private boolean isLive(long stamp, long now) {
+        return (stamp & OUTCOME_MASK) == RUNNING || now - (stamp & ~OUTCOME_MASK) <= ttlNanos;
+    }
+
+    // An empty or expired way, else the least recently used completed one, else -1 when every way is running
+    private int victim(int base, long now) {
+        int leastRecent = -1;
+        for (int i = base; i < base + WAYS * ENTRY_LONGS; i += ENTRY_LONGS) {
+            long stamp = entries[i + 1];
+            if (entries[i] == 0 || !isLive(stamp, now)) {
+                return i;
+            }
+            if ((stamp & OUTCOME_MASK) != RUNNING && (leastRecent < 0 || stamp - entries[leastRecent + 1] < 0)) {
+                leastRecent = i;
+            }
+        }
+        return leastRecent;
+    }
+
+    private int slotOf(int base, long fingerprint) {
+        for (int i = base; i < base + WAYS * ENTRY_LONGS; i += ENTRY_LONGS) {
+            if (entries[i] == fingerprint) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int setOf(long fingerprint) {
+        return ((int) fingerprint & setMask) * WAYS * ENTRY_LONGS;
+    }
+
+    private Object lockFor(int base) {
+        return locks[(base / (WAYS * ENTRY_LONGS)) & (LOCK_STRIPES - 1)];
+    }
+
+    // 64-bit FNV-1a over the id's characters, finished with MurmurHash3's mixer; never 0, which marks an empty way
+    static long fingerprint(String requestId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < requestId.length(); i++) {
+            hash = (hash ^ requestId.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,173 @@
+package com.kayak.hotelsearch.booking;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.concurrent.MpscRingBuffer;
+
+/**
+ * Routes each request to one of K shards by hotel and room number. Every shard has its own
+ * lock-free ring buffer and a single consumer thread, so producers never share a
+ * queue lock and requests for the same room are handled one at a time, in the order
+ * they were submitted.
+ */
+public class ShardedBookingProcessor implements BookingProcessor {
+    private static final Logger LOGGER = Logger.getLogger(ShardedBookingProcessor.class.getName());
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final Shard[] shards;
+    private final Consumer<BookingRequest> handler;
+    private volatile boolean isClosing = false;
+    private long startedAt;
+
+    public ShardedBookingProcessor(int shardCount, int queueCapacity, Consumer<BookingRequest> handler) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.handler = handler;
+        this.shards = new Shard[shardCount];
+        int shardCapacity = Math.max(1, queueCapacity / shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, shardCapacity);
+        }
+    }
+
+    @Override
+    public void start() {
+        startedAt = System.nanoTime();
+        for (Shard shard : shards) {
+            shard.consumer.start();
+        }
+    }
+
+    @Override
+    public void submit(BookingRequest request) throws InterruptedException {
+        // Any-room bookings have no room to stay ordered on, so they spread by guest rather than all landing on room 0's shard
+        int key = request.isAnyRoomOfType() ? Objects.hashCode(request.getGuest()) : request.getRoomNumber();
+        Shard shard = shards[shardFor(request.getHotelId(), key)];
+        // A full shard blocks only the producers routing to it
+        while (!shard.ring.offer(request)) {
+            if (isClosing) {
+                throw new IllegalStateException("Processor is closed");
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        if (shard.waiting) {
+            LockSupport.unpark(shard.consumer);
+        }
+    }
+
+    int shardFor(String hotelId, int roomNumber) {
+        int hotelHash = hotelId == null ? 0 : hotelId.hashCode();
+        return Math.floorMod(31 * hotelHash + roomNumber, shards.length);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getQueueDepth(int shard) {
+        return shards[shard].ring.size();
+    }
+
+    public long getProcessedCount(int shard) {
+        return shards[shard].processed.get();
+    }
+
+    public void logShardStatistics() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        for (Shard shard : shards) {
+            long processed = shard.processed.get();
+            LOGGER.info(String.format("Shard %d: queue depth %d/%d, processed %d (%.1f req/s)",
+                    shard.index, shard.ring.size(), shard.ring.capacity(), processed, processed / seconds));
+        }
+    }
+
+    @Override
+    public void close() {
+        isClosing = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.consumer);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            for (Shard shard : shards) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining > 0) {
+                    shard.consumer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                }
+                if (shard.consumer.isAlive()) {
+                    shard.consumer.interrupt();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Shard shard : shards) {
+                shard.consumer.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume(Shard shard) {
+        int idle = 0;
+        // Keep draining after close() so every accepted request is handled
+        while (!Thread.currentThread().isInterrupted()) {
+            BookingRequest request = shard.ring.poll();
+            if (request != null) {
+                idle = 0;
+                handle(request);
+                shard.processed.setRelease(shard.processed.getPlain() + 1);
+                continue;
+            }
+            if (isClosing && shard.ring.isEmpty()) {
+                return;
+            }
+            if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            // Producers unpark a waiting consumer; the timeout covers a publish racing this check
+            shard.waiting = true;
+            if (shard.ring.isEmpty() && !isClosing) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            shard.waiting = false;
+        }
+    }
+
+    private void handle(BookingRequest request) {
+        try {
+            handler.accept(request);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error processing request", e);
+        }
+    }
+
+    private final class Shard {
+        private final int index;
+        private final MpscRingBuffer<BookingRequest> ring;
+        private final Thread consumer;
+        // Single writer, so the consumer updates it without a CAS
+        private final AtomicLong processed = new AtomicLong();
+        private volatile boolean waiting;
+
+        Shard(int index, int capacity) {
+            this.index = index;
+            this.ring = new MpscRingBuffer<>(capacity);
+            this.consumer = new Thread(() -> consume(this), "booking-shard-" + index);
+        }
+    }
+}
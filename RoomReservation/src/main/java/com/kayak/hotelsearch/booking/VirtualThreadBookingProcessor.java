@@ -0,0 +1,67 @@
+package com.kayak.hotelsearch.booking;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs every request on its own virtual thread. A semaphore caps the number of
+ * requests in flight, and {@link #submit} blocks the producer once it is exhausted.
+ */
+public class VirtualThreadBookingProcessor implements BookingProcessor {
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreadBookingProcessor.class.getName());
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final Consumer<BookingRequest> handler;
+
+    public VirtualThreadBookingProcessor(int maxConcurrency, Consumer<BookingRequest> handler) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(maxConcurrency);
+        this.handler = handler;
+    }
+
+    @Override
+    public void start() {
+        // Threads are created per request
+    }
+
+    @Override
+    public void submit(BookingRequest request) throws InterruptedException {
+        permits.acquire();
+        try {
+            executorService.execute(() -> {
+                try {
+                    handler.accept(request);
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error processing request", e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kayak.hotelsearch.cache;
+
+/**
+ * Point-in-time counters of a {@link CachingRoomStore}. Loads are misses that found the
+ * room in the repository; pending writes are rooms changed but not yet written back.
+ */
+public record CacheStats(long hits, long misses, long loads, long evictions,
+                         long writeBatches, long writtenRooms, long writeFailures, int pendingWrites) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.1f%% evictions=%d writeBatches=%d writtenRooms=%d "
+                        + "writeFailures=%d pendingWrites=%d",
+                hits, misses, hitRate() * 100, evictions, writeBatches, writtenRooms, writeFailures, pendingWrites);
+    }
+}
@@ -0,0 +1,583 @@
+package com.kayak.hotelsearch.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomRepository;
+import com.kayak.hotelsearch.room.RoomStore;
+
+/**
+ * Bounded {@link RoomStore} in front of a {@link RoomRepository}. Misses read through to the
+ * repository; changes are coalesced per room and written back in batches by a background
+ * writer. Eviction is W-TinyLFU-like: new rooms enter a small LRU window, and a room leaving
+ * the window only displaces the least recently used probation room when a frequency sketch
+ * says it is the more popular of the two. Rooms with unwritten changes are never evicted,
+ * so a read-through never sees an older repository copy.
+ */
+public class CachingRoomStore implements RoomStore {
+    private static final Logger LOGGER = Logger.getLogger(CachingRoomStore.class.getName());
+    private static final int LOCK_STRIPES = 1024;
+    // Share of the cache given to the admission window and, of the rest, to the protected queue
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+    // Unevictable rooms skipped per pass before giving up; the cache runs over its bound until the writer catches up
+    private static final int MAX_SKIPPED_VICTIMS = 16;
+    private static final byte NONE = 0;
+    private static final byte WINDOW = 1;
+    private static final byte PROBATION = 2;
+    private static final byte PROTECTED = 3;
+
+    private final RoomRepository repository;
+    private final int maximumSize;
+    private final int maxWindow;
+    private final int maxProtected;
+    private final int writeBatchSize;
+    private final long writeDelayNanos;
+    private final ConcurrentHashMap<Integer, Node> nodes;
+    // Per-room atomicity; misses hold the stripe while they read through, so one room is loaded once
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    // Guards the queues and the sketch; hits only tryLock it and drop the access record when it is busy
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final ConcurrentLinkedQueue<Node> dirtyNodes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    // Rooms created here that the repository has not seen yet, so size() can count them
+    private final AtomicInteger unsavedNewRooms = new AtomicInteger();
+    // Counted from one scan of the repository when the store is built, then kept up to date by every change
+    private final AtomicInteger availableRooms = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBatches = new LongAdder();
+    private final LongAdder writtenRooms = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private CachingRoomStore(Builder builder) {
+        this.repository = builder.repository;
+        this.maximumSize = builder.maximumSize;
+        this.maxWindow = Math.max(1, (int) (maximumSize * WINDOW_SHARE));
+        this.maxProtected = (int) ((maximumSize - maxWindow) * PROTECTED_SHARE);
+        this.writeBatchSize = builder.writeBatchSize;
+        this.writeDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.writeDelayMillis);
+        this.nodes = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 20));
+        this.sketch = new FrequencySketch(maximumSize);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        for (Room room : repository.findAll()) {
+            if (room.isAvailable()) {
+                availableRooms.incrementAndGet();
+            }
+        }
+        // Virtual, so a store per hotel does not cost a platform thread per hotel while idle
+        this.writer = Thread.ofVirtual().name("room-write-behind").start(this::writeLoop);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private RoomRepository repository;
+        private int maximumSize = 10_000;
+        private int writeBatchSize = 256;
+        private long writeDelayMillis = 50;
+
+        public Builder repository(RoomRepository repository) {
+            this.repository = repository;
+            return this;
+        }
+
+        public Builder maximumSize(int maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        // Rooms per repository write; a full batch is written without waiting for the delay
+        public Builder writeBatchSize(int writeBatchSize) {
+            if (writeBatchSize <= 0) {
+                throw new IllegalArgumentException("Write batch size must be positive");
+            }
+            this.writeBatchSize = writeBatchSize;
+            return this;
+        }
+
+        // How long a change may wait for others to share its write
+        public Builder writeDelayMillis(long writeDelayMillis) {
+            if (writeDelayMillis < 0) {
+                throw new IllegalArgumentException("Write delay cannot be negative");
+            }
+            this.writeDelayMillis = writeDelayMillis;
+            return this;
+        }
+
+        public CachingRoomStore build() {
+            if (repository == null) {
+                throw new IllegalArgumentException("Repository cannot be null");
+            }
+            return new CachingRoomStore(this);
+        }
+    }
+
+    @Override
+    public Room get(int roomNumber) {
+        Node node = nodes.get(roomNumber);
+        if (node != null) {
+            hits.increment();
+            recordAccess(node);
+            return node.room;
+        }
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            node = find(roomNumber);
+            return node == null ? null : node.room;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Room room) {
+        int roomNumber = room.getRoomNumber();
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            // Read through, so a room the repository has but the cache has dropped is not counted as new
+            Node node = find(roomNumber);
+            if (node == null) {
+                insertNew(roomNumber, room);
+            } else {
+                countChange(node.room, room);
+                node.room = room;
+                markDirty(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Room computeIfPresent(int roomNumber, UnaryOperator<Room> update) {
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            Node node = find(roomNumber);
+            if (node == null) {
+                return null;
+            }
+            return apply(node, update);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Room compute(int roomNumber, UnaryOperator<Room> update) {
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            Node node = find(roomNumber);
+            if (node == null) {
+                Room created = Objects.requireNonNull(update.apply(null), "update");
+                insertNew(roomNumber, created);
+                return created;
+            }
+            return apply(node, update);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Repository rooms overlaid with cached ones, from a full scan of the repository; weakly consistent with writes running alongside it
+    @Override
+    public Collection<Room> values() {
+        Map<Integer, Room> rooms = new HashMap<>();
+        for (Room room : repository.findAll()) {
+            rooms.put(room.getRoomNumber(), room);
+        }
+        for (Node node : nodes.values()) {
+            rooms.put(node.roomNumber, node.room);
+        }
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    @Override
+    public int size() {
+        return repository.count() + unsavedNewRooms.get();
+    }
+
+    @Override
+    public int countAvailable() {
+        return availableRooms.get();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), loads.sum(), evictions.sum(),
+                writeBatches.sum(), writtenRooms.sum(), writeFailures.sum(), dirtyCount.get());
+    }
+
+    // Rooms currently held in memory
+    public int getCachedRoomCount() {
+        return nodes.size();
+    }
+
+    // Stops the writer and writes back every pending change before returning
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writeBehind()) {
+            LOGGER.severe("Closed with " + dirtyCount.get() + " room changes not written back");
+        }
+        LOGGER.info("Room cache closed: " + stats());
+    }
+
+    // Caller holds the room's stripe lock
+    private Node find(int roomNumber) {
+        Node node = nodes.get(roomNumber);
+        if (node != null) {
+            hits.increment();
+            recordAccess(node);
+            return node;
+        }
+        misses.increment();
+        Room room = repository.find(roomNumber);
+        if (room == null) {
+            return null;
+        }
+        loads.increment();
+        node = new Node(roomNumber, room, true);
+        nodes.put(roomNumber, node);
+        recordInsert(node);
+        return node;
+    }
+
+    // Caller holds the room's stripe lock
+    private void insertNew(int roomNumber, Room room) {
+        Node node = new Node(roomNumber, room, false);
+        unsavedNewRooms.incrementAndGet();
+        countChange(null, room);
+        markDirty(node);
+        nodes.put(roomNumber, node);
+        recordInsert(node);
+    }
+
+    // Caller holds the room's stripe lock
+    private Room apply(Node node, UnaryOperator<Room> update) {
+        Room current = node.room;
+        Room updated = Objects.requireNonNull(update.apply(current), "update");
+        if (updated != current) {
+            countChange(current, updated);
+            node.room = updated;
+            markDirty(node);
+        }
+        return updated;
+    }
+
+    // Caller holds the room's stripe lock; previous is null for a new room
+    private void countChange(Room previous, Room room) {
+        boolean wasAvailable = previous != null && previous.isAvailable();
+        if (room.isAvailable() != wasAvailable) {
+            availableRooms.addAndGet(room.isAvailable() ? 1 : -1);
+        }
+    }
+
+    // Caller holds the room's stripe lock
+    private void markDirty(Node node) {
+        node.version++;
+        if (!node.dirty) {
+            node.dirty = true;
+            dirtyNodes.add(node);
+            int dirty = dirtyCount.incrementAndGet();
+            if (dirty == 1 || dirty == writeBatchSize) {
+                LockSupport.unpark(writer);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            if (dirtyCount.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            // The first change waits out the delay unless a full batch builds up sooner
+            long deadline = System.nanoTime() + writeDelayNanos;
+            for (long remaining = writeDelayNanos; remaining > 0 && !closed && dirtyCount.get() < writeBatchSize;
+                    remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (!closed && !writeBehind()) {
+                // Back off so a failing repository is not hammered
+                LockSupport.parkNanos(this, Math.max(writeDelayNanos, TimeUnit.MILLISECONDS.toNanos(100)));
+            }
+        }
+    }
+
+    // Writes back what was dirty when it started, in batches; false if the repository failed
+    private boolean writeBehind() {
+        int budget = dirtyCount.get();
+        List<Node> batch = new ArrayList<>(writeBatchSize);
+        List<Room> rooms = new ArrayList<>(writeBatchSize);
+        long[] versions = new long[writeBatchSize];
+        while (budget > 0) {
+            batch.clear();
+            rooms.clear();
+            Node node;
+            while (batch.size() < writeBatchSize && (node = dirtyNodes.poll()) != null) {
+                ReentrantLock lock = lockFor(node.roomNumber);
+                lock.lock();
+                try {
+                    versions[batch.size()] = node.version;
+                    rooms.add(node.room);
+                } finally {
+                    lock.unlock();
+                }
+                batch.add(node);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            budget -= batch.size();
+            try {
+                repository.saveAll(rooms);
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                dirtyNodes.addAll(batch);
+                LOGGER.log(Level.WARNING, "Writing " + rooms.size() + " rooms back failed; will retry", e);
+                return false;
+            }
+            writeBatches.increment();
+            writtenRooms.add(rooms.size());
+            for (int i = 0; i < batch.size(); i++) {
+                node = batch.get(i);
+                ReentrantLock lock = lockFor(node.roomNumber);
+                lock.lock();
+                try {
+                    if (!node.persisted) {
+                        node.persisted = true;
+                        unsavedNewRooms.decrementAndGet();
+                    }
+                    if (node.version == versions[i]) {
+                        node.dirty = false;
+                        dirtyCount.decrementAndGet();
+                    } else {
+                        // Changed again while it was being written; the newer version goes in a later batch
+                        dirtyNodes.add(node);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        // Rooms that were dirty may have kept the cache over its bound; they can go now
+        policyLock.lock();
+        try {
+            evictIfNeeded();
+        } finally {
+            policyLock.unlock();
+        }
+        return true;
+    }
+
+    private void recordAccess(Node node) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(node.roomNumber);
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    if (protectedQueue.size > maxProtected) {
+                        Node demoted = protectedQueue.head;
+                        protectedQueue.remove(demoted);
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedQueue.moveToLast(node);
+                    break;
+                default:
+                    // Not linked yet, or already evicted
+                    break;
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // Caller holds the room's stripe lock; eviction only ever tryLocks stripes, so this cannot deadlock
+    private void recordInsert(Node node) {
+        policyLock.lock();
+        try {
+            sketch.increment(node.roomNumber);
+            node.queue = WINDOW;
+            window.addLast(node);
+            evictIfNeeded();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // Caller holds the policy lock
+    private void evictIfNeeded() {
+        // Rooms leaving the window join probation at its most recent end, as admission candidates
+        while (window.size > maxWindow) {
+            Node node = window.head;
+            window.remove(node);
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+        int skipped = 0;
+        while (window.size + probation.size + protectedQueue.size > maximumSize && skipped < MAX_SKIPPED_VICTIMS) {
+            if (probation.size == 0) {
+                AccessQueue source = protectedQueue.size > 0 ? protectedQueue : window;
+                Node demoted = source.head;
+                source.remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+            Node victim = probation.head;
+            Node candidate = probation.tail;
+            Node loser = candidate != victim
+                    && sketch.frequency(candidate.roomNumber) <= sketch.frequency(victim.roomNumber)
+                    ? candidate : victim;
+            if (tryEvict(loser)) {
+                continue;
+            }
+            Node other = loser == victim ? candidate : victim;
+            if (other == loser || !tryEvict(other)) {
+                // Both are dirty or busy; look past the victim until the writer catches up
+                probation.moveToLast(victim);
+                skipped++;
+            }
+        }
+    }
+
+    // Caller holds the policy lock
+    private boolean tryEvict(Node node) {
+        ReentrantLock lock = lockFor(node.roomNumber);
+        // The caller may be mid-update on this stripe, so its own rooms are never taken from under it
+        if (lock.isHeldByCurrentThread() || !lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (node.dirty) {
+                return false;
+            }
+            nodes.remove(node.roomNumber, node);
+        } finally {
+            lock.unlock();
+        }
+        probation.remove(node);
+        node.queue = NONE;
+        evictions.increment();
+        return true;
+    }
+
+    private ReentrantLock lockFor(int roomNumber) {
+        return locks[(roomNumber ^ (roomNumber >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static final class Node {
+        final int roomNumber;
+        volatile Room room;
+        // Guarded by the room's stripe lock
+        boolean dirty;
+        boolean persisted;
+        long version;
+        // Guarded by the policy lock
+        byte queue = NONE;
+        Node previous;
+        Node next;
+
+        Node(int roomNumber, Room room, boolean persisted) {
+            this.roomNumber = roomNumber;
+            this.room = room;
+            this.persisted = persisted;
+        }
+    }
+
+    // Intrusive doubly linked list in access order, least recent at the head
+    private static final class AccessQueue {
+        Node head;
+        Node tail;
+        int size;
+
+        void addLast(Node node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
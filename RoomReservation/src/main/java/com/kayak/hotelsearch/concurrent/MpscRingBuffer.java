@@ -0,0 +1,83 @@
+package com.kayak.hotelsearch.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot carries a
+ * sequence number: producers claim a slot by CAS on the tail and publish the element
+ * by advancing the slot's sequence, so the consumer never touches a lock or the tail.
+ */
+public final class MpscRingBuffer<E> {
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Object[] elements;
+    private final long[] sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Written by the consumer only; an atomic so size() can read it from other threads
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int minimumCapacity) {
+        if (minimumCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity - 1)) << 1;
+        this.elements = new Object[capacity];
+        this.sequences = new long[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    // Returns false when the buffer is full
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, index);
+            long difference = sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    SEQUENCES.setRelease(sequences, index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Another producer claimed this position first; retry with the new tail
+        }
+    }
+
+    // Consumer thread only; returns null when nothing has been published yet
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.getPlain();
+        int index = (int) position & mask;
+        if ((long) SEQUENCES.getAcquire(sequences, index) != position + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        // Hands the slot back to producers for the next lap
+        SEQUENCES.setRelease(sequences, index, position + elements.length);
+        head.setRelease(position + 1);
+        return element;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, elements.length));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.kayak.hotelsearch.hotel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kayak.hotelsearch.persistence.RoomCatalog;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Reads each hotel from {@code <directory>/<hotelId>.rcat}, a binary {@link RoomCatalog},
+ * or failing that from {@code <directory>/<hotelId>.json}, a JSON array of
+ * {@code {"roomNumber": 101, "roomType": "STANDARD", "price": 100.0}} entries.
+ */
+public class DirectoryHotelLoader implements HotelLoader {
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public DirectoryHotelLoader(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Collection<Room> loadRooms(String hotelId) throws IOException {
+        Path catalogue = directory.resolve(hotelId + ".rcat");
+        if (Files.isRegularFile(catalogue)) {
+            return RoomCatalog.readRooms(catalogue);
+        }
+        Path file = directory.resolve(hotelId + ".json");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        JsonNode entries = mapper.readTree(file.toFile());
+        if (!entries.isArray()) {
+            throw new IOException("Expected a JSON array of rooms in " + file);
+        }
+        List<Room> rooms = new ArrayList<>(entries.size());
+        for (JsonNode entry : entries) {
+            rooms.add(Room.builder()
+                    .hotelId(hotelId)
+                    .roomNumber(entry.path("roomNumber").asInt())
+                    .roomType(RoomType.valueOf(entry.path("roomType").asText()))
+                    .price(entry.path("price").asDouble())
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+        }
+        return rooms;
+    }
+}
@@ -0,0 +1,397 @@
+package com.kayak.hotelsearch.hotel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.kayak.hotelsearch.persistence.RoomPersistence;
+import com.kayak.hotelsearch.persistence.WriteAheadLog;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+
+/**
+ * Rooms of many hotels, each in its own partition with its own store, indexes, counters
+ * and, when a data directory is set, its own snapshot and write-ahead log under
+ * {@code <dataDirectory>/<hotelId>}. Bookings in different hotels share no locks.
+ * A hotel is loaded on first use, so startup cost does not grow with the catalogue;
+ * with persistence, the least recently used hotels beyond {@code maxResidentHotels}
+ * are snapshotted and unloaded, which bounds the heap as well.
+ */
+public class HotelInventory implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(HotelInventory.class.getName());
+    // Hotel ids name files and directories, so they are kept to a safe character set
+    private static final Pattern HOTEL_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // Each resident hotel holds two log buffers, so they are sized for one hotel's traffic rather than the default
+    private static final int WAL_BUFFER_BYTES = 64 << 10;
+
+    private final HotelLoader loader;
+    private final String roomStore;
+    private final Path dataDirectory;
+    private final WriteAheadLog.SyncMode syncMode;
+    private final long flushIntervalMillis;
+    private final int maxResidentHotels;
+    private final Consumer<RoomDatabaseAccessService> onLoad;
+    private final ConcurrentHashMap<String, HotelPartition> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger residentHotels = new AtomicInteger();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // Snapshots and unloads hotels off the booking threads; only present with a data directory
+    private final ScheduledExecutorService maintenance;
+
+    private HotelInventory(Builder builder) {
+        this.loader = builder.loader;
+        this.roomStore = builder.roomStore;
+        this.dataDirectory = builder.dataDirectory;
+        this.syncMode = builder.syncMode;
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.maxResidentHotels = builder.maxResidentHotels;
+        this.onLoad = builder.onLoad;
+        if (dataDirectory != null) {
+            // One thread serves every hotel rather than a scheduler per hotel
+            maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hotel-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (builder.snapshotIntervalMillis > 0) {
+                maintenance.scheduleWithFixedDelay(this::snapshotDirtyHotels,
+                        builder.snapshotIntervalMillis, builder.snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            maintenance = null;
+        }
+    }
+
+    public static class Builder {
+        private HotelLoader loader = hotelId -> null;
+        private String roomStore = "concurrent";
+        private Path dataDirectory;
+        private WriteAheadLog.SyncMode syncMode = WriteAheadLog.SyncMode.GROUP_COMMIT;
+        private long flushIntervalMillis = 10;
+        private long snapshotIntervalMillis = 60_000;
+        private int maxResidentHotels = Integer.MAX_VALUE;
+        private Consumer<RoomDatabaseAccessService> onLoad = service -> { };
+
+        public Builder loader(HotelLoader loader) {
+            if (loader == null) {
+                throw new IllegalArgumentException("Hotel loader cannot be null");
+            }
+            this.loader = loader;
+            return this;
+        }
+
+        // "concurrent", "dense" or "cached", as for RoomDatabaseAccessService.createRoomStore
+        public Builder roomStore(String roomStore) {
+            this.roomStore = roomStore;
+            return this;
+        }
+
+        public Builder dataDirectory(Path dataDirectory) {
+            this.dataDirectory = dataDirectory;
+            return this;
+        }
+
+        public Builder syncMode(WriteAheadLog.SyncMode syncMode) {
+            this.syncMode = syncMode;
+            return this;
+        }
+
+        public Builder flushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        // 0 or less snapshots a hotel only when it is unloaded or the inventory is closed
+        public Builder snapshotIntervalMillis(long snapshotIntervalMillis) {
+            this.snapshotIntervalMillis = snapshotIntervalMillis;
+            return this;
+        }
+
+        // Only enforced with a data directory; unloading an in-memory hotel would drop its bookings
+        public Builder maxResidentHotels(int maxResidentHotels) {
+            if (maxResidentHotels <= 0) {
+                throw new IllegalArgumentException("Max resident hotels must be positive");
+            }
+            this.maxResidentHotels = maxResidentHotels;
+            return this;
+        }
+
+        // Called once per load, e.g. to attach booking listeners to the hotel's service
+        public Builder onLoad(Consumer<RoomDatabaseAccessService> onLoad) {
+            this.onLoad = onLoad;
+            return this;
+        }
+
+        public HotelInventory build() {
+            return new HotelInventory(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Adds an already built hotel that stays resident and whose lifecycle belongs to the caller
+    public void register(String hotelId, RoomDatabaseAccessService service) {
+        validateHotelId(hotelId);
+        if (partitions.putIfAbsent(hotelId, new HotelPartition(hotelId, service, true)) != null) {
+            throw new IllegalStateException("Hotel " + hotelId + " is already registered");
+        }
+    }
+
+    /**
+     * Runs the operation against the hotel's rooms, loading the hotel first if needed.
+     * The hotel cannot be unloaded while the operation runs.
+     *
+     * @throws IllegalArgumentException if the hotel id is invalid or the loader does not know it
+     */
+    public <T> T withHotel(String hotelId, Function<RoomDatabaseAccessService, T> operation) {
+        validateHotelId(hotelId);
+        boolean loaded = false;
+        try {
+            while (true) {
+                HotelPartition partition = partitions.get(hotelId);
+                if (partition == null) {
+                    partition = partitions.computeIfAbsent(hotelId, HotelPartition::new);
+                }
+                Lock lock = partition.lock.readLock();
+                lock.lock();
+                try {
+                    if (partition.evicted) {
+                        // Unloaded between the lookup and the lock; the next lookup makes a fresh partition
+                        continue;
+                    }
+                    RoomDatabaseAccessService service = partition.service;
+                    if (service == null) {
+                        service = load(partition);
+                        loaded = true;
+                    }
+                    partition.touch();
+                    return operation.apply(service);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            if (loaded) {
+                scheduleEviction();
+            }
+        }
+    }
+
+    public boolean isLoaded(String hotelId) {
+        HotelPartition partition = partitions.get(hotelId);
+        return partition != null && partition.service != null && !partition.evicted;
+    }
+
+    // Hotels loaded through this inventory and still in memory; registered hotels are not counted
+    public int getResidentHotelCount() {
+        return residentHotels.get();
+    }
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    // Snapshots one hotel now, independently of every other hotel
+    public void snapshot(String hotelId) throws IOException {
+        HotelPartition partition = partitions.get(hotelId);
+        if (partition == null) {
+            return;
+        }
+        Lock lock = partition.lock.readLock();
+        lock.lock();
+        try {
+            snapshot(partition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RoomDatabaseAccessService load(HotelPartition partition) {
+        synchronized (partition) {
+            if (partition.service != null) {
+                return partition.service;
+            }
+            if (partition.evicted) {
+                throw new IllegalArgumentException("Unknown hotel: " + partition.hotelId);
+            }
+            String hotelId = partition.hotelId;
+            try {
+                Collection<Room> rooms = loader.loadRooms(hotelId);
+                if (rooms == null) {
+                    partition.evicted = true;
+                    partitions.remove(hotelId, partition);
+                    throw new IllegalArgumentException("Unknown hotel: " + hotelId);
+                }
+                List<Room> hotelRooms = new ArrayList<>(rooms.size());
+                for (Room room : rooms) {
+                    hotelRooms.add(room.inHotel(hotelId));
+                }
+                RoomStore store = RoomDatabaseAccessService.createRoomStore(roomStore, hotelRooms);
+                RoomPersistence persistence = null;
+                if (dataDirectory != null) {
+                    persistence = new RoomPersistence(dataDirectory.resolve(hotelId), hotelId, syncMode,
+                            flushIntervalMillis, WAL_BUFFER_BYTES);
+                    persistence.recover(store);
+                }
+                RoomDatabaseAccessService service = new RoomDatabaseAccessService(store);
+                if (persistence != null) {
+                    // Snapshots are scheduled here for all hotels, not by each hotel's persistence
+                    persistence.start(service, 0);
+                    service.addUpdateListener(partition);
+                }
+                onLoad.accept(service);
+                partition.persistence = persistence;
+                partition.service = service;
+                residentHotels.incrementAndGet();
+                loads.incrementAndGet();
+                return service;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error loading hotel " + hotelId, e);
+            }
+        }
+    }
+
+    private void scheduleEviction() {
+        if (maintenance != null && residentHotels.get() > maxResidentHotels && evicting.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(this::evictColdHotels);
+            } catch (RejectedExecutionException e) {
+                // Closing; close() unloads everything anyway
+                evicting.set(false);
+            }
+        }
+    }
+
+    // Unloads the least recently used hotels down to 90% of maxResidentHotels, so a burst
+    // of cold hotels costs one pass over the partitions rather than one per load
+    private void evictColdHotels() {
+        int target = maxResidentHotels - maxResidentHotels / 10;
+        try {
+            List<HotelPartition> candidates = new ArrayList<>();
+            for (HotelPartition partition : partitions.values()) {
+                if (!partition.pinned && partition.service != null && !hasMemoryOnlyState(partition.service)) {
+                    candidates.add(partition);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(partition -> partition.lastAccessNanos));
+            for (HotelPartition partition : candidates) {
+                if (residentHotels.get() <= target) {
+                    break;
+                }
+                unload(partition);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void unload(HotelPartition partition) {
+        Lock lock = partition.lock.writeLock();
+        // A hotel with an operation in flight is not cold; skip it rather than wait
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            // Checked again under the lock, since a hold may have been taken or a guest waitlisted since the candidates were chosen
+            if (partition.evicted || partition.service == null || hasMemoryOnlyState(partition.service)) {
+                return;
+            }
+            partition.evicted = true;
+            partitions.remove(partition.hotelId, partition);
+            // Closing the persistence listener writes a final snapshot
+            partition.service.close();
+            residentHotels.decrementAndGet();
+            evictions.incrementAndGet();
+            LOGGER.fine(() -> "Unloaded hotel " + partition.hotelId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Holds and waitlists live only in memory, so a hotel with either is not cold whatever its access time
+    private static boolean hasMemoryOnlyState(RoomDatabaseAccessService service) {
+        return service.getActiveHoldCount() > 0 || service.getWaitlistSize() > 0;
+    }
+
+    private void snapshotDirtyHotels() {
+        for (HotelPartition partition : partitions.values()) {
+            if (!partition.dirty) {
+                continue;
+            }
+            try {
+                snapshot(partition.hotelId);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error writing snapshot for hotel " + partition.hotelId, e);
+            }
+        }
+    }
+
+    // Caller holds the partition's read lock
+    private void snapshot(HotelPartition partition) throws IOException {
+        if (partition.evicted || partition.persistence == null) {
+            return;
+        }
+        partition.dirty = false;
+        partition.persistence.snapshot();
+    }
+
+    private static void validateHotelId(String hotelId) {
+        if (hotelId == null || !HOTEL_ID.matcher(hotelId).matches()) {
+            throw new IllegalArgumentException("Invalid hotel id: " + hotelId);
+        }
+    }
+
+    // Unloads every loaded hotel; registered hotels are left to their owner
+    @Override
+    public void close() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (HotelPartition partition : partitions.values()) {
+            if (!partition.pinned) {
+                partition.lock.writeLock().lock();
+                try {
+                    if (!partition.evicted && partition.service != null) {
+                        partition.evicted = true;
+                        partition.service.close();
+                        residentHotels.decrementAndGet();
+                    }
+                } finally {
+                    partition.lock.writeLock().unlock();
+                }
+            }
+        }
+        partitions.clear();
+    }
+}
@@ -0,0 +1,15 @@
+package com.kayak.hotelsearch.hotel;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import com.kayak.hotelsearch.room.Room;
+
+/**
+ * Source of a hotel's room catalogue, asked once when the hotel is first used.
+ */
+@FunctionalInterface
+public interface HotelLoader {
+    // Returns null when there is no such hotel
+    Collection<Room> loadRooms(String hotelId) throws IOException;
+}
@@ -0,0 +1,54 @@
+package com.kayak.hotelsearch.hotel;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.kayak.hotelsearch.persistence.RoomPersistence;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomUpdateListener;
+import com.kayak.hotelsearch.room.StayChange;
+
+// One hotel's rooms, loaded on first use. Operations hold the read lock, so unloading
+// (the write lock) waits for them and never closes a hotel that is being booked.
+final class HotelPartition implements RoomUpdateListener {
+    final String hotelId;
+    final boolean pinned;
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Written under the partition's monitor, read without it once set
+    volatile RoomDatabaseAccessService service;
+    volatile RoomPersistence persistence;
+    volatile boolean evicted;
+    volatile boolean dirty;
+    volatile long lastAccessNanos;
+
+    HotelPartition(String hotelId) {
+        this(hotelId, null, false);
+    }
+
+    HotelPartition(String hotelId, RoomDatabaseAccessService service, boolean pinned) {
+        this.hotelId = hotelId;
+        this.service = service;
+        this.pinned = pinned;
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onRoomUpdated(Room room) {
+        markDirty();
+    }
+
+    @Override
+    public void onStayChanged(StayChange change) {
+        markDirty();
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.kayak.hotelsearch.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kayak.hotelsearch.booking.IdempotencyCache;
+import com.kayak.hotelsearch.hotel.HotelInventory;
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomReplica;
+import com.kayak.hotelsearch.room.RoomType;
+import com.kayak.hotelsearch.room.UpdateNotDurableException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP/1.1 front end over the hotels' {@link RoomDatabaseAccessService}s, on the
+ * JDK's {@link HttpServer}. One selector thread accepts connections and parses headers;
+ * each exchange is handled on its own virtual thread. Connections are kept alive between
+ * requests, request and response bodies go through a pool of reused buffers, and JSON is
+ * read and written with readers and writers built once.
+ * <p>
+ * Every endpoint takes an optional {@code hotel} query parameter, defaulting to
+ * {@link Room#DEFAULT_HOTEL}:
+ * <ul>
+ *   <li>{@code POST /rooms/{room}/book} with {@code {"guest": "...", "checkIn": ..., "checkOut": ...}}; dates are optional</li>
+ *   <li>{@code POST /rooms/{room}/unbook}, with the guest and the stay's dates in the body to cancel only those nights</li>
+ *   <li>{@code GET /rooms/{room}}</li>
+ *   <li>{@code POST /types/{type}/book} with {@code {"guest": "..."}}, booking any free room of the type</li>
+ *   <li>{@code GET /availability?type=&minPrice=&maxPrice=&limit=}, from a read replica when the hotel has any</li>
+ *   <li>{@code GET /stats}</li>
+ * </ul>
+ * Booking and cancelling a room also take an optional {@code requestId} in the body; a retry
+ * with an id already seen gets the first attempt's outcome without booking or cancelling again.
+ * Booking any room of a type rejects one, as its outcome is the room picked, which is not kept.
+ */
+public final class BookingHttpServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(BookingHttpServer.class.getName());
+    private static final int POOLED_BUFFERS = 1024;
+    // Bigger buffers are left to the garbage collector, so one large response does not pin memory
+    private static final int MAX_POOLED_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_REQUEST_BYTES = 16 * 1024;
+    private static final int DEFAULT_LIMIT = 20;
+
+    static {
+        // Headers and body go out in separate writes, which Nagle's algorithm would hold back for the client's
+        // delayed ACK, adding ~40 ms to every kept-alive request. Read once, when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final HotelInventory hotels;
+    // Answer the default hotel's availability queries in place of its service, if any
+    private final List<RoomReplica> availabilityReplicas;
+    private final IdempotencyCache idempotency;
+    private final ObjectReader bookingReader;
+    private final ObjectWriter responseWriter;
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private BookingHttpServer(Builder builder) throws IOException {
+        this.hotels = builder.hotels;
+        this.availabilityReplicas = builder.availabilityReplicas;
+        this.idempotency = builder.idempotency != null
+                ? builder.idempotency : new IdempotencyCache(1 << 16, Duration.ofMinutes(10));
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        this.bookingReader = mapper.readerFor(StayRequest.class);
+        this.responseWriter = mapper.writer();
+        this.handlers = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(builder.host, builder.port), builder.backlog);
+        server.setExecutor(handlers);
+        server.createContext("/rooms/", this::handleRoom);
+        server.createContext("/types/", this::handleType);
+        server.createContext("/availability", this::handleAvailability);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public static class Builder {
+        private String host = "127.0.0.1";
+        private int port = 8080;
+        private int backlog = 4096;
+        private HotelInventory hotels;
+        private List<RoomReplica> availabilityReplicas = List.of();
+        private IdempotencyCache idempotency;
+
+        public Builder host(String host) {
+            if (host == null || host.isBlank()) {
+                throw new IllegalArgumentException("Host cannot be empty");
+            }
+            this.host = host;
+            return this;
+        }
+
+        // 0 picks a free port; see getPort
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("Port must be between 0 and 65535");
+            }
+            this.port = port;
+            return this;
+        }
+
+        // Connections waiting to be accepted before the kernel refuses more
+        public Builder backlog(int backlog) {
+            if (backlog <= 0) {
+                throw new IllegalArgumentException("Backlog must be positive");
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder hotels(HotelInventory hotels) {
+            this.hotels = hotels;
+            return this;
+        }
+
+        // Read replicas of the default hotel, kept up to date from its change feed; reads are spread across them at random
+        public Builder availabilityReplicas(List<RoomReplica> replicas) {
+            this.availabilityReplicas = List.copyOf(replicas);
+            return this;
+        }
+
+        // Outcomes of recent request ids, shared with other front ends so a retry through either is answered once
+        public Builder idempotency(IdempotencyCache idempotency) {
+            this.idempotency = idempotency;
+            return this;
+        }
+
+        public BookingHttpServer build() throws IOException {
+            if (hotels == null) {
+                throw new IllegalArgumentException("Hotels are required");
+            }
+            return new BookingHttpServer(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Serving bookings on http://" + server.getAddress().getHostString() + ":" + getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Blocks until close is called, e.g. by a shutdown hook
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    @Override
+    public void close() {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        // In-flight exchanges get a moment to finish; HttpServer.stop(n) would wait the full n seconds regardless
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+        closed.countDown();
+    }
+
+    private void handleRoom(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String[] path = exchange.getRequestURI().getPath().substring("/rooms/".length()).split("/");
+            int roomNumber = parseRoomNumber(path[0]);
+            String action = path.length > 1 ? path[1] : "";
+            if (path.length > 2) {
+                return Response.error(404, "Unknown path");
+            }
+            Map<String, String> query = query(exchange);
+            String method = exchange.getRequestMethod();
+            switch (action) {
+                case "":
+                    return "GET".equals(method) ? room(query, roomNumber) : Response.error(405, "Use GET");
+                case "book":
+                    return "POST".equals(method) ? book(query, roomNumber, readStay(exchange)) : Response.error(405, "Use POST");
+                case "unbook":
+                    return "POST".equals(method) ? unbook(query, roomNumber, readStay(exchange)) : Response.error(405, "Use POST");
+                default:
+                    return Response.error(404, "Unknown path");
+            }
+        });
+    }
+
+    private void handleType(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String[] path = exchange.getRequestURI().getPath().substring("/types/".length()).split("/");
+            if (path.length != 2 || !"book".equals(path[1])) {
+                return Response.error(404, "Unknown path");
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                return Response.error(405, "Use POST");
+            }
+            return bookAny(query(exchange), RoomType.valueOf(path[0].toUpperCase()), readStay(exchange));
+        });
+    }
+
+    private void handleAvailability(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                return Response.error(405, "Use GET");
+            }
+            Map<String, String> query = query(exchange);
+            RoomQuery.Builder roomQuery = RoomQuery.builder()
+                    .limit(query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT);
+            if (query.containsKey("type")) {
+                roomQuery.roomType(RoomType.valueOf(query.get("type").toUpperCase()));
+            }
+            if (query.containsKey("minPrice")) {
+                roomQuery.minPrice(Double.parseDouble(query.get("minPrice")));
+            }
+            if (query.containsKey("maxPrice")) {
+                roomQuery.maxPrice(Double.parseDouble(query.get("maxPrice")));
+            }
+            RoomQuery built = roomQuery.build();
+            String hotelId = hotel(query);
+            if (!availabilityReplicas.isEmpty() && Room.DEFAULT_HOTEL.equals(hotelId)) {
+                RoomReplica replica = availabilityReplicas.get(ThreadLocalRandom.current().nextInt(availabilityReplicas.size()));
+                List<RoomView> rooms = replica.findAvailableRooms(built).stream().map(RoomView::of).toList();
+                int available = built.getRoomType() == null
+                        ? replica.getAvailableRoomCount()
+                        : replica.getAvailableRoomCount(built.getRoomType());
+                return Response.ok(new AvailabilityView(available, rooms));
+            }
+            return hotels.withHotel(hotelId, service -> {
+                List<RoomView> rooms = service.findAvailableRooms(built).stream().map(RoomView::of).toList();
+                int available = built.getRoomType() == null
+                        ? service.getAvailableRoomCount()
+                        : service.getAvailableRoomCount(built.getRoomType());
+                return Response.ok(new AvailabilityView(available, rooms));
+            });
+        });
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                return Response.error(405, "Use GET");
+            }
+            return hotels.withHotel(hotel(query(exchange)), service -> Response.ok(new StatsView(
+                    service.getTotalBookingAttempts(),
+                    service.getSuccessfulBookings(),
+                    service.getBookingSuccessRate(),
+                    service.getAvailableRoomCount(),
+                    service.getActiveHoldCount(),
+                    service.getWaitlistSize())));
+        });
+    }
+
+    private Response room(Map<String, String> query, int roomNumber) {
+        return hotels.withHotel(hotel(query), service -> {
+            Room room = service.loadRoom(roomNumber);
+            if (room == null) {
+                return Response.error(404, "Unknown room " + roomNumber);
+            }
+            return Response.ok(new AvailabilityRoomView(RoomView.of(room), service.isRoomAvailable(roomNumber)));
+        });
+    }
+
+    private Response book(Map<String, String> query, int roomNumber, StayRequest stay) {
+        if (stay == null || stay.guest() == null) {
+            return Response.error(400, "Body must name the guest");
+        }
+        BookingOutcome outcome = hotels.withHotel(hotel(query), service -> idempotency.execute(stay.requestId(), () -> {
+            boolean booked = stay.hasDates()
+                    ? service.tryBook(roomNumber, stay.guest(), stay.checkIn(), stay.checkOut())
+                    : service.tryBook(roomNumber, stay.guest());
+            if (booked) {
+                return BookingOutcome.BOOKED;
+            }
+            return service.loadRoom(roomNumber) == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.ALREADY_TAKEN;
+        }));
+        return respond(roomNumber, outcome);
+    }
+
+    private Response bookAny(Map<String, String> query, RoomType roomType, StayRequest stay) {
+        if (stay == null || stay.guest() == null) {
+            return Response.error(400, "Body must name the guest");
+        }
+        if (stay.hasDates()) {
+            return Response.error(400, "Dated stays must name a room");
+        }
+        // A replay could only say that a room was booked, not which, so a retry is not made safe here
+        if (stay.requestId() != null) {
+            return Response.error(400, "Booking any room of a type does not take a request id");
+        }
+        return hotels.withHotel(hotel(query), service -> {
+            Room booked = service.bookAnyOfType(roomType, stay.guest());
+            return booked == null
+                    ? Response.outcome(409, 0, BookingOutcome.ALREADY_TAKEN)
+                    : Response.ok(new OutcomeView(booked.getRoomNumber(), BookingOutcome.BOOKED));
+        });
+    }
+
+    private Response unbook(Map<String, String> query, int roomNumber, StayRequest stay) {
+        if (stay != null && stay.hasDates() && stay.guest() == null) {
+            return Response.error(400, "Body must name the guest whose stay is cancelled");
+        }
+        String requestId = stay == null ? null : stay.requestId();
+        BookingOutcome outcome = hotels.withHotel(hotel(query), service -> idempotency.execute(requestId, () -> {
+            boolean released = stay != null && stay.hasDates()
+                    ? service.cancelStay(roomNumber, stay.guest(), stay.checkIn(), stay.checkOut())
+                    : service.tryUnbook(roomNumber);
+            if (released) {
+                return BookingOutcome.RELEASED;
+            }
+            return service.loadRoom(roomNumber) == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.NOT_BOOKED;
+        }));
+        return respond(roomNumber, outcome);
+    }
+
+    private static Response respond(int roomNumber, BookingOutcome outcome) {
+        switch (outcome) {
+            case BOOKED:
+            case RELEASED:
+                return Response.ok(new OutcomeView(roomNumber, outcome));
+            case UNKNOWN_ROOM:
+                return Response.outcome(404, roomNumber, outcome);
+            default:
+                return Response.outcome(409, roomNumber, outcome);
+        }
+    }
+
+    // Runs on the exchange's virtual thread; every path sends a response, which lets the connection be reused
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            response = endpoint.respond();
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (IOException e) {
+            response = Response.error(400, "Unreadable request body: " + e.getMessage());
+        } catch (UpdateNotDurableException e) {
+            // Applied but not known to be on disk; a retry with the same request id is answered with the outcome
+            LOGGER.log(Level.SEVERE, "Update not durable for " + exchange.getRequestURI(), e);
+            response = Response.error(503, "Applied but not yet durable: " + e.getOutcome());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error handling " + exchange.getRequestURI(), e);
+            response = Response.error(500, "Internal error");
+        }
+        send(exchange, response);
+    }
+
+    private void send(HttpExchange exchange, Response response) throws IOException {
+        Buffer buffer = acquire();
+        try {
+            responseWriter.writeValue(buffer, response.body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status, buffer.size());
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(buffer.array(), 0, buffer.size());
+            }
+        } finally {
+            release(buffer);
+            exchange.close();
+        }
+    }
+
+    // The body is always read to the end, or the connection cannot carry the next request
+    private StayRequest readStay(HttpExchange exchange) throws IOException {
+        Buffer buffer = acquire();
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] chunk = buffer.chunk();
+            for (int read = body.read(chunk); read >= 0; read = body.read(chunk)) {
+                if (buffer.size() + read > MAX_REQUEST_BYTES) {
+                    throw new IllegalArgumentException("Request body is larger than " + MAX_REQUEST_BYTES + " bytes");
+                }
+                buffer.write(chunk, 0, read);
+            }
+            if (buffer.size() == 0) {
+                return null;
+            }
+            return bookingReader.readValue(buffer.array(), 0, buffer.size());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private Buffer acquire() {
+        Buffer buffer = buffers.poll();
+        if (buffer == null) {
+            return new Buffer();
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    private void release(Buffer buffer) {
+        if (buffer.array().length > MAX_POOLED_BUFFER_BYTES) {
+            return;
+        }
+        if (pooledBuffers.incrementAndGet() > POOLED_BUFFERS) {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffer.reset();
+        buffers.offer(buffer);
+    }
+
+    private static int parseRoomNumber(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid room number: " + text);
+        }
+    }
+
+    private static String hotel(Map<String, String> query) {
+        return query.getOrDefault("hotel", Room.DEFAULT_HOTEL);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response respond() throws IOException;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final Object body;
+
+        private Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(Object body) {
+            return new Response(200, body);
+        }
+
+        static Response outcome(int status, int roomNumber, BookingOutcome outcome) {
+            return new Response(status, new OutcomeView(roomNumber, outcome));
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, new ErrorView(message));
+        }
+    }
+
+    // Exposes the backing array so bodies are written and parsed without copying
+    private static final class Buffer extends ByteArrayOutputStream {
+        private final byte[] chunk = new byte[1024];
+
+        Buffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        byte[] chunk() {
+            return chunk;
+        }
+    }
+
+    private record StayRequest(String guest, LocalDate checkIn, LocalDate checkOut, String requestId) {
+        // Either date makes the stay dated, so one missing a date is rejected rather than booking the room whole
+        boolean hasDates() {
+            return checkIn != null || checkOut != null;
+        }
+    }
+
+    private record RoomView(int roomNumber, RoomType roomType, double price, String currentGuest, int bookingCount) {
+        static RoomView of(Room room) {
+            return new RoomView(room.getRoomNumber(), room.getRoomType(), room.getPrice(), room.getCurrentGuest(),
+                    room.getBookingCount());
+        }
+    }
+
+    private record AvailabilityRoomView(RoomView room, boolean available) {
+    }
+
+    private record AvailabilityView(int availableCount, List<RoomView> rooms) {
+    }
+
+    private record OutcomeView(int roomNumber, BookingOutcome outcome) {
+    }
+
+    private record StatsView(int bookingAttempts, int successfulBookings, double successRate, int availableRooms,
+                             int activeHolds, int waitlisted) {
+    }
+
+    private record ErrorView(String error) {
+    }
+}
@@ -0,0 +1,269 @@
+package com.kayak.hotelsearch.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.booking.BookingPipeline;
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.booking.BookingResult;
+import com.kayak.hotelsearch.metrics.LatencyHistogram;
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Open-loop synthetic workload for one hotel. Operations arrive as a Poisson process at
+ * a fixed rate whether or not earlier ones have finished, pick rooms by Zipfian
+ * popularity, and are a mix of bookings and cancellations, which go through a
+ * {@link BookingPipeline} like file requests, and availability queries, which read the
+ * service directly on virtual threads since queries have no queue of their own.
+ */
+public final class LoadGenerator {
+    private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class.getName());
+    private static final long HEAP_SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int QUERY_LIMIT = 10;
+
+    private final double ratePerSecond;
+    private final Duration duration;
+    private final double zipfExponent;
+    private final double bookShare;
+    private final double cancelShare;
+    private final long seed;
+    private volatile boolean stopped;
+
+    private LoadGenerator(Builder builder) {
+        this.ratePerSecond = builder.ratePerSecond;
+        this.duration = builder.duration;
+        this.zipfExponent = builder.zipfExponent;
+        this.bookShare = builder.bookShare;
+        this.cancelShare = builder.cancelShare;
+        this.seed = builder.seed;
+    }
+
+    public static class Builder {
+        private double ratePerSecond = 1000;
+        private Duration duration = Duration.ofSeconds(10);
+        private double zipfExponent = 0.99;
+        private double bookShare = 0.6;
+        private double cancelShare = 0.3;
+        private long seed = 42;
+
+        public Builder ratePerSecond(double ratePerSecond) {
+            if (ratePerSecond <= 0) {
+                throw new IllegalArgumentException("Rate must be positive");
+            }
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive");
+            }
+            this.duration = duration;
+            return this;
+        }
+
+        // 0 spreads traffic evenly; around 1 most of it lands on a few hot rooms
+        public Builder zipfExponent(double zipfExponent) {
+            if (zipfExponent < 0) {
+                throw new IllegalArgumentException("Zipf exponent cannot be negative");
+            }
+            this.zipfExponent = zipfExponent;
+            return this;
+        }
+
+        public Builder bookShare(double bookShare) {
+            if (bookShare < 0 || bookShare > 1) {
+                throw new IllegalArgumentException("Book share must be between 0 and 1");
+            }
+            this.bookShare = bookShare;
+            return this;
+        }
+
+        // Whatever is left after bookings and cancellations is queries
+        public Builder cancelShare(double cancelShare) {
+            if (cancelShare < 0 || cancelShare > 1) {
+                throw new IllegalArgumentException("Cancel share must be between 0 and 1");
+            }
+            this.cancelShare = cancelShare;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            if (bookShare + cancelShare > 1) {
+                throw new IllegalArgumentException("Book and cancel shares cannot add up to more than 1");
+            }
+            return new LoadGenerator(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Ends the run early; operations already issued still complete and are reported
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Generates load against the service's rooms for the configured duration, waits for
+     * outstanding operations to finish, and reports what happened. Blocks the caller.
+     */
+    public LoadReport run(BookingPipeline pipeline, RoomDatabaseAccessService service) {
+        int[] rooms = service.getAllRooms().stream().mapToInt(Room::getRoomNumber).sorted().toArray();
+        if (rooms.length == 0) {
+            throw new IllegalStateException("No rooms to generate load for");
+        }
+        Random random = new Random(seed);
+        // Popularity ranks land on random rooms rather than the lowest room numbers
+        for (int i = rooms.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = rooms[i];
+            rooms[i] = rooms[j];
+            rooms[j] = swap;
+        }
+        ZipfSampler popularity = new ZipfSampler(rooms.length, zipfExponent);
+        Map<RoomType, RoomQuery> queriesByType = new EnumMap<>(RoomType.class);
+        for (RoomType type : RoomType.values()) {
+            queriesByType.put(type, RoomQuery.builder().roomType(type).limit(QUERY_LIMIT).build());
+        }
+
+        Run run = new Run();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long[] gcBefore = gcTotals();
+        long peakHeap = memory.getHeapMemoryUsage().getUsed();
+        long meanGapNanos = (long) (1e9 / ratePerSecond);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long nextHeapSample = start + HEAP_SAMPLE_INTERVAL_NANOS;
+        long arrivals = 0;
+        try (ExecutorService queries = Executors.newVirtualThreadPerTaskExecutor()) {
+            long arrival = start;
+            while (!stopped) {
+                // Exponential gaps give Poisson arrivals; the schedule never waits for completions
+                arrival += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+                if (arrival >= end) {
+                    break;
+                }
+                for (long delay = arrival - System.nanoTime(); delay > 0 && !stopped; delay = arrival - System.nanoTime()) {
+                    LockSupport.parkNanos(this, delay);
+                }
+                if (System.nanoTime() >= nextHeapSample) {
+                    peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+                    nextHeapSample += HEAP_SAMPLE_INTERVAL_NANOS;
+                }
+                arrivals++;
+                int roomNumber = rooms[popularity.sample(random)];
+                double operation = random.nextDouble();
+                if (operation < bookShare) {
+                    run.submit(pipeline, new BookingRequest(Room.DEFAULT_HOTEL, roomNumber, "Load " + arrivals,
+                            null, null, BookingRequest.Operation.BOOK), arrival, run.bookLatency);
+                } else if (operation < bookShare + cancelShare) {
+                    run.submit(pipeline, new BookingRequest(Room.DEFAULT_HOTEL, roomNumber, "Load " + arrivals,
+                            null, null, BookingRequest.Operation.CANCEL), arrival, run.cancelLatency);
+                } else {
+                    long scheduled = arrival;
+                    RoomType type = service.loadRoom(roomNumber).getRoomType();
+                    queries.execute(() -> {
+                        service.findAvailableRooms(queriesByType.get(type));
+                        run.queryLatency.record(System.nanoTime() - scheduled);
+                        run.queries.increment();
+                    });
+                }
+            }
+        }
+        run.drain();
+        long elapsed = System.nanoTime() - start;
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        long[] gcAfter = gcTotals();
+
+        long[] outcomes = new long[BookingOutcome.values().length];
+        for (BookingOutcome outcome : BookingOutcome.values()) {
+            outcomes[outcome.ordinal()] = run.outcomes[outcome.ordinal()].sum();
+        }
+        return new LoadReport(ratePerSecond, elapsed, arrivals, outcomes, run.queries.sum(), run.rejected.sum(),
+                run.bookLatency.snapshot(), run.cancelLatency.snapshot(), run.queryLatency.snapshot(),
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], peakHeap);
+    }
+
+    // Collections and milliseconds spent collecting, summed over the collectors that report them
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    // Counters for one run, recorded from whichever thread completes each operation
+    private static final class Run {
+        private final LongAdder[] outcomes = new LongAdder[BookingOutcome.values().length];
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder outstanding = new LongAdder();
+        private final LatencyHistogram bookLatency = new LatencyHistogram();
+        private final LatencyHistogram cancelLatency = new LatencyHistogram();
+        private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+        Run() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        void submit(BookingPipeline pipeline, BookingRequest request, long scheduled, LatencyHistogram latency) {
+            outstanding.increment();
+            CompletableFuture<BookingResult> result = pipeline.submitAsync(request);
+            result.whenComplete((value, error) -> {
+                if (error == null) {
+                    latency.record(System.nanoTime() - scheduled);
+                    outcomes[value.getOutcome().ordinal()].increment();
+                } else if (unwrap(error) instanceof RejectedExecutionException) {
+                    rejected.increment();
+                } else {
+                    outcomes[BookingOutcome.ERROR.ordinal()].increment();
+                }
+                outstanding.decrement();
+            });
+        }
+
+        void drain() {
+            long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+            while (outstanding.sum() > 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            if (outstanding.sum() > 0) {
+                LOGGER.warning(outstanding.sum() + " operations still outstanding after the load run");
+            }
+        }
+
+        private static Throwable unwrap(Throwable error) {
+            return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        }
+    }
+}
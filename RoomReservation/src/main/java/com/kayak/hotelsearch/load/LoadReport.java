@@ -0,0 +1,132 @@
+package com.kayak.hotelsearch.load;
+
+import com.kayak.hotelsearch.metrics.HistogramSnapshot;
+import com.kayak.hotelsearch.room.BookingOutcome;
+
+/**
+ * What one {@link LoadGenerator} run measured. Latencies run from each operation's
+ * scheduled arrival to its completion, so time spent waiting behind an overloaded
+ * system is counted rather than hidden.
+ */
+public final class LoadReport {
+    // Completing less than this share of the offered rate, or rejecting more than 1%, marks the system saturated
+    private static final double SATURATION_THROUGHPUT_SHARE = 0.95;
+    private static final double SATURATION_REJECTED_SHARE = 0.01;
+
+    private final double offeredRate;
+    private final long elapsedNanos;
+    private final long arrivals;
+    private final long[] outcomes;
+    private final long queries;
+    private final long rejected;
+    private final HistogramSnapshot bookLatency;
+    private final HistogramSnapshot cancelLatency;
+    private final HistogramSnapshot queryLatency;
+    private final long gcCount;
+    private final long gcMillis;
+    private final long peakHeapBytes;
+
+    LoadReport(double offeredRate, long elapsedNanos, long arrivals, long[] outcomes, long queries, long rejected,
+               HistogramSnapshot bookLatency, HistogramSnapshot cancelLatency, HistogramSnapshot queryLatency,
+               long gcCount, long gcMillis, long peakHeapBytes) {
+        this.offeredRate = offeredRate;
+        this.elapsedNanos = elapsedNanos;
+        this.arrivals = arrivals;
+        this.outcomes = outcomes;
+        this.queries = queries;
+        this.rejected = rejected;
+        this.bookLatency = bookLatency;
+        this.cancelLatency = cancelLatency;
+        this.queryLatency = queryLatency;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public double getOfferedRate() {
+        return offeredRate;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getCompleted() {
+        long completed = queries;
+        for (long count : outcomes) {
+            completed += count;
+        }
+        return completed;
+    }
+
+    // Completed operations per second over the whole run, including draining what was in flight at the end
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getCompleted() * 1e9 / elapsedNanos;
+    }
+
+    public long getCount(BookingOutcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+
+    public long getQueries() {
+        return queries;
+    }
+
+    // Turned away by the pipeline because maxInFlight requests were already outstanding
+    public long getRejected() {
+        return rejected;
+    }
+
+    // Share of booking attempts on existing rooms that found the room already taken, whether or not the guest was waitlisted
+    public double getConflictRate() {
+        long conflicts = getCount(BookingOutcome.ALREADY_TAKEN) + getCount(BookingOutcome.WAITLISTED);
+        long attempts = getCount(BookingOutcome.BOOKED) + conflicts;
+        return attempts == 0 ? 0 : (double) conflicts / attempts;
+    }
+
+    public HistogramSnapshot getBookLatency() {
+        return bookLatency;
+    }
+
+    public HistogramSnapshot getCancelLatency() {
+        return cancelLatency;
+    }
+
+    public HistogramSnapshot getQueryLatency() {
+        return queryLatency;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    public boolean isSaturated() {
+        return getThroughput() < offeredRate * SATURATION_THROUGHPUT_SHARE
+                || rejected > arrivals * SATURATION_REJECTED_SHARE;
+    }
+
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%n  offered %.0f/s, completed %.0f/s over %.1f s%s",
+                offeredRate, getThroughput(), elapsedNanos / 1e9, isSaturated() ? " (saturated)" : ""));
+        text.append(String.format("%n  arrivals=%d rejected=%d queries=%d", arrivals, rejected, queries));
+        for (BookingOutcome outcome : BookingOutcome.values()) {
+            text.append(' ').append(outcome.name().toLowerCase()).append('=').append(getCount(outcome));
+        }
+        text.append(String.format("%n  conflict rate: %.2f%%", getConflictRate() * 100));
+        text.append("\n  book:   ").append(bookLatency);
+        text.append("\n  cancel: ").append(cancelLatency);
+        text.append("\n  query:  ").append(queryLatency);
+        text.append(String.format("%n  gc: %d collections, %d ms; peak heap used %.1f MB",
+                gcCount, gcMillis, peakHeapBytes / (1024.0 * 1024.0)));
+        return text.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.kayak.hotelsearch.load;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1/(rank+1)^exponent, so rank 0 is
+ * the most popular. An exponent of 0 is uniform; around 1 a handful of ranks take most
+ * of the draws. Sampling is a binary search over the precomputed cumulative weights.
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Need at least one rank");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent cannot be negative");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+    }
+
+    int sample(Random random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, target);
+        // A miss returns -(insertion point) - 1, and the insertion point is the first rank whose total exceeds target
+        return Math.min(index < 0 ? -index - 1 : index + 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.kayak.hotelsearch.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import com.kayak.hotelsearch.concurrent.MpscRingBuffer;
+
+/**
+ * Handler that hands records to a bounded lock-free ring buffer and publishes them to
+ * a target handler from a background thread, so logging threads never wait on the
+ * target's lock, formatter or I/O. When the buffer is full, records below WARNING are
+ * dropped and counted; WARNING and above wait for space so errors are never lost.
+ *
+ * <p>Can be configured from logging.properties:
+ * <pre>
+ * handlers=com.kayak.hotelsearch.logging.AsyncHandler
+ * com.kayak.hotelsearch.logging.AsyncHandler.capacity=8192
+ * com.kayak.hotelsearch.logging.AsyncHandler.level=INFO
+ * </pre>
+ * in which case records go to a {@link ConsoleHandler} configured as usual.
+ */
+public final class AsyncHandler extends Handler {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Handler target;
+    private final MpscRingBuffer<LogRecord> buffer;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    public AsyncHandler() {
+        this(new ConsoleHandler(), configuredCapacity());
+        String level = LogManager.getLogManager().getProperty(AsyncHandler.class.getName() + ".level");
+        if (level != null) {
+            setLevel(Level.parse(level.trim()));
+        }
+    }
+
+    public AsyncHandler(Handler target, int capacity) {
+        this.target = target;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.writer = new Thread(this::writeLoop, "async-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static int configuredCapacity() {
+        String capacity = LogManager.getLogManager().getProperty(AsyncHandler.class.getName() + ".capacity");
+        return capacity == null ? DEFAULT_CAPACITY : Integer.parseInt(capacity.trim());
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // Caller inference walks the current stack, so it has to happen before the record changes threads
+        record.getSourceClassName();
+        while (!buffer.offer(record)) {
+            if (record.getLevel().intValue() < Level.WARNING.intValue() || closed) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        if (waiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void flush() {
+        while (!buffer.isEmpty() && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        target.flush();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+    }
+
+    private void writeLoop() {
+        long reportedDrops = 0;
+        while (true) {
+            // Read before polling: anything published before close() is then guaranteed to be seen
+            boolean closing = closed;
+            LogRecord record = buffer.poll();
+            if (record != null) {
+                write(record);
+                continue;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                write(new LogRecord(Level.WARNING, "Async log buffer full, dropped " + (drops - reportedDrops) + " records"));
+                reportedDrops = drops;
+            }
+            if (closing) {
+                target.flush();
+                return;
+            }
+            target.flush();
+            waiting = true;
+            if (buffer.isEmpty() && !closed) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    private void write(LogRecord record) {
+        try {
+            target.publish(record);
+        } catch (RuntimeException e) {
+            reportError("Error publishing log record", e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.kayak.hotelsearch.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caps how many per-request log lines are written each second. Lines over the cap
+ * are counted instead, and the count is logged as one summary line when the next
+ * second starts, so a traffic spike costs one line per second rather than one per request.
+ */
+public class LogSampler {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger;
+    private final String what;
+    private final long linesPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong used = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    // linesPerSecond of 0 or less disables sampling
+    public LogSampler(Logger logger, String what, long linesPerSecond) {
+        this.logger = logger;
+        this.what = what;
+        this.linesPerSecond = linesPerSecond;
+    }
+
+    // Whether the caller should write its line; does not allocate
+    public boolean sample() {
+        if (linesPerSecond <= 0) {
+            return true;
+        }
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+            long count = suppressed.sumThenReset();
+            if (count > 0 && logger.isLoggable(Level.INFO)) {
+                logger.info(count + " " + what + " log lines suppressed in the last "
+                        + TimeUnit.NANOSECONDS.toMillis(now - start) + " ms");
+            }
+        }
+        if (used.incrementAndGet() <= linesPerSecond) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+}
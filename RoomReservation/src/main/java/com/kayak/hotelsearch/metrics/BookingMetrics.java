@@ -0,0 +1,77 @@
+package com.kayak.hotelsearch.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kayak.hotelsearch.room.BookingAttemptListener;
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Counters and latency histograms for the booking pipeline. Recording is lock- and
+ * allocation-free; {@link #snapshot} copies everything out for reporting.
+ */
+public class BookingMetrics implements BookingAttemptListener {
+    private final LongAdder[] outcomes = adders(BookingOutcome.values().length);
+    private final LongAdder[] attemptsByType = adders(RoomType.values().length);
+    private final LongAdder[] bookingsByType = adders(RoomType.values().length);
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    @Override
+    public void onBookingAttempt(RoomType roomType, BookingOutcome outcome) {
+        outcomes[outcome.ordinal()].increment();
+        if (roomType != null) {
+            attemptsByType[roomType.ordinal()].increment();
+            if (outcome == BookingOutcome.BOOKED) {
+                bookingsByType[roomType.ordinal()].increment();
+            }
+        }
+    }
+
+    // For requests that failed before reaching the room service
+    public void recordError() {
+        outcomes[BookingOutcome.ERROR.ordinal()].increment();
+    }
+
+    // For operations the room service does not report as booking attempts, such as cancellations
+    public void recordOutcome(BookingOutcome outcome) {
+        outcomes[outcome.ordinal()].increment();
+    }
+
+    // For a request the room service reported as taken that was then put on the waitlist, so it counts once, as waitlisted
+    public void recordWaitlisted() {
+        outcomes[BookingOutcome.ALREADY_TAKEN.ordinal()].decrement();
+        outcomes[BookingOutcome.WAITLISTED.ordinal()].increment();
+    }
+
+    // Time from handing the request to the processor until a worker picked it up
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    // Time a worker spent on the request
+    public void recordServiceTime(long nanos) {
+        serviceTime.record(nanos);
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), sums(outcomes), sums(attemptsByType), sums(bookingsByType),
+                queueWait.snapshot(), serviceTime.snapshot());
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
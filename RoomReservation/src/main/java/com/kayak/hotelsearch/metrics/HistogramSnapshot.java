@@ -0,0 +1,59 @@
+package com.kayak.hotelsearch.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}; values are in nanoseconds.
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100), capped at the recorded max
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValue(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms (n=%d)",
+                getValueAtPercentile(50) / 1e6,
+                getValueAtPercentile(99) / 1e6,
+                getValueAtPercentile(99.9) / 1e6,
+                max / 1e6,
+                count);
+    }
+}
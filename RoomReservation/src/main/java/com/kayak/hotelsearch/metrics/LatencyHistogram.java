@@ -0,0 +1,69 @@
+package com.kayak.hotelsearch.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: every power of two is
+ * split into 16 linear sub-buckets, so any recorded value is reported within ~6%
+ * across the whole range from nanoseconds to hours. Counts are striped by thread to
+ * keep concurrent recorders off each other's cache lines, and {@link #record}
+ * neither locks nor allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int STRIPES = 8;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final AtomicLongArray sums = new AtomicLongArray(STRIPES * 8);
+    private final AtomicLongArray maxima = new AtomicLongArray(STRIPES * 8);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        counts.getAndIncrement(stripe * BUCKETS + bucketIndex(value));
+        // One long per 64-byte line so stripes do not false-share
+        sums.getAndAdd(stripe * 8, value);
+        long max = maxima.get(stripe * 8);
+        while (value > max && !maxima.weakCompareAndSetVolatile(stripe * 8, max, value)) {
+            max = maxima.get(stripe * 8);
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long bucketCount = counts.get(stripe * BUCKETS + bucket);
+                merged[bucket] += bucketCount;
+                count += bucketCount;
+            }
+            sum += sums.get(stripe * 8);
+            max = Math.max(max, maxima.get(stripe * 8));
+        }
+        return new HistogramSnapshot(merged, count, sum, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Largest value that lands in the bucket
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.kayak.hotelsearch.metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs a metrics snapshot on a fixed interval, with counters as rates over the interval.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class.getName());
+    private final BookingMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private MetricsSnapshot previous;
+
+    public MetricsReporter(BookingMetrics metrics, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Reporting interval must be positive");
+        }
+        this.metrics = metrics;
+        this.previous = metrics.snapshot();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void report() {
+        try {
+            MetricsSnapshot current = metrics.snapshot();
+            LOGGER.info("Booking metrics:" + current.format(previous));
+            previous = current;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error reporting metrics", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
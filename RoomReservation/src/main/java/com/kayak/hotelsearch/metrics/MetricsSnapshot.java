@@ -0,0 +1,79 @@
+package com.kayak.hotelsearch.metrics;
+
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Cumulative booking metrics at one point in time. Rates are computed between two
+ * snapshots with {@link #format(MetricsSnapshot)}.
+ */
+public final class MetricsSnapshot {
+    private final long timestampNanos;
+    private final long[] outcomes;
+    private final long[] attemptsByType;
+    private final long[] bookingsByType;
+    private final HistogramSnapshot queueWait;
+    private final HistogramSnapshot serviceTime;
+
+    MetricsSnapshot(long timestampNanos, long[] outcomes, long[] attemptsByType, long[] bookingsByType,
+                    HistogramSnapshot queueWait, HistogramSnapshot serviceTime) {
+        this.timestampNanos = timestampNanos;
+        this.outcomes = outcomes;
+        this.attemptsByType = attemptsByType;
+        this.bookingsByType = bookingsByType;
+        this.queueWait = queueWait;
+        this.serviceTime = serviceTime;
+    }
+
+    public long getCount(BookingOutcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+
+    public long getAttempts(RoomType roomType) {
+        return attemptsByType[roomType.ordinal()];
+    }
+
+    public long getBookings(RoomType roomType) {
+        return bookingsByType[roomType.ordinal()];
+    }
+
+    public HistogramSnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    public HistogramSnapshot getServiceTime() {
+        return serviceTime;
+    }
+
+    // Counters as totals, or as per-second rates since previous when one is given
+    public String format(MetricsSnapshot previous) {
+        double seconds = previous == null ? 0 : (timestampNanos - previous.timestampNanos) / 1e9;
+        StringBuilder text = new StringBuilder();
+        for (BookingOutcome outcome : BookingOutcome.values()) {
+            appendCount(text, outcome.name().toLowerCase(), getCount(outcome),
+                    previous == null ? 0 : previous.getCount(outcome), seconds);
+        }
+        text.append("\n  queue wait:   ").append(queueWait);
+        text.append("\n  service time: ").append(serviceTime);
+        text.append("\n  by type:");
+        for (RoomType roomType : RoomType.values()) {
+            if (getAttempts(roomType) == 0) {
+                continue;
+            }
+            appendCount(text, roomType.name() + " attempts", getAttempts(roomType),
+                    previous == null ? 0 : previous.getAttempts(roomType), seconds);
+            appendCount(text, "booked", getBookings(roomType),
+                    previous == null ? 0 : previous.getBookings(roomType), seconds);
+        }
+        return text.toString();
+    }
+
+    private static void appendCount(StringBuilder text, String name, long value, long previousValue, double seconds) {
+        text.append(' ').append(name).append('=');
+        if (seconds > 0) {
+            text.append(String.format("%.1f/s", (value - previousValue) / seconds));
+        } else {
+            text.append(value);
+        }
+    }
+}
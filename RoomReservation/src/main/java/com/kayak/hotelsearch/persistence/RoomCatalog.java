@@ -0,0 +1,250 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+import com.kayak.hotelsearch.room.ConcurrentHashMapRoomStore;
+import com.kayak.hotelsearch.room.DenseArrayRoomStore;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Read-only room catalogue in a fixed-width binary layout, memory-mapped and decoded in
+ * parallel at startup instead of parsed. Layout: {@code int magic, int version, int roomCount,
+ * int minRoomNumber, int maxRoomNumber, short hotelIdLength, byte[64] hotelId, rooms...,
+ * int crc32c(rooms)}, where each room is {@code int roomNumber, byte type, double price}.
+ * Catalogue rooms are available and have never been booked; live state belongs in snapshots.
+ */
+public final class RoomCatalog {
+    private static final int MAGIC = 0x52434154;
+    private static final int VERSION = 1;
+    private static final int MAX_HOTEL_ID_BYTES = 64;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4 + 2 + MAX_HOTEL_ID_BYTES;
+    private static final int ROOM_BYTES = 4 + 1 + 8;
+    private static final int BUFFER_BYTES = 1 << 20;
+    // Rooms decoded per parallel task; large enough that task overhead does not show
+    private static final int CHUNK_ROOMS = 1 << 16;
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private RoomCatalog() {
+    }
+
+    public static Writer writer(Path file, String hotelId) throws IOException {
+        return new Writer(file, hotelId);
+    }
+
+    /**
+     * Writes rooms in any order to a temporary file. Closing completes the header and
+     * checksum and moves the file into place; {@link #discard} drops it instead, so a
+     * failed conversion never leaves a partial catalogue behind.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final Path temporary;
+        private final byte[] hotelId;
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private final BitSet roomNumbers = new BitSet();
+        private int roomCount;
+        private int minRoomNumber = Integer.MAX_VALUE;
+        private int maxRoomNumber;
+        private boolean closed;
+
+        private Writer(Path file, String hotelId) throws IOException {
+            this.hotelId = hotelId.getBytes(StandardCharsets.UTF_8);
+            if (this.hotelId.length == 0 || this.hotelId.length > MAX_HOTEL_ID_BYTES) {
+                throw new IllegalArgumentException("Hotel id must be 1 to " + MAX_HOTEL_ID_BYTES + " bytes");
+            }
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_BYTES);
+        }
+
+        public Writer add(int roomNumber, RoomType roomType, double price) throws IOException {
+            if (roomNumber <= 0) {
+                throw new IllegalArgumentException("Room number must be positive");
+            }
+            if (roomType == null) {
+                throw new IllegalArgumentException("Room type cannot be null");
+            }
+            if (price < 0) {
+                throw new IllegalArgumentException("Price cannot be negative");
+            }
+            if (roomNumbers.get(roomNumber)) {
+                throw new IllegalArgumentException("Room " + roomNumber + " appears more than once");
+            }
+            roomNumbers.set(roomNumber);
+            if (buffer.remaining() < ROOM_BYTES) {
+                drain();
+            }
+            buffer.putInt(roomNumber).put((byte) roomType.ordinal()).putDouble(price);
+            roomCount++;
+            minRoomNumber = Math.min(minRoomNumber, roomNumber);
+            maxRoomNumber = Math.max(maxRoomNumber, roomNumber);
+            return this;
+        }
+
+        public Writer add(Room room) throws IOException {
+            return add(room.getRoomNumber(), room.getRoomType(), room.getPrice());
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        public void discard() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (out) {
+                drain();
+                buffer.putInt((int) crc.getValue()).flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(roomCount)
+                        .putInt(roomCount == 0 ? 0 : minRoomNumber).putInt(maxRoomNumber)
+                        .putShort((short) hotelId.length).put(hotelId)
+                        .position(HEADER_BYTES).flip();
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+                out.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Maps the catalogue and builds a store of the given kind ("concurrent" or "dense"),
+     * sized from the header and filled by parallel tasks that each decode one range of rooms.
+     * Other kinds are built by {@link RoomDatabaseAccessService#createRoomStore} from the rooms.
+     */
+    public static RoomStore load(Path file, String storeKind) throws IOException {
+        if (!storeKind.equals("concurrent") && !storeKind.equals("dense")) {
+            return RoomDatabaseAccessService.createRoomStore(storeKind, readRooms(file));
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = map(file, in);
+            Header header = Header.read(file, data);
+            RoomStore store;
+            switch (storeKind) {
+                case "concurrent":
+                    store = new ConcurrentHashMapRoomStore(header.roomCount);
+                    break;
+                case "dense":
+                    store = header.roomCount == 0
+                            ? new DenseArrayRoomStore(header.hotelId, 1, 0)
+                            : new DenseArrayRoomStore(header.hotelId, header.minRoomNumber,
+                                    header.maxRoomNumber - header.minRoomNumber + 1);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown room store: " + storeKind);
+            }
+            decodeParallel(data, header, (room, index) -> store.put(room));
+            return store;
+        }
+    }
+
+    // Every room in the catalogue, for callers that build their own store
+    public static List<Room> readRooms(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = map(file, in);
+            Header header = Header.read(file, data);
+            Room[] rooms = new Room[header.roomCount];
+            decodeParallel(data, header, (room, index) -> rooms[index] = room);
+            return Arrays.asList(rooms);
+        }
+    }
+
+    private static ByteBuffer map(Path file, FileChannel in) throws IOException {
+        long size = in.size();
+        if (size < HEADER_BYTES + 4) {
+            throw new IOException("Catalogue " + file + " is truncated");
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalogue " + file + " is larger than 2 GB; split it per hotel");
+        }
+        return in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private static void decodeParallel(ByteBuffer data, Header header, ObjIntConsumer<Room> consumer) {
+        int chunks = (header.roomCount + CHUNK_ROOMS - 1) / CHUNK_ROOMS;
+        // Absolute reads never move the buffer's position, so tasks can share the mapping
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK_ROOMS;
+            int to = Math.min(header.roomCount, from + CHUNK_ROOMS);
+            for (int i = from; i < to; i++) {
+                int offset = HEADER_BYTES + i * ROOM_BYTES;
+                int type = data.get(offset + 4);
+                if (type < 0 || type >= ROOM_TYPES.length) {
+                    throw new IllegalStateException("Room at index " + i + " has unknown type " + type);
+                }
+                consumer.accept(Room.builder()
+                        .hotelId(header.hotelId)
+                        .roomNumber(data.getInt(offset))
+                        .roomType(ROOM_TYPES[type])
+                        .price(data.getDouble(offset + 5))
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(), i);
+            }
+        });
+    }
+
+    private record Header(String hotelId, int roomCount, int minRoomNumber, int maxRoomNumber) {
+        static Header read(Path file, ByteBuffer data) throws IOException {
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Unrecognised catalogue format in " + file);
+            }
+            int roomCount = data.getInt(8);
+            int hotelIdLength = data.getShort(20);
+            if (roomCount < 0 || hotelIdLength <= 0 || hotelIdLength > MAX_HOTEL_ID_BYTES
+                    || data.capacity() != HEADER_BYTES + (long) roomCount * ROOM_BYTES + 4) {
+                throw new IOException("Catalogue " + file + " is truncated or corrupt");
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(data.duplicate().position(HEADER_BYTES).limit(data.capacity() - 4));
+            if ((int) crc.getValue() != data.getInt(data.capacity() - 4)) {
+                throw new IOException("Catalogue " + file + " failed its checksum");
+            }
+            byte[] hotelId = new byte[hotelIdLength];
+            data.get(22, hotelId);
+            return new Header(new String(hotelId, StandardCharsets.UTF_8), roomCount, data.getInt(12), data.getInt(16));
+        }
+    }
+}
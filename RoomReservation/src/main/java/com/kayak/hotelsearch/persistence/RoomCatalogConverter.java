@@ -0,0 +1,102 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Converts a room list to a {@link RoomCatalog} file. JSON input is an array of
+ * {@code {"roomNumber": 101, "roomType": "STANDARD", "price": 100.0}}; CSV input has
+ * {@code roomNumber,roomType,price} per line with an optional header line. Both are
+ * streamed, so the input can be larger than the heap.
+ *
+ * <pre>mvn compile exec:java -Dexec.mainClass=com.kayak.hotelsearch.persistence.RoomCatalogConverter -Dexec.args="rooms.csv rooms.rcat [hotelId]"</pre>
+ */
+public class RoomCatalogConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RoomCatalogConverter <rooms.json|rooms.csv> <catalogue> [hotelId]");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        int rooms = convert(Path.of(args[0]), Path.of(args[1]), args.length > 2 ? args[2] : Room.DEFAULT_HOTEL);
+        System.out.printf("Wrote %d rooms to %s in %d ms%n", rooms, args[1], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Returns the number of rooms written; the format is chosen by the input's extension
+    public static int convert(Path input, Path catalogue, String hotelId) throws IOException {
+        RoomCatalog.Writer writer = RoomCatalog.writer(catalogue, hotelId);
+        try {
+            int rooms = input.getFileName().toString().toLowerCase().endsWith(".csv")
+                    ? convertCsv(input, writer)
+                    : convertJson(input, writer);
+            writer.close();
+            return rooms;
+        } catch (IOException | RuntimeException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    private static int convertJson(Path input, RoomCatalog.Writer writer) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        int rooms = 0;
+        try (JsonParser parser = mapper.getFactory().createParser(input.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of rooms in " + input);
+            }
+            parser.nextToken();
+            try (MappingIterator<JsonNode> entries = mapper.readerFor(JsonNode.class).readValues(parser)) {
+                while (entries.hasNextValue()) {
+                    JsonNode entry = entries.nextValue();
+                    writer.add(entry.path("roomNumber").asInt(),
+                            RoomType.valueOf(entry.path("roomType").asText()),
+                            entry.path("price").asDouble());
+                    rooms++;
+                }
+            }
+        }
+        return rooms;
+    }
+
+    private static int convertCsv(Path input, RoomCatalog.Writer writer) throws IOException {
+        int rooms = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 3) {
+                    throw new IOException("Expected roomNumber,roomType,price on line " + lineNumber + " of " + input);
+                }
+                String first = fields[0].trim();
+                if (lineNumber == 1 && !first.isEmpty() && !Character.isDigit(first.charAt(0))) {
+                    continue;
+                }
+                try {
+                    writer.add(Integer.parseInt(first),
+                            RoomType.valueOf(fields[1].trim()),
+                            Double.parseDouble(fields[2].trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid room on line " + lineNumber + " of " + input + ": " + e.getMessage(), e);
+                }
+                rooms++;
+            }
+        }
+        return rooms;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+// Fixed binary layout of a Room shared by the write-ahead log, snapshots and the replication change feed
+public final class RoomCodec {
+    public static final int MAX_GUEST_BYTES = Short.MAX_VALUE;
+    // roomNumber, type, price, available, bookingCount, lastBookingTime, guest length
+    public static final int FIXED_BYTES = 4 + 1 + 8 + 1 + 4 + 8 + 2;
+    // Follows the guest, so records written before rooms were versioned still decode, as version 0
+    public static final int VERSION_BYTES = 8;
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private RoomCodec() {
+    }
+
+    public static byte[] guestBytes(Room room) {
+        String guest = room.getCurrentGuest();
+        if (guest == null) {
+            return null;
+        }
+        byte[] bytes = guest.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_GUEST_BYTES) {
+            throw new IllegalArgumentException("Guest name is too long to persist");
+        }
+        return bytes;
+    }
+
+    public static int encodedSize(byte[] guest) {
+        return FIXED_BYTES + VERSION_BYTES + (guest == null ? 0 : guest.length);
+    }
+
+    public static void encode(ByteBuffer buffer, Room room, byte[] guest) {
+        buffer.putInt(room.getRoomNumber());
+        buffer.put((byte) room.getRoomType().ordinal());
+        buffer.putDouble(room.getPrice());
+        buffer.put((byte) (room.isAvailable() ? 1 : 0));
+        buffer.putInt(room.getBookingCount());
+        LocalDateTime time = room.getLastBookingTime();
+        buffer.putLong(time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano());
+        // -1 marks a null guest so it survives the round trip
+        buffer.putShort((short) (guest == null ? -1 : guest.length));
+        if (guest != null) {
+            buffer.put(guest);
+        }
+        buffer.putLong(room.getVersion());
+    }
+
+    // With versioned set, a version is read if the buffer holds one, so a buffer limited to an older record reads it as 0
+    public static Room decode(ByteBuffer buffer, boolean versioned) {
+        int roomNumber = buffer.getInt();
+        RoomType type = ROOM_TYPES[buffer.get()];
+        double price = buffer.getDouble();
+        boolean available = buffer.get() != 0;
+        int bookingCount = buffer.getInt();
+        long time = buffer.getLong();
+        int guestLength = buffer.getShort();
+        String guest = null;
+        if (guestLength >= 0) {
+            byte[] bytes = new byte[guestLength];
+            buffer.get(bytes);
+            guest = new String(bytes, StandardCharsets.UTF_8);
+        }
+        long version = versioned && buffer.remaining() >= VERSION_BYTES ? buffer.getLong() : 0;
+        return Room.builder()
+                .roomNumber(roomNumber)
+                .roomType(type)
+                .price(price)
+                .isAvailable(available)
+                .currentGuest(guest)
+                .lastBookingTime(time == NO_TIME ? null : LocalDateTime.ofEpochSecond(
+                        Math.floorDiv(time, 1_000_000_000L), (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC))
+                .bookingCount(bookingCount)
+                .version(version)
+                .build();
+    }
+}
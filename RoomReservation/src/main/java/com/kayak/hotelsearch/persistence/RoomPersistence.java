@@ -0,0 +1,136 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomUpdateListener;
+import com.kayak.hotelsearch.room.StayChange;
+
+/**
+ * Durable room state, including stays booked by night: a periodic snapshot plus a
+ * write-ahead log of every update since. Call {@link #recover} before the service is
+ * created, then {@link #start} to restore the stays into it and log its updates.
+ */
+public class RoomPersistence implements RoomUpdateListener {
+    private static final Logger LOGGER = Logger.getLogger(RoomPersistence.class.getName());
+    private static final String SNAPSHOT_FILE = "rooms.snapshot";
+
+    private final Path directory;
+    private final String hotelId;
+    private final WriteAheadLog.SyncMode syncMode;
+    private final long flushIntervalMillis;
+    private final int walBufferBytes;
+    private WriteAheadLog log;
+    private RoomDatabaseAccessService service;
+    private ScheduledExecutorService snapshotScheduler;
+    private long lastLsn;
+    private boolean recovered;
+    // Stays read back by recover, in log order, until start applies them
+    private List<StayChange> recoveredStays = new ArrayList<>();
+
+    public RoomPersistence(Path directory, WriteAheadLog.SyncMode syncMode, long flushIntervalMillis) {
+        this(directory, Room.DEFAULT_HOTEL, syncMode, flushIntervalMillis, WriteAheadLog.DEFAULT_BUFFER_BYTES);
+    }
+
+    // Records do not carry the hotel; a hotel's rooms live in their own directory and are restored into it
+    public RoomPersistence(Path directory, String hotelId, WriteAheadLog.SyncMode syncMode, long flushIntervalMillis,
+                           int walBufferBytes) {
+        this.directory = directory;
+        this.hotelId = hotelId;
+        this.walBufferBytes = walBufferBytes;
+        this.syncMode = syncMode;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    // Loads the snapshot and replays the log tail into the store; returns the number of rooms restored
+    public long recover(RoomStore store) throws IOException {
+        long[] restored = new long[1];
+        Consumer<Room> restore = room -> {
+            store.put(room.inHotel(hotelId));
+            restored[0]++;
+        };
+        recoveredStays.clear();
+        long startLsn = RoomSnapshot.read(directory.resolve(SNAPSHOT_FILE), restore, recoveredStays::add);
+        lastLsn = WriteAheadLog.replay(directory, startLsn, restore, recoveredStays::add);
+        recovered = true;
+        return restored[0];
+    }
+
+    public void start(RoomDatabaseAccessService service, long snapshotIntervalMillis) throws IOException {
+        if (!recovered) {
+            throw new IllegalStateException("recover must be called before start");
+        }
+        this.service = service;
+        // Stays live in the service's night inventory rather than the store, so they can only be restored now
+        for (StayChange stay : recoveredStays) {
+            service.restoreStay(stay);
+        }
+        recoveredStays = new ArrayList<>();
+        this.log = new WriteAheadLog(directory, lastLsn, syncMode, flushIntervalMillis, walBufferBytes);
+        service.addUpdateListener(this);
+        if (snapshotIntervalMillis > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "room-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error writing room snapshot", e);
+                }
+            }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Records are full room states or say outright who holds some nights, so a snapshot taken while updates continue is still safe to replay onto
+    public synchronized void snapshot() throws IOException {
+        long startLsn = log.roll();
+        RoomSnapshot.write(directory.resolve(SNAPSHOT_FILE), startLsn, service.getAllRooms(), service.getBookedStays());
+        log.deleteSegmentsBefore(startLsn);
+    }
+
+    @Override
+    public void onRoomUpdated(Room room) {
+        log.append(room);
+    }
+
+    @Override
+    public void onStayChanged(StayChange change) {
+        log.append(change);
+    }
+
+    @Override
+    public void afterUpdate() {
+        log.acknowledge();
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        if (log == null) {
+            return;
+        }
+        try {
+            // A final snapshot keeps the next recovery short
+            snapshot();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error writing final room snapshot", e);
+        }
+        log.close();
+    }
+}
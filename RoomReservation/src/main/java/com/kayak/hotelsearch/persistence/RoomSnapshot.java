@@ -0,0 +1,114 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.StayChange;
+
+/**
+ * Compact binary image of every room and every stay booked by night, plus the first log
+ * LSN that is not covered by it. Layout: {@code int magic, int version, long startLsn,
+ * int roomCount, rooms..., int stayCount, stays..., int crc32c(rooms and stays)}.
+ */
+final class RoomSnapshot {
+    private static final int MAGIC = 0x524F4F4D;
+    // Version 1 predates room versions and is still read, with every room at version 0; neither it nor 2 has stays
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private RoomSnapshot() {
+    }
+
+    // Written to a temporary file and renamed into place, so a crash never leaves a half-written snapshot
+    static void write(Path file, long startLsn, Collection<Room> rooms, Collection<StayChange> stays) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        CRC32C crc = new CRC32C();
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(startLsn).putInt(rooms.size());
+            int checksumFrom = buffer.position();
+            for (Room room : rooms) {
+                byte[] guest = RoomCodec.guestBytes(room);
+                if (buffer.remaining() < RoomCodec.encodedSize(guest) + 4) {
+                    checksumFrom = drain(out, buffer, crc, checksumFrom);
+                }
+                RoomCodec.encode(buffer, room, guest);
+            }
+            if (buffer.remaining() < 4) {
+                checksumFrom = drain(out, buffer, crc, checksumFrom);
+            }
+            buffer.putInt(stays.size());
+            for (StayChange stay : stays) {
+                byte[] guest = StayCodec.guestBytes(stay);
+                if (buffer.remaining() < StayCodec.encodedSize(guest) + 4) {
+                    checksumFrom = drain(out, buffer, crc, checksumFrom);
+                }
+                StayCodec.encode(buffer, stay, guest);
+            }
+            drain(out, buffer, crc, checksumFrom);
+            buffer.putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int drain(FileChannel out, ByteBuffer buffer, CRC32C crc, int checksumFrom) throws IOException {
+        crc.update(buffer.duplicate().position(checksumFrom).limit(buffer.position()));
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        return 0;
+    }
+
+    // Returns the snapshot's start LSN, or 1 when there is no snapshot
+    static long read(Path file, Consumer<Room> rooms, Consumer<StayChange> stays) throws IOException {
+        if (!Files.exists(file)) {
+            return 1;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_BYTES + 4) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            // Snapshots are read once at startup, so map the file rather than copy it through a buffer
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int format = data.getInt() == MAGIC ? data.getInt() : -1;
+            if (format < 1 || format > VERSION) {
+                throw new IOException("Unrecognised snapshot format in " + file);
+            }
+            long startLsn = data.getLong();
+            int roomCount = data.getInt();
+            CRC32C crc = new CRC32C();
+            crc.update(data.duplicate().limit((int) size - 4));
+            if ((int) crc.getValue() != data.getInt((int) size - 4)) {
+                throw new IOException("Snapshot " + file + " failed its checksum");
+            }
+            for (int i = 0; i < roomCount; i++) {
+                rooms.accept(RoomCodec.decode(data, format >= 2));
+            }
+            if (format >= 3) {
+                int stayCount = data.getInt();
+                for (int i = 0; i < stayCount; i++) {
+                    stays.accept(StayCodec.decode(data));
+                }
+            }
+            return startLsn;
+        }
+    }
+}
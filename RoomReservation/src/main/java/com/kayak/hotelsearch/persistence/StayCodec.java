@@ -0,0 +1,56 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import com.kayak.hotelsearch.room.StayChange;
+
+// Fixed binary layout of a StayChange shared by the write-ahead log and snapshots
+final class StayCodec {
+    // roomNumber, checkIn, checkOut as epoch days, guest length
+    static final int FIXED_BYTES = 4 + 8 + 8 + 2;
+
+    private StayCodec() {
+    }
+
+    static byte[] guestBytes(StayChange change) {
+        if (change.isRelease()) {
+            return null;
+        }
+        byte[] bytes = change.guest().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > RoomCodec.MAX_GUEST_BYTES) {
+            throw new IllegalArgumentException("Guest name is too long to persist");
+        }
+        return bytes;
+    }
+
+    static int encodedSize(byte[] guest) {
+        return FIXED_BYTES + (guest == null ? 0 : guest.length);
+    }
+
+    static void encode(ByteBuffer buffer, StayChange change, byte[] guest) {
+        buffer.putInt(change.roomNumber());
+        buffer.putLong(change.checkIn().toEpochDay());
+        buffer.putLong(change.checkOut().toEpochDay());
+        // -1 marks a release, which has no guest
+        buffer.putShort((short) (guest == null ? -1 : guest.length));
+        if (guest != null) {
+            buffer.put(guest);
+        }
+    }
+
+    static StayChange decode(ByteBuffer buffer) {
+        int roomNumber = buffer.getInt();
+        LocalDate checkIn = LocalDate.ofEpochDay(buffer.getLong());
+        LocalDate checkOut = LocalDate.ofEpochDay(buffer.getLong());
+        int guestLength = buffer.getShort();
+        String guest = null;
+        if (guestLength >= 0) {
+            byte[] bytes = new byte[guestLength];
+            buffer.get(bytes);
+            guest = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new StayChange(roomNumber, guest, checkIn, checkOut);
+    }
+}
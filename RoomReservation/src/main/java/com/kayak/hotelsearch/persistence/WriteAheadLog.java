@@ -0,0 +1,475 @@
+package com.kayak.hotelsearch.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.StayChange;
+
+/**
+ * Append-only log of room states. Appenders encode records into an in-memory buffer
+ * under a short lock; a single flusher thread swaps buffers, writes the batch through
+ * a {@link FileChannel} and fsyncs it once for everyone in the batch (group commit).
+ *
+ * <p>Record layout: {@code int payloadLength, int crc32c(payload), payload = long lsn, body}.
+ * The top byte of the LSN field gives the kind of body: a room, or a {@link StayChange}
+ * for nights booked or cancelled by date. Room records hold the full room state and stay
+ * records say who holds the nights, so replaying a record twice is harmless.
+ */
+public class WriteAheadLog {
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+    public static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    private static final int HEADER_BYTES = 8;
+    // Largest possible record, which every append buffer must be able to hold
+    public static final int MIN_BUFFER_BYTES =
+            HEADER_BYTES + 8 + RoomCodec.FIXED_BYTES + RoomCodec.VERSION_BYTES + RoomCodec.MAX_GUEST_BYTES;
+    private static final int KIND_SHIFT = 56;
+    private static final long LSN_MASK = (1L << KIND_SHIFT) - 1;
+    // Logs written before stays were persisted hold room records only, with a zero kind
+    private static final long ROOM_RECORD = 0;
+    private static final long STAY_RECORD = 1L << KIND_SHIFT;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    public enum SyncMode {
+        // Callers wait until their record is fsynced; concurrent callers share one fsync
+        GROUP_COMMIT,
+        // Callers never wait; the log is fsynced at least every flush interval
+        BATCHED
+    }
+
+    private final Path directory;
+    private final SyncMode syncMode;
+    private final long flushIntervalNanos;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition flushNeeded = appendLock.newCondition();
+    private final Condition spaceAvailable = appendLock.newCondition();
+    private final Condition rolled = appendLock.newCondition();
+    private final CRC32C checksum = new CRC32C();
+    // Updates appended but not yet acknowledged by afterUpdate, split by segment epoch
+    private final LongAdder[] inFlight = {new LongAdder(), new LongAdder()};
+    private final ThreadLocal<long[]> pending = ThreadLocal.withInitial(() -> new long[2]);
+    private final Object durableMonitor = new Object();
+    private final Thread flusher;
+
+    // Guarded by appendLock
+    private ByteBuffer active;
+    private ByteBuffer flushing;
+    private long lastLsn;
+    private int epoch;
+    private boolean rollRequested;
+    private long rolledAtLsn;
+    private boolean bufferFull;
+    private boolean closed;
+
+    // Only touched by the flusher thread once started
+    private FileChannel channel;
+    private volatile long durableLsn;
+    private volatile IOException failure;
+
+    public WriteAheadLog(Path directory, long lastLsn, SyncMode syncMode, long flushIntervalMillis) throws IOException {
+        this(directory, lastLsn, syncMode, flushIntervalMillis, DEFAULT_BUFFER_BYTES);
+    }
+
+    // Two direct buffers of bufferBytes each; logs that see little traffic can use much less than the default
+    public WriteAheadLog(Path directory, long lastLsn, SyncMode syncMode, long flushIntervalMillis, int bufferBytes)
+            throws IOException {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        if (bufferBytes < MIN_BUFFER_BYTES) {
+            throw new IllegalArgumentException("Buffer must hold at least " + MIN_BUFFER_BYTES + " bytes");
+        }
+        this.active = ByteBuffer.allocateDirect(bufferBytes);
+        this.flushing = ByteBuffer.allocateDirect(bufferBytes);
+        this.directory = directory;
+        this.syncMode = syncMode;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        Files.createDirectories(directory);
+        this.channel = openSegment(lastLsn + 1);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Called under the room's lock; remembers the LSN so afterUpdate can wait for it
+    public void append(Room room) {
+        byte[] guest = RoomCodec.guestBytes(room);
+        appendLock.lock();
+        try {
+            int start = begin(ROOM_RECORD, RoomCodec.encodedSize(guest));
+            RoomCodec.encode(active, room, guest);
+            seal(start);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Called under the room's lock before the nights change, like append(Room)
+    public void append(StayChange change) {
+        byte[] guest = StayCodec.guestBytes(change);
+        appendLock.lock();
+        try {
+            int start = begin(STAY_RECORD, StayCodec.encodedSize(guest));
+            StayCodec.encode(active, change, guest);
+            seal(start);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Caller holds appendLock; waits for room in the active buffer and writes the record's header, leaving the body to the caller
+    private int begin(long kind, int bodyLength) {
+        int payloadLength = 8 + bodyLength;
+        while (active.remaining() < HEADER_BYTES + payloadLength) {
+            checkOpen();
+            bufferFull = true;
+            flushNeeded.signal();
+            spaceAvailable.awaitUninterruptibly();
+        }
+        checkOpen();
+        int start = active.position();
+        active.putInt(payloadLength);
+        active.putInt(0);
+        active.putLong(++lastLsn | kind);
+        return start;
+    }
+
+    // Caller holds appendLock; checksums the record begun at start and hands it to the flusher
+    private void seal(int start) {
+        checksum.reset();
+        checksum.update(active.duplicate().position(start + HEADER_BYTES).limit(active.position()));
+        active.putInt(start + 4, (int) checksum.getValue());
+
+        long[] slot = pending.get();
+        slot[0] = lastLsn;
+        slot[1] = epoch;
+        inFlight[epoch].increment();
+        if (syncMode == SyncMode.GROUP_COMMIT || start == 0) {
+            flushNeeded.signal();
+        }
+    }
+
+    // Called once the room is unlocked again
+    public void acknowledge() {
+        long[] slot = pending.get();
+        long lsn = slot[0];
+        if (lsn == 0) {
+            return;
+        }
+        slot[0] = 0;
+        inFlight[(int) slot[1]].decrement();
+        if (syncMode == SyncMode.GROUP_COMMIT) {
+            awaitDurable(lsn);
+        }
+    }
+
+    // Blocks until the record at lsn is on disk; throws if the log failed or the wait was interrupted first
+    public void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    // The record may not be on disk yet, so the caller must not go on as if it were
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException(
+                            "Interrupted waiting for LSN " + lsn + " to become durable"));
+                }
+            }
+        }
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    /**
+     * Starts a new segment and returns its first LSN. Every record below that LSN is in
+     * an older segment and its update has been applied to the store, so a snapshot
+     * taken after this returns makes those segments redundant.
+     */
+    public synchronized long roll() throws IOException {
+        int oldEpoch;
+        long startLsn;
+        appendLock.lock();
+        try {
+            checkOpen();
+            rollRequested = true;
+            flushNeeded.signal();
+            while (rollRequested && failure == null) {
+                rolled.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            startLsn = rolledAtLsn;
+            oldEpoch = epoch ^ 1;
+        } finally {
+            appendLock.unlock();
+        }
+        // Appended is not the same as applied: wait for updates still inside their room lock
+        while (inFlight[oldEpoch].sum() != 0) {
+            LockSupport.parkNanos(10_000);
+        }
+        return startLsn;
+    }
+
+    // Removes segments that only hold records below the given LSN
+    public void deleteSegmentsBefore(long lsn) throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            long nextFirstLsn = i + 1 < segments.size() ? firstLsn(segments.get(i + 1)) : Long.MAX_VALUE;
+            if (nextFirstLsn <= lsn) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    public void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+            spaceAvailable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private void flushLoop() {
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchLsn;
+                boolean roll;
+                appendLock.lock();
+                try {
+                    while (!closed && !rollRequested && !bufferFull && !readyToFlush(nextFlush)) {
+                        if (active.position() == 0) {
+                            // Idle logs sleep until the next append, so many mostly idle logs cost no wakeups
+                            flushNeeded.await();
+                        } else {
+                            flushNeeded.awaitNanos(Math.max(nextFlush - System.nanoTime(), 1));
+                        }
+                    }
+                    if (closed && active.position() == 0 && !rollRequested) {
+                        return;
+                    }
+                    batch = active;
+                    active = flushing;
+                    flushing = batch;
+                    batchLsn = lastLsn;
+                    roll = rollRequested;
+                    if (roll) {
+                        epoch ^= 1;
+                    }
+                    bufferFull = false;
+                    spaceAvailable.signalAll();
+                } finally {
+                    appendLock.unlock();
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                batch.clear();
+                nextFlush = System.nanoTime() + flushIntervalNanos;
+                if (roll) {
+                    channel.close();
+                    channel = openSegment(batchLsn + 1);
+                }
+                publishDurable(batchLsn);
+
+                if (roll) {
+                    appendLock.lock();
+                    try {
+                        rolledAtLsn = batchLsn + 1;
+                        rollRequested = false;
+                        rolled.signalAll();
+                    } finally {
+                        appendLock.unlock();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Write-ahead log flush failed", e);
+            failure = e;
+            appendLock.lock();
+            try {
+                spaceAvailable.signalAll();
+                rolled.signalAll();
+            } finally {
+                appendLock.unlock();
+            }
+            synchronized (durableMonitor) {
+                durableMonitor.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error closing write-ahead log segment", e);
+            }
+        }
+    }
+
+    private boolean readyToFlush(long nextFlush) {
+        if (active.position() == 0) {
+            return false;
+        }
+        return syncMode == SyncMode.GROUP_COMMIT || System.nanoTime() - nextFlush >= 0;
+    }
+
+    private void publishDurable(long lsn) {
+        durableLsn = lsn;
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        // A segment with this name can only exist if it holds no valid records, so it is safe to truncate
+        return FileChannel.open(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Replays every intact record with an LSN of at least {@code fromLsn}, oldest segment
+     * first, handing rooms and stays to their consumers in log order. A torn or corrupt
+     * record ends its segment. Returns the highest LSN seen.
+     */
+    public static long replay(Path directory, long fromLsn, Consumer<Room> rooms, Consumer<StayChange> stays)
+            throws IOException {
+        long lastLsn = fromLsn - 1;
+        if (!Files.isDirectory(directory)) {
+            return lastLsn;
+        }
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            return lastLsn;
+        }
+        // Small logs, such as those of rarely booked hotels, are read with a buffer to match
+        long largest = 0;
+        for (Path segment : segments) {
+            largest = Math.max(largest, Files.size(segment));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.max(MIN_BUFFER_BYTES, Math.min(largest, 4L * DEFAULT_BUFFER_BYTES)));
+        CRC32C crc = new CRC32C();
+        for (Path segment : segments) {
+            buffer.clear();
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                boolean intact = true;
+                while (intact && in.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= HEADER_BYTES) {
+                        int start = buffer.position();
+                        int payloadLength = buffer.getInt(start);
+                        if (payloadLength < 8 + StayCodec.FIXED_BYTES || HEADER_BYTES + payloadLength > MIN_BUFFER_BYTES) {
+                            intact = false;
+                            break;
+                        }
+                        if (buffer.remaining() < HEADER_BYTES + payloadLength) {
+                            break;
+                        }
+                        ByteBuffer payload = buffer.duplicate()
+                                .position(start + HEADER_BYTES)
+                                .limit(start + HEADER_BYTES + payloadLength);
+                        crc.reset();
+                        crc.update(payload.duplicate());
+                        if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+                            intact = false;
+                            break;
+                        }
+                        long header = payload.getLong();
+                        long kind = header & ~LSN_MASK;
+                        long lsn = header & LSN_MASK;
+                        if (kind == ROOM_RECORD && payloadLength >= 8 + RoomCodec.FIXED_BYTES) {
+                            // The payload ends with the record, so one written before rooms were versioned has no version to read
+                            Room room = RoomCodec.decode(payload, true);
+                            if (lsn >= fromLsn) {
+                                rooms.accept(room);
+                            }
+                        } else if (kind == STAY_RECORD) {
+                            StayChange change = StayCodec.decode(payload);
+                            if (lsn >= fromLsn) {
+                                stays.accept(change);
+                            }
+                        } else {
+                            intact = false;
+                            break;
+                        }
+                        lastLsn = Math.max(lastLsn, lsn);
+                        buffer.position(start + HEADER_BYTES + payloadLength);
+                    }
+                    buffer.compact();
+                }
+                if (!intact || buffer.position() > 0) {
+                    LOGGER.warning("Ignoring torn tail of write-ahead log segment " + segment.getFileName());
+                }
+            }
+        }
+        return lastLsn;
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((a, b) -> Long.compare(firstLsn(a), firstLsn(b)));
+            return segments;
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.kayak.hotelsearch.pricing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.kayak.hotelsearch.room.OccupancyListener;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Quotes room prices adjusted by a {@link PricingPolicy} for the current occupancy of the
+ * room's type. The multiplier is cached per type and recomputed only after that type's
+ * occupancy has changed, from counters the service keeps up to date on every booking, so a
+ * quote never scans the rooms.
+ */
+public final class PriceQuoter implements OccupancyListener {
+    private final RoomDatabaseAccessService service;
+    private final PricingPolicy policy;
+    // Indexed by RoomType ordinal; a cached multiplier is valid while its version matches
+    private final AtomicLongArray versions = new AtomicLongArray(RoomType.values().length);
+    private final AtomicReferenceArray<Multiplier> multipliers = new AtomicReferenceArray<>(RoomType.values().length);
+
+    public PriceQuoter(RoomDatabaseAccessService service, PricingPolicy policy) {
+        if (service == null || policy == null) {
+            throw new IllegalArgumentException("Service and policy are required");
+        }
+        this.service = service;
+        this.policy = policy;
+        service.addOccupancyListener(this);
+    }
+
+    public double quote(Room room) {
+        if (room == null) {
+            throw new IllegalArgumentException("Room cannot be null");
+        }
+        return room.getPrice() * multiplier(room.getRoomType());
+    }
+
+    public double quote(int roomNumber) {
+        Room room = service.loadRoom(roomNumber);
+        if (room == null) {
+            throw new IllegalArgumentException("Unknown room: " + roomNumber);
+        }
+        return quote(room);
+    }
+
+    public double multiplier(RoomType roomType) {
+        int type = roomType.ordinal();
+        // Read the version before occupancy, so a change made during the computation leaves the result stale rather than lost
+        long version = versions.get(type);
+        Multiplier cached = multipliers.get(type);
+        if (cached != null && cached.version == version) {
+            return cached.value;
+        }
+        Multiplier computed = new Multiplier(version, policy.multiplier(roomType, service.getOccupancy(roomType)));
+        multipliers.set(type, computed);
+        return computed.value;
+    }
+
+    @Override
+    public void onOccupancyChanged(RoomType roomType) {
+        versions.incrementAndGet(roomType.ordinal());
+    }
+
+    private static final class Multiplier {
+        private final long version;
+        private final double value;
+
+        Multiplier(long version, double value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
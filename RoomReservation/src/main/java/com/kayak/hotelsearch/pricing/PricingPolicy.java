@@ -0,0 +1,85 @@
+package com.kayak.hotelsearch.pricing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kayak.hotelsearch.room.RoomType;
+
+/**
+ * Occupancy-based price multipliers per room type. Each surge tier applies once a type's
+ * occupancy reaches its threshold, and the highest tier reached wins. Tiers given for a
+ * specific type replace the tiers given for all types.
+ */
+public final class PricingPolicy {
+    private final List<Tier> defaultTiers;
+    private final Map<RoomType, List<Tier>> tiersByType;
+
+    private PricingPolicy(Builder builder) {
+        this.defaultTiers = sorted(builder.defaultTiers);
+        this.tiersByType = new EnumMap<>(RoomType.class);
+        builder.tiersByType.forEach((type, tiers) -> tiersByType.put(type, sorted(tiers)));
+    }
+
+    public static class Builder {
+        private final List<Tier> defaultTiers = new ArrayList<>();
+        private final Map<RoomType, List<Tier>> tiersByType = new EnumMap<>(RoomType.class);
+
+        // Applies to every room type without tiers of its own
+        public Builder surge(double occupancy, double multiplier) {
+            defaultTiers.add(new Tier(occupancy, multiplier));
+            return this;
+        }
+
+        public Builder surge(RoomType roomType, double occupancy, double multiplier) {
+            if (roomType == null) {
+                throw new IllegalArgumentException("Room type cannot be null");
+            }
+            tiersByType.computeIfAbsent(roomType, type -> new ArrayList<>()).add(new Tier(occupancy, multiplier));
+            return this;
+        }
+
+        public PricingPolicy build() {
+            return new PricingPolicy(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // 1.0 below the lowest threshold
+    public double multiplier(RoomType roomType, double occupancy) {
+        for (Tier tier : tiersByType.getOrDefault(roomType, defaultTiers)) {
+            if (occupancy >= tier.occupancy) {
+                return tier.multiplier;
+            }
+        }
+        return 1.0;
+    }
+
+    // Highest threshold first, so the first tier reached is the one that applies
+    private static List<Tier> sorted(List<Tier> tiers) {
+        List<Tier> copy = new ArrayList<>(tiers);
+        copy.sort(Comparator.comparingDouble((Tier tier) -> tier.occupancy).reversed());
+        return List.copyOf(copy);
+    }
+
+    private static final class Tier {
+        private final double occupancy;
+        private final double multiplier;
+
+        Tier(double occupancy, double multiplier) {
+            if (occupancy < 0 || occupancy > 1) {
+                throw new IllegalArgumentException("Occupancy threshold must be between 0 and 1");
+            }
+            if (multiplier <= 0) {
+                throw new IllegalArgumentException("Multiplier must be positive");
+            }
+            this.occupancy = occupancy;
+            this.multiplier = multiplier;
+        }
+    }
+}
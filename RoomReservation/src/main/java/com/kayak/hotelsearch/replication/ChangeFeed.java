@@ -0,0 +1,170 @@
+package com.kayak.hotelsearch.replication;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomUpdateListener;
+
+/**
+ * Ordered stream of room state changes for read replicas. Every update the service
+ * applies, and every hold or stay by night that blocks or unblocks a room, is numbered and stored in a fixed ring of the latest changes; readers follow
+ * it at their own pace from their own position. Writers never wait for readers: a
+ * reader that falls a whole ring behind finds its next change overwritten and reloads
+ * every room through {@link #bootstrap}, so no replica is ever more than one ring of
+ * changes behind.
+ *
+ * <p>Publishing is one atomic increment, one allocation and one compare-and-swap on the
+ * updating thread, under the room's lock, so each room's changes are numbered in the
+ * order they were applied.
+ */
+public final class ChangeFeed implements RoomUpdateListener {
+    // Returned by drain when the reader's next change has been overwritten
+    public static final int LAPPED = -1;
+    // Changes replayed over a reload; covers updates numbered but not yet stored while the rooms are read, at most one per writer
+    private static final int RELOAD_OVERLAP = 4096;
+
+    private final AtomicReferenceArray<RoomChange> slots;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final Set<Follower> followers = ConcurrentHashMap.newKeySet();
+    private volatile RoomDatabaseAccessService service;
+
+    public ChangeFeed(int minimumCapacity) {
+        if (minimumCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void start(RoomDatabaseAccessService service) {
+        this.service = service;
+        service.addUpdateListener(this);
+    }
+
+    // Published from onAvailabilityChanged instead, which follows every update
+    @Override
+    public void onRoomUpdated(Room room) {
+    }
+
+    @Override
+    public void onAvailabilityChanged(Room room, boolean blocked) {
+        long sequence = lastSequence.incrementAndGet();
+        RoomChange change = new RoomChange(sequence, room, blocked, System.nanoTime());
+        int index = (int) sequence & mask;
+        // A writer delayed by a whole lap must not overwrite the newer change now in its slot
+        RoomChange current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence() > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, change));
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * Where a new or lapped reader starts: the service's current rooms and blocked rooms,
+     * read live, and the sequence to follow from. That sequence is a little way back, so it covers updates
+     * that were numbered but not yet stored while the rooms were read; replaying the rest
+     * is harmless since replicas keep the newest version of each room.
+     */
+    public Bootstrap bootstrap() {
+        RoomDatabaseAccessService source = service;
+        if (source == null) {
+            throw new IllegalStateException("start must be called before bootstrap");
+        }
+        long fromSequence = Math.max(1, lastSequence.get() - Math.min(slots.length() / 2, RELOAD_OVERLAP) + 1);
+        return new Bootstrap(fromSequence, source.getAllRooms(), source.getBlockedRoomNumbers());
+    }
+
+    /**
+     * Hands sink the published changes from sequence next on, in order, stopping at the
+     * first one not yet published or after max. Returns how many were handed over, or
+     * {@link #LAPPED} if next has been overwritten and the reader must bootstrap again.
+     */
+    public int drain(long next, int max, Consumer<RoomChange> sink) {
+        int drained = 0;
+        while (drained < max) {
+            long sequence = next + drained;
+            RoomChange change = slots.get((int) sequence & mask);
+            if (change == null || change.sequence() < sequence) {
+                break;
+            }
+            if (change.sequence() > sequence) {
+                return drained == 0 ? LAPPED : drained;
+            }
+            sink.accept(change);
+            drained++;
+        }
+        return drained;
+    }
+
+    public List<ReplicaStatus> getReplicaStatuses() {
+        long now = System.nanoTime();
+        long last = lastSequence.get();
+        List<ReplicaStatus> statuses = new ArrayList<>(followers.size());
+        for (Follower follower : followers) {
+            long applied = follower.appliedSequence();
+            statuses.add(new ReplicaStatus(follower.name(), applied, Math.max(0, last - applied),
+                    lagNanos(applied, now), follower.resyncCount()));
+        }
+        statuses.sort(Comparator.comparing(ReplicaStatus::name));
+        return statuses;
+    }
+
+    // Age of the oldest change the reader has not applied; a lower bound once that change has been overwritten
+    private long lagNanos(long appliedSequence, long now) {
+        if (appliedSequence >= lastSequence.get()) {
+            return 0;
+        }
+        RoomChange next = slots.get((int) (appliedSequence + 1) & mask);
+        if (next == null || next.sequence() <= appliedSequence) {
+            // Numbered but not yet stored
+            return 0;
+        }
+        return Math.max(0, now - next.publishedAtNanos());
+    }
+
+    void register(Follower follower) {
+        followers.add(follower);
+    }
+
+    void unregister(Follower follower) {
+        followers.remove(follower);
+    }
+
+    @Override
+    public void close() {
+        followers.clear();
+    }
+
+    public record Bootstrap(long fromSequence, Collection<Room> rooms, Set<Integer> blocked) {
+    }
+
+    // A replica following the feed, in this process or over a socket, as seen for lag reporting
+    interface Follower {
+        String name();
+
+        long appliedSequence();
+
+        long resyncCount();
+    }
+}
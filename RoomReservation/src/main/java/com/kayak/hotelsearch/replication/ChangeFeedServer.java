@@ -0,0 +1,223 @@
+package com.kayak.hotelsearch.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.room.Room;
+
+/**
+ * Serves a {@link ChangeFeed} over TCP to {@link RemoteReplica}s in other processes, see
+ * {@link FeedProtocol}. Each connection is streamed from its own virtual thread at the
+ * replica's pace; output is flushed whenever the replica has caught up, so a busy feed
+ * goes out in large writes. The replica's acknowledgements feed the feed's lag report.
+ */
+public final class ChangeFeedServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ChangeFeedServer.class.getName());
+    private static final int BATCH = 1024;
+    private static final int SOCKET_BUFFER_BYTES = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ChangeFeed feed;
+    private final ServerSocket serverSocket;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closing;
+
+    private ChangeFeedServer(Builder builder) throws IOException {
+        this.feed = builder.feed;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(builder.host, builder.port));
+        this.acceptor = new Thread(this::accept, "change-feed-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    public static class Builder {
+        private String host = "127.0.0.1";
+        private int port = 7070;
+        private ChangeFeed feed;
+
+        public Builder host(String host) {
+            if (host == null || host.isBlank()) {
+                throw new IllegalArgumentException("Host cannot be empty");
+            }
+            this.host = host;
+            return this;
+        }
+
+        // 0 picks a free port; see getPort
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("Port must be between 0 and 65535");
+            }
+            this.port = port;
+            return this;
+        }
+
+        public Builder feed(ChangeFeed feed) {
+            this.feed = feed;
+            return this;
+        }
+
+        public ChangeFeedServer build() throws IOException {
+            if (feed == null) {
+                throw new IllegalArgumentException("Feed is required");
+            }
+            return new ChangeFeedServer(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void start() {
+        acceptor.start();
+        LOGGER.info("Serving the room change feed on " + serverSocket.getInetAddress().getHostAddress() + ":" + getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!closing) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                sessions.add(session);
+                Thread.ofVirtual().name("change-feed-" + socket.getRemoteSocketAddress()).start(session::stream);
+            } catch (IOException e) {
+                if (!closing) {
+                    LOGGER.log(Level.WARNING, "Error accepting a replica connection", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+
+    private final class Session implements ChangeFeed.Follower {
+        private final Socket socket;
+        private final ByteBuffer scratch = ByteBuffer.allocate(FeedProtocol.MAX_ROOM_BYTES);
+        private final List<RoomChange> batch = new ArrayList<>(BATCH);
+        private volatile String name;
+        private volatile long acknowledged;
+        private volatile long resyncs;
+
+        Session(Socket socket) {
+            this.socket = socket;
+            this.name = String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        void stream() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream(), SOCKET_BUFFER_BYTES));
+                name = in.readUTF();
+                feed.register(this);
+                Thread.ofVirtual().name("change-feed-acks-" + name).start(() -> readAcknowledgements(in));
+                long next = reload(out);
+                while (!closing && !socket.isClosed()) {
+                    batch.clear();
+                    int drained = feed.drain(next, BATCH, batch::add);
+                    if (drained == ChangeFeed.LAPPED) {
+                        resyncs++;
+                        LOGGER.warning("Replica " + name + " fell more than " + feed.capacity() + " changes behind; reloading");
+                        next = reload(out);
+                    } else if (drained == 0) {
+                        out.flush();
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    } else {
+                        for (RoomChange change : batch) {
+                            out.writeByte(FeedProtocol.CHANGE);
+                            out.writeLong(change.sequence());
+                            FeedProtocol.writeRoom(out, change.room(), change.blocked(), scratch);
+                        }
+                        next += drained;
+                    }
+                }
+            } catch (IOException e) {
+                if (!closing) {
+                    LOGGER.info("Replica " + name + " disconnected: " + e.getMessage());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private long reload(DataOutputStream out) throws IOException {
+            ChangeFeed.Bootstrap bootstrap = feed.bootstrap();
+            out.writeByte(FeedProtocol.RELOAD_BEGIN);
+            for (Room room : bootstrap.rooms()) {
+                out.writeByte(FeedProtocol.ROOM);
+                FeedProtocol.writeRoom(out, room, bootstrap.blocked().contains(room.getRoomNumber()), scratch);
+            }
+            out.writeByte(FeedProtocol.RELOAD_END);
+            out.writeLong(bootstrap.fromSequence() - 1);
+            return bootstrap.fromSequence();
+        }
+
+        private void readAcknowledgements(DataInputStream in) {
+            try {
+                while (true) {
+                    acknowledged = in.readLong();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            feed.unregister(this);
+            sessions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public long appliedSequence() {
+            return acknowledged;
+        }
+
+        @Override
+        public long resyncCount() {
+            return resyncs;
+        }
+    }
+}
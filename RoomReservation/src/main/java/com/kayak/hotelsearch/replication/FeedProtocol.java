@@ -0,0 +1,54 @@
+package com.kayak.hotelsearch.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.kayak.hotelsearch.persistence.RoomCodec;
+import com.kayak.hotelsearch.room.Room;
+
+/**
+ * Wire format between {@link ChangeFeedServer} and {@link RemoteReplica}. The replica
+ * opens with its name ({@link DataOutputStream#writeUTF}) and then acknowledges the last
+ * sequence it applied (a long) whenever it has applied everything received. The server
+ * sends a reload ({@code RELOAD_BEGIN}, a {@code ROOM} frame per room, {@code RELOAD_END}
+ * with the sequence the reload covers) followed by {@code CHANGE} frames. Rooms use the
+ * write-ahead log's {@link RoomCodec} layout, prefixed by their length and followed by a
+ * byte that is 1 while the room is blocked by a hold or nights booked by date.
+ */
+final class FeedProtocol {
+    static final byte RELOAD_BEGIN = 'B';
+    static final byte ROOM = 'R';
+    // Followed by the sequence of the last change the reloaded rooms are taken to include
+    static final byte RELOAD_END = 'E';
+    // Followed by the change's sequence and room
+    static final byte CHANGE = 'C';
+    static final int MAX_ROOM_BYTES = RoomCodec.FIXED_BYTES + RoomCodec.VERSION_BYTES + RoomCodec.MAX_GUEST_BYTES;
+
+    private FeedProtocol() {
+    }
+
+    // Scratch must hold MAX_ROOM_BYTES
+    static void writeRoom(DataOutputStream out, Room room, boolean blocked, ByteBuffer scratch) throws IOException {
+        scratch.clear();
+        RoomCodec.encode(scratch, room, RoomCodec.guestBytes(room));
+        out.writeInt(scratch.position());
+        out.write(scratch.array(), 0, scratch.position());
+        out.writeBoolean(blocked);
+    }
+
+    // Scratch must hold MAX_ROOM_BYTES; the blocked byte that follows is left for readBlocked
+    static Room readRoom(DataInputStream in, byte[] scratch) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > scratch.length) {
+            throw new IOException("Room frame of " + length + " bytes");
+        }
+        in.readFully(scratch, 0, length);
+        return RoomCodec.decode(ByteBuffer.wrap(scratch, 0, length), true);
+    }
+
+    static boolean readBlocked(DataInputStream in) throws IOException {
+        return in.readBoolean();
+    }
+}
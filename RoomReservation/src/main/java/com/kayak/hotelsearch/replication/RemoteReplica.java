@@ -0,0 +1,167 @@
+package com.kayak.hotelsearch.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomReplica;
+
+/**
+ * Keeps a {@link RoomReplica} up to date from a {@link ChangeFeedServer}, typically in
+ * another JVM on the same host. One thread reads and applies the stream and acknowledges
+ * its position whenever it has applied everything received, which is what the server
+ * reports as this replica's lag. Run standalone to follow a feed and log the replica's
+ * size and availability:
+ *
+ * <pre>java -cp ... com.kayak.hotelsearch.replication.RemoteReplica host port [name]</pre>
+ */
+public final class RemoteReplica implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RemoteReplica.class.getName());
+    private static final int SOCKET_BUFFER_BYTES = 64 * 1024;
+    // Acknowledges at least this often under a stream that never lets the input run dry
+    private static final int ACK_EVERY_FRAMES = 1024;
+
+    private final String name;
+    private final InetSocketAddress address;
+    private final RoomReplica replica;
+    private final Socket socket = new Socket();
+    private final Thread thread;
+    private volatile long appliedSequence;
+    private volatile long reloads;
+    private volatile boolean closing;
+
+    public RemoteReplica(String name, String host, int port, RoomReplica replica) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Replica name cannot be empty");
+        }
+        this.name = name;
+        this.address = new InetSocketAddress(host, port);
+        this.replica = replica;
+        this.thread = new Thread(this::follow, "remote-replica-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+        thread.start();
+    }
+
+    private void follow() {
+        byte[] scratch = new byte[FeedProtocol.MAX_ROOM_BYTES];
+        List<Room> reloading = null;
+        Set<Integer> reloadingBlocked = null;
+        int unacknowledged = 0;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), SOCKET_BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(name);
+            out.flush();
+            while (!closing) {
+                byte frame = in.readByte();
+                switch (frame) {
+                    case FeedProtocol.RELOAD_BEGIN:
+                        reloading = new ArrayList<>();
+                        reloadingBlocked = new HashSet<>();
+                        break;
+                    case FeedProtocol.ROOM:
+                        if (reloading == null) {
+                            throw new IOException("Room frame outside a reload");
+                        }
+                        Room room = FeedProtocol.readRoom(in, scratch);
+                        reloading.add(room);
+                        if (FeedProtocol.readBlocked(in)) {
+                            reloadingBlocked.add(room.getRoomNumber());
+                        }
+                        break;
+                    case FeedProtocol.RELOAD_END:
+                        if (reloading == null) {
+                            throw new IOException("Reload end without a reload");
+                        }
+                        long reloadedTo = in.readLong();
+                        replica.reset(reloading, reloadingBlocked);
+                        reloading = null;
+                        reloadingBlocked = null;
+                        reloads++;
+                        appliedSequence = reloadedTo;
+                        break;
+                    case FeedProtocol.CHANGE:
+                        long sequence = in.readLong();
+                        Room changed = FeedProtocol.readRoom(in, scratch);
+                        replica.apply(changed, FeedProtocol.readBlocked(in));
+                        appliedSequence = sequence;
+                        break;
+                    default:
+                        throw new IOException("Unknown frame " + frame);
+                }
+                // Acknowledges once per burst rather than per change
+                if (++unacknowledged >= ACK_EVERY_FRAMES || in.available() == 0) {
+                    out.writeLong(appliedSequence);
+                    out.flush();
+                    unacknowledged = 0;
+                }
+            }
+        } catch (IOException e) {
+            if (!closing) {
+                LOGGER.warning("Replica " + name + " lost its feed: " + e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    public RoomReplica getReplica() {
+        return replica;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // Reloads after the first, each caused by falling a whole ring of changes behind
+    public long getResyncCount() {
+        return Math.max(0, reloads - 1);
+    }
+
+    public boolean isConnected() {
+        return thread.isAlive();
+    }
+
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: RemoteReplica host port [name]");
+            System.exit(2);
+        }
+        String name = args.length > 2 ? args[2] : "replica-" + ProcessHandle.current().pid();
+        try (RemoteReplica remote = new RemoteReplica(name, args[0], Integer.parseInt(args[1]), new RoomReplica())) {
+            remote.start();
+            while (remote.isConnected()) {
+                TimeUnit.SECONDS.sleep(5);
+                LOGGER.info("Replica " + name + " at change " + remote.getAppliedSequence() + ": "
+                        + remote.getReplica().size() + " rooms, " + remote.getReplica().getAvailableRoomCount()
+                        + " available");
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kayak.hotelsearch.replication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.kayak.hotelsearch.room.RoomReplica;
+
+/**
+ * Keeps a {@link RoomReplica} in this process up to date from a {@link ChangeFeed} on a
+ * thread of its own. The replica is loaded from the service's rooms when the follower
+ * starts, and again whenever it falls a whole ring of changes behind.
+ */
+public final class ReplicaFollower implements ChangeFeed.Follower, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ReplicaFollower.class.getName());
+    private static final int BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final String name;
+    private final ChangeFeed feed;
+    private final RoomReplica replica;
+    private final Thread thread;
+    private volatile long appliedSequence;
+    private volatile long resyncs;
+    private volatile boolean closing;
+
+    public ReplicaFollower(String name, ChangeFeed feed, RoomReplica replica) {
+        this.name = name;
+        this.feed = feed;
+        this.replica = replica;
+        this.thread = new Thread(this::run, "replica-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        feed.register(this);
+        thread.start();
+    }
+
+    private void run() {
+        long next = bootstrap();
+        while (!closing) {
+            int drained = feed.drain(next, BATCH, this::apply);
+            if (drained == ChangeFeed.LAPPED) {
+                resyncs++;
+                LOGGER.warning("Replica " + name + " fell more than " + feed.capacity() + " changes behind; reloading");
+                next = bootstrap();
+            } else if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } else {
+                next += drained;
+            }
+        }
+    }
+
+    private long bootstrap() {
+        ChangeFeed.Bootstrap bootstrap = feed.bootstrap();
+        replica.reset(bootstrap.rooms(), bootstrap.blocked());
+        appliedSequence = bootstrap.fromSequence() - 1;
+        return bootstrap.fromSequence();
+    }
+
+    private void apply(RoomChange change) {
+        replica.apply(change.room(), change.blocked());
+        appliedSequence = change.sequence();
+    }
+
+    public RoomReplica getReplica() {
+        return replica;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    @Override
+    public long resyncCount() {
+        return resyncs;
+    }
+
+    @Override
+    public void close() {
+        closing = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        feed.unregister(this);
+    }
+}
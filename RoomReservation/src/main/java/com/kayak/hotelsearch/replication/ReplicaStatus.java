@@ -0,0 +1,12 @@
+package com.kayak.hotelsearch.replication;
+
+/**
+ * How far one replica is behind its feed: the last change it applied, how many changes
+ * have been published since, how long the oldest of those has been waiting, and how
+ * often it fell a whole ring behind and had to reload every room.
+ */
+public record ReplicaStatus(String name, long appliedSequence, long lagChanges, long lagNanos, long resyncCount) {
+    public double getLagMillis() {
+        return lagNanos / 1e6;
+    }
+}
@@ -0,0 +1,11 @@
+package com.kayak.hotelsearch.replication;
+
+import com.kayak.hotelsearch.room.Room;
+
+/**
+ * One entry of a {@link ChangeFeed}: a room's full state after an update, and whether it
+ * is blocked from being booked whole by a hold or nights booked by date, numbered in feed
+ * order and stamped with {@link System#nanoTime()} when it was published.
+ */
+public record RoomChange(long sequence, Room room, boolean blocked, long publishedAtNanos) {
+}
@@ -0,0 +1,11 @@
+package com.kayak.hotelsearch.room;
+
+/**
+ * Observer of every booking attempt made through {@link RoomDatabaseAccessService}.
+ * Called on the booking thread after the room is unlocked, so implementations
+ * should be cheap and must not block.
+ */
+public interface BookingAttemptListener {
+    // roomType is null when the room does not exist or the request was rejected
+    void onBookingAttempt(RoomType roomType, BookingOutcome outcome);
+}
@@ -0,0 +1,9 @@
+package com.kayak.hotelsearch.room;
+
+public enum BookingOutcome {
+    BOOKED, ALREADY_TAKEN, UNKNOWN_ROOM, ERROR,
+    // Outcomes of cancellations: the room or nights were freed, or were not booked to begin with
+    RELEASED, NOT_BOOKED,
+    // The room was taken and the guest is queued for it instead
+    WAITLISTED
+}
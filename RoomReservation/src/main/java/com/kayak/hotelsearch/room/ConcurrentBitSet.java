@@ -0,0 +1,100 @@
+package com.kayak.hotelsearch.room;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Growable bit set safe for concurrent single-bit updates. Bits live in fixed-size
+ * chunks that are allocated on first use and never copied, so growing the chunk
+ * directory cannot lose a concurrent update and sparse ranges cost nothing.
+ */
+final class ConcurrentBitSet {
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_BITS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_BITS >>> 6;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile long[][] chunks = new long[1][];
+
+    // True if this call set the bit, false if it was already set
+    boolean set(int bit) {
+        long[] chunk = chunk(bit >>> CHUNK_SHIFT, true);
+        long previous = (long) WORDS.getAndBitwiseOr(chunk, (bit & (CHUNK_BITS - 1)) >>> 6, 1L << bit);
+        return (previous & (1L << bit)) == 0;
+    }
+
+    // True if this call cleared the bit, false if it was already clear
+    boolean clear(int bit) {
+        long[] chunk = chunk(bit >>> CHUNK_SHIFT, false);
+        if (chunk == null) {
+            return false;
+        }
+        long previous = (long) WORDS.getAndBitwiseAnd(chunk, (bit & (CHUNK_BITS - 1)) >>> 6, ~(1L << bit));
+        return (previous & (1L << bit)) != 0;
+    }
+
+    boolean get(int bit) {
+        long[] chunk = chunk(bit >>> CHUNK_SHIFT, false);
+        return chunk != null
+                && ((long) WORDS.getAcquire(chunk, (bit & (CHUNK_BITS - 1)) >>> 6) & (1L << bit)) != 0;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (long[] chunk : chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                count += Long.bitCount((long) WORDS.getAcquire(chunk, i));
+            }
+        }
+        return count;
+    }
+
+    // Returns the first set bit at or after from, or -1
+    int nextSetBit(int from) {
+        long[][] directory = chunks;
+        for (int c = from >>> CHUNK_SHIFT; c < directory.length; c++) {
+            long[] chunk = directory[c];
+            if (chunk == null) {
+                continue;
+            }
+            int start = c == from >>> CHUNK_SHIFT ? (from & (CHUNK_BITS - 1)) : 0;
+            for (int w = start >>> 6; w < CHUNK_WORDS; w++) {
+                long word = (long) WORDS.getAcquire(chunk, w);
+                if (w == start >>> 6) {
+                    word &= -1L << start;
+                }
+                if (word != 0) {
+                    return (c << CHUNK_SHIFT) + (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private long[] chunk(int index, boolean create) {
+        long[][] directory = chunks;
+        if (index < directory.length && directory[index] != null) {
+            return directory[index];
+        }
+        if (!create) {
+            return null;
+        }
+        synchronized (this) {
+            directory = chunks;
+            if (index >= directory.length) {
+                long[][] grown = new long[Math.max(index + 1, directory.length * 2)][];
+                System.arraycopy(directory, 0, grown, 0, directory.length);
+                directory = grown;
+            }
+            if (directory[index] == null) {
+                directory[index] = new long[CHUNK_WORDS];
+            }
+            // Republishing the directory makes the new chunk visible to lock-free readers
+            chunks = directory;
+            return directory[index];
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+public class ConcurrentHashMapRoomStore implements RoomStore {
+    private final ConcurrentHashMap<Integer, Room> rooms;
+
+    public ConcurrentHashMapRoomStore() {
+        this(16);
+    }
+
+    public ConcurrentHashMapRoomStore(int expectedRooms) {
+        this.rooms = new ConcurrentHashMap<>(expectedRooms);
+    }
+
+    @Override
+    public Room get(int roomNumber) {
+        return rooms.get(roomNumber);
+    }
+
+    @Override
+    public void put(Room room) {
+        rooms.put(room.getRoomNumber(), room);
+    }
+
+    @Override
+    public Room computeIfPresent(int roomNumber, UnaryOperator<Room> update) {
+        return rooms.computeIfPresent(roomNumber, (number, current) -> update.apply(current));
+    }
+
+    @Override
+    public Room compute(int roomNumber, UnaryOperator<Room> update) {
+        return rooms.compute(roomNumber, (number, current) -> update.apply(current));
+    }
+
+    @Override
+    public Collection<Room> values() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    @Override
+    public int size() {
+        return rooms.size();
+    }
+
+    @Override
+    public int countAvailable() {
+        return (int) rooms.values().stream()
+                .filter(Room::isAvailable)
+                .count();
+    }
+}
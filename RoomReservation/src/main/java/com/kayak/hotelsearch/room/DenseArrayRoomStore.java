@@ -0,0 +1,250 @@
+package com.kayak.hotelsearch.room;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Rooms stored column-wise in primitive arrays indexed by {@code roomNumber - firstRoomNumber},
+ * so there is no boxed key, map node or Room object per room. Writers serialise on a
+ * lock stripe and publish through a per-room sequence counter; readers never lock
+ * and retry if a write overlapped their read. All rooms belong to one hotel, which is
+ * kept once for the store rather than per room.
+ */
+public class DenseArrayRoomStore implements RoomStore {
+    private static final int LOCK_STRIPES = 256;
+    private static final byte ABSENT = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final String hotelId;
+    private final int firstRoomNumber;
+    private final int capacity;
+    private final int[] sequences;
+    private final byte[] typeOrdinals;
+    private final double[] prices;
+    private final boolean[] available;
+    private final int[] bookingCounts;
+    private final String[] currentGuests;
+    // LocalDateTime encoded as nanoseconds since 1970-01-01T00:00, NO_TIME when unset
+    private final long[] lastBookingTimes;
+    private final long[] versions;
+    private final Object[] locks;
+    private final AtomicInteger size;
+
+    public DenseArrayRoomStore(int firstRoomNumber, int capacity) {
+        this(Room.DEFAULT_HOTEL, firstRoomNumber, capacity);
+    }
+
+    public DenseArrayRoomStore(String hotelId, int firstRoomNumber, int capacity) {
+        if (hotelId == null || hotelId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Hotel id cannot be null or empty");
+        }
+        if (firstRoomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.hotelId = hotelId;
+        this.firstRoomNumber = firstRoomNumber;
+        this.capacity = capacity;
+        this.sequences = new int[capacity];
+        this.typeOrdinals = new byte[capacity];
+        this.prices = new double[capacity];
+        this.available = new boolean[capacity];
+        this.bookingCounts = new int[capacity];
+        this.currentGuests = new String[capacity];
+        this.lastBookingTimes = new long[capacity];
+        this.versions = new long[capacity];
+        this.size = new AtomicInteger(0);
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        Arrays.fill(typeOrdinals, ABSENT);
+    }
+
+    // Sized to span the lowest through the highest room number in the given rooms
+    public static DenseArrayRoomStore of(Collection<Room> rooms) {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (Room room : rooms) {
+            min = Math.min(min, room.getRoomNumber());
+            max = Math.max(max, room.getRoomNumber());
+        }
+        String hotelId = rooms.isEmpty() ? Room.DEFAULT_HOTEL : rooms.iterator().next().getHotelId();
+        DenseArrayRoomStore store = rooms.isEmpty()
+                ? new DenseArrayRoomStore(hotelId, 1, 0)
+                : new DenseArrayRoomStore(hotelId, min, max - min + 1);
+        rooms.forEach(store::put);
+        return store;
+    }
+
+    @Override
+    public Room get(int roomNumber) {
+        int slot = slot(roomNumber);
+        if (slot < 0) {
+            return null;
+        }
+        while (true) {
+            int sequence = (int) SEQUENCES.getAcquire(sequences, slot);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Room room = read(slot);
+            VarHandle.loadLoadFence();
+            if ((int) SEQUENCES.getOpaque(sequences, slot) == sequence) {
+                return room;
+            }
+        }
+    }
+
+    @Override
+    public void put(Room room) {
+        int slot = slot(room.getRoomNumber());
+        if (slot < 0) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " is outside the store range");
+        }
+        synchronized (lock(slot)) {
+            boolean added = typeOrdinals[slot] == ABSENT;
+            write(slot, room);
+            if (added) {
+                size.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public Room computeIfPresent(int roomNumber, UnaryOperator<Room> update) {
+        int slot = slot(roomNumber);
+        if (slot < 0) {
+            return null;
+        }
+        synchronized (lock(slot)) {
+            // Writers hold the stripe lock, so the fields cannot change underneath this read
+            Room current = read(slot);
+            if (current == null) {
+                return null;
+            }
+            Room updated = update.apply(current);
+            if (updated != current) {
+                write(slot, updated);
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public Room compute(int roomNumber, UnaryOperator<Room> update) {
+        int slot = slot(roomNumber);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Room " + roomNumber + " is outside the store range");
+        }
+        synchronized (lock(slot)) {
+            Room current = read(slot);
+            Room updated = update.apply(current);
+            if (updated != current) {
+                if (current == null) {
+                    size.incrementAndGet();
+                }
+                write(slot, updated);
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public Collection<Room> values() {
+        List<Room> rooms = new ArrayList<>(size.get());
+        for (int slot = 0; slot < capacity; slot++) {
+            Room room = get(firstRoomNumber + slot);
+            if (room != null) {
+                rooms.add(room);
+            }
+        }
+        return Collections.unmodifiableList(rooms);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public int countAvailable() {
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (available[slot] && typeOrdinals[slot] != ABSENT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int slot(int roomNumber) {
+        int slot = roomNumber - firstRoomNumber;
+        return slot >= 0 && slot < capacity ? slot : -1;
+    }
+
+    private Object lock(int slot) {
+        return locks[slot & (LOCK_STRIPES - 1)];
+    }
+
+    private Room read(int slot) {
+        byte type = typeOrdinals[slot];
+        if (type == ABSENT) {
+            return null;
+        }
+        long lastBookingTime = lastBookingTimes[slot];
+        return Room.builder()
+                .hotelId(hotelId)
+                .roomNumber(firstRoomNumber + slot)
+                .roomType(ROOM_TYPES[type])
+                .price(prices[slot])
+                .isAvailable(available[slot])
+                .currentGuest(currentGuests[slot])
+                .lastBookingTime(lastBookingTime == NO_TIME ? null : decodeTime(lastBookingTime))
+                .bookingCount(bookingCounts[slot])
+                .version(versions[slot])
+                .build();
+    }
+
+    // Caller holds the stripe lock; the odd sequence makes concurrent readers retry
+    private void write(int slot, Room room) {
+        if (!hotelId.equals(room.getHotelId())) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " belongs to hotel "
+                    + room.getHotelId() + ", not " + hotelId);
+        }
+        int sequence = sequences[slot];
+        SEQUENCES.setOpaque(sequences, slot, sequence + 1);
+        VarHandle.storeStoreFence();
+        typeOrdinals[slot] = (byte) room.getRoomType().ordinal();
+        prices[slot] = room.getPrice();
+        available[slot] = room.isAvailable();
+        bookingCounts[slot] = room.getBookingCount();
+        currentGuests[slot] = room.getCurrentGuest();
+        lastBookingTimes[slot] = room.getLastBookingTime() == null ? NO_TIME : encodeTime(room.getLastBookingTime());
+        versions[slot] = room.getVersion();
+        SEQUENCES.setRelease(sequences, slot, sequence + 2);
+    }
+
+    private static long encodeTime(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static LocalDateTime decodeTime(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
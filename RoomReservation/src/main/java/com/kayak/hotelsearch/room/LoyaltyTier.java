@@ -0,0 +1,6 @@
+package com.kayak.hotelsearch.room;
+
+// Declared lowest first; waitlisted guests in a higher tier are offered rooms first
+public enum LoyaltyTier {
+    NONE, SILVER, GOLD, PLATINUM
+}
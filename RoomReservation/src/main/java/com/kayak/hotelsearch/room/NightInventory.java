@@ -0,0 +1,462 @@
+package com.kayak.hotelsearch.room;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-room occupancy over a rolling horizon of nights, one bit per room-night.
+ * The bits are kept in two layouts: room-major, so a single room's stay of up to
+ * 64 nights is checked with one or two AND operations, and night-major, so the
+ * number of rooms free for a whole date range is an OR over the nights followed
+ * by a popcount, without touching each room. A room can also be blocked as a whole,
+ * e.g. while it is booked or held without dates, which hides it from every date range
+ * without touching its nights.
+ *
+ * <p>Each reserved stay is also remembered with its guest, so a cancellation releases
+ * only nights the cancelling guest booked, never a neighbouring guest's.
+ *
+ * <p>Nights are stored in a ring indexed by epoch day modulo the horizon length, so
+ * {@link #advanceTo} moves the horizon forward by freeing the nights that fell off its
+ * start for reuse at its end, without copying. Rooms are stored in groups of 64 and
+ * {@link #addRoom} adds groups as needed, so rooms can be added at any time.
+ */
+public class NightInventory {
+    private static final int LOCK_STRIPES = 64;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final Runnable NO_ACTION = () -> {
+    };
+
+    private final int nights;
+    private final int wordsPerRoom;
+    // Epoch day of the first bookable night
+    private volatile long firstDay;
+    // Room slot i lives in groups[i >>> 6], at bit i & 63
+    private volatile Group[] groups;
+    private final ConcurrentHashMap<Integer, Integer> slots = new ConcurrentHashMap<>();
+    // Stays booked per room slot; each list is only touched under the slot's lock
+    private final ConcurrentHashMap<Integer, List<Stay>> stays = new ConcurrentHashMap<>();
+    private final Object[] locks;
+    private volatile int roomCount;
+
+    public NightInventory(LocalDate firstNight, int nights, int capacity) {
+        if (firstNight == null) {
+            throw new IllegalArgumentException("First night cannot be null");
+        }
+        if (nights <= 0) {
+            throw new IllegalArgumentException("Number of nights must be positive");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.firstDay = firstNight.toEpochDay();
+        this.nights = nights;
+        this.wordsPerRoom = (nights + 63) >>> 6;
+        this.groups = new Group[(capacity + 63) >>> 6];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new Group(nights, wordsPerRoom);
+        }
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Capacity given to the constructor is only a sizing hint; rooms beyond it add storage 64 rooms at a time
+    public synchronized void addRoom(int roomNumber) {
+        if (slots.containsKey(roomNumber)) {
+            return;
+        }
+        int slot = roomCount;
+        if ((slot >>> 6) == groups.length) {
+            Group[] grown = Arrays.copyOf(groups, groups.length + 1);
+            grown[groups.length] = new Group(nights, wordsPerRoom);
+            groups = grown;
+        }
+        slots.put(roomNumber, slot);
+        roomCount = slot + 1;
+    }
+
+    public LocalDate getFirstNight() {
+        return LocalDate.ofEpochDay(firstDay);
+    }
+
+    public int getNights() {
+        return nights;
+    }
+
+    /**
+     * Moves the start of the horizon forward to firstNight, so nights up to
+     * {@code nights} after it can be booked. Stays are cut to the nights still in the
+     * horizon and the nights before it are freed; a date earlier than the current start
+     * is ignored.
+     */
+    public synchronized void advanceTo(LocalDate firstNight) {
+        long day = firstNight.toEpochDay();
+        if (day <= firstDay) {
+            return;
+        }
+        // Writers check dates under their slot's lock, so once a slot's lock has been taken below none of its stays starts earlier
+        firstDay = day;
+        int rooms = roomCount;
+        for (int stripe = 0; stripe < LOCK_STRIPES && stripe < rooms; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int slot = stripe; slot < rooms; slot += LOCK_STRIPES) {
+                    List<Stay> booked = stays.get(slot);
+                    if (booked != null) {
+                        dropBefore(slot, booked, day);
+                    }
+                }
+            }
+        }
+    }
+
+    // Lock-free; while advanceTo is freeing rolled-off nights they may briefly read as taken at the end of the horizon
+    public boolean isAvailable(int roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        Integer slot = slots.get(roomNumber);
+        if (slot == null) {
+            return false;
+        }
+        checkStay(checkIn, checkOut);
+        return !isBlocked(slot) && isFree(slot, checkIn.toEpochDay(), checkOut.toEpochDay());
+    }
+
+    // Whether any night of the room is reserved
+    public boolean hasReservations(int roomNumber) {
+        Integer slot = slots.get(roomNumber);
+        return slot != null && stays.containsKey(slot);
+    }
+
+    // Hides the room from, or restores it to, every date range; its reserved nights are kept either way
+    public void setBlocked(int roomNumber, boolean isBlocked) {
+        Integer slot = slots.get(roomNumber);
+        if (slot == null) {
+            return;
+        }
+        long[] blocked = groups[slot >>> 6].blocked;
+        long roomBit = 1L << slot;
+        if (isBlocked) {
+            WORDS.getAndBitwiseOr(blocked, 0, roomBit);
+        } else {
+            WORDS.getAndBitwiseAnd(blocked, 0, ~roomBit);
+        }
+    }
+
+    public boolean tryReserve(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        return tryReserve(roomNumber, guest, checkIn, checkOut, NO_ACTION);
+    }
+
+    // Runs beforeChange under the slot's lock once the nights are known to be free, before they are taken; if it throws, nothing changes
+    public boolean tryReserve(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut, Runnable beforeChange) {
+        requireGuest(guest);
+        Integer slot = slots.get(roomNumber);
+        if (slot == null) {
+            return false;
+        }
+        synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+            // Checked under the lock so advanceTo cannot roll the nights off between the check and the claim
+            checkStay(checkIn, checkOut);
+            long fromDay = checkIn.toEpochDay();
+            long toDay = checkOut.toEpochDay();
+            // Readers never lock, so the check has to be repeated here before claiming the nights
+            if (!isFree(slot, fromDay, toDay)) {
+                return false;
+            }
+            beforeChange.run();
+            mark(slot, fromDay, toDay, true);
+            stays.computeIfAbsent(slot, key -> new ArrayList<>()).add(new Stay(guest, fromDay, toDay));
+            return true;
+        }
+    }
+
+    /**
+     * Cancels the nights [checkIn, checkOut) of a stay the guest booked, which may be the
+     * whole stay or part of it; the rest of a partly cancelled stay stays booked. Returns
+     * false, changing nothing, unless one of the guest's stays covers every one of the nights.
+     */
+    public boolean release(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        return release(roomNumber, guest, checkIn, checkOut, NO_ACTION);
+    }
+
+    // Runs beforeChange under the slot's lock once the guest's stay is found, before any night is freed; if it throws, nothing changes
+    public boolean release(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut, Runnable beforeChange) {
+        requireGuest(guest);
+        Integer slot = slots.get(roomNumber);
+        if (slot == null) {
+            return false;
+        }
+        synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+            checkStay(checkIn, checkOut);
+            long fromDay = checkIn.toEpochDay();
+            long toDay = checkOut.toEpochDay();
+            List<Stay> booked = stays.get(slot);
+            Stay stay = booked == null ? null : find(booked, guest, fromDay, toDay);
+            if (stay == null) {
+                return false;
+            }
+            beforeChange.run();
+            booked.remove(stay);
+            if (stay.from() < fromDay) {
+                booked.add(new Stay(guest, stay.from(), fromDay));
+            }
+            if (toDay < stay.to()) {
+                booked.add(new Stay(guest, toDay, stay.to()));
+            }
+            if (booked.isEmpty()) {
+                stays.remove(slot);
+            }
+            mark(slot, fromDay, toDay, false);
+            return true;
+        }
+    }
+
+    /**
+     * Gives the nights [checkIn, checkOut) to the guest, or frees them when guest is null,
+     * whoever held them before; stays they cut into keep their other nights. Nights outside
+     * the horizon are ignored. Used to restore stays on recovery, where the same change may
+     * be applied twice.
+     */
+    public void restore(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        Integer slot = slots.get(roomNumber);
+        if (slot == null) {
+            return;
+        }
+        synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+            long fromDay = Math.max(checkIn.toEpochDay(), firstDay);
+            long toDay = Math.min(checkOut.toEpochDay(), firstDay + nights);
+            if (fromDay >= toDay) {
+                return;
+            }
+            List<Stay> booked = stays.computeIfAbsent(slot, key -> new ArrayList<>());
+            List<Stay> kept = new ArrayList<>(booked.size() + 2);
+            for (Stay stay : booked) {
+                if (stay.to() <= fromDay || toDay <= stay.from()) {
+                    kept.add(stay);
+                    continue;
+                }
+                if (stay.from() < fromDay) {
+                    kept.add(new Stay(stay.guest(), stay.from(), fromDay));
+                }
+                if (toDay < stay.to()) {
+                    kept.add(new Stay(stay.guest(), toDay, stay.to()));
+                }
+            }
+            mark(slot, fromDay, toDay, guest != null);
+            if (guest != null) {
+                kept.add(new Stay(guest, fromDay, toDay));
+            }
+            if (kept.isEmpty()) {
+                stays.remove(slot);
+            } else {
+                stays.put(slot, kept);
+            }
+        }
+    }
+
+    // Rooms with any night reserved
+    public Set<Integer> getReservedRooms() {
+        Set<Integer> reserved = new HashSet<>();
+        for (Map.Entry<Integer, Integer> entry : slots.entrySet()) {
+            if (stays.containsKey(entry.getValue())) {
+                reserved.add(entry.getKey());
+            }
+        }
+        return reserved;
+    }
+
+    // Every reserved stay, each room's read under its lock
+    public List<StayChange> getStays() {
+        List<StayChange> all = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : slots.entrySet()) {
+            int slot = entry.getValue();
+            synchronized (locks[slot & (LOCK_STRIPES - 1)]) {
+                List<Stay> booked = stays.get(slot);
+                if (booked == null) {
+                    continue;
+                }
+                for (Stay stay : booked) {
+                    all.add(new StayChange(entry.getKey(), stay.guest(),
+                            LocalDate.ofEpochDay(stay.from()), LocalDate.ofEpochDay(stay.to())));
+                }
+            }
+        }
+        return all;
+    }
+
+    public int countAvailable(LocalDate checkIn, LocalDate checkOut) {
+        checkStay(checkIn, checkOut);
+        int from = position(checkIn.toEpochDay());
+        int to = from + (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+        int rooms = roomCount;
+        Group[] current = groups;
+        int count = 0;
+        for (int group = 0; group << 6 < rooms; group++) {
+            long[] nightRooms = current[group].nightRooms;
+            long taken = (long) WORDS.getAcquire(current[group].blocked, 0);
+            for (int night = from; night < Math.min(to, nights); night++) {
+                taken |= (long) WORDS.getAcquire(nightRooms, night);
+            }
+            // A range running past the end of the ring continues from its start
+            for (int night = 0; night < to - nights; night++) {
+                taken |= (long) WORDS.getAcquire(nightRooms, night);
+            }
+            long free = ~taken;
+            int inGroup = rooms - (group << 6);
+            if (inGroup < 64) {
+                free &= (1L << inGroup) - 1;
+            }
+            count += Long.bitCount(free);
+        }
+        return count;
+    }
+
+    // Caller holds the slot's lock; cuts the slot's stays to the nights from day on and frees the rest
+    private void dropBefore(int slot, List<Stay> booked, long day) {
+        List<Stay> kept = new ArrayList<>(booked.size());
+        for (Stay stay : booked) {
+            if (stay.from() >= day) {
+                kept.add(stay);
+                continue;
+            }
+            mark(slot, stay.from(), Math.min(stay.to(), day), false);
+            if (stay.to() > day) {
+                kept.add(new Stay(stay.guest(), day, stay.to()));
+            }
+        }
+        if (kept.isEmpty()) {
+            stays.remove(slot);
+        } else {
+            stays.put(slot, kept);
+        }
+    }
+
+    // The guest's stay covering every night in [fromDay, toDay), or null
+    private static Stay find(List<Stay> booked, String guest, long fromDay, long toDay) {
+        for (Stay stay : booked) {
+            if (stay.guest().equals(guest) && stay.from() <= fromDay && toDay <= stay.to()) {
+                return stay;
+            }
+        }
+        return null;
+    }
+
+    private static void requireGuest(String guest) {
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+    }
+
+    private boolean isBlocked(int slot) {
+        return ((long) WORDS.getAcquire(groups[slot >>> 6].blocked, 0) & (1L << slot)) != 0;
+    }
+
+    private boolean isFree(int slot, long fromDay, long toDay) {
+        long[] roomNights = groups[slot >>> 6].roomNights;
+        int base = (slot & 63) * wordsPerRoom;
+        int from = position(fromDay);
+        int to = from + (int) (toDay - fromDay);
+        if (to <= nights) {
+            return isFree(roomNights, base, from, to);
+        }
+        return isFree(roomNights, base, from, nights) && isFree(roomNights, base, 0, to - nights);
+    }
+
+    private static boolean isFree(long[] roomNights, int base, int from, int to) {
+        int last = (to - 1) >>> 6;
+        for (int word = from >>> 6; word <= last; word++) {
+            if (((long) WORDS.getAcquire(roomNights, base + word) & mask(word, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caller holds the slot's lock; sets or clears the nights [fromDay, toDay) in both layouts
+    private void mark(int slot, long fromDay, long toDay, boolean taken) {
+        Group group = groups[slot >>> 6];
+        int from = position(fromDay);
+        int to = from + (int) (toDay - fromDay);
+        if (to <= nights) {
+            mark(group, slot, from, to, taken);
+        } else {
+            mark(group, slot, from, nights, taken);
+            mark(group, slot, 0, to - nights, taken);
+        }
+    }
+
+    private void mark(Group group, int slot, int from, int to, boolean taken) {
+        int base = (slot & 63) * wordsPerRoom;
+        int last = (to - 1) >>> 6;
+        long roomBit = 1L << slot;
+        for (int word = from >>> 6; word <= last; word++) {
+            long mask = mask(word, from, to);
+            if (taken) {
+                WORDS.getAndBitwiseOr(group.roomNights, base + word, mask);
+            } else {
+                WORDS.getAndBitwiseAnd(group.roomNights, base + word, ~mask);
+            }
+        }
+        for (int night = from; night < to; night++) {
+            if (taken) {
+                WORDS.getAndBitwiseOr(group.nightRooms, night, roomBit);
+            } else {
+                WORDS.getAndBitwiseAnd(group.nightRooms, night, ~roomBit);
+            }
+        }
+    }
+
+    private int position(long day) {
+        return (int) Math.floorMod(day, (long) nights);
+    }
+
+    private void checkStay(LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null) {
+            throw new IllegalArgumentException("Stay dates cannot be null");
+        }
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out must be after check-in");
+        }
+        long first = firstDay;
+        if (checkIn.toEpochDay() < first) {
+            throw new IllegalArgumentException("Date " + checkIn + " is outside the inventory horizon");
+        }
+        if (checkOut.toEpochDay() > first + nights) {
+            throw new IllegalArgumentException("Date " + checkOut + " is outside the inventory horizon");
+        }
+    }
+
+    // Bits of the given word that fall inside the night range [from, to)
+    private static long mask(int word, int from, int to) {
+        int base = word << 6;
+        int lo = Math.max(from, base) - base;
+        int hi = Math.min(to, base + 64) - base;
+        long upper = hi == 64 ? -1L : (1L << hi) - 1;
+        return upper & (-1L << lo);
+    }
+
+    // Storage for 64 room slots
+    private static final class Group {
+        // Slot s owns roomNights[s * wordsPerRoom, (s + 1) * wordsPerRoom), bit n set when the night at ring position n is taken
+        final long[] roomNights;
+        // Bit s of nightRooms[n] set when slot s is taken on the night at ring position n
+        final long[] nightRooms;
+        // Bit s set while slot s is blocked for every night
+        final long[] blocked = new long[1];
+
+        Group(int nights, int wordsPerRoom) {
+            this.roomNights = new long[64 * wordsPerRoom];
+            this.nightRooms = new long[nights];
+        }
+    }
+
+    // Nights [from, to) as epoch days
+    private record Stay(String guest, long from, long to) {
+    }
+}
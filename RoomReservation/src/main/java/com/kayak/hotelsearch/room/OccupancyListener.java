@@ -0,0 +1,9 @@
+package com.kayak.hotelsearch.room;
+
+/**
+ * Observer of changes in how many rooms of a type are available. Called while the
+ * changed room is still locked, so implementations must be cheap and must not block.
+ */
+public interface OccupancyListener {
+    void onOccupancyChanged(RoomType roomType);
+}
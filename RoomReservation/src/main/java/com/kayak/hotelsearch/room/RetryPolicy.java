@@ -0,0 +1,77 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded retries with jittered exponential backoff for conditional room updates. Before
+ * retry n the caller sleeps a random time up to min(maxBackoff, initialBackoff * 2^(n-1)),
+ * so writers that collided on a hot room spread out instead of colliding again.
+ */
+public final class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MICROSECONDS.toNanos(builder.initialBackoffMicros);
+        this.maxBackoffNanos = TimeUnit.MICROSECONDS.toNanos(builder.maxBackoffMicros);
+    }
+
+    public static class Builder {
+        private int maxAttempts = 8;
+        private long initialBackoffMicros = 50;
+        private long maxBackoffMicros = 10_000;
+
+        // Including the first try
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("Max attempts must be positive");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder initialBackoffMicros(long initialBackoffMicros) {
+            if (initialBackoffMicros < 0) {
+                throw new IllegalArgumentException("Backoff cannot be negative");
+            }
+            this.initialBackoffMicros = initialBackoffMicros;
+            return this;
+        }
+
+        public Builder maxBackoffMicros(long maxBackoffMicros) {
+            if (maxBackoffMicros < 0) {
+                throw new IllegalArgumentException("Backoff cannot be negative");
+            }
+            this.maxBackoffMicros = maxBackoffMicros;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    // Sleeps before the given retry, 1 being the first retry after the initial try
+    void backoff(int retry) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(retry - 1, 30));
+        if (ceiling > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+}
@@ -4,6 +4,10 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 public final class Room {
+    // Hotel of rooms built without one, so single-hotel callers keep working unchanged
+    public static final String DEFAULT_HOTEL = "default";
+
+    private final String hotelId;
     private final int roomNumber;
     private final RoomType roomType;
     private final double price;
@@ -11,8 +15,11 @@ public final class Room {
     private final String currentGuest;
     private final LocalDateTime lastBookingTime;
     private final int bookingCount;
+    // Bumped by every change the room service makes, so conditional writes can detect a concurrent one
+    private final long version;
 
     private Room(Builder builder) {
+        this.hotelId = builder.hotelId;
         this.roomNumber = builder.roomNumber;
         this.roomType = builder.roomType;
         this.price = builder.price;
@@ -20,9 +27,11 @@ public final class Room {
         this.currentGuest = builder.currentGuest;
         this.lastBookingTime = builder.lastBookingTime;
         this.bookingCount = builder.bookingCount;
+        this.version = builder.version;
     }
 
     public static class Builder {
+        private String hotelId = DEFAULT_HOTEL;
         private int roomNumber;
         private RoomType roomType;
         private double price;
@@ -30,6 +39,15 @@ public final class Room {
         private String currentGuest;
         private LocalDateTime lastBookingTime;
         private int bookingCount;
+        private long version;
+
+        public Builder hotelId(String hotelId) {
+            if (hotelId == null || hotelId.trim().isEmpty()) {
+                throw new IllegalArgumentException("Hotel id cannot be null or empty");
+            }
+            this.hotelId = hotelId;
+            return this;
+        }
 
         public Builder roomNumber(int roomNumber) {
             if (roomNumber <= 0) {
@@ -78,6 +96,14 @@ public final class Room {
             return this;
         }
 
+        public Builder version(long version) {
+            if (version < 0) {
+                throw new IllegalArgumentException("Version cannot be negative");
+            }
+            this.version = version;
+            return this;
+        }
+
         public Room build() {
             return new Room(this);
         }
@@ -95,6 +121,7 @@ public final class Room {
             return this;
         }
         return new Builder()
+                .hotelId(this.hotelId)
                 .roomNumber(this.roomNumber)
                 .roomType(this.roomType)
                 .price(this.price)
@@ -102,6 +129,7 @@ public final class Room {
                 .currentGuest(guest)
                 .lastBookingTime(LocalDateTime.now())
                 .bookingCount(this.bookingCount + 1)
+                .version(this.version + 1)
                 .build();
     }
 
@@ -110,11 +138,49 @@ public final class Room {
             return this;
         }
         return new Builder()
+                .hotelId(this.hotelId)
                 .roomNumber(this.roomNumber)
                 .roomType(this.roomType)
                 .price(this.price)
                 .isAvailable(true)
                 .bookingCount(this.bookingCount)
+                .version(this.version + 1)
+                .build();
+    }
+
+    // Same room state under another hotel, e.g. for records restored from a hotel's own data directory
+    public Room inHotel(String hotelId) {
+        if (this.hotelId.equals(hotelId)) {
+            return this;
+        }
+        return new Builder()
+                .hotelId(hotelId)
+                .roomNumber(this.roomNumber)
+                .roomType(this.roomType)
+                .price(this.price)
+                .isAvailable(this.isAvailable)
+                .currentGuest(this.currentGuest)
+                .lastBookingTime(this.lastBookingTime)
+                .bookingCount(this.bookingCount)
+                .version(this.version)
+                .build();
+    }
+
+    // Same room state at another version
+    public Room withVersion(long version) {
+        if (this.version == version) {
+            return this;
+        }
+        return new Builder()
+                .hotelId(this.hotelId)
+                .roomNumber(this.roomNumber)
+                .roomType(this.roomType)
+                .price(this.price)
+                .isAvailable(this.isAvailable)
+                .currentGuest(this.currentGuest)
+                .lastBookingTime(this.lastBookingTime)
+                .bookingCount(this.bookingCount)
+                .version(version)
                 .build();
     }
 
@@ -122,6 +188,10 @@ public final class Room {
         return isAvailable;
     }
 
+    public String getHotelId() {
+        return hotelId;
+    }
+
     public int getRoomNumber() {
         return roomNumber;
     }
@@ -146,29 +216,35 @@ public final class Room {
         return bookingCount;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Room room = (Room) o;
-        return roomNumber == room.roomNumber;
+        return roomNumber == room.roomNumber && hotelId.equals(room.hotelId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(roomNumber);
+        return Objects.hash(hotelId, roomNumber);
     }
 
     @Override
     public String toString() {
         return "Room{" +
-                "roomNumber=" + roomNumber +
+                "hotelId='" + hotelId + '\'' +
+                ", roomNumber=" + roomNumber +
                 ", roomType=" + roomType +
                 ", price=" + price +
                 ", isAvailable=" + isAvailable +
                 ", currentGuest='" + currentGuest + '\'' +
                 ", lastBookingTime=" + lastBookingTime +
                 ", bookingCount=" + bookingCount +
+                ", version=" + version +
                 '}';
     }
 }
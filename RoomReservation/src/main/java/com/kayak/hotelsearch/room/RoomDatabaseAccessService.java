@@ -1,94 +1,603 @@
 package com.kayak.hotelsearch.room;
 
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.cache.CachingRoomStore;
+import com.kayak.hotelsearch.concurrent.TimerWheel;
 
 public class RoomDatabaseAccessService {
+    private static final int BOOKING_HORIZON_NIGHTS = 365;
+    // "concurrent" (default), "dense", or "cached" for a bounded cache over a simulated slow repository
+    private static final String ROOM_STORE = System.getProperty("booking.roomStore", "concurrent");
+    private static final int CACHE_SIZE = Integer.getInteger("booking.cacheSize", 10_000);
+    private static final long REPOSITORY_READ_MICROS = Long.getLong("booking.repositoryReadMicros", 500);
+    private static final long REPOSITORY_WRITE_MICROS = Long.getLong("booking.repositoryWriteMicros", 2000);
+    private static final long HOLD_TICK_MILLIS = Long.getLong("booking.holdTickMillis", 100);
+    private static final int HOLD_WHEEL_SIZE = 512;
+    private static final int WAITLIST_CAPACITY = Integer.getInteger("booking.waitlistCapacity", 10_000);
     private static RoomDatabaseAccessService instance;
-    private final ConcurrentHashMap<Integer, Room> roomCache;
+    private final RoomStore roomCache;
+    private final NightInventory nightInventory;
+    // When the night inventory's horizon next has to move on to start from the new day
+    private volatile long nextRollMillis;
+    private final RoomIndex roomIndex;
     private final AtomicInteger totalBookings;
     private final AtomicInteger successfulBookings;
+    private final List<RoomUpdateListener> updateListeners;
+    // Changed only under the room's lock, alongside the index update that hides or restores the room
+    private final Map<Integer, RoomHold> holdsByRoom = new ConcurrentHashMap<>();
+    private final AtomicLong expiredHolds = new AtomicLong();
+    private final LongAdder versionConflicts = new LongAdder();
+    private final Waitlist waitlist = new Waitlist(WAITLIST_CAPACITY);
+    private final LongAdder waitlistMatches = new LongAdder();
+    // An array rather than a CopyOnWriteArrayList so notifying does not allocate an iterator per booking
+    private volatile BookingAttemptListener[] attemptListeners = new BookingAttemptListener[0];
+
+    // Standalone instance over a caller-supplied room set, e.g. for benchmarks at catalogue scale
+    public RoomDatabaseAccessService(Collection<Room> rooms) {
+        this(createRoomStore("concurrent", rooms));
+    }
 
-    private RoomDatabaseAccessService() {
-        roomCache = new ConcurrentHashMap<>();
+    public RoomDatabaseAccessService(RoomStore roomStore) {
+        roomCache = roomStore;
         totalBookings = new AtomicInteger(0);
         successfulBookings = new AtomicInteger(0);
-        initializeRooms();
+        updateListeners = new CopyOnWriteArrayList<>();
+        // The one full read of the store; everything after it is answered from the indexes
+        Collection<Room> rooms = roomCache.values();
+        roomIndex = new RoomIndex(rooms);
+        nightInventory = new NightInventory(LocalDate.now(), BOOKING_HORIZON_NIGHTS, rooms.size());
+        for (Room room : rooms) {
+            nightInventory.addRoom(room.getRoomNumber());
+            nightInventory.setBlocked(room.getRoomNumber(), !room.isAvailable());
+        }
+        nextRollMillis = startOfNextDayMillis(LocalDate.now());
+    }
+
+    public static RoomStore createRoomStore(String kind, Collection<Room> rooms) {
+        switch (kind) {
+            case "concurrent":
+                RoomStore store = new ConcurrentHashMapRoomStore(rooms.size());
+                rooms.forEach(store::put);
+                return store;
+            case "dense":
+                return DenseArrayRoomStore.of(rooms);
+            case "cached":
+                return CachingRoomStore.builder()
+                        .repository(SimulatedLatencyRoomRepository.builder()
+                                .rooms(rooms)
+                                .readLatencyMicros(REPOSITORY_READ_MICROS)
+                                .writeLatencyMicros(REPOSITORY_WRITE_MICROS)
+                                .build())
+                        .maximumSize(CACHE_SIZE)
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown room store: " + kind);
+        }
     }
 
     public static synchronized RoomDatabaseAccessService getInstance() {
         if (instance == null) {
-            instance = new RoomDatabaseAccessService();
+            instance = new RoomDatabaseAccessService(createDefaultRoomStore());
         }
         return instance;
     }
 
-    private void initializeRooms() {
-        roomCache.put(101, Room.builder()
-                .roomNumber(101)
-                .roomType(RoomType.STANDARD)
-                .price(100.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(102, Room.builder()
-                .roomNumber(102)
-                .roomType(RoomType.STANDARD)
-                .price(100.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(103, Room.builder()
-                .roomNumber(103)
-                .roomType(RoomType.DELUXE)
-                .price(200.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(104, Room.builder()
-                .roomNumber(104)
-                .roomType(RoomType.DELUXE)
-                .price(200.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(105, Room.builder()
-                .roomNumber(105)
-                .roomType(RoomType.SUITE)
-                .price(300.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(106, Room.builder()
-                .roomNumber(106)
-                .roomType(RoomType.SUITE)
-                .price(300.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
-        roomCache.put(107, Room.builder()
-                .roomNumber(107)
-                .roomType(RoomType.PRESIDENTIAL)
-                .price(500.0)
-                .isAvailable(true)
-                .bookingCount(0)
-                .build());
+    // The store getInstance builds when nothing was installed through setInstance
+    public static RoomStore createDefaultRoomStore() {
+        return createRoomStore(ROOM_STORE, initializeRooms());
+    }
+
+    // Visible for startup code that restores room state before installing the singleton
+    public static synchronized void setInstance(RoomDatabaseAccessService service) {
+        if (instance != null) {
+            throw new IllegalStateException("Room service is already initialised");
+        }
+        instance = service;
+    }
+
+    // Visible for tests so each test starts from the initial room set and zeroed counters
+    static synchronized void resetInstance() {
+        instance = null;
+    }
+
+    // One wheel and worker thread expire the holds of every service instance; started on the first hold
+    private static final class HoldExpiry {
+        private static final TimerWheel WHEEL = new TimerWheel(HOLD_TICK_MILLIS, HOLD_WHEEL_SIZE, "hold-expiry");
+        // Rooms freed by expiry are offered to the waitlist here, so booking them, and listeners that wait
+        // for the booking to be durable, never hold up the wheel's one thread and the other holds due on it
+        private static final ExecutorService WAITLIST_MATCHER =
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("waitlist-match-", 0).factory());
+    }
+
+    private static List<Room> initializeRooms() {
+        return List.of(
+                Room.builder()
+                        .roomNumber(101)
+                        .roomType(RoomType.STANDARD)
+                        .price(100.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(102)
+                        .roomType(RoomType.STANDARD)
+                        .price(100.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(103)
+                        .roomType(RoomType.DELUXE)
+                        .price(200.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(104)
+                        .roomType(RoomType.DELUXE)
+                        .price(200.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(105)
+                        .roomType(RoomType.SUITE)
+                        .price(300.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(106)
+                        .roomType(RoomType.SUITE)
+                        .price(300.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build(),
+                Room.builder()
+                        .roomNumber(107)
+                        .roomType(RoomType.PRESIDENTIAL)
+                        .price(500.0)
+                        .isAvailable(true)
+                        .bookingCount(0)
+                        .build());
     }
 
     public Room loadRoom(int roomNumber) {
         if (roomNumber <= 0) {
             throw new IllegalArgumentException("Room number must be positive");
         }
-        totalBookings.incrementAndGet();
         return roomCache.get(roomNumber);
     }
 
+    public boolean tryBook(int roomNumber, String guest) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        totalBookings.incrementAndGet();
+        return book(roomNumber, guest) != null;
+    }
+
+    /**
+     * Books whichever available room of the type comes off the type's free list first, for
+     * callers that do not need a particular room. Returns the booked room, or null when no
+     * room of the type is available. Threads booking the same type take different rooms
+     * from a striped lock-free list instead of finding the same one and racing for it.
+     */
+    public Room bookAnyOfType(RoomType roomType, String guest) {
+        if (roomType == null) {
+            throw new IllegalArgumentException("Room type cannot be null");
+        }
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        totalBookings.incrementAndGet();
+        // Listed rooms booked or held since are dropped as they come off, so each pop books or discards one entry
+        for (int roomNumber = roomIndex.pollFree(roomType); roomNumber > 0; roomNumber = roomIndex.pollFree(roomType)) {
+            Room booked = claim(roomNumber, roomType, guest);
+            if (booked != null) {
+                notifyAttempt(roomType, BookingOutcome.BOOKED);
+                return booked;
+            }
+        }
+        notifyAttempt(roomType, BookingOutcome.ALREADY_TAKEN);
+        return null;
+    }
+
+    /**
+     * Books a batch of requests and returns whether each one succeeded, in request order.
+     * Requests are grouped by room and each room is updated once; when several requests
+     * want the same room or overlapping nights, the earliest one in the batch wins.
+     * Unlike {@link #tryBook(int, String)}, an invalid request fails on its own instead of
+     * throwing, so one bad entry does not abort the rest of the batch.
+     */
+    public boolean[] bookAll(List<BookingRequest> requests) {
+        boolean[] results = new boolean[requests.size()];
+        bookAll(requests, results);
+        return results;
+    }
+
+    /**
+     * Like {@link #bookAll(List)}, but sets results[i] as soon as request i is booked, so a
+     * caller whose batch is cut short, e.g. by {@link UpdateNotDurableException} when the
+     * log fails, still learns which requests were booked before it stopped.
+     */
+    public void bookAll(List<BookingRequest> requests, boolean[] results) {
+        Map<Integer, List<Integer>> byRoom = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            if (request.getRoomNumber() > 0 && request.getGuest() != null && !request.getGuest().trim().isEmpty()) {
+                byRoom.computeIfAbsent(request.getRoomNumber(), room -> new ArrayList<>()).add(i);
+            } else {
+                notifyAttempt(null, BookingOutcome.ERROR);
+            }
+        }
+        totalBookings.addAndGet(requests.size());
+
+        for (Map.Entry<Integer, List<Integer>> entry : byRoom.entrySet()) {
+            int firstPlain = -1;
+            for (int index : entry.getValue()) {
+                BookingRequest request = requests.get(index);
+                if (request.hasStayDates()) {
+                    try {
+                        results[index] = tryReserve(request);
+                    } catch (UpdateNotDurableException e) {
+                        results[index] = true;
+                        throw e;
+                    }
+                } else if (firstPlain < 0) {
+                    firstPlain = index;
+                } else {
+                    RoomType roomType = roomIndex.typeOf(entry.getKey());
+                    notifyAttempt(roomType, roomType == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.ALREADY_TAKEN);
+                }
+            }
+            // Later plain requests for the same room can only find it taken, so only the first reaches the store
+            if (firstPlain >= 0) {
+                try {
+                    results[firstPlain] = book(entry.getKey(), requests.get(firstPlain).getGuest()) != null;
+                } catch (UpdateNotDurableException e) {
+                    results[firstPlain] = true;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // The booked room, or null if it was unknown, taken or held
+    private Room book(int roomNumber, String guest) {
+        Room booked = claim(roomNumber, null, guest);
+        if (booked != null) {
+            notifyAttempt(booked.getRoomType(), BookingOutcome.BOOKED);
+        } else {
+            RoomType roomType = roomIndex.typeOf(roomNumber);
+            notifyAttempt(roomType, roomType == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.ALREADY_TAKEN);
+        }
+        return booked;
+    }
+
+    // Books the room if it exists, is available, is not held, has no nights booked and, unless roomType is null, is of that type
+    private Room claim(int roomNumber, RoomType roomType, String guest) {
+        // The remapping function runs atomically per key, so only one thread can
+        // swap an available Room for its booked copy; everyone else sees it taken.
+        boolean[] booked = new boolean[1];
+        Room result;
+        try {
+            result = roomCache.computeIfPresent(roomNumber, current -> {
+                if (!current.isAvailable() || holdsByRoom.containsKey(roomNumber)
+                        || (roomType != null && current.getRoomType() != roomType)
+                        || nightInventory.hasReservations(roomNumber)) {
+                    return current;
+                }
+                Room updated = notifyUpdated(current.bookRoom(guest));
+                booked[0] = true;
+                return updated;
+            });
+        } finally {
+            if (booked[0]) {
+                successfulBookings.incrementAndGet();
+                afterUpdate(BookingOutcome.BOOKED);
+            }
+        }
+        return booked[0] ? result : null;
+    }
+
+    private boolean tryReserve(BookingRequest request) {
+        try {
+            return reserveNights(request.getRoomNumber(), request.getGuest(), request.getCheckIn(), request.getCheckOut());
+        } catch (IllegalArgumentException e) {
+            notifyAttempt(null, BookingOutcome.ERROR);
+            return false;
+        }
+    }
+
+    // Runs under the room's lock, so a room is never booked by night while claim or tryHold is taking it whole
+    private boolean reserveNights(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        checkStay(checkIn, checkOut);
+        rollHorizon();
+        boolean[] reserved = new boolean[1];
+        try {
+            roomCache.computeIfPresent(roomNumber, current -> {
+                if (current.isAvailable() && !holdsByRoom.containsKey(roomNumber)) {
+                    boolean first = !nightInventory.hasReservations(roomNumber);
+                    reserved[0] = nightInventory.tryReserve(roomNumber, guest, checkIn, checkOut,
+                            () -> notifyStayChanged(new StayChange(roomNumber, guest, checkIn, checkOut)));
+                    if (reserved[0] && first) {
+                        // Off the undated available sets until its last stay is cancelled
+                        index(current, false);
+                    }
+                }
+                return current;
+            });
+        } finally {
+            if (reserved[0]) {
+                successfulBookings.incrementAndGet();
+                afterUpdate(BookingOutcome.BOOKED);
+            }
+        }
+        boolean booked = reserved[0];
+        RoomType roomType = roomIndex.typeOf(roomNumber);
+        if (booked) {
+            notifyAttempt(roomType, BookingOutcome.BOOKED);
+        } else {
+            notifyAttempt(roomType, roomType == null ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.ALREADY_TAKEN);
+        }
+        return booked;
+    }
+
+    public boolean tryUnbook(int roomNumber) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        boolean[] released = new boolean[1];
+        try {
+            roomCache.computeIfPresent(roomNumber, current -> {
+                if (current.isAvailable()) {
+                    return current;
+                }
+                Room updated = notifyUpdated(current.unbookRoom());
+                released[0] = true;
+                return updated;
+            });
+        } finally {
+            if (released[0]) {
+                afterUpdate(BookingOutcome.RELEASED);
+            }
+        }
+        if (released[0]) {
+            offerToWaitlist(roomNumber);
+        }
+        return released[0];
+    }
+
+    /**
+     * Sets an available room aside for the guest for {@code ttl}, or returns null when the
+     * room is unknown, booked, already held, or has nights booked by date. Nobody else can
+     * book a held room, by night or otherwise; the hold ends when it is confirmed, released,
+     * or expires. Holds live in memory only and cover the undated booking path.
+     */
+    public RoomHold tryHold(int roomNumber, String guest, Duration ttl) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        RoomHold[] placed = new RoomHold[1];
+        roomCache.computeIfPresent(roomNumber, current -> {
+            if (current.isAvailable() && !holdsByRoom.containsKey(roomNumber)
+                    && !nightInventory.hasReservations(roomNumber)) {
+                RoomHold hold = new RoomHold(roomNumber, guest, Instant.now().plus(ttl));
+                holdsByRoom.put(roomNumber, hold);
+                index(current, true);
+                // Expiry takes the room's lock too, so it cannot run before this returns
+                hold.setExpiry(HoldExpiry.WHEEL.schedule(() -> expire(hold), ttl.toNanos(), TimeUnit.NANOSECONDS));
+                placed[0] = hold;
+            }
+            return current;
+        });
+        return placed[0];
+    }
+
+    // Books the held room for its guest; false once the hold has expired or been released
+    public boolean confirmHold(RoomHold hold) {
+        if (hold == null) {
+            throw new IllegalArgumentException("Hold cannot be null");
+        }
+        totalBookings.incrementAndGet();
+        boolean[] booked = new boolean[1];
+        Room result;
+        try {
+            result = roomCache.computeIfPresent(hold.getRoomNumber(), current -> {
+                if (holdsByRoom.get(hold.getRoomNumber()) != hold) {
+                    return current;
+                }
+                Room updated = current.bookRoom(hold.getGuest());
+                notifyListeners(updated);
+                // Ended only once the booking is logged, so a failed append leaves the hold in place
+                holdsByRoom.remove(hold.getRoomNumber());
+                hold.cancelExpiry();
+                index(updated, false);
+                booked[0] = true;
+                return updated;
+            });
+        } finally {
+            if (booked[0]) {
+                successfulBookings.incrementAndGet();
+                afterUpdate(BookingOutcome.BOOKED);
+            }
+        }
+        if (result == null) {
+            notifyAttempt(null, BookingOutcome.UNKNOWN_ROOM);
+        } else {
+            notifyAttempt(result.getRoomType(), booked[0] ? BookingOutcome.BOOKED : BookingOutcome.ALREADY_TAKEN);
+        }
+        return booked[0];
+    }
+
+    // Gives the room back before the hold expires; false if it had already ended
+    public boolean releaseHold(RoomHold hold) {
+        if (hold == null) {
+            throw new IllegalArgumentException("Hold cannot be null");
+        }
+        if (!release(hold)) {
+            return false;
+        }
+        offerToWaitlist(hold.getRoomNumber());
+        return true;
+    }
+
+    public int getActiveHoldCount() {
+        return holdsByRoom.size();
+    }
+
+    public long getExpiredHoldCount() {
+        return expiredHolds.get();
+    }
+
+    /**
+     * Puts the guest on the waitlist for the room. When the room is released by
+     * {@link #tryUnbook} or a hold ending, it is booked for the highest-tier guest waiting
+     * for it or for any room of its type, earliest first within a tier. Returns null when
+     * the room is unknown or the waitlist is full. Like holds, the waitlist is kept in
+     * memory and covers the undated booking path.
+     */
+    public WaitlistEntry joinWaitlist(int roomNumber, String guest, LoyaltyTier loyaltyTier) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        RoomType roomType = roomIndex.typeOf(roomNumber);
+        if (roomType == null) {
+            return null;
+        }
+        WaitlistEntry entry = join(roomNumber, roomType, guest, loyaltyTier);
+        // The room may have been released before the guest was queued, with nobody waiting to take it
+        if (entry != null && isRoomAvailable(roomNumber)) {
+            offerToWaitlist(roomNumber);
+        }
+        return entry;
+    }
+
+    // As joinWaitlist(int, ...), for whichever room of the type is released first
+    public WaitlistEntry joinWaitlist(RoomType roomType, String guest, LoyaltyTier loyaltyTier) {
+        if (roomType == null) {
+            throw new IllegalArgumentException("Room type cannot be null");
+        }
+        WaitlistEntry entry = join(0, roomType, guest, loyaltyTier);
+        if (entry != null) {
+            for (Room room : findAvailableRooms(RoomQuery.builder().roomType(roomType).limit(1).build())) {
+                offerToWaitlist(room.getRoomNumber());
+            }
+        }
+        return entry;
+    }
+
+    // False if the guest had already been given a room or had left
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("Waitlist entry cannot be null");
+        }
+        return waitlist.cancel(entry);
+    }
+
+    public int getWaitlistSize() {
+        return waitlist.size();
+    }
+
+    // Rooms booked for waitlisted guests as they were released
+    public long getWaitlistMatchCount() {
+        return waitlistMatches.sum();
+    }
+
+    public boolean tryBook(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        totalBookings.incrementAndGet();
+        return reserveNights(roomNumber, guest, checkIn, checkOut);
+    }
+
+    // Cancels nights the guest booked, all of a stay or part of it; false unless one of the guest's stays covers them
+    public boolean cancelStay(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("Room number must be positive");
+        }
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        checkStay(checkIn, checkOut);
+        rollHorizon();
+        boolean[] released = new boolean[1];
+        try {
+            roomCache.computeIfPresent(roomNumber, current -> {
+                released[0] = nightInventory.release(roomNumber, guest, checkIn, checkOut,
+                        () -> notifyStayChanged(new StayChange(roomNumber, null, checkIn, checkOut)));
+                if (released[0] && !nightInventory.hasReservations(roomNumber)) {
+                    index(current, holdsByRoom.containsKey(roomNumber));
+                }
+                return current;
+            });
+        } finally {
+            if (released[0]) {
+                afterUpdate(BookingOutcome.RELEASED);
+            }
+        }
+        return released[0];
+    }
+
+    // Applies a stay read back from persistence without telling the listeners, e.g. before the log is reopened
+    public void restoreStay(StayChange change) {
+        rollHorizon();
+        roomCache.computeIfPresent(change.roomNumber(), current -> {
+            nightInventory.restore(change.roomNumber(), change.guest(), change.checkIn(), change.checkOut());
+            index(current, holdsByRoom.containsKey(change.roomNumber()));
+            return current;
+        });
+    }
+
+    // For bookings made outside tryBook; counts as an attempt as well as a success
     public void recordSuccessfulBooking() {
+        totalBookings.incrementAndGet();
         successfulBookings.incrementAndGet();
     }
 
+    public int getTotalBookingAttempts() {
+        return totalBookings.get();
+    }
+
     public int getSuccessfulBookings() {
         return successfulBookings.get();
     }
@@ -107,18 +616,332 @@ public class RoomDatabaseAccessService {
 
     public boolean isRoomAvailable(int roomNumber) {
         Room room = roomCache.get(roomNumber);
-        return room != null && room.isAvailable();
+        return room != null && room.isAvailable() && !holdsByRoom.containsKey(roomNumber)
+                && !nightInventory.hasReservations(roomNumber);
+    }
+
+    public boolean isRoomAvailable(int roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        rollHorizon();
+        return nightInventory.isAvailable(roomNumber, checkIn, checkOut);
+    }
+
+    // Rooms that are held or have nights booked by date, so cannot be booked whole even if available
+    public Set<Integer> getBlockedRoomNumbers() {
+        Set<Integer> blocked = new HashSet<>(holdsByRoom.keySet());
+        blocked.addAll(nightInventory.getReservedRooms());
+        return blocked;
     }
 
+    // Every stay booked by night, e.g. for a snapshot
+    public List<StayChange> getBookedStays() {
+        return nightInventory.getStays();
+    }
+
+    public int getAvailableRoomCount(LocalDate checkIn, LocalDate checkOut) {
+        rollHorizon();
+        return nightInventory.countAvailable(checkIn, checkOut);
+    }
+
+    // Rooms that can be booked whole right now, from the index's counters rather than the store
     public int getAvailableRoomCount() {
-        return (int) roomCache.values().stream()
-                .filter(Room::isAvailable)
-                .count();
+        return roomIndex.countAvailable();
     }
 
+    // Overwrites whatever is stored, at the stored room's next version; see updateRoomIfVersion to detect concurrent changes
     public void updateRoom(Room room) {
         if (room != null) {
-            roomCache.put(room.getRoomNumber(), room);
+            try {
+                roomCache.compute(room.getRoomNumber(), current -> replace(current, room));
+            } finally {
+                afterUpdate(null);
+            }
+        }
+    }
+
+    /**
+     * Stores the room only if the stored copy is still at expectedVersion, i.e. nothing
+     * changed it since the caller read it; the stored copy gets the next version. Returns
+     * false, leaving the room untouched, on a mismatch or when the room does not exist.
+     */
+    public boolean updateRoomIfVersion(Room room, long expectedVersion) {
+        if (room == null) {
+            throw new IllegalArgumentException("Room cannot be null");
+        }
+        boolean[] updated = new boolean[1];
+        boolean[] stale = new boolean[1];
+        try {
+            roomCache.computeIfPresent(room.getRoomNumber(), current -> {
+                if (current.getVersion() != expectedVersion) {
+                    stale[0] = true;
+                    return current;
+                }
+                Room replaced = replace(current, room);
+                updated[0] = true;
+                return replaced;
+            });
+        } finally {
+            if (updated[0]) {
+                afterUpdate(null);
+            }
+        }
+        if (stale[0]) {
+            versionConflicts.increment();
+        }
+        return updated[0];
+    }
+
+    /**
+     * Read-modify-write of one room through {@link #updateRoomIfVersion}: applies update to
+     * the current room and retries under the policy's backoff while other writers get in
+     * first. Returns the stored result, the current room if update returned it unchanged,
+     * or null if the room does not exist or every attempt lost a race.
+     */
+    public Room updateRoomWithRetry(int roomNumber, UnaryOperator<Room> update, RetryPolicy policy) {
+        if (update == null || policy == null) {
+            throw new IllegalArgumentException("Update and retry policy are required");
+        }
+        for (int attempt = 1; ; attempt++) {
+            Room current = loadRoom(roomNumber);
+            if (current == null) {
+                return null;
+            }
+            Room updated = update.apply(current);
+            if (updated == null || updated == current) {
+                return current;
+            }
+            if (updated.getRoomNumber() != roomNumber) {
+                throw new IllegalArgumentException("Update changed the room number");
+            }
+            if (updateRoomIfVersion(updated, current.getVersion())) {
+                return updated.withVersion(current.getVersion() + 1);
+            }
+            if (attempt >= policy.getMaxAttempts()) {
+                return null;
+            }
+            policy.backoff(attempt);
+        }
+    }
+
+    // Conditional updates rejected because another writer changed the room first
+    public long getVersionConflictCount() {
+        return versionConflicts.sum();
+    }
+
+    /**
+     * Available rooms matching the query, cheapest first, answered from the type and
+     * price indexes rather than a scan. Candidates are re-read from the store, so a
+     * room booked, held or booked by night after the index lookup is skipped rather
+     * than returned.
+     */
+    public List<Room> findAvailableRooms(RoomQuery query) {
+        List<Room> matches = new ArrayList<>();
+        Iterator<Integer> candidates = roomIndex.cheapestAvailable(query);
+        while (matches.size() < query.getLimit() && candidates.hasNext()) {
+            Room room = roomCache.get(candidates.next());
+            if (query.matches(room) && !holdsByRoom.containsKey(room.getRoomNumber())
+                    && !nightInventory.hasReservations(room.getRoomNumber())) {
+                matches.add(room);
+            }
+        }
+        return matches;
+    }
+
+    public int getAvailableRoomCount(RoomType roomType) {
+        if (roomType == null) {
+            throw new IllegalArgumentException("Room type cannot be null");
+        }
+        return roomIndex.countAvailable(roomType);
+    }
+
+    // Share of the type's rooms that are booked or held, read from counters kept by the index; 0 for a type with no rooms
+    public double getOccupancy(RoomType roomType) {
+        if (roomType == null) {
+            throw new IllegalArgumentException("Room type cannot be null");
+        }
+        int rooms = roomIndex.countRooms(roomType);
+        if (rooms == 0) {
+            return 0.0;
+        }
+        return Math.max(0, rooms - roomIndex.countAvailable(roomType)) / (double) rooms;
+    }
+
+    public void addOccupancyListener(OccupancyListener listener) {
+        roomIndex.addOccupancyListener(listener);
+    }
+
+    public void addUpdateListener(RoomUpdateListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public synchronized void addBookingAttemptListener(BookingAttemptListener listener) {
+        BookingAttemptListener[] listeners = Arrays.copyOf(attemptListeners, attemptListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        attemptListeners = listeners;
+    }
+
+    public void close() {
+        for (RoomUpdateListener listener : updateListeners) {
+            listener.close();
+        }
+        updateListeners.clear();
+        for (RoomHold hold : holdsByRoom.values()) {
+            hold.cancelExpiry();
+        }
+        holdsByRoom.clear();
+        waitlist.clear();
+        roomCache.close();
+    }
+
+    // Runs under the room's lock inside the store's compute, so the index and listeners see each room's updates in order
+    private Room notifyUpdated(Room room) {
+        notifyListeners(room);
+        index(room, holdsByRoom.containsKey(room.getRoomNumber()));
+        return room;
+    }
+
+    // Before anything else changes, so a listener that throws, e.g. when the log append fails, leaves the room as it was
+    private void notifyListeners(Room room) {
+        for (RoomUpdateListener listener : updateListeners) {
+            listener.onRoomUpdated(room);
+        }
+    }
+
+    // Runs under the room's lock, before the nights change
+    private void notifyStayChanged(StayChange change) {
+        for (RoomUpdateListener listener : updateListeners) {
+            listener.onStayChanged(change);
+        }
+    }
+
+    // Runs under the room's lock. A room is booked either whole or by night, never both, so
+    // one with nights booked is left out of the undated index like a held room, and one
+    // booked or held whole is taken for every night.
+    private void index(Room room, boolean held) {
+        int roomNumber = room.getRoomNumber();
+        boolean blocked = held || nightInventory.hasReservations(roomNumber);
+        roomIndex.update(room, blocked);
+        nightInventory.setBlocked(roomNumber, held || !room.isAvailable());
+        for (RoomUpdateListener listener : updateListeners) {
+            listener.onAvailabilityChanged(room, blocked);
+        }
+    }
+
+    // Checked before the room is looked up, so a stay missing a date is rejected even for an unknown room
+    private static void checkStay(LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null) {
+            throw new IllegalArgumentException("A stay needs both check-in and check-out");
+        }
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out must be after check-in");
+        }
+    }
+
+    // Runs under the room's lock
+    private Room replace(Room current, Room room) {
+        Room updated = current == null ? room : room.withVersion(current.getVersion() + 1);
+        notifyListeners(updated);
+        if (current == null) {
+            nightInventory.addRoom(room.getRoomNumber());
+        }
+        if (!room.isAvailable()) {
+            // Booked or closed by someone else, so whoever held it has lost it
+            RoomHold hold = holdsByRoom.remove(room.getRoomNumber());
+            if (hold != null) {
+                hold.cancelExpiry();
+            }
+        }
+        index(updated, holdsByRoom.containsKey(room.getRoomNumber()));
+        return updated;
+    }
+
+    private WaitlistEntry join(int roomNumber, RoomType roomType, String guest, LoyaltyTier loyaltyTier) {
+        if (guest == null || guest.trim().isEmpty()) {
+            throw new IllegalArgumentException("Guest name cannot be null or empty");
+        }
+        return waitlist.add(roomNumber, roomType, guest, loyaltyTier == null ? LoyaltyTier.NONE : loyaltyTier);
+    }
+
+    // Called after the room was released and unlocked, since booking it for the waiter takes the lock again
+    private void offerToWaitlist(int roomNumber) {
+        if (waitlist.size() == 0) {
+            return;
+        }
+        RoomType roomType = roomIndex.typeOf(roomNumber);
+        WaitlistEntry next = roomType == null ? null : waitlist.claim(roomNumber, roomType);
+        if (next == null) {
+            return;
+        }
+        // Not a new attempt: the guest's request was counted when it was waitlisted, and now succeeds
+        Room booked;
+        try {
+            booked = claim(roomNumber, null, next.getGuest());
+        } catch (UpdateNotDurableException e) {
+            // Booked all the same, so the guest has the room; the log failure reaches callers whose own updates it stops
+            booked = roomCache.get(roomNumber);
+        }
+        if (booked == null) {
+            // Someone booked or held it first; the guest keeps their place for the next release
+            waitlist.requeue(next);
+            return;
+        }
+        waitlistMatches.increment();
+        next.assign(booked);
+    }
+
+    // Runs on the hold-expiry thread
+    private void expire(RoomHold hold) {
+        if (release(hold)) {
+            expiredHolds.incrementAndGet();
+            if (waitlist.size() > 0) {
+                HoldExpiry.WAITLIST_MATCHER.execute(() -> offerToWaitlist(hold.getRoomNumber()));
+            }
+        }
+    }
+
+    // Ends the hold and gives the room back; the caller offers it to the waitlist
+    private boolean release(RoomHold hold) {
+        boolean[] released = new boolean[1];
+        roomCache.computeIfPresent(hold.getRoomNumber(), current -> {
+            if (holdsByRoom.remove(hold.getRoomNumber(), hold)) {
+                hold.cancelExpiry();
+                released[0] = true;
+                index(current, false);
+            }
+            return current;
+        });
+        return released[0];
+    }
+
+    // Moves the night inventory on to start from today once the date has changed, freeing the nights now past
+    private void rollHorizon() {
+        if (System.currentTimeMillis() < nextRollMillis) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        nightInventory.advanceTo(today);
+        nextRollMillis = startOfNextDayMillis(today);
+    }
+
+    private static long startOfNextDayMillis(LocalDate today) {
+        return today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void notifyAttempt(RoomType roomType, BookingOutcome outcome) {
+        for (BookingAttemptListener listener : attemptListeners) {
+            listener.onBookingAttempt(roomType, outcome);
+        }
+    }
+
+    // Runs once the room is unlocked. The update is applied by then and others may have seen
+    // it, so a listener failing here, e.g. the log before the update is durable, is reported
+    // as applied rather than undone.
+    private void afterUpdate(BookingOutcome applied) {
+        try {
+            for (RoomUpdateListener listener : updateListeners) {
+                listener.afterUpdate();
+            }
+        } catch (UncheckedIOException e) {
+            throw new UpdateNotDurableException(applied, e);
         }
     }
 }
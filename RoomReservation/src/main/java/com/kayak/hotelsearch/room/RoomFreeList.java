@@ -0,0 +1,70 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Room numbers of one type's available rooms, for handing out "any room of the type" in
+ * O(1). Rooms are spread over a few lock-free Treiber stacks so threads allocating the
+ * same type mostly compare-and-swap different heads, and each pop starts at a random
+ * stripe. A room is listed at most once; the list is only a hint, so a caller must still
+ * book the room it pops under the room's lock, and a room booked through another path
+ * stays listed until it is popped and found taken.
+ */
+final class RoomFreeList {
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicReferenceArray<Node> heads = new AtomicReferenceArray<>(STRIPES);
+    // Rooms with a node on some stack, so a room released twice before anyone pops it is not listed twice
+    private final ConcurrentBitSet listed = new ConcurrentBitSet();
+
+    void push(int roomNumber) {
+        if (!listed.set(roomNumber)) {
+            return;
+        }
+        int stripe = stripe(roomNumber);
+        Node node = new Node(roomNumber);
+        do {
+            node.next = heads.get(stripe);
+        } while (!heads.compareAndSet(stripe, node.next, node));
+    }
+
+    /**
+     * Pops a room that was available when it was pushed, or returns -1 if every stripe
+     * is empty. The room is unlisted before it is returned, so if the caller finds it
+     * taken, whoever releases it next lists it again.
+     */
+    int pop() {
+        int start = ThreadLocalRandom.current().nextInt(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            int stripe = (start + i) & (STRIPES - 1);
+            for (Node head = heads.get(stripe); head != null; head = heads.get(stripe)) {
+                if (heads.compareAndSet(stripe, head, head.next)) {
+                    listed.clear(head.roomNumber);
+                    return head.roomNumber;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Fibonacci hashing spreads consecutive room numbers over the stripes
+    private static int stripe(int roomNumber) {
+        return (roomNumber * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(STRIPES)) & (STRIPES - 1);
+    }
+
+    // A power of two of at least twice the cores, so a pop rarely lands on a head another core is swapping
+    private static int stripes(int processors) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1);
+    }
+
+    // Nodes are never reused, so a head seen twice is the same push and compare-and-swap has no ABA problem
+    private static final class Node {
+        private final int roomNumber;
+        private Node next;
+
+        Node(int roomNumber) {
+            this.roomNumber = roomNumber;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kayak.hotelsearch.room;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kayak.hotelsearch.concurrent.TimerWheel;
+
+/**
+ * A room set aside for one guest until {@link #getExpiresAt()}, while they check out.
+ * Returned by {@link RoomDatabaseAccessService#tryHold} and passed back to confirm or
+ * release it; a hold that is neither is released automatically when it expires.
+ */
+public final class RoomHold {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id;
+    private final int roomNumber;
+    private final String guest;
+    private final Instant expiresAt;
+    // Set under the room's lock when the hold is placed, so confirm and release can cancel it
+    private volatile TimerWheel.Timeout expiry;
+
+    RoomHold(int roomNumber, String guest, Instant expiresAt) {
+        this.id = NEXT_ID.incrementAndGet();
+        this.roomNumber = roomNumber;
+        this.guest = guest;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getRoomNumber() {
+        return roomNumber;
+    }
+
+    public String getGuest() {
+        return guest;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    void setExpiry(TimerWheel.Timeout expiry) {
+        this.expiry = expiry;
+    }
+
+    void cancelExpiry() {
+        TimerWheel.Timeout timeout = expiry;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RoomHold{" +
+                "id=" + id +
+                ", roomNumber=" + roomNumber +
+                ", guest='" + guest + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
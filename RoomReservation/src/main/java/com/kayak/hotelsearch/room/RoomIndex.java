@@ -0,0 +1,198 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Secondary indexes over the available rooms: a bit set of room numbers, a
+ * price-ordered set and a free list per room type, plus per-type room and availability
+ * counts kept up to date on every change. Callers must apply updates for any one room in
+ * order, which the service does by updating the index under the room's lock.
+ */
+class RoomIndex {
+    private static final Comparator<Entry> BY_PRICE =
+            Comparator.comparingDouble((Entry entry) -> entry.price).thenComparingInt(entry -> entry.roomNumber);
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<RoomType, ConcurrentBitSet> availableByType = new EnumMap<>(RoomType.class);
+    private final Map<RoomType, ConcurrentSkipListSet<Entry>> availableByPrice = new EnumMap<>(RoomType.class);
+    private final Map<RoomType, RoomFreeList> freeByType = new EnumMap<>(RoomType.class);
+    // Indexed by RoomType ordinal
+    private final AtomicIntegerArray roomCounts = new AtomicIntegerArray(RoomType.values().length);
+    private final AtomicIntegerArray availableCounts = new AtomicIntegerArray(RoomType.values().length);
+    private volatile OccupancyListener[] occupancyListeners = new OccupancyListener[0];
+
+    RoomIndex(Collection<Room> rooms) {
+        for (RoomType type : RoomType.values()) {
+            availableByType.put(type, new ConcurrentBitSet());
+            availableByPrice.put(type, new ConcurrentSkipListSet<>(BY_PRICE));
+            freeByType.put(type, new RoomFreeList());
+        }
+        rooms.forEach(this::update);
+    }
+
+    void update(Room room) {
+        update(room, false);
+    }
+
+    // A held room stays indexed by type but is left out of the available sets until the hold ends
+    void update(Room room, boolean held) {
+        Entry entry = new Entry(room, held);
+        Entry previous = entries.put(entry.roomNumber, entry);
+        if (previous != null && previous.available) {
+            availableByPrice.get(previous.type).remove(previous);
+            availableByType.get(previous.type).clear(previous.roomNumber);
+        }
+        if (entry.available) {
+            availableByType.get(entry.type).set(entry.roomNumber);
+            availableByPrice.get(entry.type).add(entry);
+            // Only on becoming available: a room already listed stays listed until popped
+            if (previous == null || !previous.available || previous.type != entry.type) {
+                freeByType.get(entry.type).push(entry.roomNumber);
+            }
+        }
+        if (previous == null || previous.type != entry.type || previous.available != entry.available) {
+            if (previous != null) {
+                count(previous, -1);
+            }
+            count(entry, 1);
+        }
+    }
+
+    private void count(Entry entry, int delta) {
+        int type = entry.type.ordinal();
+        roomCounts.addAndGet(type, delta);
+        if (entry.available) {
+            availableCounts.addAndGet(type, delta);
+        }
+        for (OccupancyListener listener : occupancyListeners) {
+            listener.onOccupancyChanged(entry.type);
+        }
+    }
+
+    synchronized void addOccupancyListener(OccupancyListener listener) {
+        OccupancyListener[] listeners = Arrays.copyOf(occupancyListeners, occupancyListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        occupancyListeners = listeners;
+    }
+
+    // Null when the room is not indexed
+    RoomType typeOf(int roomNumber) {
+        Entry entry = entries.get(roomNumber);
+        return entry == null ? null : entry.type;
+    }
+
+    int countAvailable(RoomType type) {
+        return availableCounts.get(type.ordinal());
+    }
+
+    // Available rooms of every type
+    int countAvailable() {
+        int count = 0;
+        for (int type = 0; type < availableCounts.length(); type++) {
+            count += availableCounts.get(type);
+        }
+        return count;
+    }
+
+    int countRooms(RoomType type) {
+        return roomCounts.get(type.ordinal());
+    }
+
+    // A room of the type that was available when listed, or -1; see RoomFreeList.pop
+    int pollFree(RoomType type) {
+        return freeByType.get(type).pop();
+    }
+
+    boolean isAvailable(int roomNumber, RoomType type) {
+        return availableByType.get(type).get(roomNumber);
+    }
+
+    // Room numbers of available rooms in the query's price range, cheapest first
+    Iterator<Integer> cheapestAvailable(RoomQuery query) {
+        Entry from = new Entry(0, query.getMinPrice());
+        Entry to = new Entry(Integer.MAX_VALUE, query.getMaxPrice());
+        if (query.getRoomType() != null) {
+            Iterator<Entry> entries = availableByPrice.get(query.getRoomType()).subSet(from, true, to, true).iterator();
+            return new RoomNumbers(List.of(entries));
+        }
+        List<Iterator<Entry>> perType = new ArrayList<>();
+        for (ConcurrentSkipListSet<Entry> set : availableByPrice.values()) {
+            perType.add(set.subSet(from, true, to, true).iterator());
+        }
+        return new RoomNumbers(perType);
+    }
+
+    private static final class Entry {
+        private final int roomNumber;
+        private final RoomType type;
+        private final double price;
+        private final boolean available;
+
+        Entry(Room room, boolean held) {
+            this.roomNumber = room.getRoomNumber();
+            this.type = room.getRoomType();
+            this.price = room.getPrice();
+            this.available = room.isAvailable() && !held;
+        }
+
+        // Range bound for subSet
+        Entry(int roomNumber, double price) {
+            this.roomNumber = roomNumber;
+            this.type = null;
+            this.price = price;
+            this.available = false;
+        }
+    }
+
+    // Merges per-type price-ordered iterators into one cheapest-first sequence
+    private static final class RoomNumbers implements Iterator<Integer> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(head -> head.entry, BY_PRICE));
+
+        RoomNumbers(List<Iterator<Entry>> iterators) {
+            for (Iterator<Entry> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Integer next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+            return head.entry.roomNumber;
+        }
+    }
+
+    private static final class Head {
+        private final Entry entry;
+        private final Iterator<Entry> rest;
+
+        Head(Entry entry, Iterator<Entry> rest) {
+            this.entry = entry;
+            this.rest = rest;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.kayak.hotelsearch.room;
+
+/**
+ * Filter for available rooms; matches are returned cheapest first.
+ */
+public final class RoomQuery {
+    private final RoomType roomType;
+    private final double minPrice;
+    private final double maxPrice;
+    private final int limit;
+
+    private RoomQuery(Builder builder) {
+        this.roomType = builder.roomType;
+        this.minPrice = builder.minPrice;
+        this.maxPrice = builder.maxPrice;
+        this.limit = builder.limit;
+    }
+
+    public static class Builder {
+        private RoomType roomType;
+        private double minPrice = 0;
+        private double maxPrice = Double.MAX_VALUE;
+        private int limit = Integer.MAX_VALUE;
+
+        // Unset matches every room type
+        public Builder roomType(RoomType roomType) {
+            this.roomType = roomType;
+            return this;
+        }
+
+        public Builder minPrice(double minPrice) {
+            if (minPrice < 0) {
+                throw new IllegalArgumentException("Price cannot be negative");
+            }
+            this.minPrice = minPrice;
+            return this;
+        }
+
+        public Builder maxPrice(double maxPrice) {
+            if (maxPrice < 0) {
+                throw new IllegalArgumentException("Price cannot be negative");
+            }
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public RoomQuery build() {
+            if (minPrice > maxPrice) {
+                throw new IllegalArgumentException("Minimum price cannot exceed maximum price");
+            }
+            return new RoomQuery(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public RoomType getRoomType() {
+        return roomType;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean matches(Room room) {
+        return room != null
+                && room.isAvailable()
+                && (roomType == null || room.getRoomType() == roomType)
+                && room.getPrice() >= minPrice
+                && room.getPrice() <= maxPrice;
+    }
+}
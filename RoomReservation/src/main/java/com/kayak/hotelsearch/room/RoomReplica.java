@@ -0,0 +1,118 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only copy of a hotel's rooms, kept up to date from the primary's change feed and
+ * indexed the same way, so availability reads can be served without touching the
+ * service that takes bookings. Changes are full room states and are applied only if
+ * they are at least as new as the copy held, so replaying one twice or out of order is
+ * harmless. Each change also says whether the room is blocked by a hold or nights booked
+ * by date; a blocked room is left out of availability just as it is on the primary.
+ *
+ * <p>One thread applies changes; any number may read.
+ */
+public final class RoomReplica {
+    // Swapped whole on reset, so readers never see a half-loaded copy
+    private volatile State state = new State(List.of(), Set.of());
+
+    public void reset(Collection<Room> rooms) {
+        reset(rooms, Set.of());
+    }
+
+    public void reset(Collection<Room> rooms, Set<Integer> blocked) {
+        state = new State(rooms, blocked);
+    }
+
+    public boolean apply(Room room) {
+        return apply(room, false);
+    }
+
+    // True if the room was newer than the copy held and was stored; a hold or stay changes the
+    // blocked flag without a new version, so an equal version still updates it
+    public boolean apply(Room room, boolean blocked) {
+        State current = state;
+        int roomNumber = room.getRoomNumber();
+        Room held = current.rooms.get(roomNumber);
+        if (held != null && held.getVersion() > room.getVersion()) {
+            return false;
+        }
+        current.rooms.put(roomNumber, room);
+        if (blocked) {
+            current.blocked.add(roomNumber);
+        } else {
+            current.blocked.remove(roomNumber);
+        }
+        current.index.update(room, blocked);
+        return true;
+    }
+
+    public Room loadRoom(int roomNumber) {
+        return state.rooms.get(roomNumber);
+    }
+
+    public boolean isRoomAvailable(int roomNumber) {
+        Room room = state.rooms.get(roomNumber);
+        return room != null && room.isAvailable() && !state.blocked.contains(roomNumber);
+    }
+
+    public int getAvailableRoomCount() {
+        State current = state;
+        int available = 0;
+        for (RoomType type : RoomType.values()) {
+            available += current.index.countAvailable(type);
+        }
+        return available;
+    }
+
+    public int getAvailableRoomCount(RoomType roomType) {
+        if (roomType == null) {
+            throw new IllegalArgumentException("Room type cannot be null");
+        }
+        return state.index.countAvailable(roomType);
+    }
+
+    // Same contract as RoomDatabaseAccessService.findAvailableRooms, against this copy
+    public List<Room> findAvailableRooms(RoomQuery query) {
+        State current = state;
+        List<Room> matches = new ArrayList<>();
+        Iterator<Integer> candidates = current.index.cheapestAvailable(query);
+        while (matches.size() < query.getLimit() && candidates.hasNext()) {
+            Room room = current.rooms.get(candidates.next());
+            if (query.matches(room)) {
+                matches.add(room);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return state.rooms.size();
+    }
+
+    private static final class State {
+        private final ConcurrentHashMap<Integer, Room> rooms;
+        private final Set<Integer> blocked = ConcurrentHashMap.newKeySet();
+        private final RoomIndex index;
+
+        State(Collection<Room> rooms, Set<Integer> blocked) {
+            this.rooms = new ConcurrentHashMap<>(Math.max(16, rooms.size() * 4 / 3 + 1));
+            for (Room room : rooms) {
+                this.rooms.put(room.getRoomNumber(), room);
+            }
+            this.index = new RoomIndex(this.rooms.values());
+            for (Integer roomNumber : blocked) {
+                Room room = this.rooms.get(roomNumber);
+                if (room != null) {
+                    this.blocked.add(roomNumber);
+                    index.update(room, true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.Collection;
+
+/**
+ * Durable home of the rooms, typically a remote database that is slow next to memory.
+ * Stores such as {@link com.kayak.hotelsearch.cache.CachingRoomStore} read through to it
+ * and write changes back in batches. Implementations must be safe for concurrent use.
+ */
+public interface RoomRepository {
+    // The stored room, or null when the repository has no such room
+    Room find(int roomNumber);
+
+    // Writes every room, replacing any stored version; a batch either lands whole or throws
+    void saveAll(Collection<Room> rooms);
+
+    // Full scan, for startup and whole-store exports such as snapshots; never per request
+    Collection<Room> findAll();
+
+    int count();
+}
@@ -0,0 +1,31 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.Collection;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage behind {@link RoomDatabaseAccessService}. Implementations must make
+ * {@link #computeIfPresent} atomic per room; reads may run concurrently with it.
+ */
+public interface RoomStore {
+    Room get(int roomNumber);
+
+    void put(Room room);
+
+    // Replaces the room with update.apply(current) atomically; returns the stored room, or null when absent
+    Room computeIfPresent(int roomNumber, UnaryOperator<Room> update);
+
+    // Like computeIfPresent, but current is null for an absent room and update must not return null
+    Room compute(int roomNumber, UnaryOperator<Room> update);
+
+    // Every room; may be a full scan of the backing storage, so not for per-request use
+    Collection<Room> values();
+
+    int size();
+
+    int countAvailable();
+
+    // Releases background resources; stores that buffer writes flush them first
+    default void close() {
+    }
+}
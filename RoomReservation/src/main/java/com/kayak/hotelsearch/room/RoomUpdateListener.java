@@ -0,0 +1,26 @@
+package com.kayak.hotelsearch.room;
+
+/**
+ * Observer of room state changes made through {@link RoomDatabaseAccessService}.
+ */
+public interface RoomUpdateListener {
+    // Called with the new state while the room is still locked, so calls for one room
+    // arrive in the order the updates were applied. Must not block.
+    void onRoomUpdated(Room room);
+
+    // Called under the room's lock just before nights are booked or cancelled by date, in the same order as onRoomUpdated
+    default void onStayChanged(StayChange change) {
+    }
+
+    // Called under the room's lock after every update, and whenever a hold or the room's first or last stay by night
+    // takes it off or puts it back on the undated path; blocked while it is held or has nights booked
+    default void onAvailabilityChanged(Room room, boolean blocked) {
+    }
+
+    // Called on the updating thread once the room is unlocked; may block, e.g. until the update is durable
+    default void afterUpdate() {
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,141 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process {@link RoomRepository} that parks the caller for a configurable round trip on
+ * every call, with an occasional much slower call, so caching can be measured offline
+ * against a repository that behaves like a remote database.
+ */
+public class SimulatedLatencyRoomRepository implements RoomRepository {
+    private final ConcurrentHashMap<Integer, Room> rooms;
+    private final long readLatencyNanos;
+    private final long writeLatencyNanos;
+    private final double slowCallShare;
+    private final long slowCallLatencyNanos;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder savedRooms = new LongAdder();
+
+    private SimulatedLatencyRoomRepository(Builder builder) {
+        this.rooms = new ConcurrentHashMap<>(Math.max(16, builder.rooms.size()));
+        builder.rooms.forEach(room -> rooms.put(room.getRoomNumber(), room));
+        this.readLatencyNanos = TimeUnit.MICROSECONDS.toNanos(builder.readLatencyMicros);
+        this.writeLatencyNanos = TimeUnit.MICROSECONDS.toNanos(builder.writeLatencyMicros);
+        this.slowCallShare = builder.slowCallShare;
+        this.slowCallLatencyNanos = TimeUnit.MICROSECONDS.toNanos(builder.slowCallLatencyMicros);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final List<Room> rooms = new ArrayList<>();
+        private long readLatencyMicros = 500;
+        private long writeLatencyMicros = 2000;
+        private double slowCallShare = 0.01;
+        private long slowCallLatencyMicros = 20_000;
+
+        public Builder rooms(Collection<Room> rooms) {
+            this.rooms.addAll(rooms);
+            return this;
+        }
+
+        public Builder readLatencyMicros(long readLatencyMicros) {
+            if (readLatencyMicros < 0) {
+                throw new IllegalArgumentException("Read latency cannot be negative");
+            }
+            this.readLatencyMicros = readLatencyMicros;
+            return this;
+        }
+
+        // Charged once per saveAll, however many rooms the batch holds
+        public Builder writeLatencyMicros(long writeLatencyMicros) {
+            if (writeLatencyMicros < 0) {
+                throw new IllegalArgumentException("Write latency cannot be negative");
+            }
+            this.writeLatencyMicros = writeLatencyMicros;
+            return this;
+        }
+
+        public Builder slowCallShare(double slowCallShare) {
+            if (slowCallShare < 0 || slowCallShare > 1) {
+                throw new IllegalArgumentException("Slow call share must be between 0 and 1");
+            }
+            this.slowCallShare = slowCallShare;
+            return this;
+        }
+
+        public Builder slowCallLatencyMicros(long slowCallLatencyMicros) {
+            if (slowCallLatencyMicros < 0) {
+                throw new IllegalArgumentException("Slow call latency cannot be negative");
+            }
+            this.slowCallLatencyMicros = slowCallLatencyMicros;
+            return this;
+        }
+
+        public SimulatedLatencyRoomRepository build() {
+            return new SimulatedLatencyRoomRepository(this);
+        }
+    }
+
+    @Override
+    public Room find(int roomNumber) {
+        reads.increment();
+        delay(readLatencyNanos);
+        return rooms.get(roomNumber);
+    }
+
+    @Override
+    public void saveAll(Collection<Room> batch) {
+        writes.increment();
+        delay(writeLatencyNanos);
+        for (Room room : batch) {
+            rooms.put(room.getRoomNumber(), room);
+        }
+        savedRooms.add(batch.size());
+    }
+
+    @Override
+    public Collection<Room> findAll() {
+        reads.increment();
+        delay(readLatencyNanos);
+        return new ArrayList<>(rooms.values());
+    }
+
+    @Override
+    public int count() {
+        return rooms.size();
+    }
+
+    public long getReadCount() {
+        return reads.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getSavedRoomCount() {
+        return savedRooms.sum();
+    }
+
+    private void delay(long nanos) {
+        if (slowCallShare > 0 && ThreadLocalRandom.current().nextDouble() < slowCallShare) {
+            nanos = slowCallLatencyNanos;
+        }
+        // parkNanos may return early, so park until the full round trip has passed
+        long deadline = System.nanoTime() + nanos;
+        for (long remaining = nanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.kayak.hotelsearch.room;
+
+import java.time.LocalDate;
+
+/**
+ * The nights [checkIn, checkOut) of a room given to a guest, or freed when guest is null.
+ * Applying a change replaces whatever the nights held before, so applying it twice is harmless.
+ */
+public record StayChange(int roomNumber, String guest, LocalDate checkIn, LocalDate checkOut) {
+    public boolean isRelease() {
+        return guest == null;
+    }
+}
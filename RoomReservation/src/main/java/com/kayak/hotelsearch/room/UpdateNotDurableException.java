@@ -0,0 +1,24 @@
+package com.kayak.hotelsearch.room;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Thrown once an update has been applied but could not be confirmed durable, e.g. because
+ * the write-ahead log failed or the wait for its fsync was interrupted. The update is not
+ * undone: later readers see it, it counts as a success, and a retry of the same request
+ * must find it done rather than book again. It is lost only if the process stops before
+ * the record reaches the disk.
+ */
+public class UpdateNotDurableException extends UncheckedIOException {
+    private final BookingOutcome outcome;
+
+    public UpdateNotDurableException(BookingOutcome outcome, UncheckedIOException cause) {
+        super("Update was applied but is not known to be durable", cause.getCause());
+        this.outcome = outcome;
+    }
+
+    // BOOKED or RELEASED for what was applied; null for updates that are neither, such as updateRoom
+    public BookingOutcome getOutcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,200 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guests waiting for a room, in priority queues ordered by loyalty tier and then arrival.
+ * Each room type has one queue for guests who will take any room of the type and one per
+ * room for guests who want that room; a released room goes to the better of the two
+ * heads, so adding and matching are O(log n) and never look at the other waiters.
+ * Guests who leave are dropped when they reach the head of their queue, or all at once
+ * when they make up half of their type's queued entries, so the queues grow with the
+ * guests still waiting rather than with everyone who ever joined.
+ */
+final class Waitlist {
+    private static final Comparator<WaitlistEntry> PRIORITY =
+            Comparator.comparing(WaitlistEntry::getLoyaltyTier, Comparator.reverseOrder())
+                    .thenComparingLong(WaitlistEntry::getSequence);
+
+    // Left guests a lane tolerates before it compacts, however few are still waiting
+    private static final int MIN_COMPACTION = 64;
+
+    private final int capacity;
+    private final AtomicLong arrivals = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    // Indexed by RoomType ordinal; each lane's lock covers its type queue and the queues of its rooms
+    private final Lane[] lanes = new Lane[RoomType.values().length];
+
+    Waitlist(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Waitlist capacity cannot be negative");
+        }
+        this.capacity = capacity;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    // Queues the guest for the room, or for any room of the type when roomNumber is 0; null when the waitlist is full
+    WaitlistEntry add(int roomNumber, RoomType roomType, String guest, LoyaltyTier loyaltyTier) {
+        for (int current = waiting.get(); ; current = waiting.get()) {
+            if (current >= capacity) {
+                return null;
+            }
+            if (waiting.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        WaitlistEntry entry = new WaitlistEntry(arrivals.incrementAndGet(), roomNumber, roomType, guest, loyaltyTier);
+        offer(entry);
+        return entry;
+    }
+
+    /**
+     * Takes the highest-priority guest who would accept the room off the waitlist and claims
+     * them, so they cannot leave while the room is being booked. The caller either assigns
+     * them the room or puts them back with {@link #requeue}. Null when nobody is waiting.
+     */
+    WaitlistEntry claim(int roomNumber, RoomType roomType) {
+        Lane lane = lanes[roomType.ordinal()];
+        synchronized (lane) {
+            PriorityQueue<WaitlistEntry> forRoom = lane.byRoom.get(roomNumber);
+            while (true) {
+                WaitlistEntry roomHead = lane.head(forRoom);
+                WaitlistEntry typeHead = lane.head(lane.anyRoom);
+                if (forRoom != null && roomHead == null) {
+                    lane.byRoom.remove(roomNumber);
+                    forRoom = null;
+                }
+                if (roomHead == null && typeHead == null) {
+                    return null;
+                }
+                boolean fromRoom = typeHead == null || (roomHead != null && PRIORITY.compare(roomHead, typeHead) < 0);
+                WaitlistEntry next = fromRoom ? forRoom.poll() : lane.anyRoom.poll();
+                lane.queued--;
+                if (fromRoom && forRoom.isEmpty()) {
+                    lane.byRoom.remove(roomNumber);
+                    forRoom = null;
+                }
+                // A guest leaving between the head check and here is skipped like any other who left
+                if (next.claim()) {
+                    waiting.decrementAndGet();
+                    return next;
+                }
+                lane.left--;
+            }
+        }
+    }
+
+    // Back in the same place: the priority depends only on tier and arrival
+    void requeue(WaitlistEntry entry) {
+        waiting.incrementAndGet();
+        entry.unclaim();
+        offer(entry);
+    }
+
+    boolean cancel(WaitlistEntry entry) {
+        if (!entry.cancel()) {
+            return false;
+        }
+        waiting.decrementAndGet();
+        Lane lane = lanes[entry.getRoomType().ordinal()];
+        synchronized (lane) {
+            lane.left++;
+            if (lane.left >= MIN_COMPACTION && lane.left * 2 >= lane.queued) {
+                lane.compact();
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return waiting.get();
+    }
+
+    // Visible for tests: entries held in the queues, including guests who left and have not been dropped yet
+    int queuedCount() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            synchronized (lane) {
+                count += lane.queued;
+            }
+        }
+        return count;
+    }
+
+    void clear() {
+        for (Lane lane : lanes) {
+            List<WaitlistEntry> entries = new ArrayList<>();
+            synchronized (lane) {
+                entries.addAll(lane.anyRoom);
+                lane.byRoom.values().forEach(entries::addAll);
+                lane.anyRoom.clear();
+                lane.byRoom.clear();
+                lane.queued = 0;
+                lane.left = 0;
+            }
+            entries.forEach(this::cancel);
+        }
+    }
+
+    private void offer(WaitlistEntry entry) {
+        Lane lane = lanes[entry.getRoomType().ordinal()];
+        synchronized (lane) {
+            if (entry.getRoomNumber() == 0) {
+                lane.anyRoom.add(entry);
+            } else {
+                lane.byRoom.computeIfAbsent(entry.getRoomNumber(), room -> new PriorityQueue<>(PRIORITY)).add(entry);
+            }
+            lane.queued++;
+        }
+    }
+
+    // Guarded by its own monitor
+    private static final class Lane {
+        private final PriorityQueue<WaitlistEntry> anyRoom = new PriorityQueue<>(PRIORITY);
+        private final Map<Integer, PriorityQueue<WaitlistEntry>> byRoom = new HashMap<>();
+        // Entries in the queues, and how many of those belong to guests who left
+        private int queued;
+        private int left;
+
+        // Drops guests who left from the top of the queue; each is dropped once, so this is amortised O(log n)
+        private WaitlistEntry head(PriorityQueue<WaitlistEntry> queue) {
+            if (queue == null) {
+                return null;
+            }
+            WaitlistEntry head = queue.peek();
+            while (head != null && !head.isWaiting()) {
+                queue.poll();
+                queued--;
+                left--;
+                head = queue.peek();
+            }
+            return head;
+        }
+
+        // Drops every guest who left and every room queue left empty; runs once per MIN_COMPACTION or more leaves
+        private void compact() {
+            anyRoom.removeIf(entry -> !entry.isWaiting());
+            queued = anyRoom.size();
+            for (Iterator<PriorityQueue<WaitlistEntry>> queues = byRoom.values().iterator(); queues.hasNext(); ) {
+                PriorityQueue<WaitlistEntry> queue = queues.next();
+                queue.removeIf(entry -> !entry.isWaiting());
+                if (queue.isEmpty()) {
+                    queues.remove();
+                } else {
+                    queued += queue.size();
+                }
+            }
+            left = 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kayak.hotelsearch.room;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A guest waiting for a room, returned by {@link RoomDatabaseAccessService#joinWaitlist}.
+ * The guest waits either for one room or for any room of a type; when a matching room is
+ * released it is booked for them and {@link #getAssignment()} completes with the booked room.
+ */
+public final class WaitlistEntry {
+    private static final int WAITING = 0;
+    // Taken off the queue while the room is being booked for the guest, so a leave cannot race the booking
+    private static final int MATCHING = 1;
+    private static final int ASSIGNED = 2;
+    private static final int CANCELLED = 3;
+
+    private final long sequence;
+    private final int roomNumber;
+    private final RoomType roomType;
+    private final String guest;
+    private final LoyaltyTier loyaltyTier;
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+    private final CompletableFuture<Room> assignment = new CompletableFuture<>();
+
+    WaitlistEntry(long sequence, int roomNumber, RoomType roomType, String guest, LoyaltyTier loyaltyTier) {
+        this.sequence = sequence;
+        this.roomNumber = roomNumber;
+        this.roomType = roomType;
+        this.guest = guest;
+        this.loyaltyTier = loyaltyTier;
+    }
+
+    // 0 when any room of the type will do
+    public int getRoomNumber() {
+        return roomNumber;
+    }
+
+    public RoomType getRoomType() {
+        return roomType;
+    }
+
+    public String getGuest() {
+        return guest;
+    }
+
+    public LoyaltyTier getLoyaltyTier() {
+        return loyaltyTier;
+    }
+
+    // Completes with the room booked for the guest; cancelled if they leave the waitlist or it is closed
+    public CompletableFuture<Room> getAssignment() {
+        return assignment;
+    }
+
+    public boolean isWaiting() {
+        int current = state.get();
+        return current == WAITING || current == MATCHING;
+    }
+
+    // Arrival order across the whole waitlist, so earlier guests win ties within a tier
+    long getSequence() {
+        return sequence;
+    }
+
+    boolean claim() {
+        return state.compareAndSet(WAITING, MATCHING);
+    }
+
+    void unclaim() {
+        state.set(WAITING);
+    }
+
+    void assign(Room room) {
+        state.set(ASSIGNED);
+        assignment.complete(room);
+    }
+
+    boolean cancel() {
+        if (!state.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        assignment.cancel(false);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+                "roomNumber=" + roomNumber +
+                ", roomType=" + roomType +
+                ", guest='" + guest + '\'' +
+                ", loyaltyTier=" + loyaltyTier +
+                '}';
+    }
+}
@@ -0,0 +1,172 @@
+package com.kayak.hotelsearch.booking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingPipelineTest {
+    @TempDir
+    Path directory;
+
+    private static RoomDatabaseAccessService service() {
+        return new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build()));
+    }
+
+    private static void book(RoomDatabaseAccessService service, BookingRequest request) {
+        if (service.tryBook(request.getRoomNumber(), request.getGuest())) {
+            request.complete(BookingOutcome.BOOKED);
+        } else {
+            request.complete(service.loadRoom(request.getRoomNumber()) == null
+                    ? BookingOutcome.UNKNOWN_ROOM : BookingOutcome.ALREADY_TAKEN);
+        }
+    }
+
+    @Test
+    @DisplayName("Should complete each submitted request's future with its outcome")
+    void shouldReturnResults() throws Exception {
+        RoomDatabaseAccessService service = service();
+        try (FixedPoolBookingProcessor processor = new FixedPoolBookingProcessor(1, 16, request -> book(service, request))) {
+            processor.start();
+            BookingPipeline pipeline = new BookingPipeline(processor, 16);
+
+            BookingResult first = pipeline.submitAsync(new BookingRequest(101, "Alice")).get(5, TimeUnit.SECONDS);
+            BookingResult second = pipeline.submitAsync(new BookingRequest(101, "Bob")).get(5, TimeUnit.SECONDS);
+            BookingResult unknown = pipeline.submitAsync(new BookingRequest(999, "Carol")).get(5, TimeUnit.SECONDS);
+
+            assertTrue(first.isBooked());
+            assertEquals(BookingOutcome.ALREADY_TAKEN, second.getOutcome());
+            assertEquals("Bob", second.getRequest().getGuest());
+            assertEquals(BookingOutcome.UNKNOWN_ROOM, unknown.getOutcome());
+            assertEquals(0, pipeline.getInFlightCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail fast instead of blocking once the in-flight limit is reached")
+    void shouldRejectBeyondLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (FixedPoolBookingProcessor processor = new FixedPoolBookingProcessor(2, 16, request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            request.complete(BookingOutcome.BOOKED);
+        })) {
+            processor.start();
+            BookingPipeline pipeline = new BookingPipeline(processor, 2);
+            CompletableFuture<BookingResult> first = pipeline.submitAsync(new BookingRequest(101, "Alice"));
+            CompletableFuture<BookingResult> second = pipeline.submitAsync(new BookingRequest(102, "Bob"));
+
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> pipeline.submitAsync(new BookingRequest(103, "Carol")).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+            release.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS).isBooked());
+            assertTrue(second.get(5, TimeUnit.SECONDS).isBooked());
+            assertTrue(pipeline.submitAsync(new BookingRequest(103, "Carol")).get(5, TimeUnit.SECONDS).isBooked());
+        }
+    }
+
+    @Test
+    @DisplayName("Should pull requests from a publisher no faster than bookings complete and finish after the last result")
+    void shouldApplyBackpressure() throws IOException, InterruptedException {
+        int requests = 200;
+        int maxInFlight = 4;
+        Path file = Files.writeString(directory.resolve("requests.json"), IntStream.rangeClosed(1, requests)
+                .mapToObj(i -> "{\"roomNumber\": " + i + ", \"guest\": \"Guest " + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]")));
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        AtomicInteger published = new AtomicInteger();
+
+        try (FixedPoolBookingProcessor processor = new FixedPoolBookingProcessor(8, 64, request -> {
+            outstanding.decrementAndGet();
+            request.complete(BookingOutcome.BOOKED);
+        });
+             BookingRequestPublisher publisher = new BookingRequestPublisher(file, 0)) {
+            processor.start();
+            BookingPipeline pipeline = new BookingPipeline(processor, maxInFlight);
+            Queue<BookingResult> results = new ConcurrentLinkedQueue<>();
+            CountDownLatch downstreamDone = new CountDownLatch(1);
+            pipeline.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(BookingResult result) {
+                    results.add(result);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    downstreamDone.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    downstreamDone.countDown();
+                }
+            });
+            // Counts requests the publisher has handed over that no handler has finished yet
+            publisher.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    pipeline.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(BookingRequest request) {
+                    published.incrementAndGet();
+                    maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+                    pipeline.onNext(request);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    pipeline.onError(error);
+                }
+
+                @Override
+                public void onComplete() {
+                    pipeline.onComplete();
+                }
+            });
+
+            pipeline.completion().join();
+            assertTrue(downstreamDone.await(5, TimeUnit.SECONDS));
+            assertEquals(requests, published.get());
+            assertEquals(requests, results.size());
+            assertTrue(results.stream().allMatch(BookingResult::isBooked));
+            assertTrue(maxOutstanding.get() <= maxInFlight, "max outstanding " + maxOutstanding.get());
+            assertEquals(0, pipeline.getInFlightCount());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.kayak.hotelsearch.booking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingRequestPublisherTest {
+    @TempDir
+    Path directory;
+
+    private Path requestsFile(int count) throws IOException {
+        Path file = directory.resolve("requests.json");
+        Files.writeString(file, IntStream.range(0, count)
+                .mapToObj(i -> "{\"roomNumber\": " + (101 + i) + ", \"guest\": \"Guest " + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]")));
+        return file;
+    }
+
+    // Records what it is sent and fails the test's future if it is ever sent more than it asked for
+    private static final class Recorder implements Flow.Subscriber<BookingRequest> {
+        private final Queue<BookingRequest> received = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(BookingRequest request) {
+            received.add(request);
+            if (received.size() > requested.get()) {
+                done.completeExceptionally(new AssertionError("Sent " + received.size() + " of " + requested.get() + " asked for"));
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            done.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+
+        void request(long n) {
+            requested.addAndGet(n);
+            subscription.request(n);
+        }
+
+        List<Integer> rooms() {
+            return received.stream().map(BookingRequest::getRoomNumber).toList();
+        }
+    }
+
+    private static void awaitReceived(Recorder recorder, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.received.size() < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Should read only as many requests as the subscriber asked for")
+    void shouldPublishOnDemand() throws Exception {
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(requestsFile(5), 0)) {
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+
+            recorder.request(2);
+            awaitReceived(recorder, 2);
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(List.of(101, 102), recorder.rooms());
+            assertFalse(recorder.done.isDone(), "Nothing more is read until more is asked for");
+
+            recorder.request(10);
+            recorder.done.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(101, 102, 103, 104, 105), recorder.rooms());
+        }
+    }
+
+    @Test
+    @DisplayName("Should publish no faster than the rate limit")
+    void shouldPaceRequests() throws Exception {
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(requestsFile(6), 50)) {
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+
+            long start = System.nanoTime();
+            recorder.request(Long.MAX_VALUE);
+            recorder.done.get(5, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(6, recorder.received.size());
+            // Five 20 ms gaps after the first request
+            assertTrue(elapsedMillis >= 95, "Published 6 requests at 50/s in " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail the subscriber on a non-positive request and publish nothing more")
+    void shouldRejectNonPositiveDemand() throws Exception {
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(requestsFile(3), 0)) {
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+
+            recorder.request(0);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> recorder.done.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            publisher.join();
+            assertTrue(recorder.received.isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop silently on cancel and complete the subscriber on close")
+    void shouldStopOnCancelAndClose() throws Exception {
+        Path file = requestsFile(5);
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(file, 0)) {
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+            recorder.request(1);
+            awaitReceived(recorder, 1);
+            recorder.subscription.cancel();
+            publisher.join();
+            assertEquals(List.of(101), recorder.rooms());
+            assertFalse(recorder.done.isDone(), "A cancelled subscriber hears nothing more");
+        }
+
+        BookingRequestPublisher publisher = new BookingRequestPublisher(file, 0);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.request(1);
+        awaitReceived(recorder, 1);
+        publisher.close();
+        publisher.join();
+        recorder.done.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(101), recorder.rooms());
+    }
+
+    @Test
+    @DisplayName("Should refuse a second subscriber and fail on a file that is not an array")
+    void shouldFailSecondSubscriberAndBadFile() throws Exception {
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(requestsFile(1), 0)) {
+            Recorder first = new Recorder();
+            Recorder second = new Recorder();
+            publisher.subscribe(first);
+            publisher.subscribe(second);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> second.done.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            // Asking for exactly the one request in the file is enough to be completed
+            first.request(1);
+            first.done.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(101), first.rooms());
+        }
+
+        Path notArray = directory.resolve("object.json");
+        Files.writeString(notArray, "{\"roomNumber\": 101}");
+        try (BookingRequestPublisher publisher = new BookingRequestPublisher(notArray, 0)) {
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+            recorder.request(1);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> recorder.done.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+    }
+}
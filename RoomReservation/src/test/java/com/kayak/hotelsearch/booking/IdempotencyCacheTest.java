@@ -0,0 +1,143 @@
+package com.kayak.hotelsearch.booking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+    private final AtomicLong now = new AtomicLong(1);
+    private final IdempotencyCache cache = new IdempotencyCache(1024, Duration.ofMinutes(10), now::get);
+
+    @Test
+    @DisplayName("Should answer a retry with the first attempt's outcome without booking again")
+    void shouldReplayOutcome() {
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build()));
+        BookingRequest request = new BookingRequest(101, "Alice").withRequestId("req-1");
+
+        BookingOutcome first = cache.execute(request.getRequestId(), () -> book(service, request));
+        BookingOutcome retry = cache.execute(request.getRequestId(), () -> book(service, request));
+
+        assertEquals(BookingOutcome.BOOKED, first);
+        assertEquals(BookingOutcome.BOOKED, retry);
+        assertEquals(1, service.getTotalBookingAttempts());
+        assertEquals(1, cache.getRepeatCount());
+        // Without an id every request runs
+        assertEquals(BookingOutcome.ALREADY_TAKEN, cache.execute(null, () -> book(service, request)));
+        assertEquals(2, service.getTotalBookingAttempts());
+        service.close();
+    }
+
+    private static BookingOutcome book(RoomDatabaseAccessService service, BookingRequest request) {
+        return service.tryBook(request.getRoomNumber(), request.getGuest())
+                ? BookingOutcome.BOOKED : BookingOutcome.ALREADY_TAKEN;
+    }
+
+    @Test
+    @DisplayName("Should make a retry arriving while the original runs wait for the original's outcome")
+    void shouldWaitForRunningOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<BookingOutcome> original = CompletableFuture.supplyAsync(() -> cache.execute("req-2", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return BookingOutcome.WAITLISTED;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<BookingOutcome> retry = cache.begin("req-2");
+        assertNotNull(retry);
+        assertFalse(retry.isDone());
+        release.countDown();
+
+        assertEquals(BookingOutcome.WAITLISTED, retry.get(5, TimeUnit.SECONDS));
+        assertEquals(BookingOutcome.WAITLISTED, original.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Should never evict a running claim, even when its set is full of them")
+    void shouldKeepRunningClaims() {
+        IdempotencyCache small = new IdempotencyCache(16, Duration.ofMinutes(10), now::get);
+        for (int i = 0; i < 100; i++) {
+            assertNull(small.begin("run-" + i));
+        }
+        List<CompletableFuture<BookingOutcome>> retries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<BookingOutcome> retry = small.begin("run-" + i);
+            assertNotNull(retry, "run-" + i + " was claimed again while running");
+            assertFalse(retry.isDone());
+            retries.add(retry);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            small.complete("run-" + i, BookingOutcome.BOOKED);
+        }
+        for (CompletableFuture<BookingOutcome> retry : retries) {
+            assertEquals(BookingOutcome.BOOKED, retry.getNow(null));
+        }
+        assertEquals(BookingOutcome.BOOKED, small.begin("run-99").join());
+    }
+
+    @Test
+    @DisplayName("Should let a retry run again when the original failed")
+    void shouldRunAgainAfterFailure() {
+        assertThrows(IllegalStateException.class, () -> cache.execute("req-3", () -> {
+            throw new IllegalStateException("Store unavailable");
+        }));
+
+        assertEquals(BookingOutcome.BOOKED, cache.execute("req-3", () -> BookingOutcome.BOOKED));
+        assertEquals(0, cache.getRepeatCount());
+    }
+
+    @Test
+    @DisplayName("Should forget ids unused for the time to live and keep a fixed footprint however many ids pass")
+    void shouldExpireAndStayBounded() {
+        long footprint = cache.getFootprintBytes();
+        cache.execute("old", () -> BookingOutcome.BOOKED);
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertNull(cache.begin("old"));
+        cache.complete("old", BookingOutcome.ALREADY_TAKEN);
+
+        for (int i = 0; i < 100_000; i++) {
+            now.addAndGet(1000);
+            cache.execute("id-" + i, () -> BookingOutcome.BOOKED);
+        }
+        assertEquals(footprint, cache.getFootprintBytes());
+        assertEquals(1024, cache.capacity());
+        // The most recent ids are still remembered; the oldest have been evicted
+        int remembered = 0;
+        for (int i = 100_000 - 256; i < 100_000; i++) {
+            CompletableFuture<BookingOutcome> original = cache.begin("id-" + i);
+            if (original != null) {
+                assertEquals(BookingOutcome.BOOKED, original.join());
+                remembered++;
+            } else {
+                cache.complete("id-" + i, BookingOutcome.BOOKED);
+            }
+        }
+        assertTrue(remembered > 240, "Only " + remembered + " of the last 256 ids remembered");
+        assertNull(cache.begin("id-0"));
+    }
+}
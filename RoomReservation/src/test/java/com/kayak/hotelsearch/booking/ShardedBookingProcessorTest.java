@@ -0,0 +1,75 @@
+package com.kayak.hotelsearch.booking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBookingProcessorTest {
+    private static final int ROOMS = 32;
+    private static final int PRODUCERS = 4;
+    private static final int REQUESTS_PER_PRODUCER = 20_000;
+
+    @Test
+    @DisplayName("Should handle each producer's requests for a room in submission order, one at a time")
+    void shouldKeepPerRoomOrder() throws InterruptedException {
+        Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<Integer, AtomicInteger> active = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        ShardedBookingProcessor processor = new ShardedBookingProcessor(4, 64, request -> {
+            AtomicInteger running = active.computeIfAbsent(request.getRoomNumber(), room -> new AtomicInteger());
+            if (running.incrementAndGet() != 1) {
+                overlaps.incrementAndGet();
+            }
+            // Guests are "producer:sequence"; only this shard's thread appends to the room's list
+            seen.computeIfAbsent(request.getRoomNumber(), room -> new ArrayList<>())
+                    .add(Integer.parseInt(request.getGuest().replace(":", "")));
+            running.decrementAndGet();
+        });
+        processor.start();
+
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch done = new CountDownLatch(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.execute(() -> {
+                try {
+                    for (int i = 0; i < REQUESTS_PER_PRODUCER; i++) {
+                        processor.submit(new BookingRequest(1 + i % ROOMS, producer + ":" + (100_000 + i)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        producers.shutdown();
+        processor.close();
+
+        assertEquals(0, overlaps.get(), "A room should never be handled on two threads at once");
+        int total = 0;
+        for (List<Integer> requests : seen.values()) {
+            total += requests.size();
+            int[] last = new int[PRODUCERS];
+            for (int value : requests) {
+                int producer = value / 1_000_000;
+                int sequence = value % 1_000_000;
+                assertTrue(sequence > last[producer], "Requests from one producer should stay in order");
+                last[producer] = sequence;
+            }
+        }
+        assertEquals(PRODUCERS * REQUESTS_PER_PRODUCER, total, "Every accepted request should be handled");
+    }
+}
@@ -0,0 +1,79 @@
+package com.kayak.hotelsearch.booking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadBookingProcessorTest {
+    private static final int MAX_CONCURRENCY = 4;
+
+    @Test
+    @DisplayName("Should run at most the configured number of requests at once and block the producer beyond it")
+    void shouldCapConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(MAX_CONCURRENCY);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadBookingProcessor processor = new VirtualThreadBookingProcessor(MAX_CONCURRENCY, request -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        });
+        processor.start();
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < MAX_CONCURRENCY * 3; i++) {
+                    processor.submit(new BookingRequest(101 + i, "Guest " + i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(MAX_CONCURRENCY, running.get());
+        assertFalse(producer.isDone(), "The producer should wait for a permit once every one is taken");
+
+        release.countDown();
+        producer.get(5, TimeUnit.SECONDS);
+        processor.close();
+        assertEquals(MAX_CONCURRENCY, peak.get());
+        assertEquals(0, running.get());
+    }
+
+    @Test
+    @DisplayName("Should finish every accepted request before close returns")
+    void shouldFinishAcceptedRequestsOnClose() throws Exception {
+        int requests = 50;
+        AtomicInteger handled = new AtomicInteger();
+        VirtualThreadBookingProcessor processor = new VirtualThreadBookingProcessor(MAX_CONCURRENCY, request -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            handled.incrementAndGet();
+        });
+        processor.start();
+        for (int i = 0; i < requests; i++) {
+            processor.submit(new BookingRequest(101, "Guest " + i));
+        }
+
+        processor.close();
+
+        assertEquals(requests, handled.get(), "Every accepted request should be handled before close returns");
+    }
+}
@@ -0,0 +1,148 @@
+package com.kayak.hotelsearch.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+import com.kayak.hotelsearch.room.SimulatedLatencyRoomRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingRoomStoreTest {
+    private static SimulatedLatencyRoomRepository repository(int rooms) {
+        List<Room> list = new ArrayList<>(rooms);
+        for (int i = 1; i <= rooms; i++) {
+            list.add(Room.builder().roomNumber(i).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build());
+        }
+        return SimulatedLatencyRoomRepository.builder()
+                .rooms(list)
+                .readLatencyMicros(0)
+                .writeLatencyMicros(0)
+                .slowCallShare(0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should read through on a miss and serve the next read from memory")
+    void shouldReadThrough() {
+        SimulatedLatencyRoomRepository repository = repository(10);
+        CachingRoomStore store = CachingRoomStore.builder().repository(repository).maximumSize(5).build();
+        try {
+            assertEquals(3, store.get(3).getRoomNumber());
+            assertEquals(3, store.get(3).getRoomNumber());
+            assertNull(store.get(42));
+            assertEquals(10, store.size());
+
+            CacheStats stats = store.stats();
+            assertEquals(1, stats.hits());
+            assertEquals(2, stats.misses());
+            assertEquals(1, stats.loads());
+            // Two misses plus the scan that counts available rooms when the store is built
+            assertEquals(3, repository.getReadCount());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should count available rooms without scanning the repository again")
+    void shouldCountAvailableRooms() {
+        SimulatedLatencyRoomRepository repository = repository(10);
+        CachingRoomStore store = CachingRoomStore.builder().repository(repository).maximumSize(5).build();
+        try {
+            long reads = repository.getReadCount();
+            store.computeIfPresent(3, room -> room.bookRoom("Alice"));
+            store.computeIfPresent(4, room -> room.bookRoom("Bob"));
+            store.computeIfPresent(4, room -> room.unbookRoom());
+            store.compute(11, room -> Room.builder().roomNumber(11).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build());
+            store.put(store.get(5).bookRoom("Carol"));
+
+            assertEquals(9, store.countAvailable());
+            assertEquals(11, store.size());
+            // Only the misses on rooms 3, 4, 5 and 11 read the repository
+            assertEquals(reads + 4, repository.getReadCount());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should coalesce repeated changes to a room into one write-back")
+    void shouldCoalesceWrites() {
+        SimulatedLatencyRoomRepository repository = repository(10);
+        CachingRoomStore store = CachingRoomStore.builder()
+                .repository(repository)
+                .writeDelayMillis(60_000)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            store.computeIfPresent(1, room -> room.isAvailable() ? room.bookRoom("Guest") : room.unbookRoom());
+        }
+        store.compute(11, room -> Room.builder().roomNumber(11).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build());
+        assertEquals(11, store.size());
+        assertEquals(0, repository.getWriteCount());
+
+        store.close();
+
+        assertEquals(1, repository.getWriteCount());
+        assertEquals(2, repository.getSavedRoomCount());
+        assertEquals(50, repository.find(1).getBookingCount());
+        assertEquals(RoomType.SUITE, repository.find(11).getRoomType());
+        assertEquals(11, store.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within its bound without losing changes to evicted rooms")
+    void shouldEvictOnlyWrittenRooms() throws InterruptedException {
+        SimulatedLatencyRoomRepository repository = repository(1000);
+        CachingRoomStore store = CachingRoomStore.builder()
+                .repository(repository)
+                .maximumSize(100)
+                .writeBatchSize(50)
+                .writeDelayMillis(1)
+                .build();
+        try {
+            for (int roomNumber = 1; roomNumber <= 1000; roomNumber++) {
+                store.computeIfPresent(roomNumber, room -> room.bookRoom("Guest"));
+            }
+            for (int i = 0; i < 500 && store.stats().pendingWrites() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, store.stats().pendingWrites());
+            assertTrue(store.getCachedRoomCount() <= 100);
+            assertTrue(store.stats().evictions() >= 900);
+            for (int roomNumber = 1; roomNumber <= 1000; roomNumber++) {
+                assertFalse(store.get(roomNumber).isAvailable(), "room " + roomNumber);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep frequently used rooms cached through a scan of cold ones")
+    void shouldResistScans() {
+        CachingRoomStore store = CachingRoomStore.builder().repository(repository(10_000)).maximumSize(100).build();
+        try {
+            for (int pass = 0; pass < 10; pass++) {
+                for (int roomNumber = 1; roomNumber <= 50; roomNumber++) {
+                    store.get(roomNumber);
+                }
+            }
+            for (int roomNumber = 51; roomNumber <= 10_000; roomNumber++) {
+                store.get(roomNumber);
+            }
+            long missesBefore = store.stats().misses();
+            for (int roomNumber = 1; roomNumber <= 50; roomNumber++) {
+                store.get(roomNumber);
+            }
+            // A plain LRU cache would have lost every hot room to the scan
+            assertTrue(store.stats().misses() - missesBefore <= 2);
+        } finally {
+            store.close();
+        }
+    }
+}
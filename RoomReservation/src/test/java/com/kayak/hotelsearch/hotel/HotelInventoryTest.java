@@ -0,0 +1,117 @@
+package com.kayak.hotelsearch.hotel;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotelInventoryTest {
+    @TempDir
+    Path directory;
+
+    private static List<Room> rooms(String hotelId) {
+        if (hotelId.startsWith("missing")) {
+            return null;
+        }
+        return List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build(),
+                Room.builder().roomNumber(102).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build());
+    }
+
+    private static boolean book(HotelInventory hotels, String hotelId, int roomNumber, String guest) {
+        return hotels.withHotel(hotelId, service -> service.tryBook(roomNumber, guest));
+    }
+
+    @Test
+    @DisplayName("Should load hotels on first use and keep the same room number separate per hotel")
+    void shouldPartitionByHotel() {
+        AtomicInteger loads = new AtomicInteger();
+        try (HotelInventory hotels = HotelInventory.builder()
+                .loader(hotelId -> {
+                    loads.incrementAndGet();
+                    return rooms(hotelId);
+                })
+                .build()) {
+            assertFalse(hotels.isLoaded("paris"));
+
+            assertTrue(book(hotels, "paris", 101, "Alice"));
+            assertTrue(book(hotels, "rome", 101, "Bob"));
+            assertFalse(book(hotels, "paris", 101, "Carol"));
+
+            assertEquals("paris", hotels.withHotel("paris", service -> service.loadRoom(101)).getHotelId());
+            assertEquals(2, loads.get());
+            assertEquals(2, hotels.getResidentHotelCount());
+            assertThrows(IllegalArgumentException.class, () -> hotels.withHotel("missing-1", service -> true));
+            assertThrows(IllegalArgumentException.class, () -> hotels.withHotel("../paris", service -> true));
+            assertFalse(hotels.isLoaded("missing-1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should unload the coldest hotels beyond the limit and restore their bookings on the next use")
+    void shouldUnloadColdHotels() throws InterruptedException {
+        try (HotelInventory hotels = HotelInventory.builder()
+                .loader(HotelInventoryTest::rooms)
+                .dataDirectory(directory)
+                .snapshotIntervalMillis(0)
+                .maxResidentHotels(2)
+                .build()) {
+            assertTrue(book(hotels, "h1", 101, "Alice"));
+            assertTrue(book(hotels, "h2", 102, "Bob"));
+            assertTrue(book(hotels, "h3", 101, "Carol"));
+            // Unloading happens on the inventory's background thread
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hotels.getEvictionCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(2, hotels.getResidentHotelCount());
+            assertEquals(1, hotels.getEvictionCount());
+            assertFalse(hotels.isLoaded("h1"));
+
+            Room restored = hotels.withHotel("h1", service -> service.loadRoom(101));
+            assertFalse(restored.isAvailable());
+            assertEquals("Alice", restored.getCurrentGuest());
+            assertEquals("h1", restored.getHotelId());
+            assertEquals(4, hotels.getLoadCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should unload a hotel with stays booked by night and restore the stays on the next use")
+    void shouldRestoreStaysOfUnloadedHotels() throws InterruptedException {
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        try (HotelInventory hotels = HotelInventory.builder()
+                .loader(HotelInventoryTest::rooms)
+                .dataDirectory(directory)
+                .snapshotIntervalMillis(0)
+                .maxResidentHotels(2)
+                .build()) {
+            boolean booked = hotels.withHotel("h1", service -> service.tryBook(101, "Alice", checkIn, checkIn.plusDays(2)));
+            assertTrue(booked);
+            assertTrue(book(hotels, "h2", 102, "Bob"));
+            assertTrue(book(hotels, "h3", 101, "Carol"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hotels.getEvictionCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(1, hotels.getEvictionCount());
+            assertFalse(hotels.isLoaded("h1"));
+            boolean available = hotels.withHotel("h1", service -> service.isRoomAvailable(101, checkIn, checkIn.plusDays(2)));
+            assertFalse(available);
+            boolean cancelled = hotels.withHotel("h1", service -> service.cancelStay(101, "Alice", checkIn, checkIn.plusDays(2)));
+            assertTrue(cancelled);
+        }
+    }
+}
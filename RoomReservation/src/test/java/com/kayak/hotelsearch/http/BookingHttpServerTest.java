@@ -0,0 +1,172 @@
+package com.kayak.hotelsearch.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kayak.hotelsearch.hotel.HotelInventory;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingHttpServerTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private HotelInventory hotels;
+    private RoomDatabaseAccessService service;
+    private BookingHttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build(),
+                Room.builder().roomNumber(102).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build()));
+        hotels = HotelInventory.builder().build();
+        hotels.register(Room.DEFAULT_HOTEL, service);
+        server = BookingHttpServer.builder().port(0).hotels(hotels).build();
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        hotels.close();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws IOException {
+        return mapper.readTree(response.body());
+    }
+
+    @Test
+    @DisplayName("Should book and release rooms with status codes for each outcome")
+    void shouldBookAndUnbook() throws Exception {
+        HttpResponse<String> booked = post("/rooms/101/book", "{\"guest\": \"Alice\"}");
+        assertEquals(200, booked.statusCode());
+        assertEquals("BOOKED", json(booked).get("outcome").asText());
+        assertEquals("Alice", service.loadRoom(101).getCurrentGuest());
+
+        HttpResponse<String> taken = post("/rooms/101/book", "{\"guest\": \"Bob\"}");
+        assertEquals(409, taken.statusCode());
+        assertEquals("ALREADY_TAKEN", json(taken).get("outcome").asText());
+        assertEquals(404, post("/rooms/999/book", "{\"guest\": \"Bob\"}").statusCode());
+        assertEquals(400, post("/rooms/102/book", "{}").statusCode());
+        assertEquals(400, post("/rooms/abc/book", "{\"guest\": \"Bob\"}").statusCode());
+        assertEquals(405, get("/rooms/102/book").statusCode());
+
+        HttpResponse<String> released = post("/rooms/101/unbook", "");
+        assertEquals(200, released.statusCode());
+        assertEquals("RELEASED", json(released).get("outcome").asText());
+        assertEquals(409, post("/rooms/101/unbook", "").statusCode());
+        assertTrue(service.isRoomAvailable(101));
+    }
+
+    @Test
+    @DisplayName("Should book any free room of a type")
+    void shouldBookAnyOfType() throws Exception {
+        HttpResponse<String> booked = post("/types/standard/book", "{\"guest\": \"Alice\"}");
+        assertEquals(200, booked.statusCode());
+        assertEquals(101, json(booked).get("roomNumber").asInt());
+        assertEquals("Alice", service.loadRoom(101).getCurrentGuest());
+
+        assertEquals(409, post("/types/STANDARD/book", "{\"guest\": \"Bob\"}").statusCode());
+        assertEquals(400, post("/types/SUITE/book", "{\"guest\": \"Bob\", \"requestId\": \"t-1\"}").statusCode());
+        assertTrue(service.isRoomAvailable(102), "A rejected request books nothing");
+        assertEquals(400, post("/types/PENTHOUSE/book", "{\"guest\": \"Bob\"}").statusCode());
+        assertEquals(405, get("/types/SUITE/book").statusCode());
+        assertEquals(404, post("/types/SUITE", "{\"guest\": \"Bob\"}").statusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer a retried booking or cancellation with its first outcome")
+    void shouldReplayRetries() throws Exception {
+        assertEquals(200, post("/rooms/101/book", "{\"guest\": \"Alice\", \"requestId\": \"b-1\"}").statusCode());
+        assertEquals(200, post("/rooms/101/book", "{\"guest\": \"Alice\", \"requestId\": \"b-1\"}").statusCode());
+        assertEquals(1, service.getTotalBookingAttempts());
+
+        assertEquals(200, post("/rooms/101/unbook", "{\"requestId\": \"u-1\"}").statusCode());
+        assertEquals(200, post("/rooms/101/book", "{\"guest\": \"Bob\"}").statusCode());
+        // The retried cancellation must not release Bob's booking
+        assertEquals(200, post("/rooms/101/unbook", "{\"requestId\": \"u-1\"}").statusCode());
+        assertEquals("Bob", service.loadRoom(101).getCurrentGuest());
+        // Nor may the retried booking take the room back for Alice
+        assertEquals(200, post("/rooms/101/book", "{\"guest\": \"Alice\", \"requestId\": \"b-1\"}").statusCode());
+        assertEquals("Bob", service.loadRoom(101).getCurrentGuest());
+    }
+
+    @Test
+    @DisplayName("Should book and cancel dated stays")
+    void shouldBookStays() throws Exception {
+        String stay = "{\"guest\": \"Alice\", \"checkIn\": \"" + LocalDate.now().plusDays(1)
+                + "\", \"checkOut\": \"" + LocalDate.now().plusDays(3) + "\"}";
+
+        String halfDated = "{\"guest\": \"Bob\", \"checkIn\": \"" + LocalDate.now().plusDays(1) + "\"}";
+        assertEquals(400, post("/rooms/101/book", halfDated).statusCode());
+        assertEquals(400, post("/rooms/101/unbook", halfDated).statusCode());
+        assertTrue(service.isRoomAvailable(101));
+
+        assertEquals(200, post("/rooms/102/book", stay).statusCode());
+        assertEquals(409, post("/rooms/102/book", stay).statusCode());
+        assertEquals(200, post("/rooms/102/unbook", stay).statusCode());
+        assertEquals(200, post("/rooms/102/book", stay).statusCode());
+    }
+
+    @Test
+    @DisplayName("Should report room availability, matching rooms and stats")
+    void shouldAnswerQueries() throws Exception {
+        post("/rooms/101/book", "{\"guest\": \"Alice\"}");
+
+        JsonNode room = json(get("/rooms/101"));
+        assertFalse(room.get("available").asBoolean());
+        assertEquals("Alice", room.get("room").get("currentGuest").asText());
+        assertEquals(404, get("/rooms/999").statusCode());
+
+        JsonNode suites = json(get("/availability?type=suite"));
+        assertEquals(1, suites.get("availableCount").asInt());
+        assertEquals(102, suites.get("rooms").get(0).get("roomNumber").asInt());
+        assertEquals(0, json(get("/availability?maxPrice=200")).get("rooms").size());
+        assertEquals(400, get("/availability?type=PENTHOUSE").statusCode());
+
+        JsonNode stats = json(get("/stats"));
+        assertEquals(1, stats.get("bookingAttempts").asInt());
+        assertEquals(1, stats.get("successfulBookings").asInt());
+        assertEquals(1, stats.get("availableRooms").asInt());
+        assertEquals(400, get("/stats?hotel=../etc").statusCode());
+    }
+
+    @Test
+    @DisplayName("Should serve a long run of requests from one client")
+    void shouldReuseConnections() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            int roomNumber = 101 + i % 2;
+            assertEquals(200, post("/rooms/" + roomNumber + "/book", "{\"guest\": \"Guest " + i + "\"}").statusCode());
+            assertEquals(200, post("/rooms/" + roomNumber + "/unbook", "").statusCode());
+        }
+        assertEquals(200, service.getSuccessfulBookings());
+    }
+}
@@ -0,0 +1,89 @@
+package com.kayak.hotelsearch.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.kayak.hotelsearch.booking.BookingPipeline;
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.booking.FixedPoolBookingProcessor;
+import com.kayak.hotelsearch.room.BookingOutcome;
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    private static RoomDatabaseAccessService service(int rooms) {
+        List<Room> list = new ArrayList<>();
+        for (int i = 1; i <= rooms; i++) {
+            list.add(Room.builder().roomNumber(i).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build());
+        }
+        return new RoomDatabaseAccessService(list);
+    }
+
+    private static void handle(RoomDatabaseAccessService service, BookingRequest request) {
+        if (request.getOperation() == BookingRequest.Operation.CANCEL) {
+            request.complete(service.tryUnbook(request.getRoomNumber()) ? BookingOutcome.RELEASED : BookingOutcome.NOT_BOOKED);
+        } else {
+            request.complete(service.tryBook(request.getRoomNumber(), request.getGuest())
+                    ? BookingOutcome.BOOKED : BookingOutcome.ALREADY_TAKEN);
+        }
+    }
+
+    @Test
+    @DisplayName("Should issue the configured mix at the offered rate and account for every operation")
+    void shouldReportMixedLoad() {
+        RoomDatabaseAccessService service = service(100);
+        LoadReport report;
+        try (FixedPoolBookingProcessor processor = new FixedPoolBookingProcessor(4, 1024, request -> handle(service, request))) {
+            processor.start();
+            report = LoadGenerator.builder()
+                    .ratePerSecond(2000)
+                    .duration(Duration.ofSeconds(1))
+                    .zipfExponent(1.0)
+                    .bookShare(0.6)
+                    .cancelShare(0.3)
+                    .build()
+                    .run(new BookingPipeline(processor, 1024), service);
+        }
+
+        assertTrue(report.getArrivals() > 1500 && report.getArrivals() < 2500, "arrivals " + report.getArrivals());
+        assertEquals(report.getArrivals(), report.getCompleted() + report.getRejected());
+        long books = report.getCount(BookingOutcome.BOOKED) + report.getCount(BookingOutcome.ALREADY_TAKEN);
+        long cancels = report.getCount(BookingOutcome.RELEASED) + report.getCount(BookingOutcome.NOT_BOOKED);
+        assertEquals(0.6, (double) books / report.getCompleted(), 0.1);
+        assertEquals(0.3, (double) cancels / report.getCompleted(), 0.1);
+        assertEquals(books, report.getBookLatency().getCount());
+        assertEquals(report.getQueries(), report.getQueryLatency().getCount());
+        assertTrue(report.getConflictRate() > 0, "Hot rooms should see conflicting bookings");
+        assertTrue(report.getPeakHeapBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should skew draws towards the first ranks by the Zipf exponent")
+    void shouldSampleZipf() {
+        int draws = 100_000;
+        Random random = new Random(1);
+        ZipfSampler zipf = new ZipfSampler(1000, 1.0);
+        ZipfSampler uniform = new ZipfSampler(1000, 0.0);
+        int[] zipfCounts = new int[1000];
+        int[] uniformCounts = new int[1000];
+        for (int i = 0; i < draws; i++) {
+            zipfCounts[zipf.sample(random)]++;
+            uniformCounts[uniform.sample(random)]++;
+        }
+
+        // Rank 0 gets 1/H(1000), about 13.4% of draws, and rank 1 half that
+        assertEquals(0.134, zipfCounts[0] / (double) draws, 0.01);
+        assertEquals(0.067, zipfCounts[1] / (double) draws, 0.01);
+        assertEquals(0.001, uniformCounts[0] / (double) draws, 0.001);
+        assertTrue(zipfCounts[999] < zipfCounts[0] / 100);
+    }
+}
@@ -0,0 +1,90 @@
+package com.kayak.hotelsearch.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHandlerTest {
+    // Collects records on the writer thread; the latch lets a test hold the writer up
+    private static final class RecordingHandler extends Handler {
+        private final List<LogRecord> records = new ArrayList<>();
+        private final CountDownLatch release;
+
+        RecordingHandler(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<String> messages() {
+            return records.stream().map(LogRecord::getMessage).toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Should publish every record in order and keep the caller as the source")
+    void shouldPublishInOrder() {
+        RecordingHandler target = new RecordingHandler(new CountDownLatch(0));
+        AsyncHandler handler = new AsyncHandler(target, 2_048);
+        Logger logger = Logger.getLogger(AsyncHandlerTest.class.getName());
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        for (int i = 0; i < 1_000; i++) {
+            logger.info("line " + i);
+        }
+        logger.removeHandler(handler);
+        handler.close();
+
+        List<String> messages = target.messages();
+        assertEquals(1_000, messages.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("line " + i, messages.get(i));
+        }
+        assertEquals(AsyncHandlerTest.class.getName(), target.records.get(0).getSourceClassName());
+    }
+
+    @Test
+    @DisplayName("Should drop info records but keep warnings when the buffer is full")
+    void shouldDropOnlyLowLevelRecordsWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler target = new RecordingHandler(release);
+        AsyncHandler handler = new AsyncHandler(target, 4);
+        for (int i = 0; i < 20; i++) {
+            handler.publish(new LogRecord(Level.INFO, "info " + i));
+        }
+        assertTrue(handler.getDroppedCount() > 0, "A full buffer should drop info records");
+
+        Thread warner = new Thread(() -> handler.publish(new LogRecord(Level.WARNING, "warning")));
+        warner.start();
+        release.countDown();
+        warner.join(5_000);
+        handler.close();
+
+        assertTrue(target.messages().contains("warning"), "Warnings should wait for space instead of being dropped");
+    }
+}
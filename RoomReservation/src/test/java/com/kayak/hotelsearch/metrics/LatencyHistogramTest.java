@@ -0,0 +1,48 @@
+package com.kayak.hotelsearch.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    @DisplayName("Should place every value in a bucket whose range contains it")
+    void shouldMapValuesToContainingBucket() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, Long.MAX_VALUE / 2};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketIndex(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.highestValue(bucket) >= value, "Bucket too low for " + value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValue(bucket - 1) < value, "Bucket too high for " + value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should report percentiles within the bucket precision")
+    void shouldReportPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500, snapshot.getMean(), 1e-9);
+        assertEquals(500_000, snapshot.getValueAtPercentile(50), 500_000 * 0.07);
+        assertEquals(990_000, snapshot.getValueAtPercentile(99), 990_000 * 0.07);
+        assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Should report zeros when nothing was recorded")
+    void shouldHandleEmptyHistogram() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0.0, snapshot.getMean());
+    }
+}
@@ -0,0 +1,76 @@
+package com.kayak.hotelsearch.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomCatalogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should convert CSV and JSON room lists into a catalogue that loads into either store")
+    void shouldRoundTripThroughCatalogue() throws IOException {
+        Path csv = Files.writeString(directory.resolve("rooms.csv"),
+                "roomNumber,roomType,price\n101,STANDARD,100.0\n\n205,SUITE,300.5\n");
+        Path json = Files.writeString(directory.resolve("rooms.json"),
+                "[{\"roomNumber\": 101, \"roomType\": \"STANDARD\", \"price\": 100.0},"
+                        + " {\"roomNumber\": 205, \"roomType\": \"SUITE\", \"price\": 300.5}]");
+
+        for (Path input : List.of(csv, json)) {
+            Path catalogue = directory.resolve(input.getFileName() + ".rcat");
+            assertEquals(2, RoomCatalogConverter.convert(input, catalogue, "paris"));
+            for (String kind : List.of("concurrent", "dense")) {
+                RoomStore store = RoomCatalog.load(catalogue, kind);
+                assertEquals(2, store.size());
+                Room suite = store.get(205);
+                assertEquals(RoomType.SUITE, suite.getRoomType());
+                assertEquals(300.5, suite.getPrice());
+                assertEquals("paris", suite.getHotelId());
+                assertTrue(suite.isAvailable());
+                assertNull(store.get(150));
+            }
+            assertEquals(List.of(101, 205), RoomCatalog.readRooms(catalogue).stream().map(Room::getRoomNumber).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate rooms without leaving a partial catalogue")
+    void shouldRejectDuplicateRooms() throws IOException {
+        Path csv = Files.writeString(directory.resolve("rooms.csv"), "101,STANDARD,100.0\n101,DELUXE,200.0\n");
+        Path catalogue = directory.resolve("rooms.rcat");
+
+        assertThrows(IOException.class, () -> RoomCatalogConverter.convert(csv, catalogue, "paris"));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(csv), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse to load a catalogue that fails its checksum")
+    void shouldDetectCorruption() throws IOException {
+        Path catalogue = directory.resolve("rooms.rcat");
+        try (RoomCatalog.Writer writer = RoomCatalog.writer(catalogue, "paris")) {
+            writer.add(101, RoomType.STANDARD, 100.0).add(102, RoomType.DELUXE, 200.0);
+        }
+        try (FileChannel channel = FileChannel.open(catalogue, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), channel.size() - 10);
+        }
+
+        assertThrows(IOException.class, () -> RoomCatalog.load(catalogue, "concurrent"));
+    }
+}
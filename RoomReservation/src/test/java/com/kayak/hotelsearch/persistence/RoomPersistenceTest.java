@@ -0,0 +1,142 @@
+package com.kayak.hotelsearch.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomStore;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomPersistenceTest {
+    @TempDir
+    Path directory;
+
+    private static RoomStore freshStore() {
+        return RoomDatabaseAccessService.createRoomStore("concurrent", List.of(
+                room(101), room(102), room(103)));
+    }
+
+    private static Room room(int roomNumber) {
+        return Room.builder()
+                .roomNumber(roomNumber)
+                .roomType(RoomType.STANDARD)
+                .price(150.0)
+                .isAvailable(true)
+                .bookingCount(0)
+                .build();
+    }
+
+    private RoomDatabaseAccessService open(RoomPersistence persistence, long snapshotIntervalMillis) throws IOException {
+        RoomStore store = freshStore();
+        persistence.recover(store);
+        RoomDatabaseAccessService service = new RoomDatabaseAccessService(store);
+        persistence.start(service, snapshotIntervalMillis);
+        return service;
+    }
+
+    @Test
+    @DisplayName("Should restore bookings from the log after a crash")
+    void shouldRecoverFromLog() throws IOException {
+        RoomPersistence persistence = new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5);
+        RoomDatabaseAccessService service = open(persistence, 0);
+        assertTrue(service.tryBook(101, "Alice"));
+        assertTrue(service.tryBook(102, "Bob"));
+        assertTrue(service.tryUnbook(102));
+        // No close: group commit already made each acknowledged booking durable
+
+        RoomStore recovered = freshStore();
+        new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5).recover(recovered);
+
+        assertEquals("Alice", recovered.get(101).getCurrentGuest());
+        assertFalse(recovered.get(101).isAvailable());
+        assertTrue(recovered.get(102).isAvailable());
+        assertEquals(1, recovered.get(102).getBookingCount());
+        assertEquals(2, recovered.get(102).getVersion());
+        assertTrue(recovered.get(103).isAvailable());
+    }
+
+    @Test
+    @DisplayName("Should restore from the snapshot plus later log records")
+    void shouldRecoverFromSnapshotAndLog() throws IOException {
+        RoomPersistence persistence = new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5);
+        RoomDatabaseAccessService service = open(persistence, 0);
+        service.tryBook(101, "Alice");
+        persistence.snapshot();
+        service.tryBook(103, "Carol");
+
+        RoomStore recovered = freshStore();
+        new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5).recover(recovered);
+
+        assertEquals("Alice", recovered.get(101).getCurrentGuest());
+        assertEquals("Carol", recovered.get(103).getCurrentGuest());
+        assertEquals(1, recovered.get(101).getVersion());
+        persistence.close();
+    }
+
+    @Test
+    @DisplayName("Should restore stays booked by night, and cancellations of part of them, from the snapshot and the log")
+    void shouldRecoverStays() throws IOException {
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        RoomPersistence persistence = new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5);
+        RoomDatabaseAccessService service = open(persistence, 0);
+        assertTrue(service.tryBook(101, "Alice", checkIn, checkIn.plusDays(4)));
+        persistence.snapshot();
+        assertTrue(service.cancelStay(101, "Alice", checkIn.plusDays(1), checkIn.plusDays(2)));
+        assertTrue(service.tryBook(102, "Bob", checkIn, checkIn.plusDays(2)));
+        assertTrue(service.cancelStay(102, "Bob", checkIn, checkIn.plusDays(2)));
+        // No close: group commit already made each acknowledged change durable
+
+        RoomDatabaseAccessService recovered = open(new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5), 0);
+
+        assertFalse(recovered.isRoomAvailable(101, checkIn, checkIn.plusDays(1)));
+        assertTrue(recovered.isRoomAvailable(101, checkIn.plusDays(1), checkIn.plusDays(2)));
+        assertFalse(recovered.isRoomAvailable(101, checkIn.plusDays(2), checkIn.plusDays(4)));
+        assertTrue(recovered.isRoomAvailable(102, checkIn, checkIn.plusDays(2)));
+        // The room is still off the undated path, and only Alice can cancel her remaining nights
+        assertFalse(recovered.isRoomAvailable(101));
+        assertFalse(recovered.cancelStay(101, "Bob", checkIn, checkIn.plusDays(1)));
+        assertTrue(recovered.cancelStay(101, "Alice", checkIn, checkIn.plusDays(1)));
+        assertTrue(recovered.cancelStay(101, "Alice", checkIn.plusDays(2), checkIn.plusDays(4)));
+        assertTrue(recovered.isRoomAvailable(101));
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("Should ignore a torn record at the end of the log")
+    void shouldIgnoreTornTail() throws IOException {
+        RoomPersistence persistence = new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5);
+        RoomDatabaseAccessService service = open(persistence, 0);
+        service.tryBook(101, "Alice");
+        service.tryBook(102, "Bob");
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Simulate a crash halfway through writing the second record
+            channel.truncate(channel.size() - 5);
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2}), channel.size());
+        }
+
+        RoomStore recovered = freshStore();
+        new RoomPersistence(directory, WriteAheadLog.SyncMode.GROUP_COMMIT, 5).recover(recovered);
+
+        assertEquals("Alice", recovered.get(101).getCurrentGuest());
+        assertTrue(recovered.get(102).isAvailable());
+    }
+}
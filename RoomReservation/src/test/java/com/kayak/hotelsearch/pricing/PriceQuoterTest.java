@@ -0,0 +1,89 @@
+package com.kayak.hotelsearch.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomHold;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceQuoterTest {
+    private RoomDatabaseAccessService service;
+    private PriceQuoter quoter;
+
+    @BeforeEach
+    void setUp() {
+        // Rooms 1-10 are DELUXE at 200, 11-12 STANDARD at 100
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(i <= 10 ? RoomType.DELUXE : RoomType.STANDARD)
+                    .price(i <= 10 ? 200.0 : 100.0)
+                    .isAvailable(true)
+                    .build());
+        }
+        service = new RoomDatabaseAccessService(rooms);
+        quoter = new PriceQuoter(service, PricingPolicy.builder()
+                .surge(0.5, 1.1)
+                .surge(RoomType.DELUXE, 0.8, 1.5)
+                .surge(RoomType.DELUXE, 0.9, 2.0)
+                .build());
+    }
+
+    @Test
+    @DisplayName("Should surge a room type's price as its occupancy crosses each threshold")
+    void shouldSurgeWithOccupancy() {
+        for (int i = 1; i <= 7; i++) {
+            assertTrue(service.tryBook(i, "Guest " + i));
+        }
+        assertEquals(0.7, service.getOccupancy(RoomType.DELUXE), 1e-9);
+        assertEquals(200.0, quoter.quote(10), 1e-9, "DELUXE tiers replace the default 50% tier");
+
+        assertTrue(service.tryBook(8, "Guest 8"));
+        assertEquals(300.0, quoter.quote(10), 1e-9);
+
+        assertTrue(service.tryBook(9, "Guest 9"));
+        assertEquals(400.0, quoter.quote(10), 1e-9);
+        assertEquals(100.0, quoter.quote(11), 1e-9, "Other types should be unaffected");
+    }
+
+    @Test
+    @DisplayName("Should drop the surge once rooms are released or holds end")
+    void shouldFollowReleasesAndHolds() {
+        for (int i = 1; i <= 8; i++) {
+            assertTrue(service.tryBook(i, "Guest " + i));
+        }
+        assertEquals(1.5, quoter.multiplier(RoomType.DELUXE), 1e-9);
+
+        assertTrue(service.tryUnbook(1));
+        assertEquals(1.0, quoter.multiplier(RoomType.DELUXE), 1e-9);
+
+        RoomHold hold = service.tryHold(1, "Guest 1", Duration.ofMinutes(10));
+        assertEquals(1.5, quoter.multiplier(RoomType.DELUXE), 1e-9, "A held room counts as occupied");
+        assertTrue(service.releaseHold(hold));
+        assertEquals(1.0, quoter.multiplier(RoomType.DELUXE), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should apply the default tiers to types without their own and follow room type changes")
+    void shouldUseDefaultTiers() {
+        assertTrue(service.tryBook(11, "Alice"));
+        assertEquals(110.0, quoter.quote(12), 1e-9);
+
+        // Moving the booked room to DELUXE leaves STANDARD empty again
+        service.updateRoom(Room.builder().roomNumber(11).roomType(RoomType.DELUXE).price(200.0).isAvailable(false).build());
+        assertEquals(0.0, service.getOccupancy(RoomType.STANDARD), 1e-9);
+        assertEquals(100.0, quoter.quote(12), 1e-9);
+        assertEquals(11, service.getAllRooms().stream().filter(room -> room.getRoomType() == RoomType.DELUXE).count());
+        assertEquals(1 / 11.0, service.getOccupancy(RoomType.DELUXE), 1e-9);
+    }
+}
@@ -0,0 +1,203 @@
+package com.kayak.hotelsearch.replication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.kayak.hotelsearch.room.Room;
+import com.kayak.hotelsearch.room.RoomDatabaseAccessService;
+import com.kayak.hotelsearch.room.RoomHold;
+import com.kayak.hotelsearch.room.RoomQuery;
+import com.kayak.hotelsearch.room.RoomReplica;
+import com.kayak.hotelsearch.room.RoomType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+    private RoomDatabaseAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            rooms.add(Room.builder()
+                    .roomNumber(i)
+                    .roomType(i % 2 == 0 ? RoomType.STANDARD : RoomType.DELUXE)
+                    .price(100.0 + i)
+                    .isAvailable(true)
+                    .build());
+        }
+        service = new RoomDatabaseAccessService(rooms);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the replica");
+            Thread.sleep(5);
+        }
+    }
+
+    private void churn() {
+        for (int i = 1; i <= 20; i++) {
+            service.tryBook(i, "Guest " + i);
+        }
+        for (int i = 1; i <= 20; i += 3) {
+            service.tryUnbook(i);
+        }
+        service.updateRoom(Room.builder().roomNumber(21).roomType(RoomType.SUITE).price(400.0).isAvailable(true).build());
+    }
+
+    private void assertMatchesService(RoomReplica replica) {
+        assertEquals(service.getAllRooms().size(), replica.size());
+        for (Room room : service.getAllRooms()) {
+            Room copy = replica.loadRoom(room.getRoomNumber());
+            assertEquals(room.getVersion(), copy.getVersion());
+            assertEquals(room.isAvailable(), copy.isAvailable());
+            assertEquals(room.getCurrentGuest(), copy.getCurrentGuest());
+            assertEquals(service.isRoomAvailable(room.getRoomNumber()), replica.isRoomAvailable(room.getRoomNumber()));
+        }
+        assertEquals(service.getAvailableRoomCount(), replica.getAvailableRoomCount());
+        assertEquals(service.getAvailableRoomCount(RoomType.DELUXE), replica.getAvailableRoomCount(RoomType.DELUXE));
+        RoomQuery query = RoomQuery.builder().roomType(RoomType.DELUXE).limit(3).build();
+        assertEquals(service.findAvailableRooms(query).stream().map(Room::getRoomNumber).toList(),
+                replica.findAvailableRooms(query).stream().map(Room::getRoomNumber).toList());
+    }
+
+    @Test
+    @DisplayName("Should keep an in-process replica in step with bookings, releases and room updates")
+    void shouldFollowInProcess() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(1024);
+        feed.start(service);
+        service.tryBook(2, "Before");
+        try (ReplicaFollower follower = new ReplicaFollower("local", feed, new RoomReplica())) {
+            follower.start();
+            churn();
+            await(() -> follower.appliedSequence() == feed.getLastSequence());
+
+            assertMatchesService(follower.getReplica());
+            assertEquals("Before", follower.getReplica().loadRoom(2).getCurrentGuest());
+            ReplicaStatus status = feed.getReplicaStatuses().get(0);
+            assertEquals("local", status.name());
+            assertEquals(0, status.lagChanges());
+            assertEquals(0, status.resyncCount());
+        }
+        assertTrue(feed.getReplicaStatuses().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should tell a reader a whole ring behind to reload, and start new readers half a ring back")
+    void shouldReportLappedReaders() {
+        ChangeFeed feed = new ChangeFeed(8);
+        feed.start(service);
+        List<RoomChange> drained = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            service.tryBook(i, "Guest " + i);
+        }
+        assertEquals(5, feed.drain(1, 100, drained::add));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), drained.stream().map(RoomChange::sequence).toList());
+        assertEquals(0, feed.drain(6, 100, drained::add));
+
+        for (int i = 6; i <= 20; i++) {
+            service.tryBook(i, "Guest " + i);
+        }
+        assertEquals(ChangeFeed.LAPPED, feed.drain(6, 100, drained::add));
+        ChangeFeed.Bootstrap bootstrap = feed.bootstrap();
+        assertEquals(17, bootstrap.fromSequence());
+        assertEquals(20, bootstrap.rooms().size());
+        assertEquals(4, feed.drain(bootstrap.fromSequence(), 100, change -> { }));
+    }
+
+    @Test
+    @DisplayName("Should keep the newest version of a room whatever order changes arrive in")
+    void shouldIgnoreOlderVersions() {
+        RoomReplica replica = new RoomReplica();
+        Room available = Room.builder().roomNumber(1).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build();
+        Room booked = available.bookRoom("Alice");
+        replica.reset(List.of(booked));
+
+        assertFalse(replica.apply(available));
+        assertFalse(replica.isRoomAvailable(1));
+        assertEquals(0, replica.getAvailableRoomCount(RoomType.STANDARD));
+        assertTrue(replica.apply(booked.unbookRoom()));
+        assertTrue(replica.isRoomAvailable(1));
+        assertEquals(1, replica.getAvailableRoomCount(RoomType.STANDARD));
+    }
+
+    @Test
+    @DisplayName("Should leave held rooms and rooms with nights booked out of replica availability")
+    void shouldReplicateHoldsAndStays() throws Exception {
+        LocalDate checkIn = LocalDate.now().plusDays(5);
+        // Blocked before the replicas start, so the reload has to carry it
+        RoomHold early = service.tryHold(3, "Early", Duration.ofMinutes(5));
+        ChangeFeed feed = new ChangeFeed(1024);
+        feed.start(service);
+        try (ChangeFeedServer server = ChangeFeedServer.builder().port(0).feed(feed).build()) {
+            server.start();
+            try (ReplicaFollower follower = new ReplicaFollower("local", feed, new RoomReplica());
+                    RemoteReplica remote = new RemoteReplica("remote", "127.0.0.1", server.getPort(), new RoomReplica())) {
+                follower.start();
+                remote.start();
+                RoomHold hold = service.tryHold(5, "Holder", Duration.ofMinutes(5));
+                assertTrue(service.tryBook(7, "Stayer", checkIn, checkIn.plusDays(2)));
+                await(() -> follower.appliedSequence() == feed.getLastSequence()
+                        && remote.getAppliedSequence() == feed.getLastSequence());
+                for (RoomReplica replica : List.of(follower.getReplica(), remote.getReplica())) {
+                    assertMatchesService(replica);
+                    assertFalse(replica.isRoomAvailable(3));
+                    assertFalse(replica.isRoomAvailable(5));
+                    assertFalse(replica.isRoomAvailable(7));
+                }
+
+                assertTrue(service.releaseHold(early));
+                assertTrue(service.releaseHold(hold));
+                assertTrue(service.cancelStay(7, "Stayer", checkIn, checkIn.plusDays(2)));
+                await(() -> follower.appliedSequence() == feed.getLastSequence()
+                        && remote.getAppliedSequence() == feed.getLastSequence());
+                for (RoomReplica replica : List.of(follower.getReplica(), remote.getReplica())) {
+                    assertMatchesService(replica);
+                    assertTrue(replica.isRoomAvailable(3));
+                    assertTrue(replica.isRoomAvailable(5));
+                    assertTrue(replica.isRoomAvailable(7));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a replica in step over a loopback socket and report its acknowledged position")
+    void shouldFollowOverSocket() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1024);
+        feed.start(service);
+        try (ChangeFeedServer server = ChangeFeedServer.builder().port(0).feed(feed).build()) {
+            server.start();
+            service.tryBook(2, "Before");
+            try (RemoteReplica remote = new RemoteReplica("remote", "127.0.0.1", server.getPort(), new RoomReplica())) {
+                remote.start();
+                churn();
+                await(() -> remote.getAppliedSequence() == feed.getLastSequence());
+                assertMatchesService(remote.getReplica());
+                assertEquals(0, remote.getResyncCount());
+
+                await(() -> !feed.getReplicaStatuses().isEmpty() && feed.getReplicaStatuses().get(0).lagChanges() == 0);
+                assertEquals("remote", feed.getReplicaStatuses().get(0).name());
+
+                service.tryUnbook(2);
+                await(() -> remote.getReplica().isRoomAvailable(2));
+            }
+        }
+    }
+}
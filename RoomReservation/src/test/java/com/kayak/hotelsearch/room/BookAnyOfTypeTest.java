@@ -0,0 +1,134 @@
+package com.kayak.hotelsearch.room;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookAnyOfTypeTest {
+    private RoomDatabaseAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build(),
+                Room.builder().roomNumber(102).roomType(RoomType.STANDARD).price(120.0).isAvailable(true).build(),
+                Room.builder().roomNumber(103).roomType(RoomType.DELUXE).price(200.0).isAvailable(true).build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Should book distinct rooms of the type until none is left, then again once one is released")
+    void shouldBookUntilTypeIsExhausted() {
+        Room first = service.bookAnyOfType(RoomType.STANDARD, "Alice");
+        Room second = service.bookAnyOfType(RoomType.STANDARD, "Bob");
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotEquals(first.getRoomNumber(), second.getRoomNumber());
+        assertEquals(RoomType.STANDARD, first.getRoomType());
+        assertEquals("Bob", service.loadRoom(second.getRoomNumber()).getCurrentGuest());
+        assertNull(service.bookAnyOfType(RoomType.STANDARD, "Carol"));
+        assertTrue(service.isRoomAvailable(103));
+
+        assertTrue(service.tryUnbook(first.getRoomNumber()));
+        assertEquals(first.getRoomNumber(), service.bookAnyOfType(RoomType.STANDARD, "Carol").getRoomNumber());
+        assertEquals(3, service.getSuccessfulBookings());
+        assertEquals(4, service.getTotalBookingAttempts());
+    }
+
+    @Test
+    @DisplayName("Should skip rooms booked, held or retyped since they were listed")
+    void shouldStayInSyncWithOtherPaths() {
+        assertTrue(service.tryBook(101, "Alice"));
+        RoomHold hold = service.tryHold(102, "Bob", Duration.ofMinutes(5));
+        assertNotNull(hold);
+        assertNull(service.bookAnyOfType(RoomType.STANDARD, "Carol"));
+
+        assertTrue(service.releaseHold(hold));
+        assertEquals(102, service.bookAnyOfType(RoomType.STANDARD, "Carol").getRoomNumber());
+
+        assertTrue(service.tryUnbook(101));
+        service.updateRoom(Room.builder().roomNumber(101).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build());
+        assertNull(service.bookAnyOfType(RoomType.STANDARD, "Dave"));
+        assertEquals(101, service.bookAnyOfType(RoomType.SUITE, "Dave").getRoomNumber());
+    }
+
+    @Test
+    @DisplayName("Should reject a missing type or guest")
+    void shouldValidateArguments() {
+        assertThrows(IllegalArgumentException.class, () -> service.bookAnyOfType(null, "Alice"));
+        assertThrows(IllegalArgumentException.class, () -> service.bookAnyOfType(RoomType.STANDARD, " "));
+    }
+
+    @Test
+    @DisplayName("Should give each room to exactly one of many threads booking and releasing the same type")
+    void shouldBookEachRoomOnceUnderContention() throws InterruptedException {
+        int rooms = 100;
+        int threads = 200;
+        List<Room> catalogue = new ArrayList<>(rooms);
+        for (int i = 1; i <= rooms; i++) {
+            catalogue.add(Room.builder().roomNumber(i).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build());
+        }
+        RoomDatabaseAccessService contended = new RoomDatabaseAccessService(catalogue);
+        Set<Integer> held = ConcurrentHashMap.newKeySet();
+        AtomicInteger doubleBookings = new AtomicInteger();
+        AtomicInteger booked = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            String guest = "Guest " + t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 50; i++) {
+                        Room room = contended.bookAnyOfType(RoomType.STANDARD, guest);
+                        if (room == null) {
+                            continue;
+                        }
+                        booked.incrementAndGet();
+                        if (!held.add(room.getRoomNumber())) {
+                            doubleBookings.incrementAndGet();
+                        }
+                        held.remove(room.getRoomNumber());
+                        contended.tryUnbook(room.getRoomNumber());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, doubleBookings.get());
+        assertTrue(booked.get() > 0);
+        assertEquals(rooms, contended.getAvailableRoomCount(RoomType.STANDARD));
+        // Every room is listed again once released, so the whole type can be booked afterwards
+        Set<Integer> all = new HashSet<>();
+        for (Room room = contended.bookAnyOfType(RoomType.STANDARD, "Last"); room != null;
+                room = contended.bookAnyOfType(RoomType.STANDARD, "Last")) {
+            assertTrue(all.add(room.getRoomNumber()));
+        }
+        assertEquals(rooms, all.size());
+        contended.close();
+    }
+}
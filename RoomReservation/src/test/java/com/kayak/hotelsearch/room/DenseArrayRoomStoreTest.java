@@ -0,0 +1,106 @@
+package com.kayak.hotelsearch.room;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseArrayRoomStoreTest {
+    private DenseArrayRoomStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = DenseArrayRoomStore.of(List.of(room(101, RoomType.STANDARD), room(105, RoomType.SUITE)));
+    }
+
+    private static Room room(int roomNumber, RoomType type) {
+        return Room.builder()
+                .roomNumber(roomNumber)
+                .roomType(type)
+                .price(150.0)
+                .isAvailable(true)
+                .bookingCount(0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should round-trip every room field")
+    void shouldRoundTripRoomFields() {
+        LocalDateTime bookedAt = LocalDateTime.of(2025, 6, 6, 14, 59, 45, 123_456_789);
+        store.put(Room.builder()
+                .roomNumber(105)
+                .roomType(RoomType.SUITE)
+                .price(300.0)
+                .isAvailable(false)
+                .currentGuest("Guest 5")
+                .lastBookingTime(bookedAt)
+                .bookingCount(3)
+                .build());
+
+        Room room = store.get(105);
+        assertEquals(RoomType.SUITE, room.getRoomType());
+        assertEquals(300.0, room.getPrice());
+        assertFalse(room.isAvailable());
+        assertEquals("Guest 5", room.getCurrentGuest());
+        assertEquals(bookedAt, room.getLastBookingTime());
+        assertEquals(3, room.getBookingCount());
+    }
+
+    @Test
+    @DisplayName("Should treat gaps and out-of-range numbers as absent")
+    void shouldTreatGapsAsAbsent() {
+        assertEquals(2, store.size());
+        assertNull(store.get(103), "Gap inside the range should be absent");
+        assertNull(store.get(100));
+        assertNull(store.get(106));
+        assertNull(store.computeIfPresent(103, current -> current.bookRoom("Guest 1")));
+        assertThrows(IllegalArgumentException.class, () -> store.put(room(200, RoomType.DELUXE)));
+    }
+
+    @Test
+    @DisplayName("Should apply concurrent updates atomically")
+    void shouldApplyConcurrentUpdatesAtomically() throws InterruptedException {
+        int threadCount = 8;
+        int cycles = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        AtomicInteger tornReads = new AtomicInteger(0);
+
+        for (int i = 0; i < threadCount; i++) {
+            String guest = "Guest " + i;
+            executor.submit(() -> {
+                try {
+                    for (int cycle = 0; cycle < cycles; cycle++) {
+                        store.computeIfPresent(101, current -> current.isAvailable() ? current.bookRoom(guest) : current);
+                        store.computeIfPresent(101, Room::unbookRoom);
+                        Room seen = store.get(101);
+                        // A torn read would pair an available room with a guest or a booked room without one
+                        if (seen.isAvailable() != (seen.getCurrentGuest() == null)) {
+                            tornReads.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(0, tornReads.get(), "Readers should never see a half-written room");
+        Room room = store.get(101);
+        assertTrue(room.isAvailable(), "Every thread finishes with a release");
+        assertTrue(room.getBookingCount() > 0);
+        assertEquals(2, store.countAvailable());
+    }
+}
@@ -0,0 +1,132 @@
+package com.kayak.hotelsearch.room;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NightInventoryTest {
+    private static final LocalDate FIRST_NIGHT = LocalDate.of(2025, 1, 1);
+    private NightInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new NightInventory(FIRST_NIGHT, 365, 2);
+        inventory.addRoom(101);
+        inventory.addRoom(102);
+    }
+
+    private static LocalDate night(int offset) {
+        return FIRST_NIGHT.plusDays(offset);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "10, 15, 5, 11, false",
+        "10, 15, 14, 20, false",
+        "10, 15, 11, 13, false",
+        "10, 15, 15, 20, true",
+        "10, 15, 3, 10, true",
+        "60, 70, 63, 65, false",
+        "60, 70, 0, 60, true",
+        "60, 200, 199, 201, false",
+        "60, 200, 200, 365, true"
+    })
+    @DisplayName("Should detect overlapping stays across word boundaries")
+    void shouldDetectOverlappingStays(int bookedIn, int bookedOut, int queryIn, int queryOut, boolean expected) {
+        assertTrue(inventory.tryReserve(101, "Alice", night(bookedIn), night(bookedOut)));
+        assertEquals(expected, inventory.isAvailable(101, night(queryIn), night(queryOut)));
+        assertEquals(expected, inventory.tryReserve(101, "Alice", night(queryIn), night(queryOut)));
+    }
+
+    @Test
+    @DisplayName("Should keep rooms independent")
+    void shouldKeepRoomsIndependent() {
+        assertTrue(inventory.tryReserve(101, "Alice", night(0), night(7)));
+        assertTrue(inventory.isAvailable(102, night(0), night(7)));
+        assertEquals(1, inventory.countAvailable(night(3), night(4)));
+        assertEquals(2, inventory.countAvailable(night(7), night(8)));
+    }
+
+    @Test
+    @DisplayName("Should free nights on release")
+    void shouldFreeNightsOnRelease() {
+        assertTrue(inventory.tryReserve(101, "Alice", night(30), night(100)));
+        assertFalse(inventory.release(101, "Alice", night(25), night(35)), "Partially unreserved range should not be released");
+        assertTrue(inventory.release(101, "Alice", night(30), night(100)));
+        assertTrue(inventory.isAvailable(101, night(0), night(365)));
+    }
+
+    @Test
+    @DisplayName("Should release only the cancelling guest's own nights")
+    void shouldReleaseOnlyOwnNights() {
+        assertTrue(inventory.tryReserve(101, "Alice", night(1), night(3)));
+        assertTrue(inventory.tryReserve(101, "Bob", night(3), night(5)));
+
+        assertFalse(inventory.release(101, "Alice", night(2), night(4)), "Night 3 is Bob's");
+        assertFalse(inventory.release(101, "Carol", night(1), night(3)));
+        assertFalse(inventory.isAvailable(101, night(1), night(2)));
+
+        // Part of a stay can be cancelled, leaving the rest booked
+        assertTrue(inventory.release(101, "Alice", night(2), night(3)));
+        assertTrue(inventory.isAvailable(101, night(2), night(3)));
+        assertFalse(inventory.isAvailable(101, night(1), night(2)));
+        assertFalse(inventory.release(101, "Alice", night(1), night(3)));
+        assertTrue(inventory.release(101, "Alice", night(1), night(2)));
+        assertTrue(inventory.release(101, "Bob", night(3), night(5)));
+        assertFalse(inventory.hasReservations(101));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid stays")
+    void shouldRejectInvalidStays() {
+        assertThrows(IllegalArgumentException.class, () -> inventory.tryReserve(101, "Alice", night(5), night(5)));
+        assertThrows(IllegalArgumentException.class, () -> inventory.tryReserve(101, "Alice", night(-1), night(2)));
+        assertThrows(IllegalArgumentException.class, () -> inventory.tryReserve(101, "Alice", night(360), night(366)));
+        assertFalse(inventory.tryReserve(999, "Alice", night(0), night(1)), "Unknown room should not be reserved");
+    }
+
+    @Test
+    @DisplayName("Should roll the horizon forward and reuse the nights that fell off its start")
+    void shouldAdvanceHorizon() {
+        assertTrue(inventory.tryReserve(101, "Alice", night(0), night(3)));
+        assertTrue(inventory.tryReserve(101, "Bob", night(5), night(10)));
+        assertTrue(inventory.tryReserve(102, "Carol", night(300), night(365)));
+
+        inventory.advanceTo(night(7));
+        assertEquals(night(7), inventory.getFirstNight());
+        assertThrows(IllegalArgumentException.class, () -> inventory.isAvailable(101, night(6), night(8)));
+        // Bob's stay is cut to the nights still ahead; the freed ring positions now hold nights 365 to 371
+        assertFalse(inventory.isAvailable(101, night(7), night(10)));
+        assertTrue(inventory.isAvailable(101, night(365), night(372)));
+        assertTrue(inventory.tryReserve(102, "Dave", night(365), night(369)));
+        assertEquals(1, inventory.countAvailable(night(364), night(366)));
+        assertEquals(2, inventory.countAvailable(night(10), night(300)));
+        assertEquals(1, inventory.countAvailable(night(366), night(370)));
+
+        // Stays may wrap around the end of the ring
+        assertTrue(inventory.release(102, "Carol", night(300), night(365)));
+        assertTrue(inventory.tryReserve(102, "Erin", night(360), night(365)));
+        assertFalse(inventory.isAvailable(102, night(362), night(367)));
+        assertTrue(inventory.release(101, "Bob", night(7), night(10)));
+        assertFalse(inventory.hasReservations(101));
+        assertTrue(inventory.isAvailable(101, night(7), night(372)));
+    }
+
+    @Test
+    @DisplayName("Should add rooms beyond the initial capacity")
+    void shouldGrowBeyondCapacity() {
+        for (int room = 1; room <= 100; room++) {
+            inventory.addRoom(room);
+        }
+        assertTrue(inventory.tryReserve(100, "Alice", night(1), night(2)));
+        assertTrue(inventory.tryReserve(101, "Bob", night(1), night(2)));
+        assertEquals(100, inventory.countAvailable(night(1), night(2)));
+        assertEquals(102, inventory.countAvailable(night(2), night(3)));
+    }
+}
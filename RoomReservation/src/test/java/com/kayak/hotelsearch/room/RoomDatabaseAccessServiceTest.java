@@ -8,12 +8,24 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kayak.hotelsearch.booking.BookingRequest;
+import com.kayak.hotelsearch.booking.IdempotencyCache;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,6 +35,7 @@ class RoomDatabaseAccessServiceTest {
     @BeforeEach
     void setUp() {
         // Reset the singleton instance before each test
+        RoomDatabaseAccessService.resetInstance();
         service = RoomDatabaseAccessService.getInstance();
     }
 
@@ -78,10 +91,10 @@ class RoomDatabaseAccessServiceTest {
         @Test
         @DisplayName("Should calculate correct success rate")
         void shouldCalculateCorrectSuccessRate() {
-            service.recordSuccessfulBooking();
-            service.recordSuccessfulBooking();
-            service.loadRoom(101); // This increments total bookings
-            service.loadRoom(102); // This increments total bookings
+            assertTrue(service.tryBook(101, "Guest 1"));
+            assertFalse(service.tryBook(101, "Guest 2"));
+            service.loadRoom(102); // Reads are not booking attempts
+            assertEquals(2, service.getTotalBookingAttempts());
             assertEquals(0.5, service.getBookingSuccessRate(), "Success rate should be 50%");
         }
 
@@ -166,6 +179,256 @@ class RoomDatabaseAccessServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Atomic Booking Tests")
+    class AtomicBookingTests {
+        @Test
+        @DisplayName("Should let exactly one concurrent booking win")
+        void shouldLetExactlyOneConcurrentBookingWin() throws InterruptedException {
+            int threadCount = 32;
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch latch = new CountDownLatch(threadCount);
+            AtomicInteger winners = new AtomicInteger(0);
+
+            for (int i = 0; i < threadCount; i++) {
+                String guest = "Guest " + i;
+                executor.submit(() -> {
+                    try {
+                        start.await();
+                        if (service.tryBook(107, guest)) {
+                            winners.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+
+            start.countDown();
+            latch.await(5, TimeUnit.SECONDS);
+            executor.shutdown();
+
+            assertEquals(1, winners.get(), "Only one thread should book the room");
+            assertFalse(service.isRoomAvailable(107), "Room should be booked");
+            assertEquals(1, service.getSuccessfulBookings(), "Only the winning booking should be counted");
+        }
+
+        @Test
+        @DisplayName("Should not book unknown room")
+        void shouldNotBookUnknownRoom() {
+            assertFalse(service.tryBook(999, "Guest 1"));
+        }
+
+        @Test
+        @DisplayName("Should release booked room")
+        void shouldReleaseBookedRoom() {
+            assertTrue(service.tryBook(106, "Guest 1"));
+            assertFalse(service.tryBook(106, "Guest 2"), "Booked room should not be booked again");
+            assertTrue(service.tryUnbook(106));
+            assertFalse(service.tryUnbook(106), "Available room should not be released again");
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Booking Tests")
+    class BatchBookingTests {
+        @Test
+        @DisplayName("Should give each room to the first request in the batch")
+        void shouldResolveConflictsFirstComeInBatch() {
+            boolean[] results = service.bookAll(List.of(
+                    new BookingRequest(101, "Guest 1"),
+                    new BookingRequest(102, "Guest 2"),
+                    new BookingRequest(101, "Guest 3"),
+                    new BookingRequest(999, "Guest 4")));
+
+            assertArrayEquals(new boolean[] {true, true, false, false}, results);
+            assertEquals("Guest 1", service.loadRoom(101).getCurrentGuest());
+            assertEquals(2, service.getSuccessfulBookings());
+        }
+
+        @Test
+        @DisplayName("Should resolve overlapping stays in batch order")
+        void shouldResolveOverlappingStays() {
+            LocalDate checkIn = LocalDate.now().plusDays(10);
+            boolean[] results = service.bookAll(List.of(
+                    new BookingRequest(103, "Guest 1", checkIn, checkIn.plusDays(3)),
+                    new BookingRequest(103, "Guest 2", checkIn.plusDays(2), checkIn.plusDays(4)),
+                    new BookingRequest(103, "Guest 3", checkIn.plusDays(3), checkIn.plusDays(5))));
+
+            assertArrayEquals(new boolean[] {true, false, true}, results);
+        }
+
+        @Test
+        @DisplayName("Should fail invalid requests without aborting the batch")
+        void shouldFailInvalidRequestsOnly() {
+            boolean[] results = service.bookAll(List.of(
+                    new BookingRequest(104, " "),
+                    new BookingRequest(104, "Guest 1")));
+
+            assertArrayEquals(new boolean[] {false, true}, results);
+        }
+    }
+
+    @Nested
+    @DisplayName("Room Query Tests")
+    class RoomQueryTests {
+        @Test
+        @DisplayName("Should return the cheapest available rooms of a type under a price")
+        void shouldFindCheapestAvailableRoomsOfType() {
+            service.updateRoom(Room.builder()
+                    .roomNumber(104)
+                    .roomType(RoomType.DELUXE)
+                    .price(180.0)
+                    .isAvailable(true)
+                    .bookingCount(0)
+                    .build());
+
+            List<Room> rooms = service.findAvailableRooms(RoomQuery.builder()
+                    .roomType(RoomType.DELUXE)
+                    .maxPrice(250.0)
+                    .build());
+            assertEquals(List.of(104, 103), rooms.stream().map(Room::getRoomNumber).toList());
+
+            assertTrue(service.tryBook(104, "Guest 1"));
+            List<Room> cheapest = service.findAvailableRooms(RoomQuery.builder()
+                    .roomType(RoomType.DELUXE)
+                    .maxPrice(250.0)
+                    .limit(1)
+                    .build());
+            assertEquals(List.of(103), cheapest.stream().map(Room::getRoomNumber).toList());
+        }
+
+        @Test
+        @DisplayName("Should merge room types by price and keep type counts current")
+        void shouldQueryAcrossTypes() {
+            assertTrue(service.tryBook(101, "Guest 1"));
+
+            List<Room> rooms = service.findAvailableRooms(RoomQuery.builder()
+                    .minPrice(100.0)
+                    .maxPrice(300.0)
+                    .limit(4)
+                    .build());
+            assertEquals(List.of(102, 103, 104, 105), rooms.stream().map(Room::getRoomNumber).toList());
+            assertEquals(1, service.getAvailableRoomCount(RoomType.STANDARD));
+
+            assertTrue(service.tryUnbook(101));
+            assertEquals(2, service.getAvailableRoomCount(RoomType.STANDARD));
+
+            // A room with nights booked is not free to book whole
+            LocalDate checkIn = LocalDate.now().plusDays(1);
+            assertTrue(service.tryBook(103, "Guest 2", checkIn, checkIn.plusDays(2)));
+            rooms = service.findAvailableRooms(RoomQuery.builder().minPrice(100.0).maxPrice(300.0).limit(4).build());
+            assertEquals(List.of(101, 102, 104, 105), rooms.stream().map(Room::getRoomNumber).toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("Versioned Update Tests")
+    class VersionedUpdateTests {
+        private Room withBookingCount(Room room, int bookingCount) {
+            return Room.builder()
+                    .roomNumber(room.getRoomNumber())
+                    .roomType(room.getRoomType())
+                    .price(room.getPrice())
+                    .isAvailable(room.isAvailable())
+                    .currentGuest(room.getCurrentGuest())
+                    .lastBookingTime(room.getLastBookingTime())
+                    .bookingCount(bookingCount)
+                    .build();
+        }
+
+        @Test
+        @DisplayName("Should bump the version on every change")
+        void shouldBumpVersion() {
+            assertEquals(0, service.loadRoom(101).getVersion());
+            assertTrue(service.tryBook(101, "Guest 1"));
+            assertEquals(1, service.loadRoom(101).getVersion());
+            assertTrue(service.tryUnbook(101));
+            assertEquals(2, service.loadRoom(101).getVersion());
+
+            // A blind write is stamped with the next version whatever the caller passed
+            service.updateRoom(withBookingCount(service.loadRoom(101), 5).withVersion(0));
+            assertEquals(3, service.loadRoom(101).getVersion());
+        }
+
+        @Test
+        @DisplayName("Should only apply a conditional update at the expected version")
+        void shouldRejectStaleConditionalUpdate() {
+            Room read = service.loadRoom(102);
+            assertTrue(service.tryBook(102, "Guest 1"), "A booking lands between the read and the write");
+
+            assertFalse(service.updateRoomIfVersion(withBookingCount(read, 0), read.getVersion()));
+            assertEquals(1, service.loadRoom(102).getBookingCount(), "The booking should not be lost");
+            assertEquals("Guest 1", service.loadRoom(102).getCurrentGuest());
+            assertEquals(1, service.getVersionConflictCount());
+
+            Room current = service.loadRoom(102);
+            assertTrue(service.updateRoomIfVersion(withBookingCount(current, 7), current.getVersion()));
+            assertEquals(7, service.loadRoom(102).getBookingCount());
+            assertEquals(current.getVersion() + 1, service.loadRoom(102).getVersion());
+            assertFalse(service.updateRoomIfVersion(withBookingCount(current, 8), 0), "Version 0 is stale, so the update is rejected");
+            assertEquals(2, service.getVersionConflictCount());
+
+            Room unknown = Room.builder().roomNumber(999).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build();
+            assertFalse(service.updateRoomIfVersion(unknown, 0), "Unknown rooms are never updated");
+            assertNull(service.loadRoom(999));
+            assertEquals(2, service.getVersionConflictCount(), "An unknown room is not a version conflict");
+        }
+
+        @Test
+        @DisplayName("Should not lose increments from concurrent read-modify-write retries")
+        void shouldRetryConcurrentUpdates() throws InterruptedException {
+            int threadCount = 8;
+            int increments = 50;
+            RetryPolicy policy = RetryPolicy.builder().maxAttempts(1000).initialBackoffMicros(10).maxBackoffMicros(1000).build();
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            CountDownLatch latch = new CountDownLatch(threadCount);
+            AtomicInteger failures = new AtomicInteger();
+
+            for (int i = 0; i < threadCount; i++) {
+                executor.submit(() -> {
+                    try {
+                        for (int j = 0; j < increments; j++) {
+                            if (service.updateRoomWithRetry(107,
+                                    room -> withBookingCount(room, room.getBookingCount() + 1), policy) == null) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+
+            assertEquals(0, failures.get());
+            assertEquals(threadCount * increments, service.loadRoom(107).getBookingCount());
+            assertEquals(threadCount * increments, service.loadRoom(107).getVersion());
+        }
+
+        @Test
+        @DisplayName("Should give up after the policy's attempts while the room keeps changing")
+        void shouldGiveUpAfterMaxAttempts() {
+            RetryPolicy policy = RetryPolicy.builder().maxAttempts(3).initialBackoffMicros(0).build();
+            AtomicInteger attempts = new AtomicInteger();
+
+            Room result = service.updateRoomWithRetry(106, room -> {
+                attempts.incrementAndGet();
+                // Another writer changes the room after every read
+                service.updateRoom(withBookingCount(room, room.getBookingCount() + 1));
+                return withBookingCount(room, 100);
+            }, policy);
+
+            assertNull(result);
+            assertEquals(3, attempts.get());
+            assertNotEquals(100, service.loadRoom(106).getBookingCount());
+        }
+    }
+
     @Nested
     @DisplayName("Room Availability Tests")
     class RoomAvailabilityTests {
@@ -177,6 +440,9 @@ class RoomDatabaseAccessServiceTest {
         })
         @DisplayName("Should check room availability correctly")
         void shouldCheckRoomAvailability(int roomNumber, boolean expectedAvailability) {
+            // Every room starts available on a fresh instance
+            assertTrue(service.tryBook(103, "Guest 103"));
+            assertTrue(service.tryBook(105, "Guest 105"));
             assertEquals(expectedAvailability, service.isRoomAvailable(roomNumber));
         }
 
@@ -188,4 +454,182 @@ class RoomDatabaseAccessServiceTest {
             assertTrue(availableCount <= 7, "Should not have more available rooms than total rooms");
         }
     }
-} 
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Dated And Undated Booking Tests")
+    class MixedBookingTests {
+        private final LocalDate checkIn = LocalDate.now().plusDays(5);
+
+        @Test
+        @DisplayName("Should not book nights of a room already booked or held whole")
+        void shouldRejectNightsOfRoomTakenWhole() {
+            assertTrue(service.tryBook(101, "Guest 1"));
+            assertFalse(service.tryBook(101, "Guest 2", checkIn, checkIn.plusDays(2)));
+            assertFalse(service.isRoomAvailable(101, checkIn, checkIn.plusDays(2)));
+
+            RoomHold hold = service.tryHold(102, "Guest 3", Duration.ofMinutes(5));
+            assertNotNull(hold);
+            assertFalse(service.tryBook(102, "Guest 4", checkIn, checkIn.plusDays(2)));
+            assertTrue(service.releaseHold(hold));
+            assertTrue(service.tryBook(102, "Guest 4", checkIn, checkIn.plusDays(2)));
+        }
+
+        @Test
+        @DisplayName("Should not book or hold a room whole while it has nights booked")
+        void shouldRejectRoomWithNightsBooked() {
+            assertTrue(service.tryBook(103, "Guest 1", checkIn, checkIn.plusDays(2)));
+
+            assertFalse(service.tryBook(103, "Guest 2"));
+            assertNull(service.tryHold(103, "Guest 2", Duration.ofMinutes(5)));
+            assertFalse(service.isRoomAvailable(103));
+            assertEquals(List.of(104), service.findAvailableRooms(RoomQuery.builder().roomType(RoomType.DELUXE).build())
+                    .stream().map(Room::getRoomNumber).toList());
+
+            assertTrue(service.cancelStay(103, "Guest 1", checkIn, checkIn.plusDays(2)));
+            assertTrue(service.tryBook(103, "Guest 2"));
+            assertEquals("Guest 2", service.loadRoom(103).getCurrentGuest());
+        }
+
+        @Test
+        @DisplayName("Should reject a stay missing a date or ending before it starts instead of taking the room whole")
+        void shouldRejectHalfDatedStays() throws Exception {
+            assertThrows(IllegalArgumentException.class, () -> service.tryBook(101, "Guest 1", checkIn, null));
+            assertThrows(IllegalArgumentException.class, () -> service.tryBook(101, "Guest 1", null, checkIn));
+            assertThrows(IllegalArgumentException.class, () -> service.tryBook(101, "Guest 1", checkIn, checkIn));
+            assertThrows(IllegalArgumentException.class, () -> service.cancelStay(999, "Guest 1", checkIn, null));
+            assertThrows(IllegalArgumentException.class, () -> new BookingRequest(101, "Guest 1", checkIn, null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new BookingRequest(101, "Guest 1", checkIn, checkIn.minusDays(1)));
+            assertTrue(service.isRoomAvailable(101));
+
+            // Read from a request file, a half-dated request is still dated and fails on its own in a batch
+            BookingRequest halfDated = new ObjectMapper().registerModule(new JavaTimeModule()).readValue(
+                    "{\"roomNumber\": 101, \"guest\": \"Guest 1\", \"checkIn\": \"" + checkIn + "\"}", BookingRequest.class);
+            assertTrue(halfDated.hasStayDates());
+            assertArrayEquals(new boolean[] {false, true},
+                    service.bookAll(List.of(halfDated, new BookingRequest(102, "Guest 2"))));
+            assertTrue(service.isRoomAvailable(101));
+        }
+
+        @Test
+        @DisplayName("Should book nights of a room added after startup")
+        void shouldBookNightsOfAddedRoom() {
+            service.updateRoom(Room.builder().roomNumber(108).roomType(RoomType.SUITE).price(300.0).isAvailable(true).build());
+
+            assertTrue(service.isRoomAvailable(108, checkIn, checkIn.plusDays(2)));
+            assertTrue(service.tryBook(108, "Guest 1", checkIn, checkIn.plusDays(2)));
+            assertFalse(service.tryBook(108, "Guest 2", checkIn.plusDays(1), checkIn.plusDays(3)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Listener Failure Tests")
+    class ListenerFailureTests {
+        private final AtomicBoolean failAppend = new AtomicBoolean();
+        private final AtomicBoolean failDurable = new AtomicBoolean();
+
+        @BeforeEach
+        void addFailingLog() {
+            // Stands in for the write-ahead log: appends run under the room's lock, the durability wait after it
+            service.addUpdateListener(new RoomUpdateListener() {
+                @Override
+                public void onRoomUpdated(Room room) {
+                    if (failAppend.get()) {
+                        throw new UncheckedIOException(new IOException("Append failed"));
+                    }
+                }
+
+                @Override
+                public void onStayChanged(StayChange change) {
+                    onRoomUpdated(null);
+                }
+
+                @Override
+                public void afterUpdate() {
+                    if (failDurable.get()) {
+                        throw new UncheckedIOException(new IOException("Fsync failed"));
+                    }
+                }
+            });
+        }
+
+        @Test
+        @DisplayName("Should change nothing when the update cannot be logged")
+        void shouldChangeNothingWhenAppendFails() {
+            LocalDate checkIn = LocalDate.now().plusDays(1);
+            RoomHold hold = service.tryHold(102, "Guest 2", Duration.ofMinutes(5));
+            int available = service.getAvailableRoomCount();
+            failAppend.set(true);
+
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> service.tryBook(101, "Guest 1"));
+            assertFalse(e instanceof UpdateNotDurableException);
+            assertThrows(UncheckedIOException.class, () -> service.tryBook(103, "Guest 3", checkIn, checkIn.plusDays(2)));
+            assertThrows(UncheckedIOException.class, () -> service.confirmHold(hold));
+
+            assertTrue(service.isRoomAvailable(101));
+            assertEquals(available, service.getAvailableRoomCount());
+            assertTrue(service.isRoomAvailable(103, checkIn, checkIn.plusDays(2)));
+            assertTrue(service.isRoomAvailable(103));
+            assertEquals(1, service.getActiveHoldCount(), "The hold outlives a confirmation that was never logged");
+            assertEquals(0, service.getSuccessfulBookings());
+
+            failAppend.set(false);
+            assertTrue(service.tryBook(101, "Guest 1"));
+            assertTrue(service.confirmHold(hold));
+        }
+
+        @Test
+        @DisplayName("Should report an update applied but not durable as such, and count it")
+        void shouldReportAppliedButNotDurable() {
+            LocalDate checkIn = LocalDate.now().plusDays(1);
+            failDurable.set(true);
+
+            UpdateNotDurableException booked = assertThrows(UpdateNotDurableException.class,
+                    () -> service.tryBook(101, "Guest 1"));
+            assertEquals(BookingOutcome.BOOKED, booked.getOutcome());
+            assertEquals("Guest 1", service.loadRoom(101).getCurrentGuest());
+            assertEquals(1, service.getSuccessfulBookings());
+
+            UpdateNotDurableException reserved = assertThrows(UpdateNotDurableException.class,
+                    () -> service.tryBook(103, "Guest 3", checkIn, checkIn.plusDays(2)));
+            assertEquals(BookingOutcome.BOOKED, reserved.getOutcome());
+            assertFalse(service.isRoomAvailable(103, checkIn, checkIn.plusDays(2)));
+            assertEquals(2, service.getSuccessfulBookings());
+
+            UpdateNotDurableException released = assertThrows(UpdateNotDurableException.class,
+                    () -> service.tryUnbook(101));
+            assertEquals(BookingOutcome.RELEASED, released.getOutcome());
+            assertTrue(service.isRoomAvailable(101));
+        }
+
+        @Test
+        @DisplayName("Should answer a retry of a booking applied but not durable with its outcome")
+        void shouldAnswerRetryOfUndurableBooking() {
+            IdempotencyCache idempotency = new IdempotencyCache(64, Duration.ofMinutes(10));
+            Supplier<BookingOutcome> book = () -> service.tryBook(101, "Guest 1")
+                    ? BookingOutcome.BOOKED : BookingOutcome.ALREADY_TAKEN;
+            failDurable.set(true);
+
+            assertThrows(UpdateNotDurableException.class, () -> idempotency.execute("req-1", book));
+            failDurable.set(false);
+
+            assertEquals(BookingOutcome.BOOKED, idempotency.execute("req-1", book));
+            assertEquals(1, service.getTotalBookingAttempts(), "The retry is answered without booking again");
+        }
+
+        @Test
+        @DisplayName("Should report which batch requests were booked when the batch stops on a durability failure")
+        void shouldReportBatchProgress() {
+            List<BookingRequest> batch = List.of(new BookingRequest(101, "Guest 1"), new BookingRequest(102, "Guest 2"));
+            boolean[] results = new boolean[batch.size()];
+            failDurable.set(true);
+
+            assertThrows(UpdateNotDurableException.class, () -> service.bookAll(batch, results));
+
+            assertTrue(results[0]);
+            assertFalse(results[1]);
+            assertFalse(service.isRoomAvailable(101));
+            assertTrue(service.isRoomAvailable(102));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kayak.hotelsearch.room;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomHoldTest {
+    private static final Duration CHECKOUT = Duration.ofMinutes(10);
+    private RoomDatabaseAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build(),
+                Room.builder().roomNumber(102).roomType(RoomType.STANDARD).price(120.0).isAvailable(true).build()));
+    }
+
+    @Test
+    @DisplayName("Should keep a held room from everyone but the holder")
+    void shouldBlockOthersWhileHeld() {
+        RoomHold hold = service.tryHold(101, "Alice", CHECKOUT);
+
+        assertNotNull(hold);
+        assertNull(service.tryHold(101, "Bob", CHECKOUT));
+        assertFalse(service.tryBook(101, "Bob"));
+        assertFalse(service.isRoomAvailable(101));
+        assertEquals(1, service.getAvailableRoomCount());
+        assertEquals(1, service.getAvailableRoomCount(RoomType.STANDARD));
+        assertEquals(List.of(102), service.findAvailableRooms(RoomQuery.builder().build()).stream()
+                .map(Room::getRoomNumber).toList());
+        assertTrue(service.loadRoom(101).isAvailable(), "A hold should not change the stored room");
+    }
+
+    @Test
+    @DisplayName("Should book the room for the holder on confirm")
+    void shouldConfirmHold() {
+        RoomHold hold = service.tryHold(101, "Alice", CHECKOUT);
+
+        assertTrue(service.confirmHold(hold));
+        assertEquals("Alice", service.loadRoom(101).getCurrentGuest());
+        assertFalse(service.loadRoom(101).isAvailable());
+        assertEquals(0, service.getActiveHoldCount());
+        assertFalse(service.confirmHold(hold), "A hold should only be confirmed once");
+        assertFalse(service.releaseHold(hold));
+        assertEquals(1, service.getSuccessfulBookings());
+    }
+
+    @Test
+    @DisplayName("Should make the room bookable again on release")
+    void shouldReleaseHold() {
+        RoomHold hold = service.tryHold(101, "Alice", CHECKOUT);
+
+        assertTrue(service.releaseHold(hold));
+        assertFalse(service.confirmHold(hold), "A released hold should not book the room");
+        assertTrue(service.isRoomAvailable(101));
+        assertEquals(2, service.getAvailableRoomCount(RoomType.STANDARD));
+        assertTrue(service.tryBook(101, "Bob"));
+    }
+
+    @Test
+    @DisplayName("Should release a hold automatically once it expires")
+    void shouldExpireHold() throws InterruptedException {
+        RoomHold hold = service.tryHold(101, "Alice", Duration.ofMillis(200));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (service.getActiveHoldCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, service.getActiveHoldCount());
+        assertEquals(1, service.getExpiredHoldCount());
+        assertFalse(service.confirmHold(hold), "An expired hold should not book the room");
+        assertTrue(service.isRoomAvailable(101));
+        assertTrue(service.tryBook(101, "Bob"));
+    }
+
+    @Test
+    @DisplayName("Should reject holds on unknown or booked rooms and invalid durations")
+    void shouldRejectInvalidHolds() {
+        assertTrue(service.tryBook(102, "Bob"));
+
+        assertNull(service.tryHold(102, "Alice", CHECKOUT));
+        assertNull(service.tryHold(999, "Alice", CHECKOUT));
+        assertThrows(IllegalArgumentException.class, () -> service.tryHold(101, "Alice", Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> service.tryHold(101, " ", CHECKOUT));
+        assertEquals(0, service.getActiveHoldCount());
+    }
+}
@@ -0,0 +1,207 @@
+package com.kayak.hotelsearch.room;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistTest {
+    private RoomDatabaseAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RoomDatabaseAccessService(List.of(
+                Room.builder().roomNumber(101).roomType(RoomType.STANDARD).price(100.0).isAvailable(true).build(),
+                Room.builder().roomNumber(102).roomType(RoomType.STANDARD).price(120.0).isAvailable(true).build(),
+                Room.builder().roomNumber(103).roomType(RoomType.DELUXE).price(200.0).isAvailable(true).build()));
+        assertTrue(service.tryBook(101, "Owner 101"));
+        assertTrue(service.tryBook(102, "Owner 102"));
+    }
+
+    @Test
+    @DisplayName("Should give a released room to the highest tier, earliest first within a tier")
+    void shouldMatchByTierThenArrival() {
+        WaitlistEntry first = service.joinWaitlist(101, "First", LoyaltyTier.SILVER);
+        WaitlistEntry second = service.joinWaitlist(101, "Second", LoyaltyTier.GOLD);
+        WaitlistEntry third = service.joinWaitlist(101, "Third", LoyaltyTier.GOLD);
+        assertEquals(3, service.getWaitlistSize());
+
+        assertTrue(service.tryUnbook(101));
+        assertEquals("Second", service.loadRoom(101).getCurrentGuest());
+        assertEquals(101, second.getAssignment().join().getRoomNumber());
+        assertFalse(second.isWaiting());
+
+        assertTrue(service.tryUnbook(101));
+        assertEquals("Third", service.loadRoom(101).getCurrentGuest());
+        assertTrue(service.tryUnbook(101));
+        assertEquals("First", service.loadRoom(101).getCurrentGuest());
+        assertTrue(first.getAssignment().isDone() && third.getAssignment().isDone());
+        assertEquals(0, service.getWaitlistSize());
+        assertEquals(3, service.getWaitlistMatchCount());
+    }
+
+    @Test
+    @DisplayName("Should count a waitlisted guest's booking as the success of their first attempt, not a new one")
+    void shouldNotCountMatchAsNewAttempt() {
+        List<BookingOutcome> outcomes = new ArrayList<>();
+        service.addBookingAttemptListener((roomType, outcome) -> outcomes.add(outcome));
+        assertFalse(service.tryBook(101, "Guest"));
+        WaitlistEntry entry = service.joinWaitlist(101, "Guest", LoyaltyTier.NONE);
+
+        assertTrue(service.tryUnbook(101));
+        assertEquals("Guest", entry.getAssignment().join().getCurrentGuest());
+        assertEquals(List.of(BookingOutcome.ALREADY_TAKEN), outcomes);
+        assertEquals(3, service.getTotalBookingAttempts());
+        assertEquals(3, service.getSuccessfulBookings());
+    }
+
+    @Test
+    @DisplayName("Should match guests waiting for any room of the type against those waiting for the room")
+    void shouldMatchTypeWaiters() {
+        WaitlistEntry anyStandard = service.joinWaitlist(RoomType.STANDARD, "Any", LoyaltyTier.NONE);
+        WaitlistEntry for102 = service.joinWaitlist(102, "Specific", LoyaltyTier.NONE);
+
+        // The type waiter arrived first, so they get whichever standard room frees up first
+        assertTrue(service.tryUnbook(102));
+        assertEquals("Any", service.loadRoom(102).getCurrentGuest());
+        assertTrue(for102.isWaiting());
+
+        assertTrue(service.tryUnbook(101));
+        assertTrue(service.isRoomAvailable(101), "Nobody is waiting for room 101 or any standard room");
+        assertTrue(service.tryUnbook(102));
+        assertEquals("Specific", service.loadRoom(102).getCurrentGuest());
+        assertEquals(102, anyStandard.getAssignment().join().getRoomNumber());
+    }
+
+    @Test
+    @DisplayName("Should book a free room straight away for a guest joining its waitlist")
+    void shouldMatchFreeRoomOnJoin() {
+        WaitlistEntry deluxe = service.joinWaitlist(RoomType.DELUXE, "Deluxe", LoyaltyTier.NONE);
+
+        assertTrue(deluxe.getAssignment().isDone());
+        assertEquals("Deluxe", service.loadRoom(103).getCurrentGuest());
+        assertEquals(0, service.getWaitlistSize());
+        assertNull(service.joinWaitlist(999, "Nobody", LoyaltyTier.NONE), "Unknown rooms have no waitlist");
+    }
+
+    @Test
+    @DisplayName("Should skip guests who left and hand rooms released by holds to the waitlist")
+    void shouldSkipGuestsWhoLeft() {
+        WaitlistEntry leaving = service.joinWaitlist(101, "Leaving", LoyaltyTier.PLATINUM);
+        WaitlistEntry staying = service.joinWaitlist(101, "Staying", LoyaltyTier.NONE);
+
+        assertTrue(service.leaveWaitlist(leaving));
+        assertFalse(service.leaveWaitlist(leaving));
+        assertTrue(leaving.getAssignment().isCancelled());
+        assertEquals(1, service.getWaitlistSize());
+
+        // Released while a hold is open, the room only reaches the waitlist once the hold is released
+        service.updateRoom(service.loadRoom(101).unbookRoom());
+        RoomHold hold = service.tryHold(101, "Shopper", Duration.ofMinutes(10));
+        assertNotNull(hold);
+        assertTrue(service.releaseHold(hold));
+        assertEquals("Staying", service.loadRoom(101).getCurrentGuest());
+        assertEquals(101, staying.getAssignment().join().getRoomNumber());
+    }
+
+    @Test
+    @DisplayName("Should book a room freed by an expired hold for the waitlist off the expiry thread")
+    void shouldMatchExpiredHoldsOffTheTimerThread() throws Exception {
+        List<String> bookingThreads = new CopyOnWriteArrayList<>();
+        service.addUpdateListener(room -> {
+            if ("Waiter".equals(room.getCurrentGuest())) {
+                bookingThreads.add(Thread.currentThread().getName());
+            }
+        });
+        assertNotNull(service.tryHold(103, "Shopper", Duration.ofMillis(100)));
+        WaitlistEntry entry = service.joinWaitlist(103, "Waiter", LoyaltyTier.NONE);
+
+        assertEquals(103, entry.getAssignment().get(5, TimeUnit.SECONDS).getRoomNumber());
+        assertEquals(1, service.getExpiredHoldCount());
+        assertEquals(1, bookingThreads.size());
+        assertTrue(bookingThreads.get(0).startsWith("waitlist-match-"), bookingThreads.get(0));
+    }
+
+    @Test
+    @DisplayName("Should not keep guests who left, or their rooms' queues, once they pile up")
+    void shouldCompactGuestsWhoLeft() {
+        Waitlist waitlist = new Waitlist(100_000);
+        WaitlistEntry staying = waitlist.add(1, RoomType.SUITE, "Staying", LoyaltyTier.NONE);
+        for (int i = 0; i < 10_000; i++) {
+            WaitlistEntry entry = i % 2 == 0
+                    ? waitlist.add(1000 + i, RoomType.SUITE, "Guest " + i, LoyaltyTier.NONE)
+                    : waitlist.add(0, RoomType.SUITE, "Guest " + i, LoyaltyTier.GOLD);
+            assertTrue(waitlist.cancel(entry));
+        }
+
+        assertEquals(1, waitlist.size());
+        assertTrue(waitlist.queuedCount() < 200, waitlist.queuedCount() + " entries still queued");
+        assertSame(staying, waitlist.claim(1, RoomType.SUITE));
+        assertNull(waitlist.claim(1, RoomType.SUITE));
+    }
+
+    @Test
+    @DisplayName("Should book each released room for exactly one waiter under cancellation churn")
+    void shouldAssignEachReleaseOnce() throws InterruptedException {
+        int threadCount = 8;
+        int iterations = 500;
+        List<WaitlistEntry> entries = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    List<WaitlistEntry> mine = new ArrayList<>();
+                    for (int i = 0; i < iterations; i++) {
+                        LoyaltyTier tier = LoyaltyTier.values()[random.nextInt(LoyaltyTier.values().length)];
+                        WaitlistEntry entry = random.nextBoolean()
+                                ? service.joinWaitlist(101 + random.nextInt(2), "Guest " + thread + "-" + i, tier)
+                                : service.joinWaitlist(RoomType.STANDARD, "Guest " + thread + "-" + i, tier);
+                        mine.add(entry);
+                        service.tryUnbook(101 + random.nextInt(2));
+                    }
+                    synchronized (entries) {
+                        entries.addAll(mine);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        long assigned = entries.stream().filter(entry -> entry.getAssignment().isDone()).count();
+        assertEquals(service.getWaitlistMatchCount(), assigned);
+        assertEquals(entries.size() - assigned, service.getWaitlistSize());
+        // Every guest who got a room got a distinct booking, and the rooms hold the latest of them
+        Set<String> guests = new HashSet<>();
+        for (WaitlistEntry entry : entries) {
+            if (entry.getAssignment().isDone()) {
+                assertTrue(guests.add(entry.getGuest()));
+                assertEquals(entry.getGuest(), entry.getAssignment().join().getCurrentGuest());
+            }
+        }
+        for (int room = 101; room <= 102; room++) {
+            int roomNumber = room;
+            boolean anyoneWaiting = entries.stream().anyMatch(entry -> entry.isWaiting()
+                    && (entry.getRoomNumber() == roomNumber || entry.getRoomNumber() == 0));
+            assertFalse(service.isRoomAvailable(room) && anyoneWaiting, "Room " + room + " was left free with guests waiting");
+        }
+    }
+}